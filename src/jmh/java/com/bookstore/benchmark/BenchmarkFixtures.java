@@ -0,0 +1,104 @@
+package com.bookstore.benchmark;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+import com.bookstore.repository.CustomerRepository;
+import com.bookstore.service.CustomerService;
+import com.bookstore.service.LoyaltyService;
+import com.bookstore.service.pricing.NewReleasePricingStrategy;
+import com.bookstore.service.pricing.OldEditionPricingStrategy;
+import com.bookstore.service.pricing.PricingEngine;
+import com.bookstore.service.pricing.PricingService;
+import com.bookstore.service.pricing.PricingStrategyFactory;
+import com.bookstore.service.pricing.RegularPricingStrategy;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Services wired without Spring, and reproducible test data, for the benchmarks
+ */
+final class BenchmarkFixtures {
+
+    private static final long SEED = 42L;
+
+    private BenchmarkFixtures() {
+    }
+
+    static PricingStrategyFactory pricingStrategyFactory() {
+        return new PricingStrategyFactory(
+                List.of(new NewReleasePricingStrategy(), new RegularPricingStrategy(), new OldEditionPricingStrategy()),
+                new BookstoreProperties());
+    }
+
+    static PricingService pricingService(PricingEngine engine) {
+        BookstoreProperties properties = new BookstoreProperties();
+        properties.getPricing().setEngine(engine);
+        return new PricingService(pricingStrategyFactory(), new LoyaltyService(), properties, null);
+    }
+
+    /**
+     * Build a cart of books with prices between 1.00 and 99.99, the same for a given size and mix on every run
+     */
+    static List<Book> cart(int size, CartMix mix) {
+        Random random = new Random(SEED);
+        BookType[] types = mix.types();
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(9_900), 2);
+            books.add(new Book((long) i + 1, "Book " + (i + 1), price, types[random.nextInt(types.length)]));
+        }
+        return books;
+    }
+
+    /**
+     * A customer service backed by a map instead of the database, so that purchases measure the service code only
+     */
+    static CustomerService inMemoryCustomerService(Customer... customers) {
+        Map<Long, Customer> store = new ConcurrentHashMap<>();
+        for (Customer customer : customers) {
+            store.put(customer.getId(), customer);
+        }
+        CustomerRepository repository = (CustomerRepository) Proxy.newProxyInstance(
+                CustomerRepository.class.getClassLoader(),
+                new Class<?>[] {CustomerRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.ofNullable(store.get((Long) args[0]));
+                    case "findLoyaltyPointsById" -> Optional.ofNullable(store.get((Long) args[0])).map(Customer::getLoyaltyPoints);
+                    case "addLoyaltyPoints" -> {
+                        Customer customer = store.get((Long) args[0]);
+                        if (customer == null) {
+                            yield 0;
+                        }
+                        customer.setLoyaltyPoints(customer.getLoyaltyPoints() + (int) args[1]);
+                        yield 1;
+                    }
+                    case "redeemLoyaltyPoints" -> {
+                        Customer customer = store.get((Long) args[0]);
+                        if (customer == null || customer.getLoyaltyPoints() < (int) args[1]) {
+                            yield 0;
+                        }
+                        customer.setLoyaltyPoints((int) args[2]);
+                        yield 1;
+                    }
+                    case "save" -> {
+                        Customer customer = (Customer) args[0];
+                        store.put(customer.getId(), customer);
+                        yield customer;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryCustomerRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        return new CustomerService(repository, null, null);
+    }
+}
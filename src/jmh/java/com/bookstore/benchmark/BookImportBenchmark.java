@@ -0,0 +1,116 @@
+package com.bookstore.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.bookstore.BookstoreApplication;
+import com.bookstore.controller.BookController;
+import com.bookstore.dto.BookImportReport;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.repository.BookRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second written by a bulk CSV import against the same rows added one call at a time
+ * Both go through the controller in process, so the per-row path leaves out the HTTP round trip that a client
+ * adding books one by one would also pay. The rows are deleted after every iteration.
+ *   mvn -Pjmh -DskipTests verify -Djmh.args="BookImportBenchmark -rf json -rff target/jmh-book-import.json"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookImportBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private static final long SEED = 42L;
+
+    @Param({"500"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+
+    private BookController bookController;
+
+    private BookRepository bookRepository;
+
+    private byte[] csv;
+
+    private List<Book> books;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(BookstoreApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("bookstore.book-import.batch-size=" + batchSize)
+                .run();
+        bookController = context.getBean(BookController.class);
+        bookRepository = context.getBean(BookRepository.class);
+
+        Random random = new Random(SEED);
+        BookType[] types = BookType.values();
+        StringBuilder feed = new StringBuilder("title,basePrice,type\n");
+        books = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(9_900), 2);
+            BookType type = types[random.nextInt(types.length)];
+            feed.append("Imported Book ").append(i).append(',').append(price).append(',').append(type).append('\n');
+            books.add(new Book(null, "Imported Book " + i, price, type));
+        }
+        csv = feed.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteRows() {
+        bookRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public BookImportReport importCsv() throws IOException {
+        return bookController.importBooksCsv(new ByteArrayInputStream(csv));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Book addOneByOne() {
+        Book last = null;
+        for (Book book : books) {
+            last = bookController.addBook(new Book(null, book.getTitle(), book.getBasePrice(), book.getType()))
+                    .getBody();
+        }
+        return last;
+    }
+}
@@ -0,0 +1,26 @@
+package com.bookstore.benchmark;
+
+import com.bookstore.model.BookType;
+
+/**
+ * Book types of the carts used by the benchmarks
+ */
+public enum CartMix {
+    NEW_RELEASE(BookType.NEW_RELEASE),
+    REGULAR(BookType.REGULAR),
+    OLD_EDITION(BookType.OLD_EDITION),
+    /**
+     * Every type with the same probability
+     */
+    MIXED(BookType.values());
+
+    private final BookType[] types;
+
+    CartMix(BookType... types) {
+        this.types = types;
+    }
+
+    BookType[] types() {
+        return types;
+    }
+}
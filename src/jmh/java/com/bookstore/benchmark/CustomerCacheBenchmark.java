@@ -0,0 +1,104 @@
+package com.bookstore.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.bookstore.BookstoreApplication;
+import com.bookstore.controller.PricingController;
+import com.bookstore.dto.PricingRequest;
+import com.bookstore.dto.PricingResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.CustomerRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of pricing requests through the controller with and without the customer cache
+ * Each request looks up one of a few thousand customers at random, as a pricing page would, and prices a small
+ * cart; the catalog cache is on in both modes, so the difference is the customer lookup. With the loyalty ledger
+ * the balance is read from memory either way and only the row lookup is saved.
+ *   mvn -Pjmh -DskipTests verify -Djmh.args="CustomerCacheBenchmark -rf json -rff target/jmh-customer-cache.json"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CustomerCacheBenchmark {
+
+    @Param({"false", "true"})
+    private boolean customerCache;
+
+    @Param({"false", "true"})
+    private boolean loyaltyLedger;
+
+    @Param({"5000"})
+    private int customers;
+
+    private ConfigurableApplicationContext context;
+
+    private PricingController pricingController;
+
+    private List<Long> customerIds;
+
+    private List<Long> bookIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(BookstoreApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "bookstore.customer-cache.enabled=" + customerCache,
+                        "bookstore.loyalty-ledger.enabled=" + loyaltyLedger)
+                .run();
+        pricingController = context.getBean(PricingController.class);
+
+        List<Customer> rows = new ArrayList<>(customers);
+        for (int i = 0; i < customers; i++) {
+            rows.add(new Customer(null, "Customer " + i, i % 12));
+        }
+        customerIds = context.getBean(CustomerRepository.class).saveAll(rows).stream().map(Customer::getId).toList();
+        bookIds = context.getBean(BookRepository.class).saveAll(List.of(
+                        new Book(null, "New Release", new BigDecimal("39.99"), BookType.NEW_RELEASE),
+                        new Book(null, "Regular", new BigDecimal("29.99"), BookType.REGULAR),
+                        new Book(null, "Old Edition", new BigDecimal("9.99"), BookType.OLD_EDITION)))
+                .stream().map(Book::getId).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public PricingResponse calculatePrice() {
+        PricingRequest request = new PricingRequest();
+        request.setCustomerId(customerIds.get(ThreadLocalRandom.current().nextInt(customerIds.size())));
+        request.setBookIds(bookIds);
+        return pricingController.calculatePrice(request).getBody();
+    }
+}
@@ -0,0 +1,118 @@
+package com.bookstore.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import com.bookstore.BookstoreApplication;
+import com.bookstore.controller.PurchaseController;
+import com.bookstore.dto.PurchaseRequest;
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.CustomerRepository;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of purchases through the controller, committed one by one or in groups, by group window
+ * A window of 0 disables group commit. The database is a file whose log is synced on every commit, as a durable
+ * database would do, so the cost that groups share is actually paid; the ledger writes its entries in the purchase
+ * transaction. Each benchmark thread buys for its own customer, so the per-customer locks do not serialize them.
+ * Run both modes to see what each window costs a purchase arriving alone against what it saves under load:
+ *   mvn -Pjmh -DskipTests verify -Djmh.args="GroupCommitBenchmark -rf json -rff target/jmh-group-commit.json"
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class GroupCommitBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Store {
+
+        @Param({"0", "250", "1000", "4000"})
+        private int windowMicros;
+
+        @Param({"64"})
+        private int maxBatchSize;
+
+        private Path databaseDirectory;
+
+        private ConfigurableApplicationContext context;
+
+        private PurchaseController purchaseController;
+
+        private Long bookId;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            databaseDirectory = Files.createTempDirectory("group-commit-benchmark");
+            context = new SpringApplicationBuilder(BookstoreApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .properties(
+                            "spring.datasource.url=jdbc:hsqldb:file:" + databaseDirectory.resolve("bookstore")
+                                    + ";hsqldb.write_delay=false",
+                            "spring.datasource.hikari.maximum-pool-size=20",
+                            "bookstore.ledger.durability=sync",
+                            "bookstore.group-commit.enabled=" + (windowMicros > 0),
+                            "bookstore.group-commit.window=" + windowMicros + "us",
+                            "bookstore.group-commit.max-batch-size=" + maxBatchSize)
+                    .run();
+            purchaseController = context.getBean(PurchaseController.class);
+            bookId = context.getBean(BookRepository.class)
+                    .save(new Book(null, "New Release", new BigDecimal("39.99"), BookType.NEW_RELEASE))
+                    .getId();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            context.close();
+            FileSystemUtils.deleteRecursively(databaseDirectory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Buyer {
+
+        private PurchaseRequest request;
+
+        @Setup(Level.Trial)
+        public void setUp(Store store) {
+            Customer customer = store.context.getBean(CustomerRepository.class)
+                    .save(new Customer(null, "Benchmark Buyer", 0));
+            request = new PurchaseRequest();
+            request.setCustomerId(customer.getId());
+            request.setBookIds(List.of(store.bookId));
+        }
+    }
+
+    @Benchmark
+    public PurchaseResponse purchase(Store store, Buyer buyer) {
+        return store.purchaseController.purchaseBooks(buyer.request, null).getBody();
+    }
+}
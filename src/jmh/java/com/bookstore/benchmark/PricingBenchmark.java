@@ -0,0 +1,62 @@
+package com.bookstore.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bookstore.model.Book;
+import com.bookstore.service.pricing.PricingEngine;
+import com.bookstore.service.pricing.PricingService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of pricing a whole cart, by cart size, book-type mix, loyalty state and engine
+ * A loyalty balance of 10 makes the cheapest eligible book free and shifts the bundle threshold to 4 books
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+
+    @Param({"1", "3", "10", "100", "1000"})
+    private int cartSize;
+
+    @Param({"MIXED", "NEW_RELEASE", "REGULAR", "OLD_EDITION"})
+    private CartMix mix;
+
+    @Param({"0", "10"})
+    private int loyaltyPoints;
+
+    @Param({"DECIMAL", "FIXED_POINT"})
+    private PricingEngine engine;
+
+    private PricingService pricingService;
+
+    private List<Book> cart;
+
+    @Setup
+    public void setUp() {
+        pricingService = BenchmarkFixtures.pricingService(engine);
+        cart = BenchmarkFixtures.cart(cartSize, mix);
+    }
+
+    @Benchmark
+    public BigDecimal calculatePrice() {
+        return pricingService.calculatePrice(cart, loyaltyPoints, new ArrayList<>(1));
+    }
+}
@@ -0,0 +1,61 @@
+package com.bookstore.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.service.pricing.PricingStrategy;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of pricing one line item with each strategy, through the BigDecimal and the cents paths
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingStrategyBenchmark {
+
+    @Param({"NEW_RELEASE", "REGULAR", "OLD_EDITION"})
+    private BookType type;
+
+    @Param({"false", "true"})
+    private boolean bundle;
+
+    private PricingStrategy strategy;
+
+    private Book book;
+
+    private long basePriceCents;
+
+    @Setup
+    public void setUp() {
+        strategy = BenchmarkFixtures.pricingStrategyFactory().getStrategy(type);
+        book = new Book(1L, "Book", new BigDecimal("19.99"), type);
+        basePriceCents = 1999L;
+    }
+
+    @Benchmark
+    public BigDecimal calculatePrice() {
+        return strategy.calculatePrice(book, bundle);
+    }
+
+    @Benchmark
+    public long calculatePriceCents() {
+        return strategy.calculatePriceCents(basePriceCents, bundle);
+    }
+}
@@ -0,0 +1,70 @@
+package com.bookstore.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.Customer;
+import com.bookstore.service.PurchaseService;
+import com.bookstore.service.pricing.PricingEngine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link PurchaseService#purchase} outside the database: pricing, the loyalty update and the response
+ * The customer's balance is reset before every call so that each loyalty state is measured on its own
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PurchaseBenchmark {
+
+    @Param({"1", "3", "10", "100"})
+    private int cartSize;
+
+    @Param({"MIXED"})
+    private CartMix mix;
+
+    /**
+     * No free book, one point short of a free book, and a free book
+     */
+    @Param({"0", "9", "10"})
+    private int loyaltyPoints;
+
+    @Param({"FIXED_POINT"})
+    private PricingEngine engine;
+
+    private PurchaseService purchaseService;
+
+    private Customer customer;
+
+    private List<Book> cart;
+
+    @Setup
+    public void setUp() {
+        customer = new Customer(1L, "Benchmark Customer", loyaltyPoints);
+        purchaseService = new PurchaseService(BenchmarkFixtures.pricingService(engine),
+                BenchmarkFixtures.inMemoryCustomerService(customer), null, null);
+        cart = BenchmarkFixtures.cart(cartSize, mix);
+    }
+
+    @Benchmark
+    public PurchaseResponse purchase() {
+        customer.setLoyaltyPoints(loyaltyPoints);
+        return purchaseService.purchase(customer, cart);
+    }
+}
@@ -1,32 +1,72 @@
 package com.bookstore.config;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.bookstore.controller.BookController;
+import com.bookstore.controller.BulkPurchaseController;
 import com.bookstore.controller.CustomerController;
+import com.bookstore.controller.FlashSaleController;
+import com.bookstore.controller.LoyaltyController;
+import com.bookstore.controller.MetricsController;
 import com.bookstore.controller.PurchaseController;
 import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.BookStockRepository;
 import com.bookstore.repository.CustomerRepository;
+import com.bookstore.repository.LoyaltyEventRepository;
+import com.bookstore.repository.PurchaseOrderLineRepository;
+import com.bookstore.repository.PurchaseOrderRepository;
+import com.bookstore.service.BookChangeListener;
+import com.bookstore.service.BookImportService;
 import com.bookstore.service.BookService;
 import com.bookstore.service.CustomerService;
 import com.bookstore.service.LoyaltyService;
+import com.bookstore.service.PurchaseHistoryService;
 import com.bookstore.service.PurchaseService;
+import com.bookstore.service.cache.BookCache;
+import com.bookstore.service.cache.CustomerCache;
+import com.bookstore.service.inventory.BookInventory;
+import com.bookstore.service.ledger.LoyaltyLedger;
+import com.bookstore.service.ledger.PurchaseLedger;
+import com.bookstore.service.lock.CustomerLocks;
+import com.bookstore.service.pricing.BatchPricingService;
+import com.bookstore.service.pricing.BookPriceTable;
 import com.bookstore.service.pricing.NewReleasePricingStrategy;
 import com.bookstore.service.pricing.OldEditionPricingStrategy;
+import com.bookstore.service.pricing.PricingRulesService;
 import com.bookstore.service.pricing.PricingService;
 import com.bookstore.service.pricing.PricingStrategy;
 import com.bookstore.service.pricing.PricingStrategyFactory;
+import com.bookstore.service.pricing.QuoteTokenService;
 import com.bookstore.service.pricing.RegularPricingStrategy;
+import com.bookstore.service.purchase.BulkPurchases;
+import com.bookstore.service.purchase.FlashSales;
+import com.bookstore.service.purchase.GroupCommitExecutor;
+import com.bookstore.service.purchase.IdempotencyRecords;
+import com.bookstore.service.purchase.IdempotencyStore;
+import com.bookstore.service.purchase.PurchasePipeline;
+import com.bookstore.service.search.TitleSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.time.Clock;
 import java.util.List;
 
+import javax.sql.DataSource;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
 /**
  * Auto-configuration for Bookstore application
  * This class provides beans for all services and controllers if they are not already defined
@@ -35,18 +75,93 @@ import java.util.List;
 @EnableJpaRepositories(basePackages = "com.bookstore.repository")
 @EntityScan(basePackages = "com.bookstore.model")
 @Import({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class})
+@EnableConfigurationProperties(BookstoreProperties.class)
 public class BookstoreAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public BookService bookService(BookRepository bookRepository) {
-        return new BookService(bookRepository);
+    @ConditionalOnProperty(prefix = "bookstore.book-cache", name = "enabled", havingValue = "true")
+    public BookCache bookCache(BookstoreProperties properties) {
+        BookstoreProperties.CacheSettings settings = properties.getBookCache();
+        return new BookCache(settings.getMaximumSize(), settings.getTimeToLive());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.customer-cache", name = "enabled", havingValue = "true")
+    public CustomerCache customerCache(BookstoreProperties properties) {
+        BookstoreProperties.CacheSettings settings = properties.getCustomerCache();
+        return new CustomerCache(settings.getMaximumSize(), settings.getTimeToLive());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.inventory", name = "enabled", havingValue = "true")
+    public BookInventory bookInventory(BookStockRepository bookStockRepository,
+                                       TransactionTemplate transactionTemplate) {
+        return new BookInventory(bookStockRepository, transactionTemplate);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BookService bookService(BookRepository bookRepository, ObjectProvider<BookCache> bookCache,
+                                   ObjectProvider<BookInventory> bookInventory,
+                                   ObjectProvider<BookChangeListener> changeListeners) {
+        return new BookService(bookRepository, bookCache.getIfAvailable(), bookInventory.getIfAvailable(),
+                changeListeners.orderedStream().toList());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TitleSearchIndex titleSearchIndex() {
+        return new TitleSearchIndex(TitleSearchIndex.DEFAULT_MAX_CANDIDATES);
+    }
+
+    /**
+     * Fills the title search index from the catalog once the application has started
+     */
+    @Bean
+    public ApplicationRunner titleSearchIndexLoader(TitleSearchIndex titleSearchIndex, BookService bookService) {
+        return args -> titleSearchIndex.load(bookService::forEachBook);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BookImportService bookImportService(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                                               ObjectMapper objectMapper, BookstoreProperties properties,
+                                               ObjectProvider<BookChangeListener> changeListeners) {
+        return new BookImportService(entityManager, transactionTemplate, objectMapper, properties,
+                changeListeners.orderedStream().toList());
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public CustomerService customerService(CustomerRepository customerRepository) {
-        return new CustomerService(customerRepository);
+    @ConditionalOnProperty(prefix = "bookstore.loyalty-ledger", name = "enabled", havingValue = "true")
+    public LoyaltyLedger loyaltyLedger(CustomerRepository customerRepository,
+                                       LoyaltyEventRepository loyaltyEventRepository,
+                                       EntityManagerFactory entityManagerFactory, DataSource dataSource,
+                                       BookstoreProperties properties) {
+        BookstoreProperties.LoyaltyLedgerSettings settings = properties.getLoyaltyLedger();
+        return new LoyaltyLedger(customerRepository, loyaltyEventRepository, entityManagerFactory, dataSource,
+                settings.getBatchSize(), settings.getQueueCapacity(), settings.getMaxBatchDelay(),
+                settings.getLockTimeout(), settings.getReplayParallelism(), settings.getReplayChunkSize(),
+                Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CustomerService customerService(CustomerRepository customerRepository,
+                                           ObjectProvider<LoyaltyLedger> loyaltyLedger,
+                                           ObjectProvider<CustomerCache> customerCache) {
+        return new CustomerService(customerRepository, loyaltyLedger.getIfAvailable(),
+                customerCache.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PurchaseHistoryService purchaseHistoryService(PurchaseOrderRepository purchaseOrderRepository,
+                                                         PurchaseOrderLineRepository purchaseOrderLineRepository) {
+        return new PurchaseHistoryService(purchaseOrderRepository, purchaseOrderLineRepository);
     }
 
     @Bean
@@ -75,37 +190,211 @@ public class BookstoreAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public PricingStrategyFactory pricingStrategyFactory(List<PricingStrategy> strategies) {
-        return new PricingStrategyFactory(strategies);
+    public PricingStrategyFactory pricingStrategyFactory(List<PricingStrategy> strategies,
+                                                         BookstoreProperties properties) {
+        return new PricingStrategyFactory(strategies, properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.price-table", name = "enabled", havingValue = "true")
+    public BookPriceTable bookPriceTable(PricingStrategyFactory pricingStrategyFactory) {
+        return new BookPriceTable(pricingStrategyFactory);
+    }
+
+    /**
+     * Fills the price table from the catalog once the application has started
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "bookstore.price-table", name = "enabled", havingValue = "true")
+    public ApplicationRunner bookPriceTableLoader(BookPriceTable bookPriceTable, BookService bookService) {
+        return args -> bookPriceTable.load(bookService::forEachBook);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PricingService pricingService(PricingStrategyFactory pricingStrategyFactory, LoyaltyService loyaltyService,
+                                         BookstoreProperties properties,
+                                         ObjectProvider<BookPriceTable> bookPriceTable) {
+        return new PricingService(pricingStrategyFactory, loyaltyService, properties, bookPriceTable.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PricingRulesService pricingRulesService(PricingStrategyFactory pricingStrategyFactory,
+                                                   ObjectProvider<BookPriceTable> bookPriceTable) {
+        return new PricingRulesService(pricingStrategyFactory, bookPriceTable.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BatchPricingService batchPricingService(BookService bookService, CustomerService customerService,
+                                                   PricingService pricingService, BookstoreProperties properties) {
+        return new BatchPricingService(bookService, customerService, pricingService, properties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.quote-token", name = "enabled", havingValue = "true")
+    public QuoteTokenService quoteTokenService(BookstoreProperties properties,
+                                               PricingStrategyFactory pricingStrategyFactory) {
+        BookstoreProperties.QuoteTokenSettings settings = properties.getQuoteToken();
+        return new QuoteTokenService(settings.getSecret(), settings.getTimeToLive(), pricingStrategyFactory,
+                Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.purchase-lock", name = "enabled", havingValue = "true")
+    public CustomerLocks customerLocks(BookstoreProperties properties) {
+        return new CustomerLocks(properties.getPurchaseLock().getStripes());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.async-purchase", name = "enabled", havingValue = "true")
+    public PurchasePipeline purchasePipeline(BookstoreProperties properties) {
+        BookstoreProperties.AsyncPurchaseSettings settings = properties.getAsyncPurchase();
+        return new PurchasePipeline(settings.getCapacity(), settings.getConcurrency(), settings.getStatusRetention(),
+                settings.getDrainTimeout(), Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.idempotency", name = "persistent", havingValue = "true")
+    public IdempotencyRecords idempotencyRecords(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                                                 ObjectMapper objectMapper, BookstoreProperties properties) {
+        return new IdempotencyRecords(entityManager, transactionTemplate, objectMapper,
+                properties.getIdempotency().getTimeToLive(), Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.idempotency", name = "enabled", havingValue = "true")
+    public IdempotencyStore idempotencyStore(BookstoreProperties properties,
+                                             ObjectProvider<IdempotencyRecords> idempotencyRecords) {
+        BookstoreProperties.IdempotencySettings settings = properties.getIdempotency();
+        return new IdempotencyStore(settings.getMaximumSize(), settings.getTimeToLive(), settings.getWaitTimeout(),
+                idempotencyRecords.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.ledger", name = "enabled", havingValue = "true")
+    public PurchaseLedger purchaseLedger(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                                         EntityManagerFactory entityManagerFactory, DataSource dataSource,
+                                         BookstoreProperties properties) {
+        BookstoreProperties.LedgerSettings settings = properties.getLedger();
+        return new PurchaseLedger(entityManager, transactionTemplate, entityManagerFactory, dataSource,
+                settings.getDurability(), settings.getBatchSize(), settings.getQueueCapacity(),
+                settings.getMaxBatchDelay(), Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.group-commit", name = "enabled", havingValue = "true")
+    public GroupCommitExecutor groupCommitExecutor(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                                                   BookstoreProperties properties) {
+        BookstoreProperties.GroupCommitSettings settings = properties.getGroupCommit();
+        return new GroupCommitExecutor(entityManager, transactionTemplate, settings.getMaxBatchSize(),
+                settings.getWindow(), settings.getQueueCapacity(), settings.getCommitters());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.flash-sale", name = "enabled", havingValue = "true")
+    public FlashSales flashSales() {
+        return new FlashSales(Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "bookstore.bulk-purchase", name = "enabled", havingValue = "true")
+    public BulkPurchases bulkPurchases(BookService bookService, CustomerService customerService,
+                                       PricingService pricingService, ObjectProvider<BookInventory> bookInventory,
+                                       ObjectProvider<FlashSales> flashSales,
+                                       ObjectProvider<PurchaseLedger> purchaseLedger,
+                                       TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                                       BookstoreProperties properties) {
+        BookstoreProperties.BulkPurchaseSettings settings = properties.getBulkPurchase();
+        return new BulkPurchases(bookService, customerService, pricingService, bookInventory.getIfAvailable(),
+                flashSales.getIfAvailable(), purchaseLedger.getIfAvailable(), transactionTemplate, objectMapper,
+                settings.getChunkSize(), settings.getMaxLines(), settings.getRetention(),
+                settings.getMaxRetainedOrders(), Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public PurchaseService purchaseService(PricingService pricingService, CustomerService customerService,
+                                           ObjectProvider<PurchaseLedger> purchaseLedger,
+                                           ObjectProvider<BookInventory> bookInventory) {
+        return new PurchaseService(pricingService, customerService, purchaseLedger.getIfAvailable(),
+                bookInventory.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BookController bookController(BookService bookService, BookImportService bookImportService,
+                                         TitleSearchIndex titleSearchIndex, ObjectMapper objectMapper) {
+        return new BookController(bookService, bookImportService, titleSearchIndex, objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CustomerController customerController(CustomerService customerService,
+                                                 PurchaseHistoryService purchaseHistoryService,
+                                                 ObjectMapper objectMapper) {
+        return new CustomerController(customerService, purchaseHistoryService, objectMapper);
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public PricingService pricingService(PricingStrategyFactory pricingStrategyFactory, LoyaltyService loyaltyService) {
-        return new PricingService(pricingStrategyFactory, loyaltyService);
+    public MetricsController metricsController(ObjectProvider<BookCache> bookCache,
+                                               ObjectProvider<CustomerLocks> customerLocks,
+                                               ObjectProvider<PurchasePipeline> purchasePipeline,
+                                               ObjectProvider<IdempotencyStore> idempotencyStore,
+                                               ObjectProvider<PurchaseLedger> purchaseLedger,
+                                               ObjectProvider<GroupCommitExecutor> groupCommitExecutor,
+                                               ObjectProvider<BookInventory> bookInventory,
+                                               ObjectProvider<LoyaltyLedger> loyaltyLedger,
+                                               ObjectProvider<CustomerCache> customerCache) {
+        return new MetricsController(bookCache.getIfAvailable(), customerLocks.getIfAvailable(),
+                purchasePipeline.getIfAvailable(), idempotencyStore.getIfAvailable(), purchaseLedger.getIfAvailable(),
+                groupCommitExecutor.getIfAvailable(), bookInventory.getIfAvailable(), loyaltyLedger.getIfAvailable(),
+                customerCache.getIfAvailable());
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public PurchaseService purchaseService(PricingService pricingService, CustomerService customerService) {
-        return new PurchaseService(pricingService, customerService);
+    public PurchaseController purchaseController(BookService bookService, CustomerService customerService,
+                                                 PurchaseService purchaseService,
+                                                 ObjectProvider<QuoteTokenService> quoteTokenService,
+                                                 ObjectProvider<CustomerLocks> customerLocks,
+                                                 ObjectProvider<PurchasePipeline> purchasePipeline,
+                                                 ObjectProvider<IdempotencyStore> idempotencyStore,
+                                                 ObjectProvider<GroupCommitExecutor> groupCommitExecutor,
+                                                 ObjectProvider<FlashSales> flashSales) {
+        return new PurchaseController(bookService, customerService, purchaseService,
+                quoteTokenService.getIfAvailable(), customerLocks.getIfAvailable(), purchasePipeline.getIfAvailable(),
+                idempotencyStore.getIfAvailable(), groupCommitExecutor.getIfAvailable(), flashSales.getIfAvailable());
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public BookController bookController(BookService bookService) {
-        return new BookController(bookService);
+    public FlashSaleController flashSaleController(BookService bookService, ObjectProvider<FlashSales> flashSales) {
+        return new FlashSaleController(bookService, flashSales.getIfAvailable());
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public CustomerController customerController(CustomerService customerService) {
-        return new CustomerController(customerService);
+    public BulkPurchaseController bulkPurchaseController(ObjectProvider<BulkPurchases> bulkPurchases) {
+        return new BulkPurchaseController(bulkPurchases.getIfAvailable());
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public PurchaseController purchaseController(BookService bookService, CustomerService customerService, PurchaseService purchaseService) {
-        return new PurchaseController(bookService, customerService, purchaseService);
+    public LoyaltyController loyaltyController(CustomerService customerService,
+                                               ObjectProvider<LoyaltyLedger> loyaltyLedger) {
+        return new LoyaltyController(customerService, loyaltyLedger.getIfAvailable());
     }
 }
@@ -0,0 +1,384 @@
+package com.bookstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.bookstore.model.BookType;
+import com.bookstore.service.ledger.LedgerDurability;
+import com.bookstore.service.pricing.PricingEngine;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Tunable settings of the bookstore, bound from the {@code bookstore.*} properties
+ */
+@Data
+@ConfigurationProperties(prefix = "bookstore")
+public class BookstoreProperties {
+
+    private final CacheSettings bookCache = new CacheSettings();
+
+    private final CacheSettings customerCache = new CacheSettings();
+
+    private final ImportSettings bookImport = new ImportSettings();
+
+    private final PricingSettings pricing = new PricingSettings();
+
+    private final PriceTableSettings priceTable = new PriceTableSettings();
+
+    private final BatchPricingSettings batchPricing = new BatchPricingSettings();
+
+    private final QuoteTokenSettings quoteToken = new QuoteTokenSettings();
+
+    private final PurchaseLockSettings purchaseLock = new PurchaseLockSettings();
+
+    private final AsyncPurchaseSettings asyncPurchase = new AsyncPurchaseSettings();
+
+    private final IdempotencySettings idempotency = new IdempotencySettings();
+
+    private final LedgerSettings ledger = new LedgerSettings();
+
+    private final GroupCommitSettings groupCommit = new GroupCommitSettings();
+
+    private final InventorySettings inventory = new InventorySettings();
+
+    private final FlashSaleSettings flashSale = new FlashSaleSettings();
+
+    private final BulkPurchaseSettings bulkPurchase = new BulkPurchaseSettings();
+
+    private final LoyaltyLedgerSettings loyaltyLedger = new LoyaltyLedgerSettings();
+
+    /**
+     * Settings of a bounded in-process cache
+     */
+    @Data
+    public static class CacheSettings {
+        /**
+         * Whether the cache is created at all
+         */
+        private boolean enabled;
+        /**
+         * Maximum number of entries before the least valuable ones are evicted
+         */
+        private long maximumSize = 100_000;
+        /**
+         * How long an entry is served after it was loaded or written
+         */
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Settings of the bulk catalog import
+     */
+    @Data
+    public static class ImportSettings {
+        /**
+         * Rows written per JDBC batch and per transaction
+         */
+        private int batchSize = 500;
+        /**
+         * Row errors listed in the import report; further errors are only counted
+         */
+        private int maxReportedErrors = 1000;
+    }
+
+    /**
+     * Settings of the cart pricing
+     */
+    @Data
+    public static class PricingSettings {
+        /**
+         * Arithmetic used to total carts
+         */
+        private PricingEngine engine = PricingEngine.FIXED_POINT;
+        /**
+         * Overrides of the built-in pricing rules by book type, applied at startup
+         */
+        private final Map<BookType, PricingRuleSettings> rules = new EnumMap<>(BookType.class);
+    }
+
+    /**
+     * Pricing rule of one book type; settings left unset keep the built-in value
+     */
+    @Data
+    public static class PricingRuleSettings {
+        /**
+         * Factor applied to the base price
+         */
+        private BigDecimal factor;
+        /**
+         * Additional factor applied when the book is part of a bundle
+         */
+        private BigDecimal bundleFactor;
+        /**
+         * Number of books in the cart from which the bundle factor applies
+         */
+        private Integer bundleThreshold;
+    }
+
+    /**
+     * Settings of the table of precomputed book prices
+     */
+    @Data
+    public static class PriceTableSettings {
+        /**
+         * Whether book prices are precomputed on write and looked up by the fixed-point engine
+         */
+        private boolean enabled;
+    }
+
+    /**
+     * Settings of the batch pricing endpoint
+     */
+    @Data
+    public static class BatchPricingSettings {
+        /**
+         * Largest number of carts accepted in one request
+         */
+        private int maxCarts = 1000;
+        /**
+         * Threads pricing carts, shared by all batch requests
+         */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        /**
+         * Fewest carts handed to one thread; smaller batches are priced on the request thread
+         */
+        private int cartsPerTask = 32;
+        /**
+         * Slices waiting for a pricing thread before the request thread prices them itself
+         */
+        private int queueCapacity = 256;
+    }
+
+    /**
+     * Settings of the signed price quotes redeemable by purchases
+     */
+    @Data
+    public static class QuoteTokenSettings {
+        /**
+         * Whether the pricing endpoint issues quote tokens and purchases redeem them
+         */
+        private boolean enabled;
+        /**
+         * Signing key of at least 32 bytes, shared by all instances; required when quote tokens are enabled
+         */
+        private String secret;
+        /**
+         * How long a quote can be redeemed after it was issued
+         */
+        private Duration timeToLive = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Settings of the per-customer purchase locks
+     */
+    @Data
+    public static class PurchaseLockSettings {
+        /**
+         * Whether purchases of the same customer are serialized on this node
+         */
+        private boolean enabled;
+        /**
+         * Number of locks shared by all customers, rounded up to a power of two
+         */
+        private int stripes = 1024;
+    }
+
+    /**
+     * Settings of the asynchronous purchase pipeline
+     */
+    @Data
+    public static class AsyncPurchaseSettings {
+        /**
+         * Whether purchases can be submitted for processing after the request has been answered
+         */
+        private boolean enabled;
+        /**
+         * Purchases accepted at most, queued and processing together; more are refused with 429
+         */
+        private int capacity = 1000;
+        /**
+         * Purchases processed at the same time at most; keep it below the database connection pool size
+         */
+        private int concurrency = 8;
+        /**
+         * How long the status of a purchase can be polled after its last change
+         */
+        private Duration statusRetention = Duration.ofMinutes(10);
+        /**
+         * How long shutdown waits for accepted purchases to finish
+         */
+        private Duration drainTimeout = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Settings of the Idempotency-Key support of purchases
+     */
+    @Data
+    public static class IdempotencySettings {
+        /**
+         * Whether purchases with an Idempotency-Key header are run once per key
+         */
+        private boolean enabled;
+        /**
+         * Keys whose responses are kept in memory at most
+         */
+        private long maximumSize = 100_000;
+        /**
+         * How long the response of a key is replayed
+         */
+        private Duration timeToLive = Duration.ofHours(24);
+        /**
+         * How long a repeated request waits for the original to finish before it is answered with 409
+         */
+        private Duration waitTimeout = Duration.ofSeconds(30);
+        /**
+         * Whether responses are also recorded in the database, in the purchase's transaction
+         */
+        private boolean persistent;
+    }
+
+    /**
+     * Settings of the purchase ledger
+     */
+    @Data
+    public static class LedgerSettings {
+        /**
+         * Whether purchases are recorded
+         */
+        private boolean enabled;
+        /**
+         * When an entry is written relative to its purchase
+         */
+        private LedgerDurability durability = LedgerDurability.BATCHED;
+        /**
+         * Entries written per transaction of the background writer at most
+         */
+        private int batchSize = 500;
+        /**
+         * Entries waiting for the background writer at most; purchases wait for room beyond that
+         */
+        private int queueCapacity = 10_000;
+        /**
+         * How long the background writer waits for more entries once it has one
+         */
+        private Duration maxBatchDelay = Duration.ofMillis(2);
+    }
+
+    /**
+     * Settings of the group commit of purchases
+     */
+    @Data
+    public static class GroupCommitSettings {
+        /**
+         * Whether purchases arriving close together share one transaction
+         */
+        private boolean enabled;
+        /**
+         * Purchases run in one transaction at most
+         */
+        private int maxBatchSize = 64;
+        /**
+         * How long a committer waits for more purchases once it has one; added to the latency of a lone purchase
+         */
+        private Duration window = Duration.ofMillis(1);
+        /**
+         * Purchases waiting for a committer at most; purchases wait for room beyond that
+         */
+        private int queueCapacity = 10_000;
+        /**
+         * Threads running groups, each in its own transaction
+         */
+        private int committers = 1;
+    }
+
+    /**
+     * Settings of the book inventory
+     */
+    @Data
+    public static class InventorySettings {
+        /**
+         * Whether units of books with a stock are counted, and purchases refused once they are sold
+         */
+        private boolean enabled;
+    }
+
+    /**
+     * Settings of the flash sales
+     */
+    @Data
+    public static class FlashSaleSettings {
+        /**
+         * Whether books can be put on a flash sale, whose purchases are admitted from an in-memory pool of units
+         */
+        private boolean enabled;
+    }
+
+    /**
+     * Settings of the bulk purchases
+     */
+    @Data
+    public static class BulkPurchaseSettings {
+        /**
+         * Whether orders of many lines can be uploaded and purchased as one cart
+         */
+        private boolean enabled;
+        /**
+         * Lines of an order whose books are looked up together
+         */
+        private int chunkSize = 500;
+        /**
+         * Lines of an order at most
+         */
+        private long maxLines = 100_000;
+        /**
+         * How long the summary and line results of an order can be downloaded
+         */
+        private Duration retention = Duration.ofHours(1);
+        /**
+         * Orders whose summary and line results are kept at most; the oldest are deleted first
+         */
+        private long maxRetainedOrders = 1000;
+    }
+
+    /**
+     * Settings of the loyalty ledger
+     */
+    @Data
+    public static class LoyaltyLedgerSettings {
+        /**
+         * Whether every change of a loyalty balance is appended to an event log, with the balances held in memory
+         * and written to the customer rows as snapshots; only for a single instance, and a crash may lose the
+         * points of purchases committed just before it
+         */
+        private boolean enabled;
+        /**
+         * Events written per transaction of the background writer at most
+         */
+        private int batchSize = 500;
+        /**
+         * Events waiting for the background writer at most; balance changes wait for room beyond that
+         */
+        private int queueCapacity = 10_000;
+        /**
+         * How long the writer waits for more events once it has one
+         */
+        private Duration maxBatchDelay = Duration.ofMillis(2);
+        /**
+         * How long a change waits for a balance changed by a transaction that has not completed
+         */
+        private Duration lockTimeout = Duration.ofSeconds(10);
+        /**
+         * Customer ID ranges folded at the same time by a replay; each one uses a pooled connection
+         */
+        private int replayParallelism = 4;
+        /**
+         * Events read per query by a replay
+         */
+        private int replayChunkSize = 1000;
+    }
+}
@@ -1,6 +1,7 @@
 package com.bookstore.controller;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,12 +10,29 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.bookstore.dto.BookImportReport;
+import com.bookstore.dto.BookSearchResponse;
+import com.bookstore.dto.PageResponse;
+import com.bookstore.dto.StockLevelResponse;
+import com.bookstore.dto.StockUpdateRequest;
 import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.service.BookImportService;
 import com.bookstore.service.BookService;
+import com.bookstore.service.search.TitleSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import lombok.RequiredArgsConstructor;
 
@@ -28,12 +46,73 @@ public class BookController {
 
     private final BookService bookService;
 
+    private final BookImportService bookImportService;
+
+    private final TitleSearchIndex titleSearchIndex;
+
+    private final ObjectMapper objectMapper;
+
     /**
      * Inventory Management Endpoints
+     * Listing returns one keyset page of books in ID order; pass nextCursor back as cursor for the next page
      */
     @GetMapping
-    public List<Book> getAllBooks() {
-        return bookService.getAllBooks();
+    public PageResponse<Book> getBooks(@RequestParam(name = "cursor", required = false) String cursor,
+                                       @RequestParam(name = "limit", defaultValue = Pagination.DEFAULT_PAGE_SIZE) int limit) {
+        return bookService.getBooksPage(Pagination.parseIdCursor(cursor), Pagination.capLimit(limit));
+    }
+
+    /**
+     * Stream the whole catalog as newline-delimited JSON
+     */
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBooks() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(JsonStreaming.ndjson(objectMapper, bookService::forEachBook));
+    }
+
+    /**
+     * Stream the whole catalog as a single JSON array
+     */
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBooksAsJsonArray() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonStreaming.jsonArray(objectMapper, bookService::forEachBook));
+    }
+
+    /**
+     * Ranked title search served from the in-memory index
+     *
+     * @param query The search words; each must start a word of the title
+     * @param type  Optional book type filter
+     * @param page  The 0-based page of the ranked results, ending within the first
+     *              {@value TitleSearchIndex#MAX_RESULT_WINDOW} hits
+     * @param size  The page size, capped at {@value Pagination#MAX_PAGE_SIZE}
+     * @return The page of matching books and the total number of matches
+     */
+    @GetMapping("/search")
+    public BookSearchResponse searchBooks(@RequestParam(name = "q") String query,
+                                          @RequestParam(name = "type", required = false) BookType type,
+                                          @RequestParam(name = "page", defaultValue = "0") int page,
+                                          @RequestParam(name = "size", defaultValue = "20") int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        int cappedSize = Pagination.capLimit(size);
+        TitleSearchIndex.SearchResult result = titleSearchIndex.search(query, type, page, cappedSize);
+        // Books deleted since the search ran are left out of the page
+        Map<Long, Book> booksById = bookService.findBooksByIds(result.ids());
+        List<Book> items = new ArrayList<>(result.ids().size());
+        for (Long id : result.ids()) {
+            Book book = booksById.get(id);
+            if (book != null) {
+                items.add(book);
+            }
+        }
+        return new BookSearchResponse(items, result.total(), result.totalExact(), result.rankingComplete(), page,
+                cappedSize);
     }
 
     @GetMapping("/{id}")
@@ -43,12 +122,59 @@ public class BookController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Get the stock of a book
+     *
+     * @return The units on hand, reserved and available, or 404 if the book does not exist or stock is not counted
+     */
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<StockLevelResponse> getStock(@PathVariable(name = "id") Long id) {
+        return bookService.getStockLevel(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Set the units of a book on hand; from then on purchases of the book are refused once its units are sold
+     *
+     * @return The new stock, or 404 if the book does not exist or stock is not counted
+     */
+    @PutMapping("/{id}/stock")
+    public ResponseEntity<StockLevelResponse> setStock(@PathVariable(name = "id") Long id,
+                                                       @RequestBody StockUpdateRequest request) {
+        return bookService.setStock(id, request.getQuantity())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping
     public ResponseEntity<Book> addBook(@RequestBody Book book) {
         Book savedBook = bookService.addBook(book);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedBook);
     }
 
+    /**
+     * Bulk import a UTF-8 CSV feed (title,basePrice,type)
+     *
+     * @param body The feed, read incrementally
+     * @return The import report with the rejected rows
+     */
+    @PostMapping(path = "/import", consumes = "text/csv")
+    public BookImportReport importBooksCsv(InputStream body) throws IOException {
+        return bookImportService.importCsv(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Bulk import a newline-delimited JSON feed of books
+     *
+     * @param body The feed, read incrementally
+     * @return The import report with the rejected rows
+     */
+    @PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BookImportReport importBooksNdjson(InputStream body) throws IOException {
+        return bookImportService.importNdjson(new InputStreamReader(body, StandardCharsets.UTF_8));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Book> updateBook(@PathVariable(name = "id") Long id, @RequestBody Book book) {
         return bookService.updateBook(id, book)
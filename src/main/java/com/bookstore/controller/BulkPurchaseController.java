@@ -0,0 +1,117 @@
+package com.bookstore.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.bookstore.dto.BulkPurchaseResponse;
+import com.bookstore.service.purchase.BulkPurchases;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Controller for bulk purchases of orders with thousands of lines; every endpoint answers 404 when bulk purchases
+ * are disabled
+ */
+@RestController
+@RequestMapping("/api/purchases/bulk")
+public class BulkPurchaseController {
+
+    /**
+     * Optional bulk purchases, null when disabled
+     */
+    private final BulkPurchases bulkPurchases;
+
+    public BulkPurchaseController(@Nullable BulkPurchases bulkPurchases) {
+        this.bulkPurchases = bulkPurchases;
+    }
+
+    /**
+     * Purchase a UTF-8 CSV order (bookId,quantity) as one cart
+     *
+     * @param customerId The customer
+     * @param body       The order, read incrementally
+     * @return 201 with the summary, pointing to it; the line results are under its lines path
+     */
+    @PostMapping(consumes = "text/csv")
+    public ResponseEntity<BulkPurchaseResponse> purchaseCsv(@RequestParam(name = "customerId") Long customerId,
+                                                            InputStream body) throws IOException {
+        if (bulkPurchases == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return created(bulkPurchases.purchaseCsv(customerId, new InputStreamReader(body, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Purchase a newline-delimited JSON order of {"bookId", "quantity"} lines as one cart
+     *
+     * @param customerId The customer
+     * @param body       The order, read incrementally
+     * @return 201 with the summary, pointing to it; the line results are under its lines path
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkPurchaseResponse> purchaseNdjson(@RequestParam(name = "customerId") Long customerId,
+                                                               InputStream body) throws IOException {
+        if (bulkPurchases == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return created(bulkPurchases.purchaseNdjson(customerId, new InputStreamReader(body, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Get the summary of a bulk purchase
+     *
+     * @return The summary, or 404 if the order is unknown or no longer kept
+     */
+    @GetMapping("/{orderId}")
+    public ResponseEntity<BulkPurchaseResponse> getSummary(@PathVariable(name = "orderId") String orderId) {
+        if (bulkPurchases == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return bulkPurchases.getSummary(orderId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Download the outcome of every line of a bulk purchase as newline-delimited JSON, in upload order
+     *
+     * @return The line results, or 404 if the order is unknown or no longer kept
+     */
+    @GetMapping(path = "/{orderId}/lines", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getLines(@PathVariable(name = "orderId") String orderId)
+            throws IOException {
+        Optional<InputStream> lines = bulkPurchases == null ? Optional.empty() : bulkPurchases.openLines(orderId);
+        if (lines.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        InputStream in = lines.get();
+        StreamingResponseBody body = out -> {
+            try (in) {
+                in.transferTo(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static ResponseEntity<BulkPurchaseResponse> created(BulkPurchaseResponse summary) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .location(URI.create("/api/purchases/bulk/" + summary.getOrderId()))
+                .body(summary);
+    }
+}
@@ -1,6 +1,7 @@
 package com.bookstore.controller;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -8,12 +9,16 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.bookstore.dto.PageResponse;
+import com.bookstore.dto.PurchaseHistoryEntry;
 import com.bookstore.model.Customer;
 import com.bookstore.service.CustomerService;
-
-import java.util.List;
+import com.bookstore.service.PurchaseHistoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.RequiredArgsConstructor;
 
@@ -27,14 +32,45 @@ public class CustomerController {
 
     private final CustomerService customerService;
 
+    private final PurchaseHistoryService purchaseHistoryService;
+
+    private final ObjectMapper objectMapper;
+
     /**
-     * Get all customers
+     * Get a page of customers in ID order
      *
-     * @return List of all customers
+     * @param cursor The nextCursor of the previous page, omitted for the first page
+     * @param limit  The page size, capped at {@value Pagination#MAX_PAGE_SIZE}
+     * @return The page of customers
      */
     @GetMapping
-    public List<Customer> getAllCustomers() {
-        return customerService.getAllCustomers();
+    public PageResponse<Customer> getCustomers(@RequestParam(name = "cursor", required = false) String cursor,
+                                               @RequestParam(name = "limit", defaultValue = Pagination.DEFAULT_PAGE_SIZE) int limit) {
+        return customerService.getCustomersPage(Pagination.parseIdCursor(cursor), Pagination.capLimit(limit));
+    }
+
+    /**
+     * Stream all customers as newline-delimited JSON
+     *
+     * @return The streaming response
+     */
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCustomers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(JsonStreaming.ndjson(objectMapper, customerService::forEachCustomer));
+    }
+
+    /**
+     * Stream all customers as a single JSON array
+     *
+     * @return The streaming response
+     */
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCustomersAsJsonArray() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonStreaming.jsonArray(objectMapper, customerService::forEachCustomer));
     }
 
     /**
@@ -84,8 +120,29 @@ public class CustomerController {
      */
     @GetMapping("/{id}/loyalty-points")
     public ResponseEntity<Integer> getLoyaltyPoints(@PathVariable(name = "id") Long id) {
-        return customerService.getCustomerById(id)
-                .map(c -> ResponseEntity.ok(c.getLoyaltyPoints()))
+        return customerService.getLoyaltyPoints(id)
+                .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    /**
+     * Get a page of a customer's purchases, newest first, with the books of each purchase
+     *
+     * @param id     The customer ID
+     * @param cursor The nextCursor of the previous page, omitted for the first page
+     * @param limit  The page size, capped at {@value Pagination#MAX_PAGE_SIZE}
+     * @return The page of purchases, or 404 if the customer is not found
+     */
+    @GetMapping("/{id}/purchases")
+    public ResponseEntity<PageResponse<PurchaseHistoryEntry>> getPurchases(
+            @PathVariable(name = "id") Long id,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", defaultValue = Pagination.DEFAULT_PAGE_SIZE) int limit) {
+        PurchaseHistoryService.Cursor after = PurchaseHistoryService.Cursor.parse(cursor);
+        int pageSize = Pagination.capLimit(limit);
+        if (customerService.getCustomerById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(purchaseHistoryService.getPurchasesPage(id, after, pageSize));
+    }
+}
@@ -0,0 +1,77 @@
+package com.bookstore.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bookstore.dto.FlashSaleRequest;
+import com.bookstore.dto.FlashSaleResponse;
+import com.bookstore.service.BookService;
+import com.bookstore.service.purchase.FlashSales;
+
+import java.util.List;
+
+/**
+ * Controller for the flash sales of books; every endpoint answers 404 when flash sales are disabled
+ */
+@RestController
+@RequestMapping("/api/flash-sales")
+public class FlashSaleController {
+
+    private final BookService bookService;
+
+    /**
+     * Optional admission of purchases of flash sale books, null when flash sales are disabled
+     */
+    private final FlashSales flashSales;
+
+    public FlashSaleController(BookService bookService, @Nullable FlashSales flashSales) {
+        this.bookService = bookService;
+        this.flashSales = flashSales;
+    }
+
+    /**
+     * Get the running flash sales, with their admission counters
+     */
+    @GetMapping
+    public ResponseEntity<List<FlashSaleResponse>> getSales() {
+        return flashSales == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(flashSales.list());
+    }
+
+    @GetMapping("/{bookId}")
+    public ResponseEntity<FlashSaleResponse> getSale(@PathVariable(name = "bookId") Long bookId) {
+        if (flashSales == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return flashSales.get(bookId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Start a flash sale of a book, replacing its running sale if it has one
+     *
+     * @return The new sale, or 404 if the book does not exist
+     */
+    @PutMapping("/{bookId}")
+    public ResponseEntity<FlashSaleResponse> startSale(@PathVariable(name = "bookId") Long bookId,
+                                                       @RequestBody FlashSaleRequest request) {
+        if (flashSales == null || bookService.getBookById(bookId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(flashSales.start(bookId, request.getUnits()));
+    }
+
+    @DeleteMapping("/{bookId}")
+    public ResponseEntity<Void> endSale(@PathVariable(name = "bookId") Long bookId) {
+        return flashSales != null && flashSales.end(bookId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
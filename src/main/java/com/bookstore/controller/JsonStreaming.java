@@ -0,0 +1,66 @@
+package com.bookstore.controller;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Builds response bodies that serialize rows one at a time as they are produced,
+ * so the size of a listing never has to fit in memory
+ */
+final class JsonStreaming {
+
+    private JsonStreaming() {
+    }
+
+    /**
+     * Write rows as newline-delimited JSON, one object per line
+     *
+     * @param objectMapper The mapper used to serialize each row
+     * @param source       Pushes every row to the given consumer
+     * @return The streaming response body
+     */
+    static <T> StreamingResponseBody ndjson(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                source.accept(row -> {
+                    try {
+                        generator.writeObject(row);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Write rows as a single JSON array
+     *
+     * @param objectMapper The mapper used to serialize each row
+     * @param source       Pushes every row to the given consumer
+     * @return The streaming response body
+     */
+    static <T> StreamingResponseBody jsonArray(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        return out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                source.accept(row -> {
+                    try {
+                        generator.writeObject(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.bookstore.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bookstore.dto.LoyaltyReplayResponse;
+import com.bookstore.dto.PageResponse;
+import com.bookstore.model.LoyaltyEvent;
+import com.bookstore.service.CustomerService;
+import com.bookstore.service.ledger.LoyaltyLedger;
+
+/**
+ * Controller for the loyalty event log; every endpoint answers 404 when the loyalty ledger is disabled
+ */
+@RestController
+@RequestMapping("/api/loyalty")
+public class LoyaltyController {
+
+    private final CustomerService customerService;
+
+    /**
+     * Optional loyalty event log, null when disabled
+     */
+    private final LoyaltyLedger loyaltyLedger;
+
+    public LoyaltyController(CustomerService customerService, @Nullable LoyaltyLedger loyaltyLedger) {
+        this.customerService = customerService;
+        this.loyaltyLedger = loyaltyLedger;
+    }
+
+    /**
+     * Get a page of a customer's loyalty events, newest first; events still queued for the writer are not listed
+     *
+     * @param customerId The customer ID
+     * @param cursor     The nextCursor of the previous page, omitted for the first page
+     * @param limit      The page size, capped at {@value Pagination#MAX_PAGE_SIZE}
+     * @return The page of events, or 404 if the customer is not found
+     */
+    @GetMapping("/{customerId}/events")
+    public ResponseEntity<PageResponse<LoyaltyEvent>> getEvents(
+            @PathVariable(name = "customerId") Long customerId,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", defaultValue = Pagination.DEFAULT_PAGE_SIZE) int limit) {
+        Long beforeId = Pagination.parseIdCursor(cursor);
+        int pageSize = Pagination.capLimit(limit);
+        if (loyaltyLedger == null || customerService.getLoyaltyPoints(customerId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(loyaltyLedger.getEvents(customerId, beforeId, pageSize));
+    }
+
+    /**
+     * Rebuild every loyalty balance from the event log and compare it with the current balances
+     *
+     * @param repair Whether to set the balances that disagree with the log to the log's sum
+     * @return The customers and events replayed and the balances found drifted
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<LoyaltyReplayResponse> replay(
+            @RequestParam(name = "repair", defaultValue = "false") boolean repair) {
+        return loyaltyLedger == null
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(loyaltyLedger.replay(repair));
+    }
+}
@@ -0,0 +1,190 @@
+package com.bookstore.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.bookstore.dto.CacheStatsResponse;
+import com.bookstore.dto.GroupCommitStatsResponse;
+import com.bookstore.dto.IdempotencyStatsResponse;
+import com.bookstore.dto.InventoryStatsResponse;
+import com.bookstore.dto.LedgerStatsResponse;
+import com.bookstore.dto.LockStatsResponse;
+import com.bookstore.dto.LoyaltyLedgerStatsResponse;
+import com.bookstore.dto.PurchasePipelineStatsResponse;
+import com.bookstore.service.cache.BookCache;
+import com.bookstore.service.cache.CustomerCache;
+import com.bookstore.service.inventory.BookInventory;
+import com.bookstore.service.ledger.LoyaltyLedger;
+import com.bookstore.service.ledger.PurchaseLedger;
+import com.bookstore.service.lock.CustomerLocks;
+import com.bookstore.service.purchase.GroupCommitExecutor;
+import com.bookstore.service.purchase.IdempotencyStore;
+import com.bookstore.service.purchase.PurchasePipeline;
+
+/**
+ * Controller exposing runtime counters of the optional performance components
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    /**
+     * Optional catalog cache, null when disabled
+     */
+    private final BookCache bookCache;
+
+    /**
+     * Optional per-customer locks, null when purchases are not serialized per customer
+     */
+    private final CustomerLocks customerLocks;
+
+    /**
+     * Optional pipeline of asynchronous purchases, null when they are disabled
+     */
+    private final PurchasePipeline purchasePipeline;
+
+    /**
+     * Optional store of responses by Idempotency-Key, null when the header is ignored
+     */
+    private final IdempotencyStore idempotencyStore;
+
+    /**
+     * Optional purchase ledger, null when disabled
+     */
+    private final PurchaseLedger purchaseLedger;
+
+    /**
+     * Optional group commit of purchases, null when each purchase commits on its own
+     */
+    private final GroupCommitExecutor groupCommitExecutor;
+
+    /**
+     * Optional stock counters, null when stock is not counted
+     */
+    private final BookInventory bookInventory;
+
+    /**
+     * Optional loyalty event log, null when disabled
+     */
+    private final LoyaltyLedger loyaltyLedger;
+
+    /**
+     * Optional customer cache, null when disabled
+     */
+    private final CustomerCache customerCache;
+
+    public MetricsController(@Nullable BookCache bookCache, @Nullable CustomerLocks customerLocks,
+                             @Nullable PurchasePipeline purchasePipeline, @Nullable IdempotencyStore idempotencyStore,
+                             @Nullable PurchaseLedger purchaseLedger, @Nullable GroupCommitExecutor groupCommitExecutor,
+                             @Nullable BookInventory bookInventory, @Nullable LoyaltyLedger loyaltyLedger,
+                             @Nullable CustomerCache customerCache) {
+        this.bookCache = bookCache;
+        this.customerLocks = customerLocks;
+        this.purchasePipeline = purchasePipeline;
+        this.idempotencyStore = idempotencyStore;
+        this.purchaseLedger = purchaseLedger;
+        this.groupCommitExecutor = groupCommitExecutor;
+        this.bookInventory = bookInventory;
+        this.loyaltyLedger = loyaltyLedger;
+        this.customerCache = customerCache;
+    }
+
+    /**
+     * Get the catalog cache counters
+     *
+     * @return The counters, or 404 if the catalog cache is disabled
+     */
+    @GetMapping("/book-cache")
+    public ResponseEntity<CacheStatsResponse> getBookCacheStats() {
+        return bookCache == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(bookCache.stats());
+    }
+
+    /**
+     * Get the customer cache counters
+     *
+     * @return The counters, or 404 if the customer cache is disabled
+     */
+    @GetMapping("/customer-cache")
+    public ResponseEntity<CacheStatsResponse> getCustomerCacheStats() {
+        return customerCache == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(customerCache.stats());
+    }
+
+    /**
+     * Get the contention counters of the per-customer purchase locks
+     *
+     * @return The counters, or 404 if purchases are not serialized per customer
+     */
+    @GetMapping("/purchase-locks")
+    public ResponseEntity<LockStatsResponse> getPurchaseLockStats() {
+        return customerLocks == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(customerLocks.stats());
+    }
+
+    /**
+     * Get the asynchronous purchase pipeline counters
+     *
+     * @return The queue depth, outcome counts and latencies, or 404 if asynchronous purchases are disabled
+     */
+    @GetMapping("/purchase-pipeline")
+    public ResponseEntity<PurchasePipelineStatsResponse> getPurchasePipelineStats() {
+        return purchasePipeline == null
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(purchasePipeline.stats());
+    }
+
+    /**
+     * Get the Idempotency-Key store counters
+     *
+     * @return The counters, or 404 if Idempotency-Key support is disabled
+     */
+    @GetMapping("/idempotency")
+    public ResponseEntity<IdempotencyStatsResponse> getIdempotencyStats() {
+        return idempotencyStore == null
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(idempotencyStore.stats());
+    }
+
+    /**
+     * Get the purchase ledger writer counters
+     *
+     * @return The queued entries, batch sizes and flush times, or 404 if purchases are not recorded
+     */
+    @GetMapping("/ledger")
+    public ResponseEntity<LedgerStatsResponse> getLedgerStats() {
+        return purchaseLedger == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(purchaseLedger.stats());
+    }
+
+    /**
+     * Get the purchase group commit counters
+     *
+     * @return The group sizes, outcome counts and latencies, or 404 if purchases are committed one at a time
+     */
+    @GetMapping("/group-commit")
+    public ResponseEntity<GroupCommitStatsResponse> getGroupCommitStats() {
+        return groupCommitExecutor == null
+                ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(groupCommitExecutor.stats());
+    }
+
+    /**
+     * Get the book inventory counters
+     *
+     * @return The units held, reservation outcomes and writer counts, or 404 if stock is not counted
+     */
+    @GetMapping("/inventory")
+    public ResponseEntity<InventoryStatsResponse> getInventoryStats() {
+        return bookInventory == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(bookInventory.stats());
+    }
+
+    /**
+     * Get the loyalty ledger counters
+     *
+     * @return The balances in memory, queued events, batch sizes and replays, or 404 if the ledger is disabled
+     */
+    @GetMapping("/loyalty-ledger")
+    public ResponseEntity<LoyaltyLedgerStatsResponse> getLoyaltyLedgerStats() {
+        return loyaltyLedger == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(loyaltyLedger.stats());
+    }
+}
@@ -0,0 +1,44 @@
+package com.bookstore.controller;
+
+/**
+ * Request parameter handling shared by the keyset-paginated endpoints
+ */
+final class Pagination {
+
+    static final String DEFAULT_PAGE_SIZE = "100";
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private Pagination() {
+    }
+
+    /**
+     * Parse an ID cursor returned by a previous page
+     *
+     * @param cursor The cursor, or null for the first page
+     * @return The last ID of the previous page, or null for the first page
+     */
+    static Long parseIdCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Validate the requested page size and cap it at {@link #MAX_PAGE_SIZE}
+     *
+     * @param limit The requested page size
+     * @return The page size to use
+     */
+    static int capLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+}
@@ -1,43 +1,71 @@
 package com.bookstore.controller;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.bookstore.dto.BatchPricingRequest;
+import com.bookstore.dto.BatchPricingResponse;
 import com.bookstore.dto.PricingRequest;
 import com.bookstore.dto.PricingResponse;
+import com.bookstore.dto.PricingRulesRequest;
+import com.bookstore.dto.PricingRulesResponse;
 import com.bookstore.model.Book;
 import com.bookstore.model.Customer;
 import com.bookstore.service.BookService;
 import com.bookstore.service.CustomerService;
+import com.bookstore.service.pricing.BatchPricingService;
+import com.bookstore.service.pricing.PriceQuote;
+import com.bookstore.service.pricing.PricingRulesService;
 import com.bookstore.service.pricing.PricingService;
+import com.bookstore.service.pricing.QuoteTokenService;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
-import lombok.RequiredArgsConstructor;
-
 /**
  * Controller for calculating book prices
  */
 @RestController
 @RequestMapping("/api/pricing")
-@RequiredArgsConstructor
 public class PricingController {
 
     private final BookService bookService;
     private final CustomerService customerService;
     private final PricingService pricingService;
+    private final BatchPricingService batchPricingService;
+    private final PricingRulesService pricingRulesService;
+
+    /**
+     * Optional issuer of signed quotes, null when quote tokens are disabled
+     */
+    private final QuoteTokenService quoteTokenService;
+
+    @Autowired
+    public PricingController(BookService bookService, CustomerService customerService, PricingService pricingService,
+                             BatchPricingService batchPricingService, PricingRulesService pricingRulesService,
+                             @Nullable QuoteTokenService quoteTokenService) {
+        this.bookService = bookService;
+        this.customerService = customerService;
+        this.pricingService = pricingService;
+        this.batchPricingService = batchPricingService;
+        this.pricingRulesService = pricingRulesService;
+        this.quoteTokenService = quoteTokenService;
+    }
 
     /**
      * Calculate price for a list of books for a customer
      * 
      * @param request The pricing request containing customer ID and book IDs
-     * @return The calculated price and any free books
+     * @return The calculated price and any free books, with a quote token if requested and enabled
      */
     @PostMapping("/calculate")
     public ResponseEntity<PricingResponse> calculatePrice(@RequestBody PricingRequest request) {
@@ -49,16 +77,10 @@ public class PricingController {
         Customer customer = customerOpt.get();
 
         // Get books from request
-        List<Book> books = new ArrayList<>();
-        for (Long bookId : request.getBookIds()) {
-            Optional<Book> bookOpt = bookService.getBookById(bookId);
-            if (bookOpt.isEmpty()) {
-                throw new IllegalArgumentException("Book not found");
-            }
-            books.add(bookOpt.get());
-        }
+        List<Book> books = bookService.getBooksByIds(request.getBookIds());
 
-        // Calculate price
+        // Calculate price; the rules version is read first so a token never claims newer rules than the price used
+        long rulesVersion = pricingService.getRulesVersion();
         List<Book> freeBooks = new ArrayList<>();
         BigDecimal totalPrice = pricingService.calculatePrice(books, customer.getLoyaltyPoints(), freeBooks);
 
@@ -67,7 +89,46 @@ public class PricingController {
         response.setTotalPrice(totalPrice);
         response.setFreeBooks(freeBooks);
         response.setBooks(books);
+        if (request.isIssueQuoteToken() && quoteTokenService != null) {
+            quoteTokenService.issue(customer, books, new PriceQuote(totalPrice, freeBooks), rulesVersion)
+                    .ifPresent(token -> {
+                        response.setQuoteToken(token.token());
+                        response.setQuoteExpiresAt(token.expiresAt());
+                    });
+        }
 
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    /**
+     * Calculate prices for many carts at once
+     *
+     * @param request The carts, each with a customer ID and book IDs
+     * @return One quote per cart in request order, each with its own status
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchPricingResponse> calculateBatch(@RequestBody BatchPricingRequest request) {
+        return ResponseEntity.ok(new BatchPricingResponse(batchPricingService.priceCarts(request.getCarts())));
+    }
+
+    /**
+     * Get the pricing rules in force
+     *
+     * @return The rule version and the rule of every book type
+     */
+    @GetMapping("/rules")
+    public PricingRulesResponse getRules() {
+        return pricingRulesService.getRules();
+    }
+
+    /**
+     * Change the pricing rules of some book types without a restart
+     *
+     * @param request The new rules; book types not listed and fields left null keep their current value
+     * @return The rules in force after the change
+     */
+    @PutMapping("/rules")
+    public ResponseEntity<PricingRulesResponse> updateRules(@RequestBody PricingRulesRequest request) {
+        return ResponseEntity.ok(pricingRulesService.updateRules(request.getRules()));
+    }
+}
@@ -1,44 +1,233 @@
 package com.bookstore.controller;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.bookstore.dto.PurchaseRequest;
 import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.dto.PurchaseStatusResponse;
 import com.bookstore.model.Book;
 import com.bookstore.model.Customer;
 import com.bookstore.service.BookService;
 import com.bookstore.service.CustomerService;
 import com.bookstore.service.PurchaseService;
+import com.bookstore.service.lock.CustomerLocks;
+import com.bookstore.service.pricing.PriceQuote;
+import com.bookstore.service.pricing.QuoteTokenService;
+import com.bookstore.service.purchase.FlashSales;
+import com.bookstore.service.purchase.GroupCommitExecutor;
+import com.bookstore.service.purchase.IdempotencyStore;
+import com.bookstore.service.purchase.IdempotentPurchase;
+import com.bookstore.service.purchase.PurchasePipeline;
 
-import java.util.ArrayList;
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
-
-import lombok.RequiredArgsConstructor;
+import java.util.function.Supplier;
 
 /**
  * Controller for managing book purchases
  */
 @RestController
 @RequestMapping("/api/purchases")
-@RequiredArgsConstructor
 public class PurchaseController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final BookService bookService;
 
     private final CustomerService customerService;
 
     private final PurchaseService purchaseService;
 
+    /**
+     * Optional redeemer of signed quotes, null when quote tokens are disabled
+     */
+    private final QuoteTokenService quoteTokenService;
+
+    /**
+     * Optional per-customer locks, null when purchases are not serialized per customer
+     */
+    private final CustomerLocks customerLocks;
+
+    /**
+     * Optional pipeline of asynchronous purchases, null when they are disabled
+     */
+    private final PurchasePipeline purchasePipeline;
+
+    /**
+     * Optional store of responses by Idempotency-Key, null when the header is ignored
+     */
+    private final IdempotencyStore idempotencyStore;
+
+    /**
+     * Optional group commit of purchases, null when each purchase commits on its own
+     */
+    private final GroupCommitExecutor groupCommitExecutor;
+
+    /**
+     * Optional admission of purchases of flash sale books, null when flash sales are disabled
+     */
+    private final FlashSales flashSales;
+
+    @Autowired
+    public PurchaseController(BookService bookService, CustomerService customerService, PurchaseService purchaseService,
+                              @Nullable QuoteTokenService quoteTokenService, @Nullable CustomerLocks customerLocks,
+                              @Nullable PurchasePipeline purchasePipeline, @Nullable IdempotencyStore idempotencyStore,
+                              @Nullable GroupCommitExecutor groupCommitExecutor, @Nullable FlashSales flashSales) {
+        this.bookService = bookService;
+        this.customerService = customerService;
+        this.purchaseService = purchaseService;
+        this.quoteTokenService = quoteTokenService;
+        this.customerLocks = customerLocks;
+        this.purchasePipeline = purchasePipeline;
+        this.idempotencyStore = idempotencyStore;
+        this.groupCommitExecutor = groupCommitExecutor;
+        this.flashSales = flashSales;
+    }
+
     /**
      * Purchase Endpoint
+     * A valid quote token from the pricing endpoint lets the purchase skip repricing the cart; an expired token or
+     * one whose customer, loyalty points, books or rules no longer match is ignored and the cart is priced again.
+     * Purchases of the same customer run one at a time, from reading the customer to committing the new balance.
+     * A purchase sent with an Idempotency-Key runs once per key: a retry with the same key is answered with the
+     * first response, flagged by the Idempotent-Replayed header, and waits if the first request is still running.
+     * With group commit, the purchase shares a transaction with the purchases arriving around the same time and is
+     * answered once that transaction has committed.
+     * A cart with books on a flash sale is refused before anything else once the sale has no units left for it; a
+     * retry with an Idempotency-Key is replayed without going through the sale again.
      */
     @PostMapping
-    public ResponseEntity<PurchaseResponse> purchaseBooks(@RequestBody PurchaseRequest request) {
+    public ResponseEntity<PurchaseResponse> purchaseBooks(@RequestBody PurchaseRequest request,
+                                                          @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                          String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyStore == null) {
+            return ResponseEntity.ok(admitted(request, () -> purchaseWithLock(request)));
+        }
+        // The lock and the flash sale units cover the transaction that records the key too; a retry is answered by the
+        // store without them, so it never waits behind the first request's lock
+        IdempotentPurchase result = idempotencyStore.execute(idempotencyKey, request,
+                recorded -> admittedOnce(request, () -> withCustomerLock(request, recorded)),
+                () -> purchase(request));
+        return ResponseEntity.ok()
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.response());
+    }
+
+    /**
+     * Asynchronous Purchase Endpoint
+     * The purchase is accepted and processed in the background exactly like a synchronous one; the response points
+     * to the status endpoint, which reports the outcome once it is known.
+     *
+     * @return 202 with the status of the accepted purchase, or 404 if asynchronous purchases are disabled
+     * @throws com.bookstore.exception.PurchaseQueueFullException if too many purchases are in progress
+     * @throws com.bookstore.exception.OutOfStockException if a flash sale of the cart has no units left for it
+     */
+    @PostMapping("/async")
+    public ResponseEntity<PurchaseStatusResponse> submitPurchase(@RequestBody PurchaseRequest request) {
+        if (purchasePipeline == null) {
+            return ResponseEntity.notFound().build();
+        }
+        FlashSales.Admission admission = admit(request);
+        PurchaseStatusResponse status;
+        try {
+            status = purchasePipeline.submit(() -> withAdmission(admission, () -> purchaseWithLock(request)));
+        } catch (RuntimeException e) {
+            admission.cancel();
+            throw e;
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/purchases/async/" + status.getPurchaseId()))
+                .body(status);
+    }
+
+    /**
+     * Get the status of an asynchronous purchase
+     *
+     * @return The status, or 404 if the purchase is unknown, its status has expired, or asynchronous purchases
+     * are disabled
+     */
+    @GetMapping("/async/{purchaseId}")
+    public ResponseEntity<PurchaseStatusResponse> getPurchaseStatus(@PathVariable(name = "purchaseId") String purchaseId) {
+        if (purchasePipeline == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return purchasePipeline.getStatus(purchaseId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Run a purchase once the flash sales of its cart have admitted it
+     */
+    private PurchaseResponse admitted(PurchaseRequest request, Supplier<PurchaseResponse> purchase) {
+        return withAdmission(admit(request), purchase);
+    }
+
+    /**
+     * Run an idempotent purchase once the flash sales of its cart have admitted it, giving the units back if it
+     * fails or if another request's outcome is replayed in its place
+     */
+    private IdempotentPurchase admittedOnce(PurchaseRequest request, Supplier<IdempotentPurchase> purchase) {
+        FlashSales.Admission admission = admit(request);
+        IdempotentPurchase result;
+        try {
+            result = purchase.get();
+        } catch (RuntimeException | Error e) {
+            admission.cancel();
+            throw e;
+        }
+        if (result.replayed()) {
+            admission.cancel();
+        }
+        return result;
+    }
+
+    private FlashSales.Admission admit(PurchaseRequest request) {
+        return flashSales == null ? FlashSales.Admission.NONE : flashSales.admit(request.getBookIds());
+    }
+
+    /**
+     * Run an admitted purchase, giving its flash sale units back if it fails
+     */
+    private static PurchaseResponse withAdmission(FlashSales.Admission admission, Supplier<PurchaseResponse> purchase) {
+        try {
+            return purchase.get();
+        } catch (RuntimeException | Error e) {
+            admission.cancel();
+            throw e;
+        }
+    }
+
+    private PurchaseResponse purchaseWithLock(PurchaseRequest request) {
+        return withCustomerLock(request, () -> purchase(request));
+    }
+
+    private <T> T withCustomerLock(PurchaseRequest request, Supplier<T> action) {
+        return customerLocks == null ? action.get() : customerLocks.withLock(request.getCustomerId(), action);
+    }
+
+    /**
+     * Run a purchase, in the next group commit if enabled; the caller's lock is held until that group has committed
+     */
+    private PurchaseResponse purchase(PurchaseRequest request) {
+        return groupCommitExecutor == null
+                ? runPurchase(request)
+                : groupCommitExecutor.execute(() -> runPurchase(request));
+    }
+
+    private PurchaseResponse runPurchase(PurchaseRequest request) {
         Optional<Customer> customerOpt = customerService.getCustomerById(request.getCustomerId());
         if (customerOpt.isEmpty()) {
             throw new IllegalArgumentException("Customer not found");
@@ -47,17 +236,14 @@ public class PurchaseController {
         Customer customer = customerOpt.get();
 
         // Get books from request
-        List<Book> books = new ArrayList<>();
-        for (Long bookId : request.getBookIds()) {
-            Optional<Book> bookOpt = bookService.getBookById(bookId);
-            if (bookOpt.isEmpty()) {
-                throw new IllegalArgumentException("Book not found");
-            }
-            books.add(bookOpt.get());
-        }
+        List<Book> books = bookService.getBooksByIds(request.getBookIds());
 
-        PurchaseResponse response = purchaseService.purchase(customer, books);
-        return ResponseEntity.ok(response);
+        Optional<PriceQuote> quote = request.getQuoteToken() == null || quoteTokenService == null
+                ? Optional.empty()
+                : quoteTokenService.redeem(request.getQuoteToken(), customer, books);
+        return quote.isPresent()
+                ? purchaseService.purchase(customer, books, quote.get())
+                : purchaseService.purchase(customer, books);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.bookstore.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Request DTO for pricing many carts at once
+ */
+@Data
+public class BatchPricingRequest {
+    private List<PricingRequest> carts;
+}
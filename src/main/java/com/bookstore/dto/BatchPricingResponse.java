@@ -0,0 +1,17 @@
+package com.bookstore.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for batch pricing, with one quote per requested cart in request order
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPricingResponse {
+    private List<CartQuote> results;
+}
@@ -0,0 +1,37 @@
+package com.bookstore.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for a bulk catalog import
+ * Only the first errors are listed, so the report stays small however many rows fail
+ */
+@Data
+public class BookImportReport {
+    private long rowsRead;
+    private long imported;
+    private long rejected;
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+
+    /**
+     * A rejected row of the import
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        /**
+         * 1-based line number in the uploaded file
+         */
+        private long line;
+        private String message;
+    }
+}
@@ -0,0 +1,30 @@
+package com.bookstore.dto;
+
+import com.bookstore.model.Book;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for a ranked title search
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchResponse {
+    private List<Book> items;
+    private long total;
+    /**
+     * Whether total is an exact count; false when the search stopped early and estimated it
+     */
+    private boolean totalExact;
+    /**
+     * Whether every matching book was ranked; false when the search stopped early, so better matches may be missing
+     */
+    private boolean rankingComplete;
+    private int page;
+    private int size;
+}
@@ -0,0 +1,45 @@
+package com.bookstore.dto;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one line of a bulk purchase
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkPurchaseLine {
+
+    public enum Status {
+        PURCHASED,
+        REJECTED
+    }
+
+    /**
+     * 1-based line number in the uploaded order
+     */
+    private long line;
+    private Long bookId;
+    private int quantity;
+    private Status status;
+    /**
+     * Price of one paid unit, null when rejected
+     */
+    private BigDecimal unitPrice;
+    /**
+     * Units of the line that were the customer's free book
+     */
+    private int freeUnits;
+    /**
+     * Price of the paid units, null when rejected
+     */
+    private BigDecimal lineTotal;
+    /**
+     * Why the line was rejected, null when purchased
+     */
+    private String message;
+}
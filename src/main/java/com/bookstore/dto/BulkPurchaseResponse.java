@@ -0,0 +1,39 @@
+package com.bookstore.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO summarizing a bulk purchase
+ * The outcome of every line is not part of it, so it stays small however many lines the order has; it is downloaded
+ * separately by the order ID.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkPurchaseResponse {
+    private String orderId;
+    private Long customerId;
+    private long linesRead;
+    private long linesPurchased;
+    /**
+     * Lines that were malformed, named an unknown book, or asked for more units than were available
+     */
+    private long linesRejected;
+    /**
+     * Units of the purchased lines, the free book included
+     */
+    private int units;
+    private int freeBooks;
+    private BigDecimal totalPrice;
+    /**
+     * Loyalty balance of the customer right after the purchase
+     */
+    private int loyaltyPoints;
+    private Instant createdAt;
+    private long elapsedMillis;
+}
@@ -0,0 +1,34 @@
+package com.bookstore.dto;
+
+import com.bookstore.model.Book;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * The outcome of pricing one cart of a batch
+ * The price fields are only set when the status is {@link Status#OK}, the message only when it is not
+ */
+@Data
+public class CartQuote {
+
+    public enum Status {
+        OK,
+        INVALID_REQUEST,
+        CUSTOMER_NOT_FOUND,
+        BOOKS_NOT_FOUND,
+        ERROR
+    }
+
+    /**
+     * Position of the cart in the request
+     */
+    private int index;
+    private Status status;
+    private String message;
+    private BigDecimal totalPrice;
+    private List<Book> freeBooks;
+    private List<Book> books;
+}
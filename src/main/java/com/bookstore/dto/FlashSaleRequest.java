@@ -0,0 +1,18 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request DTO starting a flash sale of a book
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleRequest {
+    /**
+     * Units sold in the sale
+     */
+    private int units;
+}
@@ -0,0 +1,51 @@
+package com.bookstore.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the configuration and state of a flash sale
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleResponse {
+    private Long bookId;
+    /**
+     * Units sold in the sale
+     */
+    private int units;
+    /**
+     * Units not taken by an admitted purchase yet
+     */
+    private int remaining;
+    private boolean soldOut;
+    private Instant startedAt;
+    /**
+     * When the last unit was taken, null while units remain
+     */
+    private Instant soldOutAt;
+    /**
+     * Purchases let through to be processed
+     */
+    private long admitted;
+    /**
+     * Purchases refused because not enough units remained
+     */
+    private long rejected;
+    /**
+     * Admitted purchases that failed and gave their units back
+     */
+    private long returned;
+    /**
+     * Purchases admitted per second since the sale started
+     */
+    private double admittedPerSecond;
+    /**
+     * Purchases rejected per second since the sale started
+     */
+    private double rejectedPerSecond;
+}
@@ -0,0 +1,38 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the counters of the purchase group commit
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupCommitStatsResponse {
+    /**
+     * Purchases waiting for a committer
+     */
+    private int queued;
+    /**
+     * Transactions that committed a group of purchases
+     */
+    private long batches;
+    private long committedPurchases;
+    private long failedPurchases;
+    /**
+     * Groups rolled back because one of their purchases or their commit failed, then run one purchase at a time
+     */
+    private long rolledBackBatches;
+    private double averageBatchSize;
+    private int maxBatchSize;
+    /**
+     * Time from submission until the purchase's group started
+     */
+    private long averageQueueWaitMicros;
+    /**
+     * Time to run and commit a group
+     */
+    private long averageCommitMicros;
+}
@@ -0,0 +1,34 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the counters of the Idempotency-Key store
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyStatsResponse {
+    /**
+     * Keys held in memory, finished or in flight
+     */
+    private long size;
+    /**
+     * Purchases run for a key seen for the first time
+     */
+    private long executedCount;
+    /**
+     * Requests answered with a stored response instead of running the purchase again
+     */
+    private long replayedCount;
+    /**
+     * Replays that first waited for the original request to finish
+     */
+    private long joinedCount;
+    /**
+     * Requests refused because their key was first used for a different purchase
+     */
+    private long mismatchCount;
+}
@@ -0,0 +1,30 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the counters of the book inventory
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryStatsResponse {
+    /**
+     * Books whose stock is managed
+     */
+    private int managedBooks;
+    /**
+     * Units held by purchases that have not committed yet
+     */
+    private long reservedUnits;
+    private long reservations;
+    private long rejectedReservations;
+    private long committedUnits;
+    private long releasedUnits;
+    /**
+     * Stock rows written by sales and stock changes
+     */
+    private long writtenRows;
+}
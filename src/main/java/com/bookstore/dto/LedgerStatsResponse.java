@@ -0,0 +1,30 @@
+package com.bookstore.dto;
+
+import com.bookstore.service.ledger.LedgerDurability;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the counters of the purchase ledger writer
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerStatsResponse {
+    private LedgerDurability durability;
+    /**
+     * Entries waiting for the background writer
+     */
+    private int queued;
+    private long writtenOrders;
+    /**
+     * Transactions of the background writer; SYNC entries are written in the purchase transaction and not counted
+     */
+    private long writtenBatches;
+    private long failedOrders;
+    private double averageBatchSize;
+    private int maxBatchSize;
+    private long averageFlushMicros;
+}
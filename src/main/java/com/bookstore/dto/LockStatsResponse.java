@@ -0,0 +1,27 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the contention counters of the per-customer purchase locks
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LockStatsResponse {
+    private int stripes;
+    private long acquisitionCount;
+    /**
+     * Acquisitions that found the lock held and had to wait
+     */
+    private long contendedCount;
+    private double contentionRate;
+    private long totalWaitMicros;
+    private long maxWaitMicros;
+    /**
+     * Threads waiting for a lock right now
+     */
+    private int waitingThreads;
+}
@@ -0,0 +1,38 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the counters of the loyalty ledger
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoyaltyLedgerStatsResponse {
+    /**
+     * Customers whose balance is held in memory
+     */
+    private int accounts;
+    /**
+     * Events waiting for the background writer
+     */
+    private int queued;
+    private long appendedEvents;
+    private long writtenEvents;
+    private long writtenBatches;
+    private long failedEvents;
+    private double averageBatchSize;
+    private int maxBatchSize;
+    private long averageFlushMicros;
+    /**
+     * Balance snapshots refreshed, at most one per customer per batch
+     */
+    private long snapshotUpdates;
+    /**
+     * Changes undone because their transaction rolled back
+     */
+    private long reversals;
+    private long replays;
+}
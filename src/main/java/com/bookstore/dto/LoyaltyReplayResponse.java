@@ -0,0 +1,33 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the outcome of a replay of the loyalty event log
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoyaltyReplayResponse {
+    /**
+     * Customer ID ranges replayed in parallel
+     */
+    private int partitions;
+    private long customers;
+    private long events;
+    /**
+     * Events whose recorded balance is not the sum of the deltas up to them
+     */
+    private long driftedEvents;
+    /**
+     * Customers whose balance, in memory or in the snapshot, is not the sum of their deltas
+     */
+    private long driftedBalances;
+    /**
+     * Drifted balances set back to the sum of their deltas; 0 unless the replay repairs
+     */
+    private long repairedBalances;
+    private long elapsedMillis;
+}
@@ -0,0 +1,19 @@
+package com.bookstore.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for a keyset-paginated listing
+ * The next page is requested by passing nextCursor back as the cursor parameter; it is null on the last page
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+}
@@ -11,4 +11,8 @@ import lombok.Data;
 public class PricingRequest {
     private Long customerId;
     private List<Long> bookIds;
+    /**
+     * Whether to return a signed quote token that a purchase of the same cart can redeem
+     */
+    private boolean issueQuoteToken;
 }
\ No newline at end of file
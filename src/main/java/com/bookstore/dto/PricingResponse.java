@@ -3,6 +3,7 @@ package com.bookstore.dto;
 import com.bookstore.model.Book;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 import lombok.Data;
@@ -15,4 +16,9 @@ public class PricingResponse {
     private BigDecimal totalPrice;
     private List<Book> freeBooks;
     private List<Book> books;
+    /**
+     * Signed quote to pass to the purchase of the same cart, only set when requested
+     */
+    private String quoteToken;
+    private Instant quoteExpiresAt;
 }
\ No newline at end of file
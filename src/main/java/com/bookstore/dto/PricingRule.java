@@ -0,0 +1,32 @@
+package com.bookstore.dto;
+
+import com.bookstore.model.BookType;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pricing rule of one book type
+ * In an update, fields left null keep their current value
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingRule {
+    private BookType type;
+    /**
+     * Factor applied to the base price
+     */
+    private BigDecimal factor;
+    /**
+     * Additional factor applied when the book is part of a bundle
+     */
+    private BigDecimal bundleFactor;
+    /**
+     * Number of books in the cart from which the bundle factor applies
+     */
+    private Integer bundleThreshold;
+}
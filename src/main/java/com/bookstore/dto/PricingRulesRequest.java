@@ -0,0 +1,13 @@
+package com.bookstore.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Request DTO for changing pricing rules; book types not listed keep their current rule
+ */
+@Data
+public class PricingRulesRequest {
+    private List<PricingRule> rules;
+}
@@ -0,0 +1,21 @@
+package com.bookstore.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the pricing rules in force
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingRulesResponse {
+    /**
+     * Incremented every time the rules change
+     */
+    private long version;
+    private List<PricingRule> rules;
+}
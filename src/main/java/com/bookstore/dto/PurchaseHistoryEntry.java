@@ -0,0 +1,26 @@
+package com.bookstore.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for one past purchase of a customer
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseHistoryEntry {
+    private Long orderId;
+    private Instant createdAt;
+    private BigDecimal totalPrice;
+    /**
+     * Loyalty balance of the customer right after the purchase
+     */
+    private int loyaltyPoints;
+    private List<PurchaseHistoryLine> books;
+}
@@ -0,0 +1,24 @@
+package com.bookstore.dto;
+
+import com.bookstore.model.BookType;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO for one line of a past purchase, with its book as it was when purchased
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseHistoryLine {
+    private Long bookId;
+    private String title;
+    private BookType type;
+    private BigDecimal basePrice;
+    private int quantity;
+    private boolean free;
+}
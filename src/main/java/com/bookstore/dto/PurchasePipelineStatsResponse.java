@@ -0,0 +1,35 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the counters of the asynchronous purchase pipeline
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchasePipelineStatsResponse {
+    /**
+     * Purchases accepted at most, queued and processing together
+     */
+    private int capacity;
+    /**
+     * Purchases processed at the same time at most
+     */
+    private int concurrency;
+    private int queueDepth;
+    private int processing;
+    private long submittedCount;
+    /**
+     * Purchases refused because the pipeline was full
+     */
+    private long rejectedCount;
+    private long completedCount;
+    private long failedCount;
+    private long averageQueueWaitMicros;
+    private long maxQueueWaitMicros;
+    private long averageProcessingMicros;
+    private long maxProcessingMicros;
+}
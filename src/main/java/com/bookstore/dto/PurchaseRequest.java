@@ -8,4 +8,8 @@ import lombok.Data;
 public class PurchaseRequest {
     private Long customerId;
     private List<Long> bookIds;
+    /**
+     * Optional quote token from the pricing endpoint; the cart is priced again if it is no longer valid
+     */
+    private String quoteToken;
 }
@@ -0,0 +1,36 @@
+package com.bookstore.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the progress of an asynchronous purchase
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseStatusResponse {
+
+    public enum Status {
+        QUEUED,
+        PROCESSING,
+        COMPLETED,
+        FAILED
+    }
+
+    private String purchaseId;
+    private Status status;
+    private Instant submittedAt;
+    private Instant completedAt;
+    /**
+     * The purchase, once completed
+     */
+    private PurchaseResponse result;
+    /**
+     * Why the purchase failed, once failed
+     */
+    private String message;
+}
@@ -0,0 +1,31 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response DTO with the stock of a book
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelResponse {
+    private Long bookId;
+    /**
+     * Whether the stock of the book is managed; a book without managed stock never runs out and has no counts
+     */
+    private boolean managed;
+    /**
+     * Units not sold yet
+     */
+    private Long onHand;
+    /**
+     * Units held by purchases that have not committed yet
+     */
+    private Long reserved;
+    /**
+     * Units a new purchase can reserve
+     */
+    private Long available;
+}
@@ -0,0 +1,15 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request DTO setting the units of a book on hand
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockUpdateRequest {
+    private long quantity;
+}
@@ -1,5 +1,6 @@
 package com.bookstore.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -27,6 +28,56 @@ public class GlobalExceptionHandler {
         );
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
+
+    /**
+     * Handles PurchaseQueueFullException thrown when the purchase pipeline is full.
+     * 
+     * @param ex The PurchaseQueueFullException that was thrown
+     * @return ResponseEntity with error message, TOO_MANY_REQUESTS status and a Retry-After header
+     */
+    @ExceptionHandler(PurchaseQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handlePurchaseQueueFullException(PurchaseQueueFullException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.TOO_MANY_REQUESTS.value(),
+            ex.getMessage(),
+            System.currentTimeMillis()
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(errorResponse);
+    }
+
+    /**
+     * Handles IdempotencyConflictException thrown when a repeated request outwaits its original.
+     * 
+     * @param ex The IdempotencyConflictException that was thrown
+     * @return ResponseEntity with error message and CONFLICT status
+     */
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotencyConflictException(IdempotencyConflictException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.CONFLICT.value(),
+            ex.getMessage(),
+            System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles OutOfStockException thrown when a book of a cart has not enough units left.
+     * 
+     * @param ex The OutOfStockException that was thrown
+     * @return ResponseEntity with error message and CONFLICT status
+     */
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<ErrorResponse> handleOutOfStockException(OutOfStockException ex) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            HttpStatus.CONFLICT.value(),
+            ex.getMessage(),
+            System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
     
     /**
      * Error response class to provide structured error information.
@@ -0,0 +1,12 @@
+package com.bookstore.exception;
+
+/**
+ * Thrown when a request repeats an Idempotency-Key whose original request is still being processed and did not
+ * finish within the wait timeout
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.bookstore.exception;
+
+/**
+ * Thrown when a purchase is refused because a book of its cart does not have enough units left
+ */
+public class OutOfStockException extends RuntimeException {
+
+    public OutOfStockException(Long bookId, int requested) {
+        super("Not enough stock of book " + bookId + " for " + requested + " unit(s)");
+    }
+}
@@ -0,0 +1,12 @@
+package com.bookstore.exception;
+
+/**
+ * Thrown when an asynchronous purchase is refused because the purchase pipeline already holds as many purchases as
+ * it accepts
+ */
+public class PurchaseQueueFullException extends RuntimeException {
+
+    public PurchaseQueueFullException(int capacity) {
+        super("Too many purchases in progress (capacity " + capacity + "), retry later");
+    }
+}
@@ -0,0 +1,26 @@
+package com.bookstore.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Units of a book on hand, for the books whose stock is managed
+ * Every sale takes its units off the row in its own transaction, so the row always matches the committed sales and
+ * seeds the in-memory counters of the inventory at startup; books without a row are not stock-managed and never run
+ * out.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStock {
+    @Id
+    private Long bookId;
+    /**
+     * Units not sold yet, units held by purchases that have not committed included
+     */
+    private long quantity;
+}
@@ -0,0 +1,35 @@
+package com.bookstore.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stored outcome of a purchase made with an Idempotency-Key, written in the purchase's own transaction
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+    /**
+     * Digest of the request the key was first used with
+     */
+    @Column(length = 64)
+    private String fingerprint;
+    /**
+     * The purchase response as JSON
+     */
+    @Lob
+    private String response;
+    private Instant createdAt;
+}
@@ -0,0 +1,46 @@
+package com.bookstore.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change of a customer's loyalty balance; events are only ever inserted
+ * A customer's events in ID order are the history of the balance: summing their deltas gives the balance after the
+ * last one. The (customer, ID) index serves both the audit pages and the replay of all balances.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_loyalty_event_customer", columnList = "customer_id, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoyaltyEvent {
+    @Id
+    // Assigned by the ledger writer in the order events are written, without a round trip per row
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loyalty_event_seq")
+    @SequenceGenerator(name = "loyalty_event_seq", sequenceName = "loyalty_event_seq", allocationSize = 50)
+    private Long id;
+    private Long customerId;
+    @Enumerated(EnumType.STRING)
+    private LoyaltyEventType type;
+    /**
+     * Points added to the balance, negative when taken off
+     */
+    private int delta;
+    /**
+     * Balance of the customer right after the change
+     */
+    private int balance;
+    private Instant createdAt;
+}
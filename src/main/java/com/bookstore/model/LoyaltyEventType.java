@@ -0,0 +1,18 @@
+package com.bookstore.model;
+
+/**
+ * Kind of change recorded by a loyalty event
+ */
+public enum LoyaltyEventType {
+    /**
+     * First event of a customer: the balance it had when the ledger first saw it
+     */
+    OPENING,
+    EARN,
+    REDEEM,
+    /**
+     * Balance set by hand or realigned: with a snapshot changed outside the ledger, or by a replay with the sum of
+     * the customer's deltas, in which case the delta is 0
+     */
+    ADJUST
+}
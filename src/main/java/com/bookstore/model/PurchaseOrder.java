@@ -0,0 +1,41 @@
+package com.bookstore.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ledger entry of a completed purchase; entries are only ever inserted
+ * A customer's history is read newest first by seeking the (customer, creation time, ID) index, so a page costs the
+ * same however many orders the customer has.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_purchase_order_customer_created", columnList = "customer_id, created_at, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseOrder {
+    @Id
+    // A pooled sequence lets the ledger writer assign IDs without a round trip per row, so inserts can be JDBC-batched
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_order_seq")
+    @SequenceGenerator(name = "purchase_order_seq", sequenceName = "purchase_order_seq", allocationSize = 50)
+    private Long id;
+    private Long customerId;
+    private BigDecimal totalPrice;
+    /**
+     * Loyalty balance of the customer right after the purchase
+     */
+    private int loyaltyPoints;
+    private int bookCount;
+    private Instant createdAt;
+}
@@ -0,0 +1,50 @@
+package com.bookstore.model;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of a {@link PurchaseOrder}, with its book as it was when purchased
+ * A cart purchase has one line per unit; a bulk purchase has one line per line of its order.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_purchase_order_line_order", columnList = "order_id, line_number"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseOrderLine {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_order_line_seq")
+    @SequenceGenerator(name = "purchase_order_line_seq", sequenceName = "purchase_order_line_seq", allocationSize = 50)
+    private Long id;
+    private Long orderId;
+    /**
+     * Position of the line in the cart or order, from 0
+     */
+    private int lineNumber;
+    private Long bookId;
+    private String title;
+    @Enumerated(EnumType.STRING)
+    private BookType type;
+    private BigDecimal basePrice;
+    /**
+     * Units of the book on the line
+     */
+    private int quantity;
+    /**
+     * Whether one unit of the line was the customer's free book
+     */
+    private boolean free;
+}
@@ -1,8 +1,16 @@
 package com.bookstore.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.bookstore.model.Book;
 
+import java.util.List;
+
 public interface BookRepository extends JpaRepository<Book, Long> {
+
+    /**
+     * Keyset page: the next {@code limit} rows with an ID greater than {@code afterId}, in ID order
+     */
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
 }
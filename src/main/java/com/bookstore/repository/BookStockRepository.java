@@ -0,0 +1,22 @@
+package com.bookstore.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bookstore.model.BookStock;
+
+public interface BookStockRepository extends JpaRepository<BookStock, Long> {
+
+    /**
+     * Atomically add units to the stock of a book, or take them off with a negative difference
+     *
+     * @return The number of rows updated, 0 if the book has no stock row
+     */
+    @Modifying
+    @Transactional
+    @Query("update BookStock s set s.quantity = s.quantity + :difference where s.bookId = :bookId")
+    int addQuantity(@Param("bookId") Long bookId, @Param("difference") long difference);
+}
@@ -1,8 +1,58 @@
 package com.bookstore.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.bookstore.model.Customer;
 
+import java.util.List;
+import java.util.Optional;
+
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+    /**
+     * Keyset page: the next {@code limit} rows with an ID greater than {@code afterId}, in ID order
+     */
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * Read only the loyalty balance, bypassing entities already loaded in the persistence context
+     */
+    @Query("select c.loyaltyPoints from Customer c where c.id = :id")
+    Optional<Integer> findLoyaltyPointsById(@Param("id") Long id);
+
+    /**
+     * Add points to the balance in a single statement, so concurrent additions are never lost
+     *
+     * @return The number of rows updated, 0 if the customer does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("update Customer c set c.loyaltyPoints = c.loyaltyPoints + :points where c.id = :id")
+    int addLoyaltyPoints(@Param("id") Long id, @Param("points") int points);
+
+    /**
+     * Redeem the balance and replace it with the given points, only if it still holds the required points
+     *
+     * @return The number of rows updated, 0 if the customer does not exist or no longer has the required points
+     */
+    @Modifying
+    @Transactional
+    @Query("update Customer c set c.loyaltyPoints = :points where c.id = :id and c.loyaltyPoints >= :requiredPoints")
+    int redeemLoyaltyPoints(@Param("id") Long id, @Param("requiredPoints") int requiredPoints,
+                            @Param("points") int points);
+
+    /**
+     * Rename a customer without writing the balance, which the loyalty ledger owns
+     *
+     * @return The number of rows updated, 0 if the customer does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query("update Customer c set c.name = :name where c.id = :id")
+    int updateName(@Param("id") Long id, @Param("name") String name);
 }
@@ -0,0 +1,47 @@
+package com.bookstore.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.bookstore.model.LoyaltyEvent;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface LoyaltyEventRepository extends JpaRepository<LoyaltyEvent, Long> {
+
+    List<LoyaltyEvent> findByCustomerIdOrderByIdAsc(Long customerId);
+
+    /**
+     * The latest event of a customer, read from the end of the (customer, ID) index
+     */
+    Optional<LoyaltyEvent> findFirstByCustomerIdOrderByIdDesc(Long customerId);
+
+    /**
+     * Keyset page: the next {@code limit} events of a customer older than the given ID, newest first
+     */
+    List<LoyaltyEvent> findByCustomerIdAndIdLessThanOrderByIdDesc(Long customerId, Long beforeId, Limit limit);
+
+    @Query("select max(e.id) from LoyaltyEvent e")
+    Optional<Long> findMaxId();
+
+    @Query("select min(e.customerId) from LoyaltyEvent e")
+    Optional<Long> findMinCustomerId();
+
+    @Query("select max(e.customerId) from LoyaltyEvent e")
+    Optional<Long> findMaxCustomerId();
+
+    /**
+     * Keyset chunk of the replay: the next {@code limit} events after the given (customer, ID) position, up to the
+     * last customer of a range and the last event of the replay, in (customer, ID) order
+     * The redundant {@code customerId >= :afterCustomerId} bound gives the database a range to seek in the index
+     */
+    @Query("select e from LoyaltyEvent e where e.customerId >= :afterCustomerId and e.customerId <= :lastCustomerId"
+            + " and (e.customerId > :afterCustomerId or e.id > :afterId) and e.id <= :lastId"
+            + " order by e.customerId, e.id")
+    List<LoyaltyEvent> findReplayChunk(@Param("afterCustomerId") Long afterCustomerId, @Param("afterId") Long afterId,
+                                       @Param("lastCustomerId") Long lastCustomerId, @Param("lastId") Long lastId,
+                                       Limit limit);
+}
@@ -0,0 +1,18 @@
+package com.bookstore.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.bookstore.model.PurchaseOrderLine;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PurchaseOrderLineRepository extends JpaRepository<PurchaseOrderLine, Long> {
+
+    List<PurchaseOrderLine> findByOrderIdOrderByLineNumberAsc(Long orderId);
+
+    /**
+     * Lines of several orders in one query, grouped by order and in cart order
+     */
+    List<PurchaseOrderLine> findByOrderIdInOrderByOrderIdAscLineNumberAsc(Collection<Long> orderIds);
+}
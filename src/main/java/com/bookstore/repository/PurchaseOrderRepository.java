@@ -0,0 +1,36 @@
+package com.bookstore.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.bookstore.model.PurchaseOrder;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder, Long> {
+
+    List<PurchaseOrder> findByCustomerIdOrderByIdAsc(Long customerId);
+
+    /**
+     * Keyset page: the newest {@code limit} orders of a customer
+     * The order lists every column of the (customer, creation time, ID) index, customer included, which is what lets
+     * the database read the index backwards instead of sorting all of the customer's orders
+     */
+    @Query("select o from PurchaseOrder o where o.customerId = :customerId"
+            + " order by o.customerId desc, o.createdAt desc, o.id desc")
+    List<PurchaseOrder> findNewest(@Param("customerId") Long customerId, Limit limit);
+
+    /**
+     * Keyset page: the next {@code limit} orders of a customer older than the given one, newest first
+     * The redundant {@code createdAt <= :createdAt} bound gives the database a range to seek in the index; the
+     * disjunction alone would make it scan the customer's orders from the newest one
+     */
+    @Query("select o from PurchaseOrder o where o.customerId = :customerId and o.createdAt <= :createdAt"
+            + " and (o.createdAt < :createdAt or o.id < :id)"
+            + " order by o.customerId desc, o.createdAt desc, o.id desc")
+    List<PurchaseOrder> findOlderThan(@Param("customerId") Long customerId, @Param("createdAt") Instant createdAt,
+                                      @Param("id") Long id, Limit limit);
+}
@@ -0,0 +1,23 @@
+package com.bookstore.service;
+
+import com.bookstore.model.Book;
+
+/**
+ * Listener for committed catalog changes, used to keep derived in-memory views of the catalog current
+ */
+public interface BookChangeListener {
+
+    /**
+     * Called after a book was added or updated
+     *
+     * @param book The saved book
+     */
+    void bookSaved(Book book);
+
+    /**
+     * Called after a book was deleted
+     *
+     * @param id The ID of the deleted book
+     */
+    void bookDeleted(Long id);
+}
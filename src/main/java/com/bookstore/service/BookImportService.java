@@ -0,0 +1,265 @@
+package com.bookstore.service;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.dto.BookImportReport;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Service for bulk catalog imports
+ * Feeds are read one line at a time, validated per row, and written in JDBC batches with one transaction per batch,
+ * so memory use does not depend on the size of the feed
+ */
+@Service
+public class BookImportService {
+
+    static final String CSV_HEADER = "title,basePrice,type";
+
+    static final int MAX_TITLE_LENGTH = 255;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectReader jsonRowReader;
+
+    private final int batchSize;
+
+    private final int maxReportedErrors;
+
+    private final List<BookChangeListener> changeListeners;
+
+    public BookImportService(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper, BookstoreProperties properties,
+                             List<BookChangeListener> changeListeners) {
+        this.entityManager = entityManager;
+        this.changeListeners = changeListeners;
+        this.transactionTemplate = transactionTemplate;
+        this.jsonRowReader = objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        this.batchSize = properties.getBookImport().getBatchSize();
+        this.maxReportedErrors = properties.getBookImport().getMaxReportedErrors();
+    }
+
+    /**
+     * Import a CSV feed with the columns title, basePrice and type
+     * The header line is optional; fields may be quoted, with doubled quotes inside quoted fields
+     *
+     * @param reader The feed
+     * @return The import report
+     * @throws IOException if the feed cannot be read
+     */
+    public BookImportReport importCsv(Reader reader) throws IOException {
+        return importRows(reader, true, line -> {
+            List<String> fields = splitCsvLine(line);
+            if (fields.size() != 3) {
+                throw new IllegalArgumentException("Expected 3 columns (" + CSV_HEADER + ") but found " + fields.size());
+            }
+            return toBook(fields.get(0), fields.get(1), fields.get(2));
+        });
+    }
+
+    /**
+     * Import a newline-delimited JSON feed with one {"title", "basePrice", "type"} object per line
+     *
+     * @param reader The feed
+     * @return The import report
+     * @throws IOException if the feed cannot be read
+     */
+    public BookImportReport importNdjson(Reader reader) throws IOException {
+        return importRows(reader, false, line -> {
+            JsonNode node;
+            try {
+                node = jsonRowReader.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            return toBook(text(node, "title"), text(node, "basePrice"), text(node, "type"));
+        });
+    }
+
+    private BookImportReport importRows(Reader reader, boolean skipCsvHeader, RowParser parser) throws IOException {
+        long start = System.nanoTime();
+        BookImportReport report = new BookImportReport();
+        List<Book> batch = new ArrayList<>(batchSize);
+        List<Long> batchLines = new ArrayList<>(batchSize);
+
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        long lineNumber = 0;
+        boolean firstRow = true;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (firstRow && skipCsvHeader && line.trim().equalsIgnoreCase(CSV_HEADER)) {
+                firstRow = false;
+                continue;
+            }
+            firstRow = false;
+            report.setRowsRead(report.getRowsRead() + 1);
+            try {
+                batch.add(parser.parse(line));
+                batchLines.add(lineNumber);
+            } catch (IllegalArgumentException e) {
+                reject(report, lineNumber, e.getMessage());
+            }
+            if (batch.size() == batchSize) {
+                writeBatch(batch, batchLines, report);
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, batchLines, report);
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        report.setElapsedMillis(elapsedNanos / 1_000_000);
+        report.setRowsPerSecond(elapsedNanos == 0 ? 0 : report.getImported() * 1_000_000_000.0 / elapsedNanos);
+        return report;
+    }
+
+    private void writeBatch(List<Book> batch, List<Long> batchLines, BookImportReport report) {
+        try {
+            transactionTemplate.execute(status -> persist(batch));
+            report.setImported(report.getImported() + batch.size());
+            batch.forEach(this::notifySaved);
+        } catch (RuntimeException batchFailure) {
+            // Isolate the rows the database rejected by retrying the batch one row per transaction
+            for (int i = 0; i < batch.size(); i++) {
+                Book book = batch.get(i);
+                book.setId(null);
+                try {
+                    transactionTemplate.execute(status -> persist(List.of(book)));
+                    report.setImported(report.getImported() + 1);
+                    notifySaved(book);
+                } catch (RuntimeException rowFailure) {
+                    reject(report, batchLines.get(i), "Rejected by the database: " + rootMessage(rowFailure));
+                }
+            }
+        }
+        batch.clear();
+        batchLines.clear();
+    }
+
+    private Void persist(List<Book> books) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        for (Book book : books) {
+            entityManager.persist(book);
+        }
+        return null;
+    }
+
+    private void notifySaved(Book book) {
+        for (BookChangeListener listener : changeListeners) {
+            listener.bookSaved(book);
+        }
+    }
+
+    private void reject(BookImportReport report, long lineNumber, String message) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new BookImportReport.RowError(lineNumber, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    static Book toBook(String title, String basePrice, String type) {
+        if (title == null || title.isBlank()) {
+            throw new IllegalArgumentException("title is required");
+        }
+        if (title.length() > MAX_TITLE_LENGTH) {
+            throw new IllegalArgumentException("title is longer than " + MAX_TITLE_LENGTH + " characters");
+        }
+        if (basePrice == null || basePrice.isBlank()) {
+            throw new IllegalArgumentException("basePrice is required");
+        }
+        BigDecimal price;
+        try {
+            price = new BigDecimal(basePrice.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("basePrice is not a number: " + basePrice);
+        }
+        if (price.signum() < 0) {
+            throw new IllegalArgumentException("basePrice must not be negative: " + basePrice);
+        }
+        BookType bookType;
+        try {
+            bookType = BookType.valueOf(type == null ? "" : type.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("type must be one of " + Arrays.toString(BookType.values()) + ": " + type);
+        }
+        return new Book(null, title, price, bookType);
+    }
+
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String text(JsonNode node, String fieldName) {
+        JsonNode value = node.get(fieldName);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String rootMessage(Throwable throwable) {
+        Throwable root = throwable;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        Book parse(String line);
+    }
+}
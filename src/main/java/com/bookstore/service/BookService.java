@@ -1,22 +1,58 @@
 package com.bookstore.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import com.bookstore.dto.PageResponse;
+import com.bookstore.dto.StockLevelResponse;
 import com.bookstore.model.Book;
 import com.bookstore.repository.BookRepository;
+import com.bookstore.service.cache.BookCache;
+import com.bookstore.service.inventory.BookInventory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
-import lombok.RequiredArgsConstructor;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
-@RequiredArgsConstructor
 public class BookService {
 
+    static final int STREAM_CHUNK_SIZE = 500;
 
     private final BookRepository bookRepository;
 
+    /**
+     * Optional read-through cache in front of the repository, null when caching is disabled
+     */
+    private final BookCache bookCache;
+
+    /**
+     * Optional stock of the books, null when stock is not counted
+     */
+    private final BookInventory bookInventory;
+
+    /**
+     * Derived views of the catalog notified after every committed write
+     */
+    private final List<BookChangeListener> changeListeners;
+
+    @Autowired
+    public BookService(BookRepository bookRepository, @Nullable BookCache bookCache,
+                       @Nullable BookInventory bookInventory, List<BookChangeListener> changeListeners) {
+        this.bookRepository = bookRepository;
+        this.bookCache = bookCache;
+        this.bookInventory = bookInventory;
+        this.changeListeners = changeListeners;
+    }
+
     /**
      * Inventory Management Methods
      */
@@ -24,30 +60,166 @@ public class BookService {
         return bookRepository.findAll();
     }
 
+    /**
+     * Get one page of books in ID order, starting after the given ID
+     *
+     * @param afterId The last ID of the previous page, or null for the first page
+     * @param limit   The maximum number of books to return
+     * @return The page, with the cursor of the next page if there is one
+     */
+    public PageResponse<Book> getBooksPage(Long afterId, int limit) {
+        // Fetch one extra row to know whether another page follows without issuing an extra query
+        List<Book> books = bookRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? Long.MIN_VALUE : afterId, Limit.of(limit + 1));
+        if (books.size() <= limit) {
+            return new PageResponse<>(books, null);
+        }
+        List<Book> page = new ArrayList<>(books.subList(0, limit));
+        return new PageResponse<>(page, String.valueOf(page.getLast().getId()));
+    }
+
+    /**
+     * Visit every book in ID order, reading the table in keyset chunks of {@value #STREAM_CHUNK_SIZE} rows
+     * so that only one chunk is held in memory at a time
+     *
+     * @param action The action to apply to each book
+     */
+    public void forEachBook(Consumer<? super Book> action) {
+        long afterId = Long.MIN_VALUE;
+        List<Book> chunk;
+        do {
+            chunk = bookRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(STREAM_CHUNK_SIZE));
+            chunk.forEach(action);
+            if (!chunk.isEmpty()) {
+                afterId = chunk.getLast().getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
+    }
+
     public Optional<Book> getBookById(Long id) {
+        if (bookCache != null) {
+            return bookCache.get(id, bookRepository::findById);
+        }
         return bookRepository.findById(id);
     }
 
+    /**
+     * Resolve a list of book IDs with a single repository round trip.
+     * Duplicate IDs are kept (a cart may contain several copies of a title) and the result follows the request order.
+     *
+     * @param bookIds The IDs to resolve
+     * @return The books, one per requested ID
+     * @throws IllegalArgumentException if any of the IDs does not exist; the message lists every missing ID
+     */
+    public List<Book> getBooksByIds(List<Long> bookIds) {
+        if (bookIds == null || bookIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> distinctIds = new LinkedHashSet<>(bookIds);
+        Map<Long, Book> booksById = findBooksByIds(distinctIds);
+
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            if (!booksById.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            throw new IllegalArgumentException("Books not found: " + missingIds);
+        }
+
+        List<Book> books = new ArrayList<>(bookIds.size());
+        for (Long id : bookIds) {
+            books.add(booksById.get(id));
+        }
+        return books;
+    }
+
+    /**
+     * Look up distinct book IDs with a single repository round trip, or from the cache when it is enabled
+     *
+     * @param distinctIds The IDs to look up, without duplicates
+     * @return The books that exist, by ID; missing IDs are absent from the map
+     */
+    public Map<Long, Book> findBooksByIds(Collection<Long> distinctIds) {
+        if (distinctIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        if (bookCache != null) {
+            return bookCache.getAll(distinctIds, bookRepository::findAllById);
+        }
+        Map<Long, Book> booksById = new HashMap<>(distinctIds.size() * 2);
+        for (Book book : bookRepository.findAllById(distinctIds)) {
+            booksById.put(book.getId(), book);
+        }
+        return booksById;
+    }
+
     public Book addBook(Book book) {
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        // The saved entity keeps the values as sent, which the column may have rounded, so the cache reloads the row
+        if (bookCache != null) {
+            bookCache.invalidate(savedBook.getId());
+        }
+        changeListeners.forEach(listener -> listener.bookSaved(savedBook));
+        return savedBook;
     }
 
     public Optional<Book> updateBook(Long id, Book bookDetails) {
-        return bookRepository.findById(id)
+        Optional<Book> updatedBook = bookRepository.findById(id)
                 .map(existingBook -> {
                     existingBook.setTitle(bookDetails.getTitle());
                     existingBook.setBasePrice(bookDetails.getBasePrice());
                     existingBook.setType(bookDetails.getType());
                     return bookRepository.save(existingBook);
                 });
+        if (bookCache != null) {
+            bookCache.invalidate(id);
+        }
+        updatedBook.ifPresent(book -> changeListeners.forEach(listener -> listener.bookSaved(book)));
+        return updatedBook;
     }
 
     public boolean deleteBook(Long id) {
-        return bookRepository.findById(id)
+        boolean deleted = bookRepository.findById(id)
                 .map(book -> {
                     bookRepository.delete(book);
                     return true;
                 })
                 .orElse(false);
+        if (bookCache != null) {
+            bookCache.invalidate(id);
+        }
+        if (deleted) {
+            changeListeners.forEach(listener -> listener.bookDeleted(id));
+        }
+        return deleted;
+    }
+
+    /**
+     * Get the stock of a book
+     *
+     * @param id The book ID
+     * @return The units on hand, reserved and available, or empty if the book does not exist or stock is not counted
+     */
+    public Optional<StockLevelResponse> getStockLevel(Long id) {
+        if (bookInventory == null || getBookById(id).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(bookInventory.getStockLevel(id));
+    }
+
+    /**
+     * Set the units of a book on hand, which makes its stock managed
+     *
+     * @param id       The book ID
+     * @param quantity The units on hand
+     * @return The new stock, or empty if the book does not exist or stock is not counted
+     * @throws IllegalArgumentException if the quantity is negative
+     */
+    public Optional<StockLevelResponse> setStock(Long id, long quantity) {
+        if (bookInventory == null || getBookById(id).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(bookInventory.setStock(id, quantity));
     }
 }
@@ -1,46 +1,164 @@
 package com.bookstore.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import com.bookstore.dto.PageResponse;
 import com.bookstore.model.Customer;
 import com.bookstore.repository.CustomerRepository;
+import com.bookstore.service.cache.CustomerCache;
+import com.bookstore.service.ledger.LoyaltyLedger;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-
-import lombok.RequiredArgsConstructor;
+import java.util.function.Consumer;
 
 /**
  * Service for managing customers and their loyalty points
+ * When the loyalty ledger is enabled it owns the balances: they are changed through it and read from it, and the
+ * loyalty points of a customer row are only its snapshot. Customers are then returned as copies carrying the
+ * ledger's balance, so setting their points never writes the row.
+ * With the customer cache enabled, lookups by ID are served from it; the writes of this service go through to it,
+ * and balance changes made in the database drop the entry once their transaction completes.
  */
 @Service
-@RequiredArgsConstructor
 public class CustomerService {
 
+    static final int STREAM_CHUNK_SIZE = 500;
+
     private final CustomerRepository customerRepository;
 
+    /**
+     * Optional log of balance changes, null when balances are updated in place
+     */
+    private final LoyaltyLedger loyaltyLedger;
+
+    /**
+     * Optional cache of customer rows, null when every lookup reads the database
+     */
+    private final CustomerCache customerCache;
+
+    @Autowired
+    public CustomerService(CustomerRepository customerRepository, @Nullable LoyaltyLedger loyaltyLedger,
+                           @Nullable CustomerCache customerCache) {
+        this.customerRepository = customerRepository;
+        this.loyaltyLedger = loyaltyLedger;
+        this.customerCache = customerCache;
+    }
+
     /**
      * Customer Management Methods
      */
     public List<Customer> getAllCustomers() {
-        return customerRepository.findAll();
+        List<Customer> customers = customerRepository.findAll();
+        return loyaltyLedger == null ? customers : customers.stream().map(this::withBalance).toList();
+    }
+
+    /**
+     * Get one page of customers in ID order, starting after the given ID
+     *
+     * @param afterId The last ID of the previous page, or null for the first page
+     * @param limit   The maximum number of customers to return
+     * @return The page, with the cursor of the next page if there is one
+     */
+    public PageResponse<Customer> getCustomersPage(Long afterId, int limit) {
+        // Fetch one extra row to know whether another page follows without issuing an extra query
+        List<Customer> customers = customerRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? Long.MIN_VALUE : afterId, Limit.of(limit + 1));
+        if (loyaltyLedger != null) {
+            customers = customers.stream().map(this::withBalance).toList();
+        }
+        if (customers.size() <= limit) {
+            return new PageResponse<>(customers, null);
+        }
+        List<Customer> page = new ArrayList<>(customers.subList(0, limit));
+        return new PageResponse<>(page, String.valueOf(page.getLast().getId()));
+    }
+
+    /**
+     * Visit every customer in ID order, reading the table in keyset chunks of {@value #STREAM_CHUNK_SIZE} rows
+     * so that only one chunk is held in memory at a time
+     *
+     * @param action The action to apply to each customer
+     */
+    public void forEachCustomer(Consumer<? super Customer> action) {
+        long afterId = Long.MIN_VALUE;
+        List<Customer> chunk;
+        do {
+            chunk = customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(STREAM_CHUNK_SIZE));
+            chunk.forEach(loyaltyLedger == null ? action : customer -> action.accept(withBalance(customer)));
+            if (!chunk.isEmpty()) {
+                afterId = chunk.getLast().getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
     }
 
     public Optional<Customer> getCustomerById(Long id) {
-        return customerRepository.findById(id);
+        Optional<Customer> customer = customerCache == null
+                ? customerRepository.findById(id)
+                : customerCache.get(id, customerRepository::findById);
+        return loyaltyLedger == null ? customer : customer.map(this::withBalance);
+    }
+
+    /**
+     * Look up distinct customer IDs with a single repository round trip
+     *
+     * @param distinctIds The IDs to look up, without duplicates
+     * @return The customers that exist, by ID; missing IDs are absent from the map
+     */
+    public Map<Long, Customer> getCustomersByIds(Collection<Long> distinctIds) {
+        if (customerCache != null) {
+            Map<Long, Customer> customersById = customerCache.getAll(distinctIds, customerRepository::findAllById);
+            if (loyaltyLedger != null) {
+                customersById.replaceAll((id, customer) -> withBalance(customer));
+            }
+            return customersById;
+        }
+        Map<Long, Customer> customersById = new HashMap<>(distinctIds.size() * 2);
+        if (!distinctIds.isEmpty()) {
+            for (Customer customer : customerRepository.findAllById(distinctIds)) {
+                customersById.put(customer.getId(), loyaltyLedger == null ? customer : withBalance(customer));
+            }
+        }
+        return customersById;
     }
 
     public Customer addCustomer(Customer customer) {
-        return customerRepository.save(customer);
+        Customer saved = customerRepository.save(customer);
+        // Nobody could have written a customer whose ID was only just generated
+        long epoch = startCacheWrite(saved.getId());
+        if (loyaltyLedger != null) {
+            loyaltyLedger.open(saved.getId(), saved.getLoyaltyPoints());
+        }
+        putInCache(saved, epoch);
+        return saved;
     }
 
     public Optional<Customer> updateCustomer(Long id, Customer customerDetails) {
-        return customerRepository.findById(id)
-                .map(existingCustomer -> {
-                    existingCustomer.setName(customerDetails.getName());
-                    existingCustomer.setLoyaltyPoints(customerDetails.getLoyaltyPoints());
-                    return customerRepository.save(existingCustomer);
-                });
+        long epoch = startCacheWrite(id);
+        Optional<Customer> updated;
+        if (loyaltyLedger != null) {
+            // The row only gets the new name; the balance is adjusted in the ledger, which refreshes the snapshot
+            if (customerRepository.updateName(id, customerDetails.getName()) == 0) {
+                return Optional.empty();
+            }
+            updated = loyaltyLedger.adjust(id, customerDetails.getLoyaltyPoints())
+                    .map(balance -> new Customer(id, customerDetails.getName(), balance));
+        } else {
+            updated = customerRepository.findById(id)
+                    .map(existingCustomer -> {
+                        existingCustomer.setName(customerDetails.getName());
+                        existingCustomer.setLoyaltyPoints(customerDetails.getLoyaltyPoints());
+                        return customerRepository.save(existingCustomer);
+                    });
+        }
+        updated.ifPresent(customer -> putInCache(customer, epoch));
+        return updated;
     }
 
     /**
@@ -54,6 +172,54 @@ public class CustomerService {
         return updated >= 10 ? 0 : updated;
     }
 
+    /**
+     * Get the current loyalty balance of a customer, from the loyalty ledger or straight from the database
+     *
+     * @param customerId The ID of the customer
+     * @return The balance, or empty if the customer doesn't exist
+     */
+    public Optional<Integer> getLoyaltyPoints(Long customerId) {
+        if (loyaltyLedger != null) {
+            return loyaltyLedger.getBalance(customerId);
+        }
+        return customerRepository.findLoyaltyPointsById(customerId);
+    }
+
+    /**
+     * Atomically add points to a customer's balance
+     *
+     * @param customerId The ID of the customer
+     * @param points     The points to add
+     * @return The balance after the addition, or empty if the customer doesn't exist
+     */
+    public Optional<Integer> addLoyaltyPoints(Long customerId, int points) {
+        if (loyaltyLedger != null) {
+            return loyaltyLedger.earn(customerId, points);
+        }
+        invalidateCache(customerId);
+        if (customerRepository.addLoyaltyPoints(customerId, points) == 0) {
+            return Optional.empty();
+        }
+        // Inside a transaction the update keeps the row locked until commit, so this reads our own write
+        return customerRepository.findLoyaltyPointsById(customerId);
+    }
+
+    /**
+     * Atomically redeem a customer's balance for a free book, if it still holds enough points
+     *
+     * @param customerId      The ID of the customer
+     * @param requiredPoints  The points the balance must hold
+     * @param remainingPoints The balance after the redemption
+     * @return True if redeemed, false if the customer doesn't exist or the balance dropped below the required points
+     */
+    public boolean redeemLoyaltyPoints(Long customerId, int requiredPoints, int remainingPoints) {
+        if (loyaltyLedger != null) {
+            return loyaltyLedger.redeem(customerId, requiredPoints, remainingPoints);
+        }
+        invalidateCache(customerId);
+        return customerRepository.redeemLoyaltyPoints(customerId, requiredPoints, remainingPoints) > 0;
+    }
+
     /**
      * Update customer loyalty points after a purchase
      *
@@ -62,11 +228,49 @@ public class CustomerService {
      * @return The updated customer, or empty if the customer doesn't exist
      */
     public Optional<Customer> updateLoyaltyPoints(Long customerId, int booksPurchased) {
-        return customerRepository.findById(customerId)
-                .map(customer -> {
-                    int newPoints = calculateLoyaltyPoints(customer.getLoyaltyPoints(), booksPurchased);
-                    customer.setLoyaltyPoints(newPoints);
-                    return customerRepository.save(customer);
-                });
+        long epoch = startCacheWrite(customerId);
+        Optional<Customer> updated;
+        if (loyaltyLedger != null) {
+            updated = loyaltyLedger.update(customerId, points -> calculateLoyaltyPoints(points, booksPurchased))
+                    .flatMap(balance -> customerRepository.findById(customerId)
+                            .map(customer -> new Customer(customerId, customer.getName(), balance)));
+        } else {
+            updated = customerRepository.findById(customerId)
+                    .map(customer -> {
+                        int newPoints = calculateLoyaltyPoints(customer.getLoyaltyPoints(), booksPurchased);
+                        customer.setLoyaltyPoints(newPoints);
+                        return customerRepository.save(customer);
+                    });
+        }
+        updated.ifPresent(customer -> putInCache(customer, epoch));
+        return updated;
+    }
+
+    private long startCacheWrite(Long customerId) {
+        return customerCache == null ? 0 : customerCache.startWrite(customerId);
+    }
+
+    private void putInCache(Customer customer, long epoch) {
+        if (customerCache != null) {
+            customerCache.put(customer, epoch);
+        }
+    }
+
+    /**
+     * Drop a customer whose balance the database is about to change; the ledger-less purchase path changes it
+     * with a relative update, so the new row is not known here
+     */
+    private void invalidateCache(Long customerId) {
+        if (customerCache != null) {
+            customerCache.invalidate(customerId);
+        }
+    }
+
+    /**
+     * Copy a customer row with its balance from the loyalty ledger, detached from the persistence context
+     */
+    private Customer withBalance(Customer customer) {
+        return new Customer(customer.getId(), customer.getName(),
+                loyaltyLedger.getBalance(customer.getId(), customer.getLoyaltyPoints()));
     }
 }
@@ -11,6 +11,11 @@ import com.bookstore.model.BookType;
 @Service
 public class LoyaltyService {
 
+    /**
+     * Loyalty points needed for one free book
+     */
+    public static final int POINTS_FOR_FREE_BOOK = 10;
+
     /**
      * Check if a book is eligible for free redemption with loyalty points
      *
@@ -29,6 +34,6 @@ public class LoyaltyService {
      * @return True if there are enough points, false otherwise
      */
     public boolean hasEnoughPointsForFreeBook(int loyalityPoints) {
-        return loyalityPoints >= 10;
+        return loyalityPoints >= POINTS_FOR_FREE_BOOK;
     }
 }
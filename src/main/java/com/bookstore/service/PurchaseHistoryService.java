@@ -0,0 +1,112 @@
+package com.bookstore.service;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.bookstore.dto.PageResponse;
+import com.bookstore.dto.PurchaseHistoryEntry;
+import com.bookstore.dto.PurchaseHistoryLine;
+import com.bookstore.model.PurchaseOrder;
+import com.bookstore.model.PurchaseOrderLine;
+import com.bookstore.repository.PurchaseOrderLineRepository;
+import com.bookstore.repository.PurchaseOrderRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Service for reading the purchase history of customers from the purchase ledger
+ * Pages are read newest first by keyset: each page seeks the (customer, creation time, ID) index just past the last
+ * order of the previous page, so no rows are skipped over and a page costs the same at any depth of the history.
+ */
+@Service
+@RequiredArgsConstructor
+public class PurchaseHistoryService {
+
+    private final PurchaseOrderRepository purchaseOrderRepository;
+
+    private final PurchaseOrderLineRepository purchaseOrderLineRepository;
+
+    /**
+     * Get one page of a customer's purchases, newest first
+     *
+     * @param customerId The customer
+     * @param after      The last order of the previous page, or null for the first page
+     * @param limit      The maximum number of purchases to return
+     * @return The page, with the cursor of the next page if there is one
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<PurchaseHistoryEntry> getPurchasesPage(Long customerId, Cursor after, int limit) {
+        // Fetch one extra row to know whether another page follows without issuing an extra query
+        List<PurchaseOrder> orders = after == null
+                ? purchaseOrderRepository.findNewest(customerId, Limit.of(limit + 1))
+                : purchaseOrderRepository.findOlderThan(customerId, after.createdAt(), after.orderId(),
+                        Limit.of(limit + 1));
+        boolean more = orders.size() > limit;
+        List<PurchaseOrder> page = more ? orders.subList(0, limit) : orders;
+        if (page.isEmpty()) {
+            return new PageResponse<>(List.of(), null);
+        }
+
+        Map<Long, List<PurchaseHistoryLine>> linesByOrder = new HashMap<>();
+        for (PurchaseOrderLine line : purchaseOrderLineRepository.findByOrderIdInOrderByOrderIdAscLineNumberAsc(
+                page.stream().map(PurchaseOrder::getId).toList())) {
+            linesByOrder.computeIfAbsent(line.getOrderId(), id -> new ArrayList<>())
+                    .add(new PurchaseHistoryLine(line.getBookId(), line.getTitle(), line.getType(),
+                            line.getBasePrice(), line.getQuantity(), line.isFree()));
+        }
+        List<PurchaseHistoryEntry> entries = new ArrayList<>(page.size());
+        for (PurchaseOrder order : page) {
+            entries.add(new PurchaseHistoryEntry(order.getId(), order.getCreatedAt(), order.getTotalPrice(),
+                    order.getLoyaltyPoints(), linesByOrder.getOrDefault(order.getId(), List.of())));
+        }
+        PurchaseOrder last = page.getLast();
+        return new PageResponse<>(entries, more ? new Cursor(last.getCreatedAt(), last.getId()).encode() : null);
+    }
+
+    /**
+     * Position in a customer's history: the creation time and ID of the last order of a page
+     */
+    public record Cursor(Instant createdAt, Long orderId) {
+
+        /**
+         * Parse a cursor returned by a previous page
+         *
+         * @param cursor The cursor, or null for the first page
+         * @return The position, or null for the first page
+         * @throws IllegalArgumentException if the cursor was not returned by this service
+         */
+        public static Cursor parse(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\.");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Invalid cursor: " + cursor);
+                }
+                return new Cursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                        Long.valueOf(parts[2]));
+            } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        /**
+         * Encode the position as an opaque string, safe in a query parameter
+         */
+        public String encode() {
+            String position = createdAt.getEpochSecond() + "." + createdAt.getNano() + "." + orderId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -1,44 +1,151 @@
 package com.bookstore.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.bookstore.dto.PurchaseResponse;
 import com.bookstore.model.Book;
 import com.bookstore.model.Customer;
+import com.bookstore.service.inventory.BookInventory;
+import com.bookstore.service.ledger.PurchaseLedger;
+import com.bookstore.service.pricing.PriceQuote;
 import com.bookstore.service.pricing.PricingService;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
-import lombok.RequiredArgsConstructor;
-
+/**
+ * Service for purchasing carts
+ * The loyalty balance is changed with a single conditional UPDATE instead of a read-modify-write of the customer
+ * row, so concurrent purchases by the same customer never lose points and never redeem the same points twice; with
+ * the loyalty ledger, the same change is made to the balance in memory and appended to the ledger's event log.
+ * Every purchase is recorded in the purchase ledger, when it is enabled. When the inventory is enabled, a purchase
+ * first reserves every unit of its cart or fails; the units are sold if its transaction commits and put back if it
+ * rolls back.
+ */
 @Service
-@RequiredArgsConstructor
 public class PurchaseService {
 
+    /**
+     * Purchases priced again after another purchase redeemed the points a free book was priced with
+     */
+    static final int MAX_REDEEM_ATTEMPTS = 3;
+
     private final PricingService pricingService;
     private final CustomerService customerService;
 
+    /**
+     * Optional ledger of purchases, null when purchases are not recorded
+     */
+    private final PurchaseLedger purchaseLedger;
+
+    /**
+     * Optional stock of the books, null when stock is not counted
+     */
+    private final BookInventory bookInventory;
+
+    @Autowired
+    public PurchaseService(PricingService pricingService, CustomerService customerService,
+                           @Nullable PurchaseLedger purchaseLedger, @Nullable BookInventory bookInventory) {
+        this.pricingService = pricingService;
+        this.customerService = customerService;
+        this.purchaseLedger = purchaseLedger;
+        this.bookInventory = bookInventory;
+    }
+
+    /**
+     * Price a cart and purchase it
+     *
+     * @param customer The customer, with the loyalty balance to price with; updated with the new balance
+     * @param books    The books of the cart
+     * @return The purchase outcome
+     * @throws com.bookstore.exception.OutOfStockException if a book of the cart does not have enough units left
+     */
+    @Transactional
     public PurchaseResponse purchase(Customer customer, List<Book> books) {
-        // Calculate price and apply loyalty points
-        List<Book> freeBooks = new ArrayList<>();
-        BigDecimal totalPrice = pricingService.calculatePrice(books, customer.getLoyaltyPoints(), freeBooks);
-        int customerPoints = customer.getLoyaltyPoints();
-        // Update customer loyalty points
-        if (!freeBooks.isEmpty()) {
-            customerPoints = 0;
+        reserveStock(books);
+        return priceAndApply(customer, books);
+    }
+
+    /**
+     * Purchase a cart at a price computed beforehand, e.g. from a redeemed quote token
+     * If the quote has a free book but the points were redeemed meanwhile, the cart is priced again.
+     *
+     * @param customer The customer; updated with the new balance
+     * @param books    The books of the cart
+     * @param quote    The price of the cart for this customer, with its free books
+     * @return The purchase outcome
+     * @throws com.bookstore.exception.OutOfStockException if a book of the cart does not have enough units left
+     */
+    @Transactional
+    public PurchaseResponse purchase(Customer customer, List<Book> books, PriceQuote quote) {
+        reserveStock(books);
+        PurchaseResponse response = apply(customer, books, quote);
+        if (response != null) {
+            return response;
+        }
+        refreshLoyaltyPoints(customer);
+        return priceAndApply(customer, books);
+    }
+
+    private void reserveStock(List<Book> books) {
+        if (bookInventory != null) {
+            bookInventory.reserveForTransaction(books);
+        }
+    }
+
+    private PurchaseResponse priceAndApply(Customer customer, List<Book> books) {
+        for (int attempt = 1; ; attempt++) {
+            // Calculate price and apply loyalty points
+            List<Book> freeBooks = new ArrayList<>();
+            BigDecimal totalPrice = pricingService.calculatePrice(books, customer.getLoyaltyPoints(), freeBooks);
+            PurchaseResponse response = apply(customer, books, new PriceQuote(totalPrice, freeBooks));
+            if (response != null) {
+                return response;
+            }
+            if (attempt == MAX_REDEEM_ATTEMPTS) {
+                throw new IllegalStateException("Loyalty points of customer " + customer.getId() + " keep changing");
+            }
+            refreshLoyaltyPoints(customer);
+        }
+    }
+
+    /**
+     * Update the loyalty balance for the quote, build the response and record it in the ledger
+     *
+     * @return The response, or null if the quote redeems points the customer no longer has
+     */
+    private PurchaseResponse apply(Customer customer, List<Book> books, PriceQuote quote) {
+        List<Book> freeBooks = quote.freeBooks();
+        // One point per paid book; a redemption resets the balance first
+        int earnedPoints = books.size() - freeBooks.size();
+        int customerPoints;
+        if (freeBooks.isEmpty()) {
+            customerPoints = customerService.addLoyaltyPoints(customer.getId(), earnedPoints)
+                    .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
+        } else if (customerService.redeemLoyaltyPoints(customer.getId(), LoyaltyService.POINTS_FOR_FREE_BOOK, earnedPoints)) {
+            customerPoints = earnedPoints;
+        } else {
+            return null;
         }
-        customerPoints = customerPoints + books.size() - freeBooks.size();
         customer.setLoyaltyPoints(customerPoints);
-        customerService.updateCustomer(customer.getId(), customer);
         // Create response
         PurchaseResponse response = new PurchaseResponse();
-        response.setTotalPrice(totalPrice);
+        response.setTotalPrice(quote.totalPrice());
         response.setLoyaltyPointsEarned(customerPoints);
         response.setBooks(books);
         response.setFreeBooks(freeBooks);
+        if (purchaseLedger != null) {
+            purchaseLedger.record(customer.getId(), response);
+        }
         return response;
     }
-}
 
+    private void refreshLoyaltyPoints(Customer customer) {
+        customer.setLoyaltyPoints(customerService.getLoyaltyPoints(customer.getId())
+                .orElseThrow(() -> new IllegalArgumentException("Customer not found")));
+    }
+}
@@ -0,0 +1,118 @@
+package com.bookstore.service.cache;
+
+import com.bookstore.dto.CacheStatsResponse;
+import com.bookstore.model.Book;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of catalog rows, evicting by size and time to live
+ * Writers must call {@link #put(Book)} or {@link #invalidate(Long)} once their change is committed
+ */
+public class BookCache {
+
+    private final Cache<Long, Book> cache;
+
+    /**
+     * Incremented by every write; a bulk load only populates the cache if no write happened while it was reading,
+     * otherwise it could store a row that a concurrent update or delete has already replaced
+     */
+    private final AtomicLong writeEpoch = new AtomicLong();
+
+    public BookCache(long maximumSize, Duration timeToLive) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get a book, loading it on a miss
+     * Concurrent misses for the same ID share one load, and a write to that ID waits for the load to finish
+     *
+     * @param id     The book ID
+     * @param loader Loads the book from the repository
+     * @return The book, or empty if it does not exist; absent books are not cached
+     */
+    public Optional<Book> get(Long id, Function<Long, Optional<Book>> loader) {
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Get several books, loading all misses with a single call to the loader
+     *
+     * @param ids    The distinct book IDs
+     * @param loader Loads the missing books from the repository
+     * @return The books found, by ID
+     */
+    public Map<Long, Book> getAll(Collection<Long> ids, Function<List<Long>, Iterable<Book>> loader) {
+        Map<Long, Book> found = new HashMap<>(cache.getAllPresent(ids));
+        if (found.size() == ids.size()) {
+            return found;
+        }
+        List<Long> missingIds = new ArrayList<>(ids.size() - found.size());
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+
+        long epoch = writeEpoch.get();
+        for (Book book : loader.apply(missingIds)) {
+            found.put(book.getId(), book);
+            // The epoch check runs under the entry's lock, which a concurrent put or invalidate also takes
+            cache.asMap().computeIfAbsent(book.getId(), key -> writeEpoch.get() == epoch ? book : null);
+        }
+        return found;
+    }
+
+    /**
+     * Store the committed state of a book, replacing any cached copy
+     *
+     * @param book The saved book
+     */
+    public void put(Book book) {
+        writeEpoch.incrementAndGet();
+        cache.put(book.getId(), book);
+    }
+
+    /**
+     * Drop a book from the cache
+     *
+     * @param id The book ID
+     */
+    public void invalidate(Long id) {
+        writeEpoch.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    /**
+     * Run pending maintenance such as size-based eviction, which otherwise happens asynchronously
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /**
+     * Get the cache counters
+     *
+     * @return The current size and the hit, miss and eviction counts
+     */
+    public CacheStatsResponse stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsResponse(cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+}
@@ -0,0 +1,197 @@
+package com.bookstore.service.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.dto.CacheStatsResponse;
+import com.bookstore.model.Customer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Bounded write-through cache of customer rows, evicting by size and time to live
+ * Entries are private copies: callers get their own copy, which they may change without touching the cache.
+ * Writers take a token with {@link #startWrite(Long)} before writing the row and hand it to {@link #put(Customer, long)}
+ * afterwards; changes that only the database can apply, such as a concurrent purchase adding points, call
+ * {@link #invalidate(Long)} instead. Inside a transaction both take effect once it completes.
+ * Unlike the catalog cache, misses are loaded outside the cache's locks: a load may wait for a connection or a row
+ * lock held by a transaction that is itself waiting to invalidate the entry.
+ */
+public class CustomerCache {
+
+    private final Cache<Long, Customer> cache;
+
+    private static final int EPOCH_STRIPES = 1024;
+
+    /**
+     * Write counters by stripe of customer IDs, incremented by every write; a put or a load only populates the
+     * cache if no other write to its stripe happened since it started, otherwise it could store a row that a
+     * concurrent change has already replaced
+     */
+    private final AtomicLongArray writeEpochs = new AtomicLongArray(EPOCH_STRIPES);
+
+    public CustomerCache(long maximumSize, Duration timeToLive) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get a customer, loading it on a miss
+     *
+     * @param id     The customer ID
+     * @param loader Loads the customer from the repository
+     * @return A copy of the customer, or empty if it does not exist; absent customers are not cached
+     */
+    public Optional<Customer> get(Long id, Function<Long, Optional<Customer>> loader) {
+        Customer cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+        long epoch = startWrite(id);
+        Optional<Customer> loaded = loader.apply(id);
+        loaded.ifPresent(customer -> storeLoaded(copy(customer), epoch));
+        return loaded.map(CustomerCache::copy);
+    }
+
+    /**
+     * Get several customers, loading all misses with a single call to the loader
+     *
+     * @param ids    The distinct customer IDs
+     * @param loader Loads the missing customers from the repository
+     * @return Copies of the customers found, by ID
+     */
+    public Map<Long, Customer> getAll(Collection<Long> ids, Function<List<Long>, Iterable<Customer>> loader) {
+        Map<Long, Customer> found = new HashMap<>(ids.size() * 2);
+        cache.getAllPresent(ids).forEach((id, customer) -> found.put(id, copy(customer)));
+        if (found.size() == ids.size()) {
+            return found;
+        }
+        List<Long> missingIds = new ArrayList<>(ids.size() - found.size());
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+
+        Map<Long, Long> epochs = new HashMap<>(missingIds.size() * 2);
+        for (Long id : missingIds) {
+            epochs.put(id, startWrite(id));
+        }
+        for (Customer customer : loader.apply(missingIds)) {
+            found.put(customer.getId(), copy(customer));
+            storeLoaded(copy(customer), epochs.get(customer.getId()));
+        }
+        return found;
+    }
+
+    /**
+     * Take the token of a write, before the write reaches the database
+     *
+     * @param id The customer ID
+     * @return The token to pass to {@link #put(Customer, long)}
+     */
+    public long startWrite(Long id) {
+        return writeEpochs.get(stripe(id));
+    }
+
+    /**
+     * Store the state of a customer that a write has just saved, replacing any cached copy
+     * If another write happened since the token was taken the entry is dropped instead, since the two may have
+     * reached the database in either order. Inside a transaction the entry is only stored once it has committed.
+     *
+     * @param customer The saved customer
+     * @param epoch    The token taken before the write
+     */
+    public void put(Customer customer, long epoch) {
+        Customer cached = copy(customer);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            store(cached, epoch);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                store(cached, epoch);
+            }
+        });
+    }
+
+    /**
+     * Drop a customer from the cache; inside a transaction it is dropped again once the transaction completes,
+     * so that a load that read the row before the change committed is not served afterwards
+     *
+     * @param id The customer ID
+     */
+    public void invalidate(Long id) {
+        drop(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Run pending maintenance such as size-based eviction, which otherwise happens asynchronously
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /**
+     * Get the cache counters
+     *
+     * @return The current size and the hit, miss and eviction counts
+     */
+    public CacheStatsResponse stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsResponse(cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+
+    private void store(Customer customer, long epoch) {
+        // The epoch check runs under the entry's lock, so a concurrent invalidate of this ID either comes before it
+        // and makes it fail, or waits for it and removes the entry
+        int stripe = stripe(customer.getId());
+        cache.asMap().compute(customer.getId(),
+                (key, previous) -> writeEpochs.getAndIncrement(stripe) == epoch ? customer : null);
+    }
+
+    private void storeLoaded(Customer customer, long epoch) {
+        // A load does not count as a write, so concurrent loads of the same stripe do not fail each other
+        int stripe = stripe(customer.getId());
+        // computeIfAbsent would count a second miss
+        cache.asMap().compute(customer.getId(),
+                (key, previous) -> previous != null || writeEpochs.get(stripe) != epoch ? previous : customer);
+    }
+
+    private void drop(Long id) {
+        writeEpochs.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (EPOCH_STRIPES - 1);
+    }
+
+    private static Customer copy(Customer customer) {
+        return new Customer(customer.getId(), customer.getName(), customer.getLoyaltyPoints());
+    }
+}
@@ -0,0 +1,366 @@
+package com.bookstore.service.inventory;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.InventoryStatsResponse;
+import com.bookstore.dto.StockLevelResponse;
+import com.bookstore.exception.OutOfStockException;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookStock;
+import com.bookstore.repository.BookStockRepository;
+import com.bookstore.service.BookChangeListener;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stock of the books whose units are counted, held in memory and kept in step with the database
+ * Every managed book has two atomic counters: the units on hand, and the units still available to new purchases.
+ * A purchase reserves its units by taking them from the available counter with compare-and-set, and either commits
+ * them, which takes them off the units on hand, or releases them back. Purchases are admitted or refused on the
+ * counters alone, so a sold-out title costs no query, and only purchases that hold their units reach the database.
+ * <p>
+ * A committed sale is also written to the stock rows, as a decrement in the purchase's own transaction, just before
+ * it commits, so each row is locked only for the commit. The rows are therefore exact whenever the application stops,
+ * crash included, and the counters are loaded from them at startup. Changes of the stock are written as a difference
+ * too, so they never undo a sale committing at the same time. Books without a stock row are not managed and are
+ * never out of stock.
+ */
+public class BookInventory implements BookChangeListener {
+
+    private final BookStockRepository bookStockRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Long, StockCounter> counters = new ConcurrentHashMap<>();
+
+    private final LongAdder reservedUnits = new LongAdder();
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder rejectedReservations = new LongAdder();
+    private final LongAdder committedUnits = new LongAdder();
+    private final LongAdder releasedUnits = new LongAdder();
+    private final LongAdder writtenRows = new LongAdder();
+
+    /**
+     * Load the stock rows
+     *
+     * @param bookStockRepository The stock rows
+     * @param transactionTemplate Transactions of sales and stock changes made outside a transaction
+     */
+    public BookInventory(BookStockRepository bookStockRepository, TransactionTemplate transactionTemplate) {
+        this.bookStockRepository = bookStockRepository;
+        this.transactionTemplate = transactionTemplate;
+        for (BookStock stock : bookStockRepository.findAll()) {
+            counters.put(stock.getBookId(), new StockCounter(stock.getQuantity()));
+        }
+    }
+
+    /**
+     * Reserve the units of a cart, all of them or none
+     * Books are taken in ID order, so when two carts compete for the same books the one that gets the first shared
+     * book is the one that can complete, instead of both holding part of what the other needs and both failing.
+     *
+     * @param books The books of the cart, one per unit
+     * @return The units held for the managed books of the cart
+     * @throws OutOfStockException if a managed book does not have enough units available; nothing is held then
+     */
+    public StockReservation reserve(List<Book> books) {
+        SortedMap<Long, Integer> wanted = new TreeMap<>();
+        for (Book book : books) {
+            if (book.getId() != null && counters.containsKey(book.getId())) {
+                wanted.merge(book.getId(), 1, Integer::sum);
+            }
+        }
+        Map<Long, Integer> held = new LinkedHashMap<>();
+        Map<StockCounter, Integer> taken = new HashMap<>();
+        for (Map.Entry<Long, Integer> line : wanted.entrySet()) {
+            StockCounter counter = counters.get(line.getKey());
+            if (counter == null) {
+                // Deleted meanwhile
+                continue;
+            }
+            if (!counter.tryTake(line.getValue())) {
+                taken.forEach(StockCounter::putBack);
+                rejectedReservations.increment();
+                throw new OutOfStockException(line.getKey(), line.getValue());
+            }
+            taken.put(counter, line.getValue());
+            held.put(line.getKey(), line.getValue());
+        }
+        reservations.increment();
+        reservedUnits.add(sum(held));
+        return new StockReservation(held);
+    }
+
+    /**
+     * Start an empty reservation that the lines of an order are added to one at a time, for orders too large to
+     * reserve at once; it holds one entry per managed book however many lines name the book
+     *
+     * @return The reservation, to commit or release once the order is complete
+     */
+    public StockReservation openReservation() {
+        reservations.increment();
+        return new StockReservation(new HashMap<>());
+    }
+
+    /**
+     * Add the units of one line to an open reservation
+     *
+     * @param reservation The reservation, not settled yet
+     * @param bookId      The book of the line
+     * @param quantity    The units of the line
+     * @return Whether the units are held; false if the book is managed and does not have enough units available, in
+     * which case nothing more is held
+     */
+    public boolean reserve(StockReservation reservation, Long bookId, int quantity) {
+        StockCounter counter = bookId == null ? null : counters.get(bookId);
+        if (counter == null) {
+            return true;
+        }
+        if (!counter.tryTake(quantity)) {
+            rejectedReservations.increment();
+            return false;
+        }
+        reservation.hold(bookId, quantity);
+        reservedUnits.add(quantity);
+        return true;
+    }
+
+    /**
+     * Reserve the units of a cart until the current transaction completes: they are sold if it commits and put back
+     * if it rolls back. Without a transaction the units are sold right away.
+     *
+     * @param books The books of the cart, one per unit
+     * @return The units held for the managed books of the cart
+     * @throws OutOfStockException if a managed book does not have enough units available; nothing is held then
+     */
+    public StockReservation reserveForTransaction(List<Book> books) {
+        StockReservation reservation = reserve(books);
+        commit(reservation);
+        return reservation;
+    }
+
+    /**
+     * Sell the units of a reservation
+     * Inside a transaction the sale is written in it just before it commits, and the units are taken off once it has
+     * committed or put back if it rolls back. Without a transaction the sale is written in one of its own right away.
+     *
+     * @throws RuntimeException if the sale cannot be written outside a transaction; the units are put back then
+     */
+    public void commit(StockReservation reservation) {
+        if (reservation.isSettled()) {
+            return;
+        }
+        if (reservation.isEmpty()) {
+            sell(reservation);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new Settlement(this, reservation));
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> writeSale(reservation));
+        } catch (RuntimeException e) {
+            release(reservation);
+            throw e;
+        }
+        sell(reservation);
+    }
+
+    private void sell(StockReservation reservation) {
+        if (!reservation.settle()) {
+            return;
+        }
+        reservation.quantities().forEach((bookId, quantity) -> {
+            StockCounter counter = counters.get(bookId);
+            if (counter != null) {
+                counter.onHand.addAndGet(-quantity);
+            }
+        });
+        long units = sum(reservation.quantities());
+        reservedUnits.add(-units);
+        committedUnits.add(units);
+    }
+
+    /**
+     * Take the units of a sale off the stock rows, in ID order like reservations so that two sales never wait for
+     * each other's rows
+     */
+    private void writeSale(StockReservation reservation) {
+        new TreeMap<>(reservation.quantities()).forEach((bookId, quantity) -> {
+            // A book deleted meanwhile has no row left to update
+            writtenRows.add(bookStockRepository.addQuantity(bookId, -quantity));
+        });
+    }
+
+    /**
+     * Put the units of a reservation back
+     */
+    public void release(StockReservation reservation) {
+        if (!reservation.settle()) {
+            return;
+        }
+        reservation.quantities().forEach((bookId, quantity) -> {
+            StockCounter counter = counters.get(bookId);
+            if (counter != null) {
+                counter.putBack(quantity);
+            }
+        });
+        long units = sum(reservation.quantities());
+        reservedUnits.add(-units);
+        releasedUnits.add(units);
+    }
+
+    /**
+     * Get the stock of a book
+     *
+     * @param bookId The book ID
+     * @return The units on hand, reserved and available, or a level without counts if the book is not managed
+     */
+    public StockLevelResponse getStockLevel(Long bookId) {
+        StockCounter counter = counters.get(bookId);
+        if (counter == null) {
+            return new StockLevelResponse(bookId, false, null, null, null);
+        }
+        long onHand = counter.onHand.get();
+        long available = counter.available.get();
+        return new StockLevelResponse(bookId, true, onHand, onHand - available, Math.max(0, available));
+    }
+
+    /**
+     * Set the units of a book on hand, making its stock managed, and write it right away
+     * Units held by purchases in progress stay held; when they outnumber the new quantity, nothing is available until
+     * enough of them are released. The row is changed by the difference with the units on hand, so a sale that
+     * commits meanwhile is taken off the new quantity in both places.
+     *
+     * @param bookId   The book ID
+     * @param quantity The units on hand
+     * @return The new stock of the book
+     * @throws IllegalArgumentException if the quantity is negative
+     */
+    public synchronized StockLevelResponse setStock(Long bookId, long quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Stock quantity must not be negative");
+        }
+        boolean managed = counters.containsKey(bookId);
+        StockCounter counter = counters.computeIfAbsent(bookId, id -> new StockCounter(0));
+        long difference = quantity - counter.setOnHand(quantity);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (bookStockRepository.addQuantity(bookId, difference) == 0) {
+                    bookStockRepository.save(new BookStock(bookId, quantity));
+                }
+            });
+        } catch (RuntimeException e) {
+            counter.adjustOnHand(-difference);
+            if (!managed) {
+                counters.remove(bookId);
+            }
+            throw e;
+        }
+        writtenRows.increment();
+        return getStockLevel(bookId);
+    }
+
+    @Override
+    public void bookSaved(Book book) {
+        // Saving a book does not change its stock
+    }
+
+    /**
+     * Forget the stock of a deleted book; purchases holding its units settle without effect
+     */
+    @Override
+    public synchronized void bookDeleted(Long id) {
+        if (counters.remove(id) != null) {
+            transactionTemplate.executeWithoutResult(status -> bookStockRepository.deleteById(id));
+        }
+    }
+
+    /**
+     * Get the inventory counters
+     *
+     * @return The managed books, the units held now, reservation and unit counts, and the stock rows written
+     */
+    public InventoryStatsResponse stats() {
+        return new InventoryStatsResponse(counters.size(), reservedUnits.sum(), reservations.sum(),
+                rejectedReservations.sum(), committedUnits.sum(), releasedUnits.sum(), writtenRows.sum());
+    }
+
+    private static long sum(Map<Long, Integer> quantities) {
+        long units = 0;
+        for (int quantity : quantities.values()) {
+            units += quantity;
+        }
+        return units;
+    }
+
+    private static final class StockCounter {
+        private final AtomicLong onHand;
+        private final AtomicLong available;
+
+        private StockCounter(long quantity) {
+            this.onHand = new AtomicLong(quantity);
+            this.available = new AtomicLong(quantity);
+        }
+
+        private boolean tryTake(int quantity) {
+            long current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            return true;
+        }
+
+        private void putBack(int quantity) {
+            available.addAndGet(quantity);
+        }
+
+        /**
+         * @return The units on hand before
+         */
+        private long setOnHand(long quantity) {
+            long previous = onHand.getAndSet(quantity);
+            available.addAndGet(quantity - previous);
+            return previous;
+        }
+
+        private void adjustOnHand(long difference) {
+            onHand.addAndGet(difference);
+            available.addAndGet(difference);
+        }
+    }
+
+    /**
+     * Writes a sale in the transaction it was made in, and settles its reservation with the outcome
+     */
+    private record Settlement(BookInventory inventory, StockReservation reservation)
+            implements TransactionSynchronization {
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            inventory.writeSale(reservation);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_COMMITTED) {
+                inventory.sell(reservation);
+            } else {
+                inventory.release(reservation);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.bookstore.service.inventory;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Units of books held for one purchase until it is committed or released
+ * Only books with managed stock are held; a reservation is settled once, later settlements are ignored.
+ */
+public final class StockReservation {
+
+    private final Map<Long, Integer> quantities;
+
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    StockReservation(Map<Long, Integer> quantities) {
+        this.quantities = quantities;
+    }
+
+    /**
+     * @return The units held, by book ID
+     */
+    public Map<Long, Integer> quantities() {
+        return quantities;
+    }
+
+    public boolean isEmpty() {
+        return quantities.isEmpty();
+    }
+
+    void hold(Long bookId, int quantity) {
+        quantities.merge(bookId, quantity, Integer::sum);
+    }
+
+    boolean isSettled() {
+        return settled.get();
+    }
+
+    boolean settle() {
+        return settled.compareAndSet(false, true);
+    }
+}
@@ -0,0 +1,21 @@
+package com.bookstore.service.ledger;
+
+/**
+ * When a purchase's ledger entry is written relative to the purchase
+ */
+public enum LedgerDurability {
+    /**
+     * In the purchase's own transaction: the purchase and its entry commit or roll back together
+     */
+    SYNC,
+    /**
+     * By the background writer, together with the entries of concurrent purchases, after the purchase commits; the
+     * purchase returns once its entry is written
+     */
+    BATCHED,
+    /**
+     * By the background writer after the purchase commits, without waiting; entries still queued are lost if the
+     * process dies
+     */
+    ASYNC
+}
@@ -0,0 +1,860 @@
+package com.bookstore.service.ledger;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.dto.LoyaltyLedgerStatsResponse;
+import com.bookstore.dto.LoyaltyReplayResponse;
+import com.bookstore.dto.PageResponse;
+import com.bookstore.model.LoyaltyEvent;
+import com.bookstore.model.LoyaltyEventType;
+import com.bookstore.repository.CustomerRepository;
+import com.bookstore.repository.LoyaltyEventRepository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+import javax.sql.DataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Append-only log of loyalty balance changes, with the balances kept as a projection of it
+ * Every change of a balance is an event holding the points it adds or takes off and the balance after it. The
+ * balances of the customers seen since startup are held in memory and changed in place, so reading one costs no
+ * query and changing one queues an event instead of updating the customer row. A background writer inserts the
+ * queued events as JDBC batches and, in the same transaction, sets the loyalty points of each customer of the batch
+ * to its balance after its last event: the customer row is a snapshot that lags the log by one batch at most and
+ * agrees with it once the batch commits. A customer is loaded from its snapshot the first time it is seen; an empty
+ * log, or one ending on another balance, is first aligned with it by an OPENING or ADJUST event.
+ * <p>
+ * A change made in a transaction keeps the customer's balance to that transaction until it completes, as the lock of
+ * the customer row did, so no other purchase redeems points that may still be rolled back. Its events are queued
+ * once the transaction commits, as the purchase ledger's BATCHED entries are, and the commit only returns once the
+ * writer has written them: a purchase answered to its client has its points in the log. On rollback the change is
+ * undone in memory and nothing is logged. A crash between the commit and the write, or a failed write, loses the
+ * points of purchases whose stock, order and idempotency record are committed; the events were never logged, so a
+ * replay cannot restore them. This is why the ledger is disabled by default.
+ * <p>
+ * {@link #replay(boolean)} folds the log into balances, customer ID ranges in parallel, and reports or repairs the
+ * balances that disagree with it. Balances live in the memory of one instance: with several, even behind an affinity
+ * router, an instance keeps serving its own copy after another has taken over its customers, so the ledger only
+ * supports a single instance.
+ */
+public class LoyaltyLedger implements AutoCloseable {
+
+    /**
+     * How long closing waits for the writer to drain the queue, and a replay for the events appended before it
+     */
+    static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    /**
+     * Returned by a change to leave the balance as it is and record nothing
+     */
+    private static final int REFUSED = Integer.MIN_VALUE;
+
+    private static final String SNAPSHOT_UPDATE = "update Customer c set c.loyaltyPoints = :balance where c.id = :id";
+
+    private final CustomerRepository customerRepository;
+    private final LoyaltyEventRepository loyaltyEventRepository;
+    private final SessionFactory sessionFactory;
+    private final DataSource dataSource;
+    private final int batchSize;
+    private final long maxBatchDelayNanos;
+    private final Duration lockTimeout;
+    private final int replayParallelism;
+    private final int replayChunkSize;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<Long, Account> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * Changes share the read lock; a replay takes the write lock while it marks the end of the log it folds
+     */
+    private final ReentrantReadWriteLock replayLock = new ReentrantReadWriteLock();
+
+    private final BlockingQueue<PendingEvent> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Connection of the background writer, only used while holding the lock of this ledger
+     */
+    private Connection writerConnection;
+
+    /**
+     * Events appended and not yet written or failed, whether queued or taken by the writer
+     */
+    private final AtomicLong unwritten = new AtomicLong();
+
+    private final LongAccumulator lastWrittenId = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder appendedEvents = new LongAdder();
+    private final LongAdder writtenEvents = new LongAdder();
+    private final LongAdder writtenBatches = new LongAdder();
+    private final LongAdder batchedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+    private final LongAdder snapshotUpdates = new LongAdder();
+    private final LongAdder reversals = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+
+    /**
+     * @param entityManagerFactory Opens the sessions of the background writer
+     * @param dataSource           Provides the connection of the background writer
+     * @param batchSize            Events written per transaction of the background writer at most
+     * @param queueCapacity        Events waiting for the background writer at most; changes wait for room beyond that
+     * @param maxBatchDelay        How long the writer waits for more events once it has one
+     * @param lockTimeout          How long a change waits for a balance held by another transaction
+     * @param replayParallelism    Customer ID ranges folded at the same time by a replay
+     * @param replayChunkSize      Events read per query by a replay
+     */
+    public LoyaltyLedger(CustomerRepository customerRepository, LoyaltyEventRepository loyaltyEventRepository,
+                         EntityManagerFactory entityManagerFactory, DataSource dataSource, int batchSize,
+                         int queueCapacity, Duration maxBatchDelay, Duration lockTimeout, int replayParallelism,
+                         int replayChunkSize, Clock clock) {
+        if (replayParallelism < 1 || replayChunkSize < 1) {
+            throw new IllegalArgumentException("Loyalty replay parallelism and chunk size must be positive");
+        }
+        this.customerRepository = customerRepository;
+        this.loyaltyEventRepository = loyaltyEventRepository;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.dataSource = dataSource;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchDelayNanos = maxBatchDelay.toNanos();
+        this.lockTimeout = lockTimeout;
+        this.replayParallelism = replayParallelism;
+        this.replayChunkSize = replayChunkSize;
+        this.clock = clock;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        try {
+            this.writerConnection = dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot open the connection of the loyalty ledger writer", e);
+        }
+        this.writer = Thread.ofPlatform().name("loyalty-ledger").daemon(true).start(this::writeQueued);
+    }
+
+    /**
+     * Get the balance of a customer
+     *
+     * @param customerId The customer
+     * @return The balance, or empty if the customer doesn't exist
+     */
+    public Optional<Integer> getBalance(Long customerId) {
+        Account account = accounts.get(customerId);
+        return account == null ? customerRepository.findLoyaltyPointsById(customerId) : Optional.of(account.balance);
+    }
+
+    /**
+     * Get the balance of a customer whose row was just read, without another query
+     *
+     * @param customerId The customer
+     * @param snapshot   The loyalty points of its row
+     * @return The balance
+     */
+    public int getBalance(Long customerId, int snapshot) {
+        Account account = accounts.get(customerId);
+        return account == null ? snapshot : account.balance;
+    }
+
+    /**
+     * Open the balance of a customer just added, with an OPENING event
+     *
+     * @param customerId The customer
+     * @param balance    Its initial loyalty points
+     */
+    public void open(Long customerId, int balance) {
+        openAccount(customerId, balance, null);
+    }
+
+    /**
+     * Add points to a customer's balance
+     *
+     * @param customerId The customer
+     * @param points     The points to add
+     * @return The balance after the addition, or empty if the customer doesn't exist
+     */
+    public Optional<Integer> earn(Long customerId, int points) {
+        return change(customerId, LoyaltyEventType.EARN, balance -> balance + points);
+    }
+
+    /**
+     * Redeem a customer's balance for a free book, if it holds enough points
+     *
+     * @param customerId      The customer
+     * @param requiredPoints  The points the balance must hold
+     * @param remainingPoints The balance after the redemption
+     * @return True if redeemed, false if the customer doesn't exist or the balance holds fewer than the required points
+     */
+    public boolean redeem(Long customerId, int requiredPoints, int remainingPoints) {
+        return change(customerId, LoyaltyEventType.REDEEM,
+                balance -> balance >= requiredPoints ? remainingPoints : REFUSED).isPresent();
+    }
+
+    /**
+     * Compute a customer's balance from its current value, recorded as earned or redeemed points
+     *
+     * @param customerId The customer
+     * @param update     Gives the new balance from the current one
+     * @return The new balance, or empty if the customer doesn't exist
+     */
+    public Optional<Integer> update(Long customerId, IntUnaryOperator update) {
+        return change(customerId, null, update);
+    }
+
+    /**
+     * Set a customer's balance by hand, recorded as an ADJUST event
+     *
+     * @param customerId The customer
+     * @param balance    The new balance
+     * @return The new balance, or empty if the customer doesn't exist
+     */
+    public Optional<Integer> adjust(Long customerId, int balance) {
+        return change(customerId, LoyaltyEventType.ADJUST, current -> balance);
+    }
+
+    /**
+     * Get one page of the written events of a customer, newest first
+     *
+     * @param customerId The customer
+     * @param beforeId   The last ID of the previous page, or null for the first page
+     * @param limit      The maximum number of events to return
+     * @return The page, with the cursor of the next page if there is one
+     */
+    public PageResponse<LoyaltyEvent> getEvents(Long customerId, Long beforeId, int limit) {
+        // Fetch one extra row to know whether another page follows without issuing an extra query
+        List<LoyaltyEvent> events = loyaltyEventRepository.findByCustomerIdAndIdLessThanOrderByIdDesc(customerId,
+                beforeId == null ? Long.MAX_VALUE : beforeId, Limit.of(limit + 1));
+        if (events.size() <= limit) {
+            return new PageResponse<>(events, null);
+        }
+        List<LoyaltyEvent> page = new ArrayList<>(events.subList(0, limit));
+        return new PageResponse<>(page, String.valueOf(page.getLast().getId()));
+    }
+
+    /**
+     * Rebuild every balance from the log and compare it with the balance in memory, or in the snapshot for the
+     * customers not seen since startup
+     * Changes are held only while the events queued so far are written and the logged balances taken, leaving out
+     * the changes of transactions that have not committed; the log up to
+     * that point is then folded, customer ID ranges in parallel, while purchases go on. A drifted balance is repaired
+     * by the difference between its fold and the balance taken, with an ADJUST event of delta 0: the deltas of the
+     * log already add up to it.
+     *
+     * @param repair Whether to set the drifted balances to their fold; otherwise they are only counted
+     * @return The customers and events folded, and the drifted and repaired counts
+     */
+    public LoyaltyReplayResponse replay(boolean repair) {
+        long start = System.nanoTime();
+        // IDs written by this instance are above every ID that existed before it wrote
+        long existingId = loyaltyEventRepository.findMaxId().orElse(0L);
+        long lastId;
+        Map<Long, Integer> balances;
+        replayLock.writeLock().lock();
+        try {
+            awaitWritten();
+            lastId = Math.max(existingId, lastWrittenId.get());
+            balances = new HashMap<>(accounts.size() * 2);
+            accounts.forEach((customerId, account) -> balances.put(customerId, account.logged));
+        } finally {
+            replayLock.writeLock().unlock();
+        }
+
+        Optional<Long> firstCustomerId = loyaltyEventRepository.findMinCustomerId();
+        Optional<Long> lastCustomerId = loyaltyEventRepository.findMaxCustomerId();
+        List<long[]> ranges = firstCustomerId.isEmpty() || lastCustomerId.isEmpty()
+                ? List.of()
+                : partition(firstCustomerId.get(), lastCustomerId.get());
+        LongAdder events = new LongAdder();
+        LongAdder driftedEvents = new LongAdder();
+        long customers = 0;
+        long driftedBalances = 0;
+        long repairedBalances = 0;
+        for (Map<Long, Fold> folds : foldInParallel(ranges, lastId, events, driftedEvents)) {
+            for (Map.Entry<Long, Fold> entry : folds.entrySet()) {
+                customers++;
+                Fold fold = entry.getValue();
+                int known = balances.getOrDefault(entry.getKey(), fold.lastRecorded);
+                if (known == fold.balance && fold.lastRecorded == fold.balance) {
+                    continue;
+                }
+                driftedBalances++;
+                if (repair && realign(entry.getKey(), fold.balance - known)) {
+                    repairedBalances++;
+                }
+            }
+        }
+        replays.increment();
+        return new LoyaltyReplayResponse(ranges.size(), customers, events.sum(), driftedEvents.sum(), driftedBalances,
+                repairedBalances, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Get the ledger counters
+     *
+     * @return The balances in memory, the queued events, written, batch and failure counts, and replay counts
+     */
+    public LoyaltyLedgerStatsResponse stats() {
+        long batches = writtenBatches.sum();
+        return new LoyaltyLedgerStatsResponse(accounts.size(), queue.size(), appendedEvents.sum(), writtenEvents.sum(),
+                batches, failedEvents.sum(), batches == 0 ? 0.0 : (double) batchedEvents.sum() / batches,
+                (int) maxBatchSize.get(), batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(flushNanos.sum() / batches),
+                snapshotUpdates.sum(), reversals.sum(), replays.sum());
+    }
+
+    /**
+     * Change a balance and append its event
+     *
+     * @param type   The type of the event, or null for EARN or REDEEM by the sign of the delta
+     * @param change Gives the new balance from the current one, or {@link #REFUSED}
+     * @return The new balance, or empty if the customer doesn't exist or the change was refused
+     */
+    private Optional<Integer> change(Long customerId, LoyaltyEventType type, IntUnaryOperator change) {
+        Account account = account(customerId);
+        if (account == null) {
+            return Optional.empty();
+        }
+        Settlement settlement = TransactionSynchronizationManager.isSynchronizationActive() ? settlement() : null;
+        boolean acquired = !account.lock.isHeldByCurrentThread();
+        if (acquired) {
+            acquire(customerId, account);
+            if (settlement != null) {
+                settlement.locked().add(account);
+            }
+        }
+        int after;
+        PendingEvent written = null;
+        try {
+            replayLock.readLock().lock();
+            try {
+                int before = account.balance;
+                after = change.applyAsInt(before);
+                if (after == REFUSED) {
+                    return Optional.empty();
+                }
+                int delta = after - before;
+                if (delta != 0) {
+                    account.balance = after;
+                    LoyaltyEventType eventType = type != null ? type
+                            : delta > 0 ? LoyaltyEventType.EARN : LoyaltyEventType.REDEEM;
+                    PendingEvent event = new PendingEvent(customerId, eventType, delta, after, clock.instant());
+                    if (settlement != null) {
+                        settlement.changes().add(new Change(account, event));
+                    } else {
+                        account.logged = after;
+                        written = append(event);
+                    }
+                }
+            } finally {
+                replayLock.readLock().unlock();
+            }
+        } finally {
+            if (acquired && settlement == null) {
+                account.lock.unlock();
+            }
+        }
+        if (written != null) {
+            awaitWritten(List.of(written));
+        }
+        return Optional.of(after);
+    }
+
+    /**
+     * Get the balance of a customer, loading it from its snapshot the first time
+     *
+     * @return The balance, or null if the customer doesn't exist
+     */
+    private Account account(Long customerId) {
+        Account account = accounts.get(customerId);
+        if (account != null) {
+            return account;
+        }
+        Optional<Integer> snapshot = customerRepository.findLoyaltyPointsById(customerId);
+        if (snapshot.isEmpty()) {
+            return null;
+        }
+        Optional<LoyaltyEvent> lastEvent = loyaltyEventRepository.findFirstByCustomerIdOrderByIdDesc(customerId);
+        return openAccount(customerId, snapshot.get(), lastEvent.map(LoyaltyEvent::getBalance).orElse(null));
+    }
+
+    /**
+     * Put the balance of a customer in memory unless another thread did first, aligning the log with it
+     * The account is created locked, so changes by other threads wait until its first event is queued; the event is
+     * queued outside the map's lock, since the queue may make it wait for room.
+     *
+     * @param logged The balance after the customer's last event, or null if it has none
+     */
+    private Account openAccount(Long customerId, int balance, Integer logged) {
+        replayLock.readLock().lock();
+        try {
+            Account[] created = new Account[1];
+            Account account = accounts.computeIfAbsent(customerId, id -> {
+                created[0] = new Account(balance);
+                created[0].lock.lock();
+                return created[0];
+            });
+            if (account != created[0]) {
+                return account;
+            }
+            try {
+                if (logged == null) {
+                    append(new PendingEvent(customerId, LoyaltyEventType.OPENING, balance, balance, clock.instant()));
+                } else if (logged != balance) {
+                    // The snapshot was changed while the ledger was disabled
+                    append(new PendingEvent(customerId, LoyaltyEventType.ADJUST, balance - logged, balance,
+                            clock.instant()));
+                }
+            } finally {
+                account.lock.unlock();
+            }
+            return account;
+        } finally {
+            replayLock.readLock().unlock();
+        }
+    }
+
+    private void acquire(Long customerId, Account account) {
+        try {
+            if (account.lock.tryLock(lockTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new IllegalStateException("Loyalty balance of customer " + customerId + " is held by another transaction");
+    }
+
+    /**
+     * Get the settlement of the current transaction, registering it with the first change
+     */
+    private Settlement settlement() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Settlement settlement && settlement.ledger() == this) {
+                return settlement;
+            }
+        }
+        Settlement settlement = new Settlement(this, new ArrayList<>(), new ArrayList<>());
+        TransactionSynchronizationManager.registerSynchronization(settlement);
+        return settlement;
+    }
+
+    /**
+     * Queue the events of a committed transaction, in the order of its changes, while it still holds their balances
+     *
+     * @return The queued events, to wait for once the balances are released
+     */
+    private List<PendingEvent> queueCommitted(List<Change> changes) {
+        List<PendingEvent> events = new ArrayList<>(changes.size());
+        replayLock.readLock().lock();
+        try {
+            for (Change change : changes) {
+                change.account().logged = change.event().balance();
+                events.add(append(change.event()));
+            }
+        } finally {
+            replayLock.readLock().unlock();
+        }
+        return events;
+    }
+
+    /**
+     * Undo the changes of a rolled-back transaction, latest first, while it still holds their balances; nothing of
+     * them was logged
+     */
+    private void undo(List<Change> changes) {
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            Change change = changes.get(i);
+            change.account().balance -= change.event().delta();
+            reversals.increment();
+        }
+    }
+
+    /**
+     * Move a balance found drifted by a replay by the error found, which changes made since left as it was
+     *
+     * @return Whether the balance was repaired; false if the customer no longer exists or a transaction holds it
+     */
+    private boolean realign(Long customerId, int error) {
+        Account account = account(customerId);
+        if (account == null || !account.lock.tryLock()) {
+            return false;
+        }
+        try {
+            replayLock.readLock().lock();
+            try {
+                int balance = account.balance + error;
+                account.balance = balance;
+                account.logged = balance;
+                append(new PendingEvent(customerId, LoyaltyEventType.ADJUST, 0, balance, clock.instant()));
+                return true;
+            } finally {
+                replayLock.readLock().unlock();
+            }
+        } finally {
+            account.lock.unlock();
+        }
+    }
+
+    private List<long[]> partition(long firstCustomerId, long lastCustomerId) {
+        long span = (lastCustomerId - firstCustomerId) / replayParallelism + 1;
+        List<long[]> ranges = new ArrayList<>(replayParallelism);
+        for (int i = 0; i < replayParallelism; i++) {
+            long first = firstCustomerId + i * span;
+            if (first > lastCustomerId) {
+                break;
+            }
+            ranges.add(new long[]{first, Math.min(lastCustomerId, first + span - 1)});
+        }
+        return ranges;
+    }
+
+    private List<Map<Long, Fold>> foldInParallel(List<long[]> ranges, long lastId, LongAdder events,
+                                                 LongAdder driftedEvents) {
+        if (ranges.isEmpty()) {
+            return List.of();
+        }
+        try (ExecutorService pool = Executors.newFixedThreadPool(ranges.size(),
+                Thread.ofPlatform().name("loyalty-replay-", 0).daemon().factory())) {
+            List<Future<Map<Long, Fold>>> futures = new ArrayList<>(ranges.size());
+            for (long[] range : ranges) {
+                futures.add(pool.submit(() -> fold(range[0], range[1], lastId, events, driftedEvents)));
+            }
+            List<Map<Long, Fold>> folds = new ArrayList<>(ranges.size());
+            for (Future<Map<Long, Fold>> future : futures) {
+                folds.add(future.get());
+            }
+            return folds;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Loyalty replay failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Loyalty replay interrupted", e);
+        }
+    }
+
+    /**
+     * Sum the deltas of the customers of one ID range, reading their events in keyset chunks
+     */
+    private Map<Long, Fold> fold(long firstCustomerId, long lastCustomerId, long lastId, LongAdder events,
+                                 LongAdder driftedEvents) {
+        Map<Long, Fold> folds = new HashMap<>();
+        long afterCustomerId = firstCustomerId;
+        long afterId = Long.MIN_VALUE;
+        List<LoyaltyEvent> chunk;
+        do {
+            chunk = loyaltyEventRepository.findReplayChunk(afterCustomerId, afterId, lastCustomerId, lastId,
+                    Limit.of(replayChunkSize));
+            for (LoyaltyEvent event : chunk) {
+                Fold fold = folds.computeIfAbsent(event.getCustomerId(), id -> new Fold());
+                fold.balance += event.getDelta();
+                fold.lastRecorded = event.getBalance();
+                if (fold.lastRecorded != fold.balance) {
+                    driftedEvents.increment();
+                }
+            }
+            events.add(chunk.size());
+            if (!chunk.isEmpty()) {
+                afterCustomerId = chunk.getLast().getCustomerId();
+                afterId = chunk.getLast().getId();
+            }
+        } while (chunk.size() == replayChunkSize);
+        return folds;
+    }
+
+    /**
+     * Queue an event for the writer
+     *
+     * @return The event, whose future completes once it is written
+     */
+    private PendingEvent append(PendingEvent event) {
+        appendedEvents.increment();
+        unwritten.incrementAndGet();
+        try {
+            if (!closed) {
+                queue.put(event);
+                return event;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // The writer is gone or this thread cannot wait for it; write the event here
+        write(List.of(event));
+        return event;
+    }
+
+    /**
+     * Wait until the writer has written the events of a change, which has committed already
+     */
+    private static void awaitWritten(List<PendingEvent> events) {
+        for (PendingEvent event : events) {
+            try {
+                event.written().join();
+            } catch (CompletionException e) {
+                // A failed event is counted and leaves the customer drifted for a replay; it must not fail the change
+            }
+        }
+    }
+
+    /**
+     * Wait until every event appended so far is written or failed
+     */
+    private void awaitWritten() {
+        long deadline = System.nanoTime() + CLOSE_TIMEOUT.toNanos();
+        try {
+            while (unwritten.get() > 0) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Loyalty events are not written in time for the replay");
+                }
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Loyalty replay interrupted", e);
+        }
+    }
+
+    private void writeQueued() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingEvent first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Closing interrupts a writer that outlived the timeout; write what was taken and stop
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                return;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void fillBatch(List<PendingEvent> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxBatchDelayNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            PendingEvent next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private synchronized void write(List<PendingEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            writeInTransaction(batch);
+        } catch (RuntimeException | SQLException e) {
+            writeOneByOne(batch);
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        writtenEvents.add(batch.size());
+        writtenBatches.increment();
+        batchedEvents.add(batch.size());
+        maxBatchSize.accumulate(batch.size());
+        flushNanos.add(elapsed);
+        unwritten.addAndGet(-batch.size());
+        batch.forEach(event -> event.written().complete(null));
+    }
+
+    private void writeOneByOne(List<PendingEvent> batch) {
+        for (PendingEvent event : batch) {
+            try {
+                writeInTransaction(List.of(event));
+                writtenEvents.increment();
+                unwritten.decrementAndGet();
+                event.written().complete(null);
+            } catch (RuntimeException | SQLException e) {
+                // The balance in memory keeps the change; a replay reports the customer as drifted
+                failedEvents.increment();
+                unwritten.decrementAndGet();
+                event.written().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Insert the events and refresh the snapshot of their customers, in one transaction
+     */
+    private void writeInTransaction(List<PendingEvent> events) throws SQLException {
+        if (writerConnection == null) {
+            writerConnection = dataSource.getConnection();
+        }
+        try (Session session = sessionFactory.withOptions().connection(writerConnection).openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                Map<Long, Integer> snapshots = new LinkedHashMap<>();
+                long lastId = 0;
+                for (PendingEvent pending : events) {
+                    LoyaltyEvent event = new LoyaltyEvent(null, pending.customerId(), pending.type(), pending.delta(),
+                            pending.balance(), pending.createdAt());
+                    session.persist(event);
+                    lastId = Math.max(lastId, event.getId());
+                    snapshots.put(pending.customerId(), pending.balance());
+                }
+                snapshots.forEach((customerId, balance) -> session.createMutationQuery(SNAPSHOT_UPDATE)
+                        .setParameter("balance", balance)
+                        .setParameter("id", customerId)
+                        .executeUpdate());
+                transaction.commit();
+                lastWrittenId.accumulate(lastId);
+                snapshotUpdates.add(snapshots.size());
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                if (!writerConnection.isValid(1)) {
+                    // The database dropped the connection; the next write takes a fresh one
+                    closeWriterConnection();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void closeWriterConnection() {
+        if (writerConnection == null) {
+            return;
+        }
+        try {
+            writerConnection.close();
+        } catch (SQLException e) {
+            // A broken connection may fail to close; the pool evicts it either way
+        }
+        writerConnection = null;
+    }
+
+    /**
+     * Stop the writer when the application context closes, after it has written the queued events
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(CLOSE_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.interrupt();
+        synchronized (this) {
+            closeWriterConnection();
+        }
+    }
+
+    /**
+     * Balance of a customer, changed under its lock and the read lock of the replay
+     */
+    private static final class Account {
+        /**
+         * Held by a transaction that changed the balance until it completes, otherwise during a change
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile int balance;
+        /**
+         * The balance after the last queued event, which leaves out the changes of a transaction still running
+         */
+        private volatile int logged;
+
+        private Account(int balance) {
+            this.balance = balance;
+            this.logged = balance;
+        }
+    }
+
+    /**
+     * Running sum of the deltas of a customer, and the balance recorded by its latest event
+     */
+    private static final class Fold {
+        private int balance;
+        private int lastRecorded;
+    }
+
+    private record Change(Account account, PendingEvent event) {
+    }
+
+    private record PendingEvent(Long customerId, LoyaltyEventType type, int delta, int balance, Instant createdAt,
+                                CompletableFuture<Void> written) {
+
+        private PendingEvent(Long customerId, LoyaltyEventType type, int delta, int balance, Instant createdAt) {
+            this(customerId, type, delta, balance, createdAt, new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * Queues the events of a transaction once it commits, or undoes its changes if it rolled back, and releases the
+     * balances it changed
+     * The balances are released as soon as the events are queued, before this and slower synchronizations such as
+     * the purchase ledger wait for their writer.
+     */
+    private record Settlement(LoyaltyLedger ledger, List<Change> changes, List<Account> locked)
+            implements TransactionSynchronization {
+
+        @Override
+        public void afterCommit() {
+            List<PendingEvent> events = ledger.queueCommitted(changes);
+            changes.clear();
+            release();
+            awaitWritten(events);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED && !changes.isEmpty()) {
+                ledger.undo(changes);
+            }
+            release();
+        }
+
+        private void release() {
+            locked.forEach(account -> account.lock.unlock());
+            locked.clear();
+        }
+    }
+}
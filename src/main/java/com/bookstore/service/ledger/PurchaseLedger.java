@@ -0,0 +1,435 @@
+package com.bookstore.service.ledger;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.LedgerStatsResponse;
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.PurchaseOrder;
+import com.bookstore.model.PurchaseOrderLine;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Append-only ledger of completed purchases and their books
+ * Entries are only inserted, with IDs from pooled sequences, so recording a purchase never reads the ledger and its
+ * cost does not depend on how many entries the ledger holds.
+ * <p>
+ * With {@link LedgerDurability#SYNC} the entry is inserted in the purchase's transaction. Otherwise it is handed
+ * to a background writer once the purchase has committed; the writer takes whatever entries have queued up, waiting
+ * at most the batch delay for more, and inserts them in one transaction as JDBC batches, so one commit serves many
+ * purchases. If a batch fails, its entries are written one by one so a bad entry only fails itself. The queue is
+ * bounded: when it is full, purchases wait for room.
+ * <p>
+ * Bulk purchases are always inserted in their own transaction, with one entry line per line of their order and its
+ * quantity, as their lines are read back; cart purchases have one entry line per unit.
+ * <p>
+ * The writer takes one connection of its own out of the pool when the ledger is created and keeps it. Purchases
+ * waiting for their entry still hold their pooled connection until their commit returns, so a writer borrowing from
+ * the same pool under load could wait for them forever.
+ */
+public class PurchaseLedger implements AutoCloseable {
+
+    /**
+     * How long closing waits for the writer to drain the queue
+     */
+    static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionFactory sessionFactory;
+    private final DataSource dataSource;
+    private final LedgerDurability durability;
+    private final int batchSize;
+    private final long maxBatchDelayNanos;
+    private final Clock clock;
+
+    private final BlockingQueue<PendingOrder> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Connection of the background writer, only used while holding the lock of this ledger, null with SYNC
+     */
+    private Connection writerConnection;
+
+    private final LongAdder writtenOrders = new LongAdder();
+    private final LongAdder writtenBatches = new LongAdder();
+    private final LongAdder batchedOrders = new LongAdder();
+    private final LongAdder failedOrders = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param entityManager        Writes SYNC entries in the purchase's transaction
+     * @param entityManagerFactory Opens the sessions of the background writer
+     * @param dataSource           Provides the connection of the background writer
+     * @param durability           When entries are written relative to their purchase
+     * @param batchSize            Entries written per transaction of the background writer at most
+     * @param queueCapacity        Entries waiting for the background writer at most
+     * @param maxBatchDelay        How long the writer waits for more entries once it has one
+     */
+    public PurchaseLedger(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                          EntityManagerFactory entityManagerFactory, DataSource dataSource,
+                          LedgerDurability durability, int batchSize, int queueCapacity, Duration maxBatchDelay,
+                          Clock clock) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.dataSource = dataSource;
+        this.durability = durability;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchDelayNanos = maxBatchDelay.toNanos();
+        this.clock = clock;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        if (durability == LedgerDurability.SYNC) {
+            this.writer = null;
+            return;
+        }
+        try {
+            this.writerConnection = dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot open the connection of the purchase ledger writer", e);
+        }
+        this.writer = Thread.ofPlatform().name("purchase-ledger").daemon(true).start(this::writeQueued);
+    }
+
+    /**
+     * Record a completed purchase
+     * Called inside the purchase's transaction, if any; with the background writer, nothing is queued unless that
+     * transaction commits.
+     *
+     * @param customerId The customer
+     * @param response   The purchase outcome, with its books and free books
+     * @return Completes once the entry is written; with BATCHED durability it already has when this returns from
+     * outside a transaction, or when the purchase's commit returns
+     */
+    public CompletableFuture<Void> record(Long customerId, PurchaseResponse response) {
+        PendingOrder order = PendingOrder.of(customerId, response, clock.instant());
+        if (durability == LedgerDurability.SYNC) {
+            // Joins the purchase's transaction, or opens one when called outside a transaction
+            transactionTemplate.executeWithoutResult(status -> persist(entityManager, order));
+            writtenOrders.increment();
+            order.written.complete(null);
+            return order.written;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            submitAfterCommit(order);
+        } else {
+            submit(List.of(order));
+        }
+        return order.written;
+    }
+
+    /**
+     * Start recording a bulk purchase in the current transaction; its lines are added one at a time as the order is
+     * read back
+     * Bulk entries are inserted in the purchase's transaction whatever the durability, and flushed every batch size
+     * lines, so the lines of an order are never all held in memory and never fill the writer's queue on their own.
+     *
+     * @param customerId    The customer
+     * @param totalPrice    The total price of the order
+     * @param loyaltyPoints The loyalty balance of the customer right after the purchase
+     * @param units         The units of the order
+     * @return The entry to add the purchased lines of the order to, in order
+     * @throws IllegalStateException if no transaction is active
+     */
+    public BulkEntry recordBulk(Long customerId, BigDecimal totalPrice, int loyaltyPoints, int units) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("A bulk purchase is recorded in its own transaction");
+        }
+        PurchaseOrder order = new PurchaseOrder(null, customerId, totalPrice, loyaltyPoints, units, clock.instant());
+        entityManager.persist(order);
+        writtenOrders.increment();
+        return new BulkEntry(order.getId());
+    }
+
+    /**
+     * Get the writer counters
+     *
+     * @return The durability, the queued entries, and written, batch and failure counts
+     */
+    public LedgerStatsResponse stats() {
+        long batches = writtenBatches.sum();
+        return new LedgerStatsResponse(durability, queue.size(), writtenOrders.sum(), batches, failedOrders.sum(),
+                batches == 0 ? 0.0 : (double) batchedOrders.sum() / batches, (int) maxBatchSize.get(),
+                batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(flushNanos.sum() / batches));
+    }
+
+    /**
+     * Queue the entry once the current transaction commits, together with the other entries of that transaction, so
+     * a transaction holding many purchases waits for the writer once
+     */
+    private void submitAfterCommit(PendingOrder order) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof AfterCommitSubmit submit && submit.ledger() == this) {
+                submit.orders().add(order);
+                return;
+            }
+        }
+        List<PendingOrder> orders = new ArrayList<>();
+        orders.add(order);
+        TransactionSynchronizationManager.registerSynchronization(new AfterCommitSubmit(this, orders));
+    }
+
+    private void submit(List<PendingOrder> orders) {
+        int queued = 0;
+        try {
+            while (!closed && queued < orders.size()) {
+                queue.put(orders.get(queued));
+                queued++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (queued < orders.size()) {
+            // The writer is gone or this thread cannot wait for it; write the rest here
+            write(orders.subList(queued, orders.size()));
+        }
+        if (durability == LedgerDurability.BATCHED) {
+            for (PendingOrder order : orders) {
+                try {
+                    order.written.join();
+                } catch (CompletionException e) {
+                    // The purchase has committed; a failed entry is counted and must not fail the purchase
+                }
+            }
+        }
+    }
+
+    private void writeQueued() {
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Closing interrupts a writer that outlived the timeout; write what was taken and stop
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                return;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void fillBatch(List<PendingOrder> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxBatchDelayNanos;
+        while (batch.size() < batchSize) {
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            PendingOrder next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private synchronized void write(List<PendingOrder> batch) {
+        long start = System.nanoTime();
+        try {
+            writeInTransaction(batch);
+        } catch (RuntimeException | SQLException e) {
+            writeOneByOne(batch);
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        writtenOrders.add(batch.size());
+        writtenBatches.increment();
+        batchedOrders.add(batch.size());
+        maxBatchSize.accumulate(batch.size());
+        flushNanos.add(elapsed);
+        batch.forEach(order -> order.written.complete(null));
+    }
+
+    private void writeOneByOne(List<PendingOrder> batch) {
+        for (PendingOrder order : batch) {
+            try {
+                writeInTransaction(List.of(order));
+                writtenOrders.increment();
+                order.written.complete(null);
+            } catch (RuntimeException | SQLException e) {
+                failedOrders.increment();
+                order.written.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void writeInTransaction(List<PendingOrder> orders) throws SQLException {
+        if (writerConnection == null) {
+            writerConnection = dataSource.getConnection();
+        }
+        try (Session session = sessionFactory.withOptions().connection(writerConnection).openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                orders.forEach(order -> persist(session, order));
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                if (!writerConnection.isValid(1)) {
+                    // The database dropped the connection; the next write takes a fresh one
+                    closeWriterConnection();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void closeWriterConnection() {
+        if (writerConnection == null) {
+            return;
+        }
+        try {
+            writerConnection.close();
+        } catch (SQLException e) {
+            // A broken connection may fail to close; the pool evicts it either way
+        }
+        writerConnection = null;
+    }
+
+    private static void persist(EntityManager entityManager, PendingOrder pending) {
+        PurchaseOrder order = new PurchaseOrder(null, pending.customerId, pending.totalPrice, pending.loyaltyPoints,
+                pending.lines.size(), pending.createdAt);
+        entityManager.persist(order);
+        for (int i = 0; i < pending.lines.size(); i++) {
+            Line line = pending.lines.get(i);
+            entityManager.persist(new PurchaseOrderLine(null, order.getId(), i, line.bookId, line.title, line.type,
+                    line.basePrice, 1, line.free));
+        }
+    }
+
+    /**
+     * Stop the writer when the application context closes, after it has written the queued entries
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join(CLOSE_TIMEOUT.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.interrupt();
+        synchronized (this) {
+            closeWriterConnection();
+        }
+    }
+
+    /**
+     * Ledger entry of a bulk purchase being recorded
+     */
+    public final class BulkEntry {
+
+        private final Long orderId;
+
+        private int lineNumber;
+
+        private BulkEntry(Long orderId) {
+            this.orderId = orderId;
+        }
+
+        /**
+         * Add the next purchased line of the order
+         *
+         * @param book     The book of the line, as it was when purchased
+         * @param quantity Units of the book on the line
+         * @param free     Whether one unit of the line is the customer's free book
+         */
+        public void add(Book book, int quantity, boolean free) {
+            entityManager.persist(new PurchaseOrderLine(null, orderId, lineNumber++, book.getId(), book.getTitle(),
+                    book.getType(), book.getBasePrice(), quantity, free));
+            if (lineNumber % batchSize == 0) {
+                // Written as one JDBC batch; the persistence context only ever holds one batch of lines
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+
+    /**
+     * Queues the entries recorded in a transaction once it has committed
+     */
+    private record AfterCommitSubmit(PurchaseLedger ledger, List<PendingOrder> orders)
+            implements TransactionSynchronization {
+
+        @Override
+        public void afterCommit() {
+            ledger.submit(orders);
+        }
+    }
+
+    /**
+     * Snapshot of a purchase, taken when it is recorded so later changes to its books are not written
+     */
+    private record PendingOrder(Long customerId, BigDecimal totalPrice, int loyaltyPoints, Instant createdAt,
+                                List<Line> lines, CompletableFuture<Void> written) {
+
+        static PendingOrder of(Long customerId, PurchaseResponse response, Instant createdAt) {
+            List<Book> books = response.getBooks() == null ? List.of() : response.getBooks();
+            // Free books are the cart's own book objects; each one marks a single line
+            Map<Book, Integer> freeCounts = new IdentityHashMap<>();
+            if (response.getFreeBooks() != null) {
+                response.getFreeBooks().forEach(book -> freeCounts.merge(book, 1, Integer::sum));
+            }
+            List<Line> lines = new ArrayList<>(books.size());
+            for (Book book : books) {
+                Integer freeLeft = freeCounts.get(book);
+                boolean free = freeLeft != null;
+                if (free && freeLeft == 1) {
+                    freeCounts.remove(book);
+                } else if (free) {
+                    freeCounts.put(book, freeLeft - 1);
+                }
+                lines.add(new Line(book.getId(), book.getTitle(), book.getType(), book.getBasePrice(), free));
+            }
+            return new PendingOrder(customerId, response.getTotalPrice(), response.getLoyaltyPointsEarned(),
+                    createdAt, lines, new CompletableFuture<>());
+        }
+    }
+
+    private record Line(Long bookId, String title, BookType type, BigDecimal basePrice, boolean free) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.bookstore.service.lock;
+
+import com.bookstore.dto.LockStatsResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of locks that serializes work per customer inside this JVM
+ * Each customer maps to one stripe, so work for the same customer runs one at a time while work for customers on
+ * different stripes runs in parallel; two customers sharing a stripe only wait for each other. Memory stays bounded
+ * whatever the number of customers.
+ * <p>
+ * The locks only order requests handled by this node. With several nodes, a router that sends all requests of a
+ * customer to the same node keeps the same guarantee; the atomic loyalty updates in the database stay correct
+ * if a customer's requests ever reach two nodes.
+ */
+public class CustomerLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param stripes Number of locks, rounded up to a power of two
+     */
+    public CustomerLocks(int stripes) {
+        if (stripes < 1 || stripes > 1 << 20) {
+            throw new IllegalArgumentException("Customer lock stripes must be between 1 and 1048576");
+        }
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Run an action while holding the lock of a customer
+     *
+     * @param customerId The customer
+     * @param action     The action, which should include committing its transaction
+     * @return The result of the action
+     */
+    public <T> T withLock(Long customerId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripe(customerId)];
+        acquire(lock);
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the contention counters
+     *
+     * @return The stripe count, acquisition and contention counts, wait times and threads currently waiting
+     */
+    public LockStatsResponse stats() {
+        long count = acquisitions.sum();
+        long contended = contendedAcquisitions.sum();
+        int waiting = 0;
+        for (ReentrantLock lock : stripes) {
+            waiting += lock.getQueueLength();
+        }
+        return new LockStatsResponse(stripes.length, count, contended, count == 0 ? 0.0 : (double) contended / count,
+                TimeUnit.NANOSECONDS.toMicros(waitNanos.sum()), TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()),
+                waiting);
+    }
+
+    int stripe(Long customerId) {
+        long hash = customerId == null ? 0 : customerId;
+        // Mix every bit into the low ones so IDs sharing low bits still use every stripe
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return (int) (hash ^ (hash >>> 33)) & mask;
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    private void acquire(ReentrantLock lock) {
+        acquisitions.increment();
+        if (lock.tryLock()) {
+            return;
+        }
+        contendedAcquisitions.increment();
+        long start = System.nanoTime();
+        lock.lock();
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+    }
+}
@@ -0,0 +1,190 @@
+package com.bookstore.service.pricing;
+
+import org.springframework.stereotype.Service;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.dto.CartQuote;
+import com.bookstore.dto.PricingRequest;
+import com.bookstore.model.Book;
+import com.bookstore.model.Customer;
+import com.bookstore.service.BookService;
+import com.bookstore.service.CustomerService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for pricing many carts in one call
+ * Every distinct book and customer of the batch is loaded once, then the carts are priced in slices on a bounded
+ * pool of threads shared by all batch requests. When the pool's queue is full the request thread prices the slice
+ * itself, which throttles callers instead of queueing without bound.
+ */
+@Service
+public class BatchPricingService implements AutoCloseable {
+
+    private final BookService bookService;
+    private final CustomerService customerService;
+    private final PricingService pricingService;
+
+    private final int maxCarts;
+    private final int cartsPerTask;
+    private final ThreadPoolExecutor executor;
+
+    public BatchPricingService(BookService bookService, CustomerService customerService, PricingService pricingService,
+                               BookstoreProperties properties) {
+        this.bookService = bookService;
+        this.customerService = customerService;
+        this.pricingService = pricingService;
+        BookstoreProperties.BatchPricingSettings settings = properties.getBatchPricing();
+        this.maxCarts = settings.getMaxCarts();
+        this.cartsPerTask = Math.max(1, settings.getCartsPerTask());
+        int parallelism = Math.max(1, settings.getParallelism());
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity())),
+                Thread.ofPlatform().name("batch-pricing-", 1).daemon(true).factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Price every cart of a batch
+     *
+     * @param carts The carts, each with a customer ID and book IDs
+     * @return One quote per cart, in request order; a cart that cannot be priced gets a status and a message
+     * instead of failing the whole batch
+     * @throws IllegalArgumentException if the batch holds more carts than allowed
+     */
+    public List<CartQuote> priceCarts(List<PricingRequest> carts) {
+        if (carts == null || carts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (carts.size() > maxCarts) {
+            throw new IllegalArgumentException("A batch can hold at most " + maxCarts + " carts, got " + carts.size());
+        }
+
+        Set<Long> bookIds = new HashSet<>();
+        Set<Long> customerIds = new HashSet<>();
+        for (PricingRequest cart : carts) {
+            if (cart == null) {
+                continue;
+            }
+            if (cart.getCustomerId() != null) {
+                customerIds.add(cart.getCustomerId());
+            }
+            if (cart.getBookIds() != null) {
+                for (Long bookId : cart.getBookIds()) {
+                    if (bookId != null) {
+                        bookIds.add(bookId);
+                    }
+                }
+            }
+        }
+        Map<Long, Book> booksById = bookService.findBooksByIds(bookIds);
+        Map<Long, Customer> customersById = customerService.getCustomersByIds(customerIds);
+
+        CartQuote[] quotes = new CartQuote[carts.size()];
+        int slices = Math.min(executor.getMaximumPoolSize(), Math.ceilDiv(carts.size(), cartsPerTask));
+        int sliceSize = Math.ceilDiv(carts.size(), slices);
+        List<Future<?>> futures = new ArrayList<>(slices - 1);
+        // The request thread prices the first slice while the pool prices the others
+        for (int start = sliceSize; start < carts.size(); start += sliceSize) {
+            int from = start;
+            int to = Math.min(start + sliceSize, carts.size());
+            futures.add(executor.submit(() -> priceSlice(carts, from, to, booksById, customersById, quotes)));
+        }
+        priceSlice(carts, 0, Math.min(sliceSize, carts.size()), booksById, customersById, quotes);
+        for (Future<?> future : futures) {
+            await(future);
+        }
+        return Arrays.asList(quotes);
+    }
+
+    private void priceSlice(List<PricingRequest> carts, int from, int to, Map<Long, Book> booksById,
+                            Map<Long, Customer> customersById, CartQuote[] quotes) {
+        for (int i = from; i < to; i++) {
+            quotes[i] = priceCart(i, carts.get(i), booksById, customersById);
+        }
+    }
+
+    private CartQuote priceCart(int index, PricingRequest cart, Map<Long, Book> booksById,
+                                Map<Long, Customer> customersById) {
+        if (cart == null || cart.getCustomerId() == null) {
+            return failure(index, CartQuote.Status.INVALID_REQUEST, "customerId is required");
+        }
+        Customer customer = customersById.get(cart.getCustomerId());
+        if (customer == null) {
+            return failure(index, CartQuote.Status.CUSTOMER_NOT_FOUND, "Customer not found");
+        }
+
+        List<Long> bookIds = cart.getBookIds() == null ? List.of() : cart.getBookIds();
+        List<Book> books = new ArrayList<>(bookIds.size());
+        Set<Long> missingIds = null;
+        for (Long bookId : bookIds) {
+            Book book = bookId == null ? null : booksById.get(bookId);
+            if (book == null) {
+                if (missingIds == null) {
+                    missingIds = new LinkedHashSet<>();
+                }
+                missingIds.add(bookId);
+            } else {
+                books.add(book);
+            }
+        }
+        if (missingIds != null) {
+            return failure(index, CartQuote.Status.BOOKS_NOT_FOUND, "Books not found: " + missingIds);
+        }
+
+        try {
+            List<Book> freeBooks = new ArrayList<>(1);
+            CartQuote quote = new CartQuote();
+            quote.setIndex(index);
+            quote.setStatus(CartQuote.Status.OK);
+            quote.setTotalPrice(pricingService.calculatePrice(books, customer.getLoyaltyPoints(), freeBooks));
+            quote.setFreeBooks(freeBooks);
+            quote.setBooks(books);
+            return quote;
+        } catch (RuntimeException e) {
+            return failure(index, CartQuote.Status.ERROR, e.getMessage());
+        }
+    }
+
+    private static CartQuote failure(int index, CartQuote.Status status, String message) {
+        CartQuote quote = new CartQuote();
+        quote.setIndex(index);
+        quote.setStatus(status);
+        quote.setMessage(message);
+        return quote;
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while pricing a batch", e);
+        } catch (ExecutionException e) {
+            // priceCart turns pricing failures into quotes, so only errors reach this point
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Batch pricing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Stop the pricing threads when the application context closes
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,150 @@
+package com.bookstore.service.pricing;
+
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.service.BookChangeListener;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory side table with the two possible prices of every book, standalone and in a bundle, in cents
+ * Vectors are computed when a book is written, so pricing a cart is a lookup and an addition per line item.
+ * A vector is only served while it matches the base price and type of the book being priced and was computed with
+ * the version of the pricing rules the caller prices with; anything else is a miss and the caller prices the book
+ * through its strategy.
+ */
+public class BookPriceTable implements BookChangeListener {
+
+    /**
+     * Returned by {@link #priceCents(Book, boolean, long)} when the table has no usable vector for the book
+     */
+    public static final long MISSING = Long.MIN_VALUE;
+
+    /**
+     * Books per task when the table is rebuilt on the common fork-join pool
+     */
+    private static final long REBUILD_PARALLELISM_THRESHOLD = 4096;
+
+    private final PricingStrategyFactory pricingStrategyFactory;
+
+    private final ConcurrentHashMap<Long, PriceVector> vectors = new ConcurrentHashMap<>();
+
+    private final Set<Long> deletedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean loading;
+
+    public BookPriceTable(PricingStrategyFactory pricingStrategyFactory) {
+        this.pricingStrategyFactory = pricingStrategyFactory;
+    }
+
+    /**
+     * Look up the price of a book
+     *
+     * @param book         The book to price
+     * @param bundle       Whether the book is part of a bundle
+     * @param rulesVersion The version of the pricing rules the caller prices with
+     * @return The price in cents, or {@link #MISSING} if the table has no vector matching the book and rules
+     */
+    public long priceCents(Book book, boolean bundle, long rulesVersion) {
+        PriceVector vector = book.getId() == null ? null : vectors.get(book.getId());
+        if (vector == null || !vector.matches(book, rulesVersion)) {
+            return MISSING;
+        }
+        return bundle ? vector.bundleCents() : vector.standaloneCents();
+    }
+
+    @Override
+    public void bookSaved(Book book) {
+        PriceVector vector = compute(book.getBasePrice(), book.getType(), pricingStrategyFactory.getRules());
+        if (vector == null) {
+            vectors.remove(book.getId());
+        } else {
+            vectors.put(book.getId(), vector);
+        }
+    }
+
+    @Override
+    public void bookDeleted(Long id) {
+        if (loading) {
+            deletedWhileLoading.add(id);
+        }
+        vectors.remove(id);
+    }
+
+    /**
+     * Fill the table from the catalog
+     * Books written through {@link #bookSaved(Book)} while the load is running take precedence over the rows it reads
+     *
+     * @param source Pushes every book of the catalog to the given consumer
+     */
+    public void load(Consumer<Consumer<Book>> source) {
+        loading = true;
+        try {
+            PricingRules rules = pricingStrategyFactory.getRules();
+            source.accept(book -> {
+                if (!deletedWhileLoading.contains(book.getId())) {
+                    PriceVector vector = compute(book.getBasePrice(), book.getType(), rules);
+                    if (vector != null) {
+                        vectors.putIfAbsent(book.getId(), vector);
+                    }
+                }
+            });
+        } finally {
+            loading = false;
+            deletedWhileLoading.clear();
+        }
+    }
+
+    /**
+     * Recompute every vector with the current pricing rules, in parallel
+     * Lookups with the new rules miss until each vector has been recomputed, so no price computed with the previous
+     * rules is served.
+     */
+    public synchronized void rebuild() {
+        PricingRules rules = pricingStrategyFactory.getRules();
+        vectors.forEach(REBUILD_PARALLELISM_THRESHOLD, (id, vector) -> vectors.computeIfPresent(id, (key, current) -> {
+            if (current.rulesVersion() >= rules.getVersion()) {
+                // Already recomputed, or written by bookSaved with the same or newer rules
+                return current;
+            }
+            return compute(current.basePrice(), current.type(), rules);
+        }));
+    }
+
+    /**
+     * Number of books with a vector
+     */
+    public int size() {
+        return vectors.size();
+    }
+
+    private PriceVector compute(BigDecimal basePrice, BookType type, PricingRules rules) {
+        if (basePrice == null || type == null) {
+            return null;
+        }
+        try {
+            long basePriceCents = Cents.toCents(basePrice);
+            PricingStrategy strategy = rules.getStrategy(type);
+            return new PriceVector(basePrice, type, strategy.calculatePriceCents(basePriceCents, false),
+                    strategy.calculatePriceCents(basePriceCents, true), rules.getVersion());
+        } catch (ArithmeticException e) {
+            // More than two decimals or out of range; such books are priced through their strategy
+            return null;
+        }
+    }
+
+    /**
+     * The prices of one book and the inputs they were computed from
+     */
+    record PriceVector(BigDecimal basePrice, BookType type, long standaloneCents, long bundleCents, long rulesVersion) {
+
+        boolean matches(Book book, long expectedRulesVersion) {
+            return rulesVersion == expectedRulesVersion
+                    && type == book.getType()
+                    && (basePrice == book.getBasePrice() || basePrice.compareTo(book.getBasePrice()) == 0);
+        }
+    }
+}
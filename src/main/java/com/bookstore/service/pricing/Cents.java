@@ -0,0 +1,85 @@
+package com.bookstore.service.pricing;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point helpers for prices held as a {@code long} number of cents
+ * Conversions to and from {@link BigDecimal} are only meant for the API edge
+ */
+public final class Cents {
+
+    private Cents() {
+    }
+
+    /**
+     * Convert an amount with at most two decimals to cents
+     *
+     * @param amount The amount
+     * @return The amount in cents
+     * @throws ArithmeticException if the amount has more than two significant decimals
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    /**
+     * Check whether an amount converts to cents, without the exception {@link #toCents(BigDecimal)} throws
+     *
+     * @param amount The amount
+     * @return True if the amount has at most two significant decimals and is below 10^16 in magnitude
+     */
+    public static boolean fitsCents(BigDecimal amount) {
+        BigDecimal normalized = amount.scale() <= 2 ? amount : amount.stripTrailingZeros();
+        return normalized.scale() <= 2 && normalized.precision() - normalized.scale() <= 16;
+    }
+
+    /**
+     * Convert cents to an amount with a scale of 2
+     *
+     * @param cents The amount in cents
+     * @return The amount
+     */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * A decimal factor held as an exact fraction, applied to cents with HALF_UP rounding
+     * Gives the same result as {@code amount.multiply(factor).setScale(2, RoundingMode.HALF_UP)}
+     *
+     * @param numerator   The unscaled value of the factor
+     * @param denominator Ten to the power of the factor's scale
+     */
+    public record Factor(long numerator, long denominator) {
+
+        public static Factor of(BigDecimal factor) {
+            BigDecimal normalized = factor.scale() < 0 ? factor.setScale(0) : factor;
+            return new Factor(normalized.unscaledValue().longValueExact(),
+                    BigDecimal.ONE.movePointRight(normalized.scale()).longValueExact());
+        }
+
+        /**
+         * Multiply by another factor without rounding in between
+         */
+        public Factor times(Factor other) {
+            return new Factor(Math.multiplyExact(numerator, other.numerator),
+                    Math.multiplyExact(denominator, other.denominator));
+        }
+
+        /**
+         * Apply the factor to an amount in cents, rounding half away from zero
+         *
+         * @param cents The amount in cents
+         * @return The discounted amount in cents
+         */
+        public long applyHalfUp(long cents) {
+            long product = Math.multiplyExact(cents, numerator);
+            long quotient = product / denominator;
+            long remainder = product % denominator;
+            if (Math.abs(remainder) * 2 >= denominator) {
+                quotient += Long.signum(product);
+            }
+            return quotient;
+        }
+    }
+}
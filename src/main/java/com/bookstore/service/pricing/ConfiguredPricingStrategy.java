@@ -0,0 +1,72 @@
+package com.bookstore.service.pricing;
+
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Pricing strategy driven by two discount factors
+ * The price is the base price times the factor, times the bundle factor as well when bought in a bundle,
+ * rounded once to 2 decimal places
+ */
+public class ConfiguredPricingStrategy implements PricingStrategy {
+
+    private final BookType type;
+    private final BigDecimal factor;
+    private final BigDecimal bundleFactor;
+
+    private final Cents.Factor standaloneCents;
+    private final Cents.Factor bundleCents;
+
+    public ConfiguredPricingStrategy(BookType type, BigDecimal factor, BigDecimal bundleFactor) {
+        if (type == null) {
+            throw new IllegalArgumentException("Book type is required");
+        }
+        if (factor == null || factor.signum() < 0 || bundleFactor == null || bundleFactor.signum() < 0) {
+            throw new IllegalArgumentException("Discount factors of " + type + " must be zero or positive");
+        }
+        this.type = type;
+        this.factor = factor;
+        this.bundleFactor = bundleFactor;
+        try {
+            this.standaloneCents = Cents.Factor.of(factor);
+            this.bundleCents = standaloneCents.times(Cents.Factor.of(bundleFactor));
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Discount factors of " + type + " have too many decimals", e);
+        }
+    }
+
+    @Override
+    public BigDecimal calculatePrice(Book book, boolean isBundle) {
+        BigDecimal price = book.getBasePrice();
+        if (factor.compareTo(BigDecimal.ONE) != 0) {
+            price = price.multiply(factor);
+        }
+        if (isBundle && bundleFactor.compareTo(BigDecimal.ONE) != 0) {
+            price = price.multiply(bundleFactor);
+        }
+
+        // Round to 2 decimal places
+        return price.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public long calculatePriceCents(long basePriceCents, boolean isBundle) {
+        return (isBundle ? bundleCents : standaloneCents).applyHalfUp(basePriceCents);
+    }
+
+    @Override
+    public BookType getType() {
+        return type;
+    }
+
+    public BigDecimal getFactor() {
+        return factor;
+    }
+
+    public BigDecimal getBundleFactor() {
+        return bundleFactor;
+    }
+}
@@ -12,15 +12,16 @@ import java.math.BigDecimal;
  * Price is always 100% of the base price
  */
 @Component
-public class NewReleasePricingStrategy implements PricingStrategy {
-    @Override
-    public BigDecimal calculatePrice(Book book, boolean isBundle) {
+public class NewReleasePricingStrategy extends ConfiguredPricingStrategy {
+
+    public NewReleasePricingStrategy() {
         // New releases are always full price
-        return book.getBasePrice();
+        super(BookType.NEW_RELEASE, BigDecimal.ONE, BigDecimal.ONE);
     }
 
     @Override
-    public BookType getType() {
-        return BookType.NEW_RELEASE;
+    public BigDecimal calculatePrice(Book book, boolean isBundle) {
+        // The base price as stored, without the rounding of configured factors
+        return book.getBasePrice();
     }
 }
@@ -0,0 +1,15 @@
+package com.bookstore.service.pricing;
+
+import com.bookstore.model.Book;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The priced outcome of a cart: what the customer pays and which of its books are free
+ *
+ * @param totalPrice The total price
+ * @param freeBooks  The books of the cart redeemed with loyalty points
+ */
+public record PriceQuote(BigDecimal totalPrice, List<Book> freeBooks) {
+}
@@ -0,0 +1,16 @@
+package com.bookstore.service.pricing;
+
+/**
+ * Arithmetic used by {@link PricingService} to total a cart
+ */
+public enum PricingEngine {
+    /**
+     * BigDecimal arithmetic for every line item
+     */
+    DECIMAL,
+    /**
+     * long arithmetic on cents, converting from and to BigDecimal only at the API edge
+     * Carts with a base price of more than two decimals, or a total beyond a long, fall back to {@link #DECIMAL}
+     */
+    FIXED_POINT
+}
@@ -0,0 +1,103 @@
+package com.bookstore.service.pricing;
+
+import com.bookstore.model.BookType;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Immutable table of the pricing rules in force: the strategy and bundle threshold of every book type,
+ * indexed by the type's ordinal
+ * A new table with a higher version replaces the whole table when the rules change, so a reader that keeps a
+ * reference prices a whole cart with one consistent set of rules.
+ */
+public final class PricingRules {
+
+    /**
+     * Number of books in a cart from which bundle discounts apply, unless configured otherwise
+     */
+    public static final int DEFAULT_BUNDLE_THRESHOLD = 3;
+
+    private static final BookType[] TYPES = BookType.values();
+
+    private final long version;
+    private final PricingStrategy[] strategies;
+    private final int[] bundleThresholds;
+
+    private PricingRules(long version, PricingStrategy[] strategies, int[] bundleThresholds) {
+        this.version = version;
+        this.strategies = strategies;
+        this.bundleThresholds = bundleThresholds;
+    }
+
+    /**
+     * Compile a rule table
+     *
+     * @param version          The version of the table, higher than the one it replaces
+     * @param strategies       One strategy per book type
+     * @param bundleThresholds Bundle thresholds by type; types left out use {@value #DEFAULT_BUNDLE_THRESHOLD}
+     * @return The table
+     * @throws IllegalArgumentException if two strategies serve the same type or a threshold is below 1
+     */
+    public static PricingRules of(long version, Collection<? extends PricingStrategy> strategies,
+                                  Map<BookType, Integer> bundleThresholds) {
+        PricingStrategy[] byType = new PricingStrategy[TYPES.length];
+        for (PricingStrategy strategy : strategies) {
+            int index = strategy.getType().ordinal();
+            if (byType[index] != null) {
+                throw new IllegalArgumentException("More than one pricing strategy for " + strategy.getType());
+            }
+            byType[index] = strategy;
+        }
+        int[] thresholds = new int[TYPES.length];
+        Arrays.fill(thresholds, DEFAULT_BUNDLE_THRESHOLD);
+        bundleThresholds.forEach((type, threshold) -> {
+            if (threshold == null || threshold < 1) {
+                throw new IllegalArgumentException("Bundle threshold of " + type + " must be at least 1");
+            }
+            thresholds[type.ordinal()] = threshold;
+        });
+        return new PricingRules(version, byType, thresholds);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the pricing strategy for a book type
+     *
+     * @param bookType The type of book
+     * @return The strategy
+     * @throws IllegalArgumentException if no strategy serves the type
+     */
+    public PricingStrategy getStrategy(BookType bookType) {
+        PricingStrategy strategy = bookType == null ? null : strategies[bookType.ordinal()];
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown book type: " + bookType);
+        }
+        return strategy;
+    }
+
+    /**
+     * Check whether a strategy serves a book type
+     */
+    public boolean hasStrategy(BookType bookType) {
+        return bookType != null && strategies[bookType.ordinal()] != null;
+    }
+
+    /**
+     * Get the number of books a cart needs for a book of this type to get its bundle discount
+     *
+     * @param bookType The type of book
+     * @return The bundle threshold
+     * @throws IllegalArgumentException if the type is null
+     */
+    public int getBundleThreshold(BookType bookType) {
+        if (bookType == null) {
+            throw new IllegalArgumentException("Unknown book type: null");
+        }
+        return bundleThresholds[bookType.ordinal()];
+    }
+}
@@ -0,0 +1,150 @@
+package com.bookstore.service.pricing;
+
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.dto.PricingRule;
+import com.bookstore.dto.PricingRulesResponse;
+import com.bookstore.model.BookType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service for reading and changing the pricing rules while the application runs
+ * A change compiles a new rule table, swaps it into the {@link PricingStrategyFactory}, then brings the derived
+ * price table up to date; carts being priced while this happens finish with the rules they started with.
+ */
+@Service
+public class PricingRulesService {
+
+    private final PricingStrategyFactory pricingStrategyFactory;
+
+    /**
+     * Optional table of precomputed book prices, null when disabled
+     */
+    private final BookPriceTable priceTable;
+
+    public PricingRulesService(PricingStrategyFactory pricingStrategyFactory, @Nullable BookPriceTable priceTable) {
+        this.pricingStrategyFactory = pricingStrategyFactory;
+        this.priceTable = priceTable;
+    }
+
+    /**
+     * Compile the rules the application starts with, as version 1: the given strategies with the configured
+     * rules applied on top
+     *
+     * @param strategies The default strategy of every book type
+     * @param properties The application settings holding the configured rules
+     * @return The rule table the {@link PricingStrategyFactory} starts with
+     * @throws IllegalArgumentException if a configured rule is invalid
+     */
+    public static PricingRules initialRules(Collection<? extends PricingStrategy> strategies,
+                                            BookstoreProperties properties) {
+        PricingRules defaults = PricingRules.of(1, strategies, Map.of());
+        List<PricingRule> configured = new ArrayList<>();
+        properties.getPricing().getRules().forEach((type, settings) -> configured.add(new PricingRule(type,
+                settings.getFactor(), settings.getBundleFactor(), settings.getBundleThreshold())));
+        if (configured.isEmpty()) {
+            return defaults;
+        }
+        Changed changed = apply(defaults, configured);
+        return PricingRules.of(1, changed.strategies().values(), changed.thresholds());
+    }
+
+    /**
+     * Get the rules in force
+     *
+     * @return The rule version and the rule of every book type; factors are null for strategies that are not
+     * driven by factors
+     */
+    public PricingRulesResponse getRules() {
+        return toResponse(pricingStrategyFactory.getRules());
+    }
+
+    /**
+     * Change the rules of some book types, keeping the others
+     *
+     * @param changes The new rules; null fields keep their current value
+     * @return The rules in force after the change
+     * @throws IllegalArgumentException if a rule has no type, a type is listed twice, or a value is invalid; the
+     *                                  current rules are then kept
+     */
+    public synchronized PricingRulesResponse updateRules(List<PricingRule> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("At least one pricing rule is required");
+        }
+        Changed changed = apply(pricingStrategyFactory.getRules(), changes);
+        PricingRules updated = pricingStrategyFactory.replaceRules(changed.strategies().values(), changed.thresholds());
+        if (priceTable != null) {
+            priceTable.rebuild();
+        }
+        return toResponse(updated);
+    }
+
+    /**
+     * Apply rule changes to a rule table, keeping the rules of the types they do not mention
+     */
+    private static Changed apply(PricingRules current, List<PricingRule> changes) {
+        Map<BookType, PricingStrategy> strategies = new EnumMap<>(BookType.class);
+        Map<BookType, Integer> thresholds = new EnumMap<>(BookType.class);
+        for (BookType type : BookType.values()) {
+            if (current.hasStrategy(type)) {
+                strategies.put(type, current.getStrategy(type));
+            }
+            thresholds.put(type, current.getBundleThreshold(type));
+        }
+
+        Map<BookType, PricingRule> changesByType = new EnumMap<>(BookType.class);
+        for (PricingRule change : changes) {
+            if (change == null || change.getType() == null) {
+                throw new IllegalArgumentException("Pricing rule type is required");
+            }
+            if (changesByType.put(change.getType(), change) != null) {
+                throw new IllegalArgumentException("More than one pricing rule for " + change.getType());
+            }
+            if (change.getFactor() != null || change.getBundleFactor() != null) {
+                strategies.put(change.getType(), configure(strategies.get(change.getType()), change));
+            }
+            if (change.getBundleThreshold() != null) {
+                thresholds.put(change.getType(), change.getBundleThreshold());
+            }
+        }
+        return new Changed(strategies, thresholds);
+    }
+
+    private static PricingStrategy configure(PricingStrategy current, PricingRule change) {
+        BigDecimal factor = BigDecimal.ONE;
+        BigDecimal bundleFactor = BigDecimal.ONE;
+        if (current instanceof ConfiguredPricingStrategy configured) {
+            factor = configured.getFactor();
+            bundleFactor = configured.getBundleFactor();
+        }
+        return new ConfiguredPricingStrategy(change.getType(),
+                change.getFactor() != null ? change.getFactor() : factor,
+                change.getBundleFactor() != null ? change.getBundleFactor() : bundleFactor);
+    }
+
+    private static PricingRulesResponse toResponse(PricingRules rules) {
+        List<PricingRule> result = new ArrayList<>();
+        for (BookType type : BookType.values()) {
+            PricingRule rule = new PricingRule();
+            rule.setType(type);
+            rule.setBundleThreshold(rules.getBundleThreshold(type));
+            if (rules.hasStrategy(type) && rules.getStrategy(type) instanceof ConfiguredPricingStrategy configured) {
+                rule.setFactor(configured.getFactor());
+                rule.setBundleFactor(configured.getBundleFactor());
+            }
+            result.add(rule);
+        }
+        return new PricingRulesResponse(rules.getVersion(), result);
+    }
+
+    private record Changed(Map<BookType, PricingStrategy> strategies, Map<BookType, Integer> thresholds) {
+    }
+}
@@ -1,31 +1,50 @@
 package com.bookstore.service.pricing;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import com.bookstore.config.BookstoreProperties;
 import com.bookstore.model.Book;
 import com.bookstore.service.LoyaltyService;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
-
-import lombok.RequiredArgsConstructor;
 
 /**
  * Service for calculating book prices
  */
 @Service
-@RequiredArgsConstructor
 public class PricingService {
 
     private final PricingStrategyFactory pricingStrategyFactory;
 
     private final LoyaltyService loyaltyService;
 
+    private final PricingEngine engine;
+
+    /**
+     * Optional table of precomputed book prices used by the fixed-point engine, null when disabled
+     */
+    private final BookPriceTable priceTable;
+
+    @Autowired
+    public PricingService(PricingStrategyFactory pricingStrategyFactory, LoyaltyService loyaltyService,
+                          BookstoreProperties properties, @Nullable BookPriceTable priceTable) {
+        this.pricingStrategyFactory = pricingStrategyFactory;
+        this.loyaltyService = loyaltyService;
+        this.engine = properties.getPricing().getEngine();
+        this.priceTable = priceTable;
+    }
+
     /**
      * Calculate the total price for a list of books, applying loyalty points if applicable
+     * The cheapest eligible book is free when the customer has enough points; on equal prices the first one in
+     * the cart is chosen. Books that would be priced before it, cheapest first, count the whole cart towards the
+     * bundle threshold of their type, all others only the paid books. Runs in two linear passes over the cart
+     * without sorting it, with the rules in force when it starts: the first finds the free book, which decides
+     * the bundle pricing of the others, and whether every price is a whole number of cents.
      *
      * @param books         The books to calculate the price for
      * @param loyaltyPoints The customer's loyalty points
@@ -33,34 +52,132 @@ public class PricingService {
      * @return The total price
      */
     public BigDecimal calculatePrice(List<Book> books, int loyaltyPoints, List<Book> freeBooksOut) {
-        AtomicReference<BigDecimal> total = new AtomicReference<>(BigDecimal.ZERO);
-
-        // First, identify all free books
-        books.stream()
-                .sorted((a, b) -> (loyaltyService.isEligibleForFreeRedemption(a) ? 1 : 0) - (loyaltyService.isEligibleForFreeRedemption(b) ? 1 : 0))
-                .sorted(Comparator.comparing(Book::getBasePrice))
-                .forEach(book -> {
-                    if (isFreeBook(loyaltyPoints, freeBooksOut, book)) {
-                        // Add the book to the free books list
-                        freeBooksOut.add(book);
-                    } else {
-                        boolean bundle = freeBooksOut.isEmpty() ? books.size() >= 3 : books.size() >= 4;
-                        total.set(total.get().add(calculateBookPrice(book, bundle)));
-                    }
-                });
-
-        return total.get().setScale(2, RoundingMode.HALF_UP);
+        PricingRules rules = pricingStrategyFactory.getRules();
+        CartScan scan = scan(books, loyaltyPoints);
+        Book freeBook = scan.freeIndex() < 0 ? null : books.get(scan.freeIndex());
+
+        BigDecimal total = total(rules, books, scan, freeBook);
+
+        if (freeBook != null) {
+            freeBooksOut.add(freeBook);
+        }
+        return total;
     }
 
-    private boolean isFreeBook(int loyaltyPoints, List<Book> freeBooksOut, Book book) {
-        return freeBooksOut.isEmpty() && loyaltyService.hasEnoughPointsForFreeBook(loyaltyPoints) && loyaltyService.isEligibleForFreeRedemption(book);
+    private BigDecimal total(PricingRules rules, List<Book> books, CartScan scan, Book freeBook) {
+        // Prices with more than two decimals take the BigDecimal path, which has no such limit
+        if (engine == PricingEngine.FIXED_POINT && scan.wholeCents()) {
+            try {
+                return Cents.toDecimal(totalCents(rules, books, scan.freeIndex(), freeBook));
+            } catch (ArithmeticException e) {
+                // A total beyond a long
+            }
+        }
+        return totalDecimal(rules, books, scan.freeIndex(), freeBook).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Calculate the total price in cents, with the same rules and rounding as
+     * {@link #calculatePrice(List, int, List)}
+     *
+     * @param books         The books to calculate the price for, with base prices of at most two decimals
+     * @param loyaltyPoints The customer's loyalty points
+     * @param freeBooksOut  List to store the free books
+     * @return The total price in cents
+     * @throws ArithmeticException if a base price has more than two decimals or the total overflows
+     */
+    public long calculatePriceCents(List<Book> books, int loyaltyPoints, List<Book> freeBooksOut) {
+        int freeIndex = scan(books, loyaltyPoints).freeIndex();
+        Book freeBook = freeIndex < 0 ? null : books.get(freeIndex);
+        long total = totalCents(pricingStrategyFactory.getRules(), books, freeIndex, freeBook);
+        if (freeBook != null) {
+            freeBooksOut.add(freeBook);
+        }
+        return total;
+    }
+
+    /**
+     * Find the cheapest book eligible for free redemption, the first one on equal prices, and check whether every
+     * base price converts to cents
+     */
+    private CartScan scan(List<Book> books, int loyaltyPoints) {
+        boolean redeem = loyaltyService.hasEnoughPointsForFreeBook(loyaltyPoints);
+        boolean wholeCents = true;
+        int freeIndex = -1;
+        BigDecimal freePrice = null;
+        int index = 0;
+        for (Book book : books) {
+            BigDecimal price = book.getBasePrice();
+            wholeCents = wholeCents && Cents.fitsCents(price);
+            if (redeem && loyaltyService.isEligibleForFreeRedemption(book)
+                    && (freePrice == null || price.compareTo(freePrice) < 0)) {
+                freeIndex = index;
+                freePrice = price;
+            }
+            index++;
+        }
+        return new CartScan(freeIndex, wholeCents);
+    }
+
+    private BigDecimal totalDecimal(PricingRules rules, List<Book> books, int freeIndex, Book freeBook) {
+        BigDecimal total = BigDecimal.ZERO;
+        int index = 0;
+        for (Book book : books) {
+            if (index++ != freeIndex) {
+                total = total.add(rules.getStrategy(book.getType())
+                        .calculatePrice(book, isBundle(rules, books.size(), freeBook, book)));
+            }
+        }
+        return total;
+    }
+
+    private long totalCents(PricingRules rules, List<Book> books, int freeIndex, Book freeBook) {
+        long total = 0;
+        int index = 0;
+        for (Book book : books) {
+            if (index++ != freeIndex) {
+                total = Math.addExact(total,
+                        calculateBookPriceCents(rules, book, isBundle(rules, books.size(), freeBook, book)));
+            }
+        }
+        return total;
+    }
+
+    private boolean isBundle(PricingRules rules, int cartSize, Book freeBook, Book book) {
+        int threshold = rules.getBundleThreshold(book.getType());
+        if (freeBook == null) {
+            return cartSize >= threshold;
+        }
+        // Only ineligible books can be priced before the free book: cheaper ones, and equal ones as they sort first on ties
+        boolean pricedBeforeFreeBook = book.getBasePrice().compareTo(freeBook.getBasePrice()) <= 0
+                && !loyaltyService.isEligibleForFreeRedemption(book);
+        return (pricedBeforeFreeBook ? cartSize : cartSize - 1) >= threshold;
+    }
+
+    /**
+     * Open a cart that is priced line by line as it is read, for carts too large to hold in memory
+     *
+     * @return The empty cart, priced with the rules in force now
+     */
+    public StreamedCart openStreamedCart() {
+        return new StreamedCart(pricingStrategyFactory.getRules(), loyaltyService);
+    }
+
+    /**
+     * Get the version of the pricing rules in force
+     * Read it before pricing a cart to tie the result to a version that is not newer than the rules it used
+     *
+     * @return The rules version
+     */
+    public long getRulesVersion() {
+        return pricingStrategyFactory.getRules().getVersion();
     }
 
     /**
      * Calculate the price of a single book
      *
      * @param book   The book to calculate the price for
-     * @param bundle Whether the book is part of a bundle of 3 or more
+     * @param bundle Whether the book is part of a bundle
      * @return The calculated price
      */
     public BigDecimal calculateBookPrice(Book book, boolean bundle) {
@@ -68,4 +185,33 @@ public class PricingService {
         return pricingStrategyFactory.getStrategy(book.getType())
                 .calculatePrice(book, bundle);
     }
+
+    /**
+     * Calculate the price of a single book in cents, from the price table when it has the book
+     *
+     * @param book   The book to calculate the price for
+     * @param bundle Whether the book is part of a bundle
+     * @return The calculated price in cents
+     */
+    public long calculateBookPriceCents(Book book, boolean bundle) {
+        return calculateBookPriceCents(pricingStrategyFactory.getRules(), book, bundle);
+    }
+
+    private long calculateBookPriceCents(PricingRules rules, Book book, boolean bundle) {
+        if (priceTable != null) {
+            long price = priceTable.priceCents(book, bundle, rules.getVersion());
+            if (price != BookPriceTable.MISSING) {
+                return price;
+            }
+        }
+        return rules.getStrategy(book.getType())
+                .calculatePriceCents(Cents.toCents(book.getBasePrice()), bundle);
+    }
+
+    /**
+     * @param freeIndex  The index of the free book in the cart, or -1 if no book is free
+     * @param wholeCents Whether every base price converts to cents
+     */
+    private record CartScan(int freeIndex, boolean wholeCents) {
+    }
 }
@@ -18,6 +18,15 @@ public interface PricingStrategy {
      */
     BigDecimal calculatePrice(Book book, boolean isBundle);
 
+    /**
+     * Calculate the price of a book held in cents, rounding exactly like {@link #calculatePrice(Book, boolean)}
+     *
+     * @param basePriceCents The base price of the book in cents
+     * @param isBundle       Whether the book is part of a bundle of 3 or more books
+     * @return The calculated price in cents
+     */
+    long calculatePriceCents(long basePriceCents, boolean isBundle);
+
     /**
      * Get the book type this strategy applies to
      *
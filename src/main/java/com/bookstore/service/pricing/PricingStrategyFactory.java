@@ -1,26 +1,31 @@
 package com.bookstore.service.pricing;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.bookstore.config.BookstoreProperties;
 import com.bookstore.model.BookType;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Factory for creating pricing strategies based on book type
+ * Strategies are served from an immutable {@link PricingRules} table that is swapped atomically when the rules
+ * change, so lookups take no lock.
  */
 @Component
 public class PricingStrategyFactory {
-    private final Map<BookType, PricingStrategy> pricingStrategiesByType;
-
-    public PricingStrategyFactory(List<PricingStrategy> strategies) {
-        this.pricingStrategiesByType = strategies.stream()
-                .collect(Collectors.toMap(
-                        PricingStrategy::getType,
-                        strategy -> strategy
-                ));
+    private final AtomicReference<PricingRules> rules;
+
+    /**
+     * Start with the given strategies changed by the configured rules, as the first version
+     */
+    @Autowired
+    public PricingStrategyFactory(List<PricingStrategy> strategies, BookstoreProperties properties) {
+        this.rules = new AtomicReference<>(PricingRulesService.initialRules(strategies, properties));
     }
 
     /**
@@ -30,10 +35,27 @@ public class PricingStrategyFactory {
      * @return The pricing strategy for the book type
      */
     public PricingStrategy getStrategy(BookType bookType) {
-        PricingStrategy strategy = pricingStrategiesByType.get(bookType);
-        if (strategy == null) {
-            throw new IllegalArgumentException("Unknown book type: " + bookType);
-        }
-        return strategy;
+        return rules.get().getStrategy(bookType);
+    }
+
+    /**
+     * Get the rule table in force; keep the reference to price a whole cart with the same rules
+     *
+     * @return The rule table
+     */
+    public PricingRules getRules() {
+        return rules.get();
+    }
+
+    /**
+     * Replace the rule table with one compiled from the given strategies and thresholds, under the next version
+     *
+     * @param strategies       One strategy per book type
+     * @param bundleThresholds Bundle thresholds by type
+     * @return The new rule table
+     * @throws IllegalArgumentException if the rules are invalid; the current table is then kept
+     */
+    public PricingRules replaceRules(Collection<? extends PricingStrategy> strategies, Map<BookType, Integer> bundleThresholds) {
+        return rules.updateAndGet(current -> PricingRules.of(current.getVersion() + 1, strategies, bundleThresholds));
     }
 }
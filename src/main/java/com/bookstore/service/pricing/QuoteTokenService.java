@@ -0,0 +1,229 @@
+package com.bookstore.service.pricing;
+
+import com.bookstore.model.Book;
+import com.bookstore.model.Customer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Issues and redeems signed, short-lived price quotes
+ * A token carries the total and free books of a priced cart together with what they were computed from: the
+ * customer, their loyalty points, the pricing rules version and a fingerprint of the cart's books in order, with
+ * their prices and types. It is signed with HMAC-SHA256, so a client can hand it back but not alter it.
+ * <p>
+ * Redeeming never fails a purchase: a token that is malformed, forged, expired, or whose inputs no longer match the
+ * customer, cart or rules yields no quote, and the caller prices the cart again.
+ */
+public class QuoteTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte FORMAT_VERSION = 1;
+    private static final int FINGERPRINT_BYTES = 16;
+
+    /**
+     * Shortest accepted signing key, the output size of the HMAC's hash
+     */
+    static final int MIN_SECRET_BYTES = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Mac prototype;
+    private final Duration timeToLive;
+    private final PricingStrategyFactory pricingStrategyFactory;
+    private final Clock clock;
+
+    /**
+     * @param secret                 The signing key shared by every instance that redeems the tokens, of at least
+     *                               {@value #MIN_SECRET_BYTES} bytes
+     * @param timeToLive             How long a token can be redeemed after it was issued
+     * @param pricingStrategyFactory Source of the pricing rules version in force
+     * @param clock                  Clock for issue and expiry times
+     * @throws IllegalArgumentException if the secret is missing or too short
+     */
+    public QuoteTokenService(String secret, Duration timeToLive, PricingStrategyFactory pricingStrategyFactory,
+                             Clock clock) {
+        // A key of each instance's own would make tokens fail whenever the purchase reaches another instance
+        if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_BYTES) {
+            throw new IllegalArgumentException("Quote token secret must have at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize quote signing", e);
+        }
+        this.timeToLive = timeToLive;
+        this.pricingStrategyFactory = pricingStrategyFactory;
+        this.clock = clock;
+    }
+
+    /**
+     * Issue a token for a priced cart
+     *
+     * @param customer     The customer, with the loyalty points the cart was priced with
+     * @param books        The books of the cart, in request order
+     * @param quote        The priced outcome of the cart
+     * @param rulesVersion The version of the pricing rules read before the cart was priced
+     * @return The token, or empty if the total cannot be represented in cents
+     */
+    public Optional<IssuedToken> issue(Customer customer, List<Book> books, PriceQuote quote, long rulesVersion) {
+        long totalCents;
+        try {
+            totalCents = Cents.toCents(quote.totalPrice());
+        } catch (ArithmeticException e) {
+            return Optional.empty();
+        }
+        Instant expiresAt = clock.instant().plus(timeToLive);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(customer.getId());
+            out.writeInt(customer.getLoyaltyPoints());
+            out.writeLong(rulesVersion);
+            out.writeLong(expiresAt.toEpochMilli());
+            out.writeLong(totalCents);
+            out.writeInt(quote.freeBooks().size());
+            for (Book freeBook : quote.freeBooks()) {
+                out.writeInt(indexOf(books, freeBook));
+            }
+            out.write(fingerprint(books));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        return Optional.of(new IssuedToken(ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload)),
+                expiresAt));
+    }
+
+    /**
+     * Redeem a token for a cart about to be purchased
+     *
+     * @param token    The token from the client
+     * @param customer The customer as currently stored
+     * @param books    The books of the cart as currently stored, in request order
+     * @return The quote if the token is authentic, unexpired and its inputs still match; empty otherwise
+     */
+    public Optional<PriceQuote> redeem(String token, Customer customer, List<Book> books) {
+        int separator = token.indexOf('.');
+        if (separator < 0) {
+            return Optional.empty();
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, separator));
+            signature = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return Optional.empty();
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readByte() != FORMAT_VERSION
+                    || in.readLong() != customer.getId()
+                    || in.readInt() != customer.getLoyaltyPoints()
+                    || in.readLong() != pricingStrategyFactory.getRules().getVersion()
+                    || in.readLong() <= clock.millis()) {
+                return Optional.empty();
+            }
+            BigDecimal totalPrice = Cents.toDecimal(in.readLong());
+            int freeBookCount = in.readInt();
+            List<Book> freeBooks = new ArrayList<>(freeBookCount);
+            for (int i = 0; i < freeBookCount; i++) {
+                int index = in.readInt();
+                if (index < 0 || index >= books.size()) {
+                    return Optional.empty();
+                }
+                freeBooks.add(books.get(index));
+            }
+            byte[] fingerprint = in.readNBytes(FINGERPRINT_BYTES);
+            if (!Arrays.equals(fingerprint, fingerprint(books))) {
+                return Optional.empty();
+            }
+            return Optional.of(new PriceQuote(totalPrice, freeBooks));
+        } catch (IOException e) {
+            // Truncated payload
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            return ((Mac) prototype.clone()).doFinal(payload);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Quote signing is not available", e);
+        }
+    }
+
+    /**
+     * Digest of the books in cart order with the price and type each was priced with
+     */
+    private static byte[] fingerprint(List<Book> books) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[12];
+        for (Book book : books) {
+            long id = book.getId() == null ? -1 : book.getId();
+            int type = book.getType() == null ? -1 : book.getType().ordinal();
+            for (int i = 0; i < 8; i++) {
+                buffer[i] = (byte) (id >>> (56 - 8 * i));
+            }
+            for (int i = 0; i < 4; i++) {
+                buffer[8 + i] = (byte) (type >>> (24 - 8 * i));
+            }
+            digest.update(buffer);
+            // Normalized so 10.0 and 10.00 fingerprint alike, as they price alike
+            String price = book.getBasePrice() == null ? "" : book.getBasePrice().stripTrailingZeros().toPlainString();
+            digest.update(price.getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) ';');
+        }
+        return Arrays.copyOf(digest.digest(), FINGERPRINT_BYTES);
+    }
+
+    private static int indexOf(List<Book> books, Book book) {
+        int index = 0;
+        for (Book candidate : books) {
+            if (candidate == book) {
+                return index;
+            }
+            index++;
+        }
+        return books.indexOf(book);
+    }
+
+    /**
+     * A signed token and the moment it stops being redeemable
+     */
+    public record IssuedToken(String token, Instant expiresAt) {
+    }
+}
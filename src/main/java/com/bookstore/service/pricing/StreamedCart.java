@@ -0,0 +1,115 @@
+package com.bookstore.service.pricing;
+
+import com.bookstore.model.Book;
+import com.bookstore.service.LoyaltyService;
+
+import java.math.BigDecimal;
+
+/**
+ * Pricing of a cart too large to hold in memory, with the same rules and rounding as
+ * {@link PricingService#calculatePrice(java.util.List, int, java.util.List)}
+ * The cart is read twice, as lines of a book and a quantity: every line is first added, in cart order, which keeps
+ * only the unit count and the cheapest book eligible for free redemption; then every line is priced, in the same
+ * order. The rules in force when the cart was opened price all of it.
+ */
+public final class StreamedCart {
+
+    private final PricingRules rules;
+
+    private final LoyaltyService loyaltyService;
+
+    private int units;
+
+    private long lines;
+
+    /**
+     * Cheapest eligible book and its line, the first one on equal prices; null and -1 while there is none
+     */
+    private Book freeCandidate;
+
+    private long freeCandidateLine = -1;
+
+    StreamedCart(PricingRules rules, LoyaltyService loyaltyService) {
+        this.rules = rules;
+        this.loyaltyService = loyaltyService;
+    }
+
+    /**
+     * Add the next line of the cart
+     *
+     * @param book     The book of the line, with its type and base price
+     * @param quantity The units of the book
+     * @return The index of the line in the cart, from 0
+     * @throws IllegalArgumentException if the quantity is not positive or the cart grows beyond an int of units
+     */
+    public long add(Book book, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
+        try {
+            units = Math.addExact(units, quantity);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("A cart holds at most " + Integer.MAX_VALUE + " units");
+        }
+        long line = lines++;
+        if (loyaltyService.isEligibleForFreeRedemption(book)
+                && (freeCandidate == null || book.getBasePrice().compareTo(freeCandidate.getBasePrice()) < 0)) {
+            freeCandidate = book;
+            freeCandidateLine = line;
+        }
+        return line;
+    }
+
+    /**
+     * @return The units added so far
+     */
+    public int getUnits() {
+        return units;
+    }
+
+    /**
+     * Get the line holding the free book for a loyalty balance, once every line was added
+     *
+     * @param loyaltyPoints The customer's loyalty points
+     * @return The index of the line, or -1 if no book is free
+     */
+    public long freeLine(int loyaltyPoints) {
+        return loyaltyService.hasEnoughPointsForFreeBook(loyaltyPoints) ? freeCandidateLine : -1;
+    }
+
+    /**
+     * Get the price of one unit of a line, once every line was added
+     *
+     * @param book     The book of the line
+     * @param freeLine The line holding the free book, as returned by {@link #freeLine(int)}
+     * @return The unit price, rounded to 2 decimal places
+     */
+    public BigDecimal unitPrice(Book book, long freeLine) {
+        return rules.getStrategy(book.getType()).calculatePrice(book, isBundle(book, freeLine >= 0));
+    }
+
+    /**
+     * Get the price of a line, once every line was added; the free book is one unit of its line
+     *
+     * @param line     The index of the line
+     * @param book     The book of the line
+     * @param quantity The units of the book
+     * @param freeLine The line holding the free book, as returned by {@link #freeLine(int)}
+     * @return The price of the paid units
+     */
+    public BigDecimal linePrice(long line, Book book, int quantity, long freeLine) {
+        int paid = line == freeLine ? quantity - 1 : quantity;
+        return paid == 0 ? BigDecimal.ZERO.setScale(2) : unitPrice(book, freeLine).multiply(BigDecimal.valueOf(paid));
+    }
+
+    private boolean isBundle(Book book, boolean withFreeBook) {
+        int threshold = rules.getBundleThreshold(book.getType());
+        if (!withFreeBook) {
+            return units >= threshold;
+        }
+        // Same ordering as PricingService: only ineligible books at most as cheap as the free book are priced before it
+        boolean pricedBeforeFreeBook = book.getBasePrice().compareTo(freeCandidate.getBasePrice()) <= 0
+                && !loyaltyService.isEligibleForFreeRedemption(book);
+        return (pricedBeforeFreeBook ? units : units - 1) >= threshold;
+    }
+}
@@ -0,0 +1,564 @@
+package com.bookstore.service.purchase;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.BulkPurchaseLine;
+import com.bookstore.dto.BulkPurchaseResponse;
+import com.bookstore.exception.OutOfStockException;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.service.BookService;
+import com.bookstore.service.CustomerService;
+import com.bookstore.service.LoyaltyService;
+import com.bookstore.service.inventory.BookInventory;
+import com.bookstore.service.inventory.StockReservation;
+import com.bookstore.service.ledger.PurchaseLedger;
+import com.bookstore.service.pricing.PricingService;
+import com.bookstore.service.pricing.StreamedCart;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Purchases of orders with thousands of lines, each a book and a quantity, read as they are uploaded
+ * The order is read twice. The first pass parses the lines, looks their books up a chunk at a time, holds their
+ * stock and spools what pricing needs of each line to a temporary file; it keeps only the unit count and the
+ * cheapest book eligible to be free. The second pass reads the spool back, prices every line with the bundle and
+ * loyalty rules of {@link PricingService}, exactly as if the whole order were one cart, and writes the outcome of
+ * every line to a result file. Memory use depends on the chunk size, not on the number of lines.
+ * <p>
+ * Each line for a book on a flash sale is admitted by the sale with its quantity before its stock is held. Lines that
+ * are malformed, name an unknown book, or ask for more units than the stock or the flash sale has left are rejected
+ * on their own, and the rest of the order is purchased. The loyalty balance is changed, the held stock sold and the
+ * order recorded in the purchase ledger, one entry line per purchased line, in one transaction; the balance returned
+ * is the one that transaction wrote. The summary and the result file of an order are kept for the retention period, and the file is
+ * deleted when they expire.
+ */
+public class BulkPurchases implements AutoCloseable {
+
+    static final String CSV_HEADER = "bookId,quantity";
+
+    /**
+     * Units of one line at most, so that an order of the maximum number of lines still fits an int of units
+     */
+    static final int MAX_LINE_QUANTITY = 10_000;
+
+    /**
+     * Orders priced again after another purchase redeemed the points a free book was priced with
+     */
+    static final int MAX_REDEEM_ATTEMPTS = 3;
+
+    private static final int PURCHASED = 0;
+
+    private static final int REJECTED = 1;
+
+    private final BookService bookService;
+    private final CustomerService customerService;
+    private final PricingService pricingService;
+
+    /**
+     * Optional stock of the books, null when stock is not counted
+     */
+    private final BookInventory bookInventory;
+
+    /**
+     * Optional admission of flash sale books, null when flash sales are disabled
+     */
+    private final FlashSales flashSales;
+
+    /**
+     * Optional ledger of purchases, null when purchases are not recorded
+     */
+    private final PurchaseLedger purchaseLedger;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader jsonLineReader;
+    private final int chunkSize;
+    private final long maxLines;
+    private final Clock clock;
+
+    private final Cache<String, StoredOrder> orders;
+
+    /**
+     * @param chunkSize   Lines whose books are looked up together
+     * @param maxLines    Lines of an order at most
+     * @param retention   How long the summary and result file of an order are kept
+     * @param maxOrders   Orders whose summary and result file are kept at most
+     */
+    public BulkPurchases(BookService bookService, CustomerService customerService, PricingService pricingService,
+                         BookInventory bookInventory, FlashSales flashSales, PurchaseLedger purchaseLedger,
+                         TransactionTemplate transactionTemplate, ObjectMapper objectMapper, int chunkSize,
+                         long maxLines, Duration retention, long maxOrders, Clock clock) {
+        if (chunkSize < 1 || maxLines < 1 || maxLines * MAX_LINE_QUANTITY > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bulk purchase chunk size must be positive and max lines at most "
+                    + Integer.MAX_VALUE / MAX_LINE_QUANTITY);
+        }
+        this.bookService = bookService;
+        this.customerService = customerService;
+        this.pricingService = pricingService;
+        this.bookInventory = bookInventory;
+        this.flashSales = flashSales;
+        this.purchaseLedger = purchaseLedger;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.jsonLineReader = objectMapper.reader();
+        this.chunkSize = chunkSize;
+        this.maxLines = maxLines;
+        this.clock = clock;
+        this.orders = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .maximumSize(maxOrders)
+                // Runs on the evicting thread, so a file is gone once its order is
+                .executor(Runnable::run)
+                .removalListener((String orderId, StoredOrder order, RemovalCause cause) -> {
+                    if (order != null) {
+                        deleteQuietly(order.lines());
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Purchase a CSV order with the columns bookId and quantity
+     * The header line is optional, and so is the quantity, which defaults to 1.
+     *
+     * @param customerId The customer
+     * @param reader     The order
+     * @return The summary of the purchase
+     * @throws IllegalArgumentException if the customer does not exist or the order has too many lines
+     * @throws IOException              if the order cannot be read or its files cannot be written
+     */
+    public BulkPurchaseResponse purchaseCsv(Long customerId, Reader reader) throws IOException {
+        return purchase(customerId, reader, true, line -> {
+            String[] fields = line.split(",", -1);
+            if (fields.length > 2) {
+                throw new IllegalArgumentException("Expected at most 2 columns (" + CSV_HEADER + ") but found "
+                        + fields.length);
+            }
+            return toLine(fields[0], fields.length == 2 ? fields[1] : null);
+        });
+    }
+
+    /**
+     * Purchase a newline-delimited JSON order with one {"bookId", "quantity"} object per line
+     * The quantity is optional and defaults to 1.
+     *
+     * @param customerId The customer
+     * @param reader     The order
+     * @return The summary of the purchase
+     * @throws IllegalArgumentException if the customer does not exist or the order has too many lines
+     * @throws IOException              if the order cannot be read or its files cannot be written
+     */
+    public BulkPurchaseResponse purchaseNdjson(Long customerId, Reader reader) throws IOException {
+        return purchase(customerId, reader, false, line -> {
+            JsonNode node;
+            try {
+                node = jsonLineReader.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            return toLine(text(node, "bookId"), text(node, "quantity"));
+        });
+    }
+
+    /**
+     * @return The summary of a bulk purchase, or empty if the order is unknown or no longer kept
+     */
+    public Optional<BulkPurchaseResponse> getSummary(String orderId) {
+        StoredOrder order = orderId == null ? null : orders.getIfPresent(orderId);
+        return Optional.ofNullable(order).map(StoredOrder::summary);
+    }
+
+    /**
+     * Open the outcome of every line of a bulk purchase, as newline-delimited JSON of {@link BulkPurchaseLine}
+     * in the order of the uploaded lines
+     *
+     * @return The stream to read and close, or empty if the order is unknown or no longer kept
+     * @throws IOException if the result file cannot be opened
+     */
+    public Optional<InputStream> openLines(String orderId) throws IOException {
+        StoredOrder order = orderId == null ? null : orders.getIfPresent(orderId);
+        if (order == null) {
+            return Optional.empty();
+        }
+        try {
+            // Once open, the file can be read to the end even if its order expires meanwhile
+            return Optional.of(Files.newInputStream(order.lines()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    private BulkPurchaseResponse purchase(Long customerId, Reader reader, boolean skipCsvHeader, LineParser parser)
+            throws IOException {
+        long start = System.nanoTime();
+        if (customerId == null || customerService.getLoyaltyPoints(customerId).isEmpty()) {
+            throw new IllegalArgumentException("Customer not found");
+        }
+        StreamedCart cart = pricingService.openStreamedCart();
+        StockReservation reservation = bookInventory == null ? null : bookInventory.openReservation();
+        List<FlashSales.Admission> admissions = new ArrayList<>();
+        Path spool = Files.createTempFile("bulk-purchase-", ".spool");
+        Path lines = null;
+        boolean purchased = false;
+        try {
+            Counts counts = new Counts();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spool)))) {
+                readLines(reader, skipCsvHeader, parser, cart, reservation, admissions, out, counts);
+            }
+            lines = Files.createTempFile("bulk-purchase-", ".ndjson");
+            for (int attempt = 1; ; attempt++) {
+                int points = customerService.getLoyaltyPoints(customerId)
+                        .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
+                long freeLine = cart.freeLine(points);
+                BigDecimal total = writeLines(spool, lines, counts.read, cart, freeLine);
+                Integer balance = applyAndRecord(customerId, reservation, spool, counts.read, cart.getUnits(), total,
+                        freeLine);
+                if (balance != null) {
+                    purchased = true;
+                    String orderId = UUID.randomUUID().toString();
+                    BulkPurchaseResponse summary = new BulkPurchaseResponse(orderId, customerId, counts.read,
+                            counts.read - counts.rejected, counts.rejected, cart.getUnits(), freeLine >= 0 ? 1 : 0,
+                            total, balance, clock.instant(), (System.nanoTime() - start) / 1_000_000);
+                    orders.put(orderId, new StoredOrder(summary, lines));
+                    return summary;
+                }
+                if (attempt == MAX_REDEEM_ATTEMPTS) {
+                    throw new IllegalStateException("Loyalty points of customer " + customerId + " keep changing");
+                }
+            }
+        } finally {
+            deleteQuietly(spool);
+            if (!purchased) {
+                admissions.forEach(FlashSales.Admission::cancel);
+                if (reservation != null) {
+                    bookInventory.release(reservation);
+                }
+                if (lines != null) {
+                    deleteQuietly(lines);
+                }
+            }
+        }
+    }
+
+    /**
+     * First pass: parse the lines, look their books up and hold their flash sale units and stock a chunk at a time,
+     * add them to the cart and spool them
+     */
+    private void readLines(Reader reader, boolean skipCsvHeader, LineParser parser, StreamedCart cart,
+                           StockReservation reservation, List<FlashSales.Admission> admissions,
+                           DataOutputStream spool, Counts counts) throws IOException {
+        BufferedReader input = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        List<PendingLine> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        boolean firstLine = true;
+        String line;
+        while ((line = input.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (firstLine && skipCsvHeader && line.trim().equalsIgnoreCase(CSV_HEADER)) {
+                firstLine = false;
+                continue;
+            }
+            firstLine = false;
+            if (++counts.read > maxLines) {
+                throw new IllegalArgumentException("A bulk purchase has at most " + maxLines + " lines");
+            }
+            PendingLine pending;
+            try {
+                pending = parser.parse(line).at(lineNumber);
+            } catch (IllegalArgumentException e) {
+                pending = new PendingLine(lineNumber, null, 0, e.getMessage());
+            }
+            chunk.add(pending);
+            if (chunk.size() == chunkSize) {
+                addChunk(chunk, cart, reservation, admissions, spool, counts);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            addChunk(chunk, cart, reservation, admissions, spool, counts);
+        }
+    }
+
+    private void addChunk(List<PendingLine> chunk, StreamedCart cart, StockReservation reservation,
+                          List<FlashSales.Admission> admissions, DataOutputStream spool, Counts counts)
+            throws IOException {
+        Set<Long> bookIds = new LinkedHashSet<>();
+        for (PendingLine line : chunk) {
+            if (line.error() == null) {
+                bookIds.add(line.bookId());
+            }
+        }
+        Map<Long, Book> books = bookService.findBooksByIds(bookIds);
+        for (PendingLine line : chunk) {
+            Book book = line.error() == null ? books.get(line.bookId()) : null;
+            String error = line.error();
+            if (error == null && book == null) {
+                error = "Book not found: " + line.bookId();
+            } else if (error == null && book.getType() == null) {
+                error = "Unknown book type: null";
+            } else if (error == null) {
+                error = hold(line, reservation, admissions);
+            }
+            spool.writeLong(line.number());
+            spool.writeBoolean(line.bookId() != null);
+            spool.writeLong(line.bookId() == null ? 0 : line.bookId());
+            spool.writeInt(line.quantity());
+            if (error != null) {
+                counts.rejected++;
+                spool.writeByte(REJECTED);
+                spool.writeUTF(error);
+            } else {
+                spool.writeByte(PURCHASED);
+                spool.writeLong(cart.add(book, line.quantity()));
+                spool.writeByte(book.getType().ordinal());
+                spool.writeUTF(book.getBasePrice().toString());
+                spool.writeBoolean(book.getTitle() != null);
+                spool.writeUTF(book.getTitle() == null ? "" : book.getTitle());
+            }
+        }
+        chunk.clear();
+    }
+
+    /**
+     * Take the flash sale units and the stock of a line
+     *
+     * @return Why the line is rejected, or null if its units are held
+     */
+    private String hold(PendingLine line, StockReservation reservation, List<FlashSales.Admission> admissions) {
+        FlashSales.Admission admission = FlashSales.Admission.NONE;
+        if (flashSales != null) {
+            try {
+                admission = flashSales.admit(line.bookId(), line.quantity());
+            } catch (OutOfStockException e) {
+                return "Flash sale sold out: " + line.quantity() + " units of book " + line.bookId() + " requested";
+            }
+        }
+        if (reservation != null && !bookInventory.reserve(reservation, line.bookId(), line.quantity())) {
+            admission.cancel();
+            return "Out of stock: " + line.quantity() + " units of book " + line.bookId() + " requested";
+        }
+        if (admission != FlashSales.Admission.NONE) {
+            admissions.add(admission);
+        }
+        return null;
+    }
+
+    /**
+     * Second pass: price every spooled line and write its outcome
+     *
+     * @return The total price of the order
+     */
+    private BigDecimal writeLines(Path spool, Path lines, long count, StreamedCart cart, long freeLine)
+            throws IOException {
+        BookType[] types = BookType.values();
+        BigDecimal total = BigDecimal.ZERO.setScale(2);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spool)));
+             JsonGenerator out = objectMapper.getFactory().createGenerator(
+                     new BufferedOutputStream(Files.newOutputStream(lines)))) {
+            out.setRootValueSeparator(null);
+            for (long i = 0; i < count; i++) {
+                SpooledLine line = SpooledLine.read(in, types);
+                BulkPurchaseLine result;
+                if (line.error() != null) {
+                    result = new BulkPurchaseLine(line.number(), line.bookId(), line.quantity(),
+                            BulkPurchaseLine.Status.REJECTED, null, 0, null, line.error());
+                } else {
+                    BigDecimal lineTotal = cart.linePrice(line.cartLine(), line.book(), line.quantity(), freeLine);
+                    total = total.add(lineTotal);
+                    result = new BulkPurchaseLine(line.number(), line.bookId(), line.quantity(),
+                            BulkPurchaseLine.Status.PURCHASED, cart.unitPrice(line.book(), freeLine),
+                            line.cartLine() == freeLine ? 1 : 0, lineTotal, null);
+                }
+                out.writeObject(result);
+                out.writeRaw('\n');
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Change the loyalty balance, sell the held stock and record the order in the purchase ledger, in one
+     * transaction so the balance read back is the one this purchase wrote
+     *
+     * @return The new balance, or null if the points of the free book were redeemed meanwhile; nothing is recorded then
+     * @throws IOException if the spool cannot be read back
+     */
+    private Integer applyAndRecord(Long customerId, StockReservation reservation, Path spool, long count, int units,
+                                   BigDecimal total, long freeLine) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                Integer balance = applyLoyaltyPoints(customerId, units, freeLine >= 0);
+                if (balance == null) {
+                    return null;
+                }
+                if (reservation != null) {
+                    bookInventory.commit(reservation);
+                }
+                if (purchaseLedger != null) {
+                    record(purchaseLedger.recordBulk(customerId, total, balance, units), spool, count, freeLine);
+                }
+                return balance;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Third pass: add every purchased line of the spool to the ledger entry of the order
+     */
+    private static void record(PurchaseLedger.BulkEntry entry, Path spool, long count, long freeLine) {
+        BookType[] types = BookType.values();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spool)))) {
+            for (long i = 0; i < count; i++) {
+                SpooledLine line = SpooledLine.read(in, types);
+                if (line.error() == null) {
+                    entry.add(line.book(), line.quantity(), line.cartLine() == freeLine);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add one point per paid unit, redeeming the points of the free book first if there is one
+     *
+     * @return The new balance, or null if the points of the free book were redeemed meanwhile
+     */
+    private Integer applyLoyaltyPoints(Long customerId, int units, boolean freeBook) {
+        int earnedPoints = freeBook ? units - 1 : units;
+        if (!freeBook) {
+            return customerService.addLoyaltyPoints(customerId, earnedPoints)
+                    .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
+        }
+        return customerService.redeemLoyaltyPoints(customerId, LoyaltyService.POINTS_FOR_FREE_BOOK, earnedPoints)
+                ? earnedPoints
+                : null;
+    }
+
+    private static PendingLine toLine(String bookId, String quantity) {
+        long id;
+        try {
+            id = Long.parseLong(bookId == null ? "" : bookId.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bookId is not a number: " + bookId);
+        }
+        int units = 1;
+        if (quantity != null && !quantity.isBlank()) {
+            try {
+                units = Integer.parseInt(quantity.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("quantity is not a number: " + quantity);
+            }
+        }
+        if (units < 1 || units > MAX_LINE_QUANTITY) {
+            throw new IllegalArgumentException("quantity must be between 1 and " + MAX_LINE_QUANTITY + ": " + units);
+        }
+        return new PendingLine(0, id, units, null);
+    }
+
+    private static String text(JsonNode node, String fieldName) {
+        JsonNode value = node.get(fieldName);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // A temporary file; the system cleans it up eventually
+        }
+    }
+
+    /**
+     * Forget the kept orders and delete their result files when the application context closes
+     */
+    @Override
+    public void close() {
+        orders.invalidateAll();
+        orders.cleanUp();
+    }
+
+    @FunctionalInterface
+    private interface LineParser {
+        PendingLine parse(String line);
+    }
+
+    /**
+     * A parsed line waiting for its chunk to be looked up, or the reason it could not be parsed
+     */
+    private record PendingLine(long number, Long bookId, int quantity, String error) {
+
+        PendingLine at(long lineNumber) {
+            return new PendingLine(lineNumber, bookId, quantity, error);
+        }
+    }
+
+    /**
+     * A line read back from the spool: either its error, or its line in the cart and its book
+     */
+    private record SpooledLine(long number, Long bookId, int quantity, String error, long cartLine, Book book) {
+
+        static SpooledLine read(DataInputStream in, BookType[] types) throws IOException {
+            long number = in.readLong();
+            boolean hasBookId = in.readBoolean();
+            long id = in.readLong();
+            Long bookId = hasBookId ? id : null;
+            int quantity = in.readInt();
+            if (in.readByte() == REJECTED) {
+                return new SpooledLine(number, bookId, quantity, in.readUTF(), -1, null);
+            }
+            long cartLine = in.readLong();
+            BookType type = types[in.readByte()];
+            BigDecimal basePrice = new BigDecimal(in.readUTF());
+            boolean hasTitle = in.readBoolean();
+            String title = in.readUTF();
+            return new SpooledLine(number, bookId, quantity, null, cartLine,
+                    new Book(bookId, hasTitle ? title : null, basePrice, type));
+        }
+    }
+
+    private static final class Counts {
+        private long read;
+        private long rejected;
+    }
+
+    private record StoredOrder(BulkPurchaseResponse summary, Path lines) {
+    }
+}
@@ -0,0 +1,222 @@
+package com.bookstore.service.purchase;
+
+import com.bookstore.dto.FlashSaleResponse;
+import com.bookstore.exception.OutOfStockException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission of purchases of books on a limited-quantity flash sale
+ * Each sale holds its units as a pool of tokens in memory. A purchase takes the tokens of its sale books before
+ * anything else happens to it, with one compare-and-set per book, and is refused right away when a pool runs short;
+ * once a pool is empty a refusal costs a single read. Only purchases holding their tokens reach the database, so a
+ * sale of a few hundred units sees a few hundred purchases however many requests arrive. An admitted purchase that
+ * fails gives its tokens back for the next request.
+ * <p>
+ * The pools only admit; they do not replace the stock of the books, which still refuses a purchase that would
+ * oversell when the pool has more units than the stock.
+ */
+public class FlashSales {
+
+    private final ConcurrentHashMap<Long, Sale> sales = new ConcurrentHashMap<>();
+
+    private final Clock clock;
+
+    public FlashSales(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Start a flash sale of a book, replacing its running sale if it has one
+     *
+     * @param bookId The book ID
+     * @param units  Units sold in the sale
+     * @return The new sale
+     * @throws IllegalArgumentException if the units are not positive
+     */
+    public FlashSaleResponse start(Long bookId, int units) {
+        if (units < 1) {
+            throw new IllegalArgumentException("A flash sale must have at least one unit");
+        }
+        Sale sale = new Sale(bookId, units, clock.instant());
+        sales.put(bookId, sale);
+        return sale.toResponse(clock.instant());
+    }
+
+    /**
+     * End the flash sale of a book; purchases of the book are no longer limited by it
+     *
+     * @return Whether the book had a sale
+     */
+    public boolean end(Long bookId) {
+        return sales.remove(bookId) != null;
+    }
+
+    /**
+     * @return The sale of a book, or empty if it has none
+     */
+    public Optional<FlashSaleResponse> get(Long bookId) {
+        Sale sale = sales.get(bookId);
+        return sale == null ? Optional.empty() : Optional.of(sale.toResponse(clock.instant()));
+    }
+
+    /**
+     * @return The running sales, by book ID
+     */
+    public List<FlashSaleResponse> list() {
+        Instant now = clock.instant();
+        return sales.values().stream()
+                .sorted(Comparator.comparing(sale -> sale.bookId))
+                .map(sale -> sale.toResponse(now))
+                .toList();
+    }
+
+    /**
+     * Take the tokens of the sale books of a cart, all of them or none
+     *
+     * @param bookIds The book IDs of the cart, one per unit
+     * @return The tokens taken, to give back if the purchase fails
+     * @throws OutOfStockException if a sale has fewer tokens left than the cart needs; nothing is taken then
+     */
+    public Admission admit(List<Long> bookIds) {
+        if (sales.isEmpty() || bookIds == null) {
+            return Admission.NONE;
+        }
+        // Books are taken in ID order, like stock reservations, so competing carts do not starve each other
+        SortedMap<Long, Integer> wanted = null;
+        for (Long bookId : bookIds) {
+            if (bookId != null && sales.containsKey(bookId)) {
+                if (wanted == null) {
+                    wanted = new TreeMap<>();
+                }
+                wanted.merge(bookId, 1, Integer::sum);
+            }
+        }
+        return wanted == null ? Admission.NONE : admit(wanted);
+    }
+
+    /**
+     * Take the tokens of one line of an order, e.g. a line of a bulk purchase
+     *
+     * @param bookId   The book ID
+     * @param quantity Units of the book on the line
+     * @return The tokens taken, to give back if the purchase fails
+     * @throws OutOfStockException if the sale of the book has fewer tokens left than the line needs; nothing is
+     *                             taken then
+     */
+    public Admission admit(Long bookId, int quantity) {
+        if (bookId == null || !sales.containsKey(bookId)) {
+            return Admission.NONE;
+        }
+        SortedMap<Long, Integer> wanted = new TreeMap<>();
+        wanted.put(bookId, quantity);
+        return admit(wanted);
+    }
+
+    private Admission admit(SortedMap<Long, Integer> wanted) {
+        Map<Sale, Integer> taken = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> line : wanted.entrySet()) {
+            Sale sale = sales.get(line.getKey());
+            if (sale == null) {
+                // Ended meanwhile
+                continue;
+            }
+            if (!sale.tryTake(line.getValue(), clock)) {
+                taken.forEach(Sale::giveBack);
+                sale.rejected.increment();
+                throw new OutOfStockException(line.getKey(), line.getValue());
+            }
+            taken.put(sale, line.getValue());
+        }
+        taken.keySet().forEach(sale -> sale.admitted.increment());
+        return new Admission(taken);
+    }
+
+    /**
+     * Tokens of the sale books of one admitted purchase
+     */
+    public static final class Admission {
+
+        public static final Admission NONE = new Admission(Map.of());
+
+        private final Map<Sale, Integer> tokens;
+
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private Admission(Map<Sale, Integer> tokens) {
+            this.tokens = tokens;
+        }
+
+        /**
+         * Give the tokens back because the purchase failed; later calls have no effect
+         */
+        public void cancel() {
+            if (tokens.isEmpty() || !cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            tokens.forEach((sale, quantity) -> {
+                sale.giveBack(quantity);
+                sale.returned.increment();
+            });
+        }
+    }
+
+    private static final class Sale {
+        private final Long bookId;
+        private final int units;
+        private final Instant startedAt;
+        private final AtomicInteger remaining;
+        private volatile Instant soldOutAt;
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder returned = new LongAdder();
+
+        private Sale(Long bookId, int units, Instant startedAt) {
+            this.bookId = bookId;
+            this.units = units;
+            this.startedAt = startedAt;
+            this.remaining = new AtomicInteger(units);
+        }
+
+        private boolean tryTake(int quantity, Clock clock) {
+            int current;
+            do {
+                current = remaining.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - quantity));
+            if (current == quantity) {
+                soldOutAt = clock.instant();
+            }
+            return true;
+        }
+
+        private void giveBack(int quantity) {
+            remaining.addAndGet(quantity);
+            soldOutAt = null;
+        }
+
+        private FlashSaleResponse toResponse(Instant now) {
+            int left = remaining.get();
+            double seconds = Math.max(Duration.between(startedAt, now).toNanos(), 1) / 1e9;
+            long admittedCount = admitted.sum();
+            long rejectedCount = rejected.sum();
+            return new FlashSaleResponse(bookId, units, left, left == 0, startedAt, left == 0 ? soldOutAt : null,
+                    admittedCount, rejectedCount, returned.sum(), admittedCount / seconds, rejectedCount / seconds);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.bookstore.service.purchase;
+
+import org.hibernate.Session;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.GroupCommitStatsResponse;
+import com.bookstore.dto.PurchaseResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Group commit of purchases: purchases arriving close together run one after another in a single transaction and
+ * share its commit, instead of paying for a commit each
+ * A committer thread takes the purchases that have queued up, waiting at most the window for more once it has one,
+ * and runs up to the batch size of them in one transaction, loyalty updates and ledger entries included. Each caller
+ * gets its own outcome once that transaction has committed. When a purchase of the group fails, or the commit does,
+ * the whole group is rolled back and its purchases run again in a transaction each, so a failure only fails its own
+ * purchase.
+ * <p>
+ * A purchase submitted from inside a transaction runs in that transaction instead, since it must commit with it.
+ * Callers wait for the commit, so a purchase arriving alone pays the window on top of its own time.
+ */
+public class GroupCommitExecutor implements AutoCloseable {
+
+    /**
+     * How long closing waits for the committers to run the queued purchases
+     */
+    static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long windowNanos;
+
+    private final BlockingQueue<PendingPurchase> queue;
+    private final List<Thread> committers = new ArrayList<>();
+    private volatile boolean closed;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedPurchases = new LongAdder();
+    private final LongAdder committedPurchases = new LongAdder();
+    private final LongAdder failedPurchases = new LongAdder();
+    private final LongAdder rolledBackBatches = new LongAdder();
+    private final LongAdder startedPurchases = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder commitNanos = new LongAdder();
+    private final LongAccumulator largestBatch = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param entityManager       Shared entity manager of the purchase transactions
+     * @param transactionTemplate Opens the transaction of each group
+     * @param maxBatchSize        Purchases run in one transaction at most
+     * @param window              How long a committer waits for more purchases once it has one
+     * @param queueCapacity       Purchases waiting for a committer at most; callers wait for room beyond that
+     * @param committers          Threads running groups, each in its own transaction
+     */
+    public GroupCommitExecutor(EntityManager entityManager, TransactionTemplate transactionTemplate, int maxBatchSize,
+                               Duration window, int queueCapacity, int committers) {
+        if (maxBatchSize < 1 || committers < 1) {
+            throw new IllegalArgumentException("Group commit batch size and committers must be at least 1");
+        }
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        for (int i = 1; i <= committers; i++) {
+            this.committers.add(Thread.ofPlatform().name("purchase-group-commit-" + i).daemon(true)
+                    .start(this::commitQueued));
+        }
+    }
+
+    /**
+     * Run a purchase in the next group and wait for that group to commit
+     *
+     * @param purchase Runs the purchase; it joins the transaction of its group
+     * @return The purchase outcome, once committed
+     * @throws RuntimeException the exception the purchase failed with when run in its own transaction
+     */
+    public PurchaseResponse execute(Supplier<PurchaseResponse> purchase) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return purchase.get();
+        }
+        PendingPurchase pending = new PendingPurchase(purchase, System.nanoTime(), new CompletableFuture<>());
+        boolean queued = false;
+        if (!closed) {
+            try {
+                queue.put(pending);
+                queued = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!queued) {
+            // The committers are gone or this thread cannot wait for them; run the purchase here
+            commitOneByOne(List.of(pending));
+        }
+        try {
+            return pending.outcome.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get the group commit counters
+     *
+     * @return The queued purchases, group sizes, outcome counts and latencies
+     */
+    public GroupCommitStatsResponse stats() {
+        long committedBatches = batches.sum();
+        long started = startedPurchases.sum();
+        return new GroupCommitStatsResponse(queue.size(), committedBatches, committedPurchases.sum(),
+                failedPurchases.sum(), rolledBackBatches.sum(),
+                committedBatches == 0 ? 0.0 : (double) batchedPurchases.sum() / committedBatches,
+                (int) largestBatch.get(),
+                started == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(queueWaitNanos.sum() / started),
+                committedBatches == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(commitNanos.sum() / committedBatches));
+    }
+
+    private void commitQueued() {
+        List<PendingPurchase> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingPurchase first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Closing interrupts a committer that outlived the timeout; run what was taken and stop
+                if (!batch.isEmpty()) {
+                    commitOneByOne(batch);
+                }
+                return;
+            }
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void fillBatch(List<PendingPurchase> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            PendingPurchase next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<PendingPurchase> batch) {
+        long start = System.nanoTime();
+        batch.forEach(pending -> started(pending, start));
+        List<PurchaseResponse> responses = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                ignoreChangesToLoadedEntities();
+                batch.forEach(pending -> responses.add(pending.purchase.get()));
+            });
+        } catch (RuntimeException | Error e) {
+            if (batch.size() == 1) {
+                // Its own transaction already; running it again would not tell anything new
+                failedPurchases.increment();
+                batch.get(0).outcome.completeExceptionally(e);
+                return;
+            }
+            rolledBackBatches.increment();
+            commitOneByOne(batch);
+            return;
+        }
+        commitNanos.add(System.nanoTime() - start);
+        batches.increment();
+        batchedPurchases.add(batch.size());
+        largestBatch.accumulate(batch.size());
+        committedPurchases.add(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).outcome.complete(responses.get(i));
+        }
+    }
+
+    private void commitOneByOne(List<PendingPurchase> purchases) {
+        for (PendingPurchase pending : purchases) {
+            if (pending.outcome.isDone()) {
+                continue;
+            }
+            try {
+                PurchaseResponse response = transactionTemplate.execute(status -> {
+                    ignoreChangesToLoadedEntities();
+                    return pending.purchase.get();
+                });
+                committedPurchases.increment();
+                pending.outcome.complete(response);
+            } catch (RuntimeException | Error e) {
+                failedPurchases.increment();
+                pending.outcome.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void started(PendingPurchase pending, long now) {
+        startedPurchases.increment();
+        queueWaitNanos.add(now - pending.submittedNanos);
+    }
+
+    /**
+     * Purchases change balances through update statements only; the customers they load stay in the persistence
+     * context of the group, and the balance set on them for the response would otherwise be flushed back as an
+     * extra update per purchase
+     */
+    private void ignoreChangesToLoadedEntities() {
+        entityManager.unwrap(Session.class).setDefaultReadOnly(true);
+    }
+
+    /**
+     * Stop the committers when the application context closes, after they have run the queued purchases
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread committer : committers) {
+            try {
+                committer.join(CLOSE_TIMEOUT.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            committer.interrupt();
+        }
+        // A purchase queued while the committers were stopping is still waited for
+        List<PendingPurchase> left = new ArrayList<>();
+        queue.drainTo(left);
+        commitOneByOne(left);
+    }
+
+    private record PendingPurchase(Supplier<PurchaseResponse> purchase, long submittedNanos,
+                                   CompletableFuture<PurchaseResponse> outcome) {
+    }
+}
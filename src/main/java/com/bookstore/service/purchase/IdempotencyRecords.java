@@ -0,0 +1,133 @@
+package com.bookstore.service.purchase;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.model.IdempotencyRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+
+/**
+ * Database table of purchase outcomes by Idempotency-Key, shared by all instances and kept across restarts
+ * A purchase and its record are committed in one transaction, so a key is never recorded for a purchase that rolled
+ * back, and a purchase never commits without its record. When two instances run the same key at once, the primary
+ * key lets only one transaction commit; the other rolls its purchase back and replays the winner's record.
+ */
+public class IdempotencyRecords {
+
+    /**
+     * Expired records are purged after every this many new records
+     */
+    static final int PURGE_INTERVAL = 1024;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration timeToLive;
+    private final Clock clock;
+
+    private final AtomicLong recorded = new AtomicLong();
+
+    public IdempotencyRecords(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper, Duration timeToLive, Clock clock) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    /**
+     * Get the recorded outcome of a key
+     *
+     * @param key The Idempotency-Key
+     * @return The outcome, marked as replayed, or empty if the key has no record or its record has expired
+     */
+    public Optional<IdempotentPurchase> find(String key) {
+        IdempotencyRecord record = transactionTemplate.execute(status -> entityManager.find(IdempotencyRecord.class, key));
+        if (record == null || record.getCreatedAt().isBefore(cutoff())) {
+            return Optional.empty();
+        }
+        return Optional.of(new IdempotentPurchase(record.getFingerprint(), fromJson(record.getResponse()), true));
+    }
+
+    /**
+     * Run a purchase and record its outcome in the same transaction, unless the key already has a record
+     *
+     * @param key         The Idempotency-Key
+     * @param fingerprint Digest of the request
+     * @param purchase    Runs the purchase; it joins the transaction opened here
+     * @return The outcome of this purchase, or the replayed outcome recorded for the key by another request
+     */
+    public IdempotentPurchase executeAndRecord(String key, String fingerprint, Supplier<PurchaseResponse> purchase) {
+        Optional<IdempotentPurchase> existing = find(key);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        PurchaseResponse response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                // A record past its time to live no longer protects the key, and would block the insert
+                entityManager.createQuery("delete from IdempotencyRecord r where r.idempotencyKey = :key"
+                                + " and r.createdAt < :cutoff")
+                        .setParameter("key", key)
+                        .setParameter("cutoff", cutoff())
+                        .executeUpdate();
+                PurchaseResponse result = purchase.get();
+                entityManager.persist(new IdempotencyRecord(key, fingerprint, toJson(result), clock.instant()));
+                entityManager.flush();
+                return result;
+            });
+        } catch (PersistenceException e) {
+            // Another request recorded the key first; its purchase stands and this one was rolled back
+            return find(key).orElseThrow(() -> e);
+        }
+        if (recorded.incrementAndGet() % PURGE_INTERVAL == 0) {
+            purgeExpired();
+        }
+        return new IdempotentPurchase(fingerprint, response, false);
+    }
+
+    /**
+     * Delete the records past their time to live
+     *
+     * @return The number of records deleted
+     */
+    public int purgeExpired() {
+        Integer deleted = transactionTemplate.execute(status -> entityManager
+                .createQuery("delete from IdempotencyRecord r where r.createdAt < :cutoff")
+                .setParameter("cutoff", cutoff())
+                .executeUpdate());
+        return deleted == null ? 0 : deleted;
+    }
+
+    private Instant cutoff() {
+        return clock.instant().minus(timeToLive);
+    }
+
+    private String toJson(PurchaseResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store purchase response", e);
+        }
+    }
+
+    private PurchaseResponse fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, PurchaseResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored purchase response", e);
+        }
+    }
+}
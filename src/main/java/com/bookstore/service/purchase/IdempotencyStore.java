@@ -0,0 +1,183 @@
+package com.bookstore.service.purchase;
+
+import com.bookstore.dto.IdempotencyStatsResponse;
+import com.bookstore.dto.PurchaseRequest;
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.exception.IdempotencyConflictException;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded store of purchase responses by Idempotency-Key, so a retried purchase is answered with the response of
+ * the first attempt instead of running again
+ * The first request with a key runs the purchase; a request repeating the key while it runs waits for its outcome
+ * rather than racing it. Only successful purchases are kept: when the first attempt fails, the requests waiting on
+ * it fail the same way and the next retry runs the purchase again. Each key remembers a fingerprint of its request,
+ * and reusing a key for a different purchase is refused.
+ * <p>
+ * Responses are held in memory, bounded by count and time to live. The optional {@link IdempotencyRecords} table
+ * extends the protection to retries that reach another instance or arrive after a restart.
+ */
+public class IdempotencyStore {
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final AsyncCache<String, IdempotentPurchase> cache;
+
+    private final Duration waitTimeout;
+
+    /**
+     * Optional table of outcomes, null when responses are only kept in memory
+     */
+    private final IdempotencyRecords records;
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+    private final LongAdder mismatched = new LongAdder();
+
+    /**
+     * @param maximumSize Keys kept in memory at most
+     * @param timeToLive  How long a response is replayed after the purchase finished
+     * @param waitTimeout How long a repeated request waits for the original to finish
+     * @param records     Table of outcomes, or null to keep them only in memory
+     */
+    public IdempotencyStore(long maximumSize, Duration timeToLive, Duration waitTimeout, IdempotencyRecords records) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .buildAsync();
+        this.waitTimeout = waitTimeout;
+        this.records = records;
+    }
+
+    /**
+     * Run a purchase once per key
+     *
+     * @param key      The Idempotency-Key of the request
+     * @param request  The purchase request, compared with the request the key was first used with
+     * @param purchase Runs the purchase
+     * @return The response of the first successful request with the key, and whether it was replayed
+     * @throws IllegalArgumentException     if the key is blank or too long, or was first used for a different purchase
+     * @throws IdempotencyConflictException if the first request with the key is still running after the wait timeout
+     */
+    public IdempotentPurchase execute(String key, PurchaseRequest request, Supplier<PurchaseResponse> purchase) {
+        return execute(key, request, Supplier::get, purchase);
+    }
+
+    /**
+     * Run a purchase once per key, under guards that must also cover the transaction recording its outcome
+     * Only the request that runs the purchase goes through the guard; a request repeating a key in progress waits
+     * for its outcome without it.
+     *
+     * @param key      The Idempotency-Key of the request
+     * @param request  The purchase request, compared with the request the key was first used with
+     * @param guard    Runs the purchase, and the transaction recording it if the outcomes are kept in a table, for
+     *                 example holding the customer lock; a replayed outcome means this request's purchase did not
+     *                 commit
+     * @param purchase Runs the purchase
+     * @return The response of the first successful request with the key, and whether it was replayed
+     * @throws IllegalArgumentException     if the key is blank or too long, or was first used for a different purchase
+     * @throws IdempotencyConflictException if the first request with the key is still running after the wait timeout
+     */
+    public IdempotentPurchase execute(String key, PurchaseRequest request,
+                                      Function<Supplier<IdempotentPurchase>, IdempotentPurchase> guard,
+                                      Supplier<PurchaseResponse> purchase) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH
+                    + " characters");
+        }
+        String fingerprint = fingerprint(request);
+
+        CompletableFuture<IdempotentPurchase> own = new CompletableFuture<>();
+        CompletableFuture<IdempotentPurchase> existing = cache.asMap().putIfAbsent(key, own);
+        if (existing != null) {
+            if (!existing.isDone()) {
+                joined.increment();
+            }
+            return replay(await(existing), fingerprint);
+        }
+
+        IdempotentPurchase outcome;
+        try {
+            outcome = guard.apply(() -> records == null
+                    ? new IdempotentPurchase(fingerprint, purchase.get(), false)
+                    : records.executeAndRecord(key, fingerprint, purchase));
+        } catch (RuntimeException | Error e) {
+            cache.asMap().remove(key, own);
+            own.completeExceptionally(e);
+            throw e;
+        }
+        own.complete(outcome);
+        if (outcome.replayed()) {
+            return replay(outcome, fingerprint);
+        }
+        executed.increment();
+        return outcome;
+    }
+
+    /**
+     * Get the store counters
+     *
+     * @return The keys held in memory and the executed, replayed, joined and refused request counts
+     */
+    public IdempotencyStatsResponse stats() {
+        return new IdempotencyStatsResponse(cache.synchronous().estimatedSize(), executed.sum(), replayed.sum(),
+                joined.sum(), mismatched.sum());
+    }
+
+    private IdempotentPurchase replay(IdempotentPurchase stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            mismatched.increment();
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different purchase");
+        }
+        replayed.increment();
+        return stored.asReplay();
+    }
+
+    private IdempotentPurchase await(CompletableFuture<IdempotentPurchase> original) {
+        try {
+            return original.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A purchase with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original purchase", e);
+        } catch (ExecutionException e) {
+            // The original attempt failed; report the same failure
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Original purchase failed", e.getCause());
+        }
+    }
+
+    /**
+     * Digest of what makes two purchase requests the same purchase: customer, books in order, and quote token
+     */
+    static String fingerprint(PurchaseRequest request) {
+        String canonical = request.getCustomerId() + "|" + request.getBookIds() + "|" + request.getQuoteToken();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.bookstore.service.purchase;
+
+import com.bookstore.dto.PurchaseResponse;
+
+/**
+ * Outcome of a purchase made with an Idempotency-Key
+ *
+ * @param fingerprint Digest of the request the key was first used with
+ * @param response    The response of the first request with the key
+ * @param replayed    Whether the response was stored by an earlier request rather than produced by this one
+ */
+public record IdempotentPurchase(String fingerprint, PurchaseResponse response, boolean replayed) {
+
+    IdempotentPurchase asReplay() {
+        return replayed ? this : new IdempotentPurchase(fingerprint, response, true);
+    }
+}
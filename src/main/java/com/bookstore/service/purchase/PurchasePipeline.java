@@ -0,0 +1,224 @@
+package com.bookstore.service.purchase;
+
+import com.bookstore.dto.PurchasePipelineStatsResponse;
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.dto.PurchaseStatusResponse;
+import com.bookstore.exception.PurchaseQueueFullException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process pipeline that runs purchases after their request has been answered
+ * Every accepted purchase gets a virtual thread, which waits for one of a fixed number of processing slots before
+ * running; the slots keep the database from seeing more concurrent purchases than it has connections for, and the
+ * threads waiting for a slot are the queue. The pipeline accepts a fixed number of purchases, queued and processing
+ * together, and refuses more until some finish.
+ * <p>
+ * The status of a purchase is kept for a while after it finished so clients can poll for it. Purchases live only in
+ * this JVM: on shutdown the pipeline stops accepting and waits a bounded time for the accepted ones to finish.
+ */
+public class PurchasePipeline implements AutoCloseable {
+
+    private final int capacity;
+    private final int concurrency;
+    private final Duration drainTimeout;
+    private final Clock clock;
+
+    private final Semaphore admissions;
+    private final Semaphore slots;
+    private final ExecutorService executor;
+    private final Cache<String, PurchaseJob> jobs;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger processing = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder processingNanos = new LongAdder();
+    private final LongAccumulator maxProcessingNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param capacity     Purchases accepted at most, queued and processing together
+     * @param concurrency  Purchases processed at the same time at most
+     * @param retention    How long the status of a purchase is kept after its last change
+     * @param drainTimeout How long closing waits for accepted purchases to finish
+     * @param clock        Clock of the submission and completion times
+     */
+    public PurchasePipeline(int capacity, int concurrency, Duration retention, Duration drainTimeout, Clock clock) {
+        if (capacity < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("Purchase pipeline capacity and concurrency must be at least 1");
+        }
+        this.capacity = capacity;
+        this.concurrency = Math.min(concurrency, capacity);
+        this.drainTimeout = drainTimeout;
+        this.clock = clock;
+        this.admissions = new Semaphore(capacity);
+        this.slots = new Semaphore(this.concurrency, true);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("purchase-", 1).factory());
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    /**
+     * Accept a purchase for processing
+     *
+     * @param purchase Runs the purchase and returns its outcome; an IllegalArgumentException or any other runtime
+     *                 exception marks the purchase as failed with the exception's message
+     * @return The status of the accepted purchase, with the ID to poll it by
+     * @throws PurchaseQueueFullException if the pipeline already holds as many purchases as it accepts
+     */
+    public PurchaseStatusResponse submit(Supplier<PurchaseResponse> purchase) {
+        if (!admissions.tryAcquire()) {
+            rejected.increment();
+            throw new PurchaseQueueFullException(capacity);
+        }
+        PurchaseJob job = new PurchaseJob(UUID.randomUUID().toString(), clock.instant(), System.nanoTime());
+        jobs.put(job.id, job);
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> run(job, purchase));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            jobs.invalidate(job.id);
+            admissions.release();
+            throw new IllegalStateException("Purchase pipeline is shut down", e);
+        }
+        submitted.increment();
+        return job.toResponse();
+    }
+
+    /**
+     * Get the status of a purchase
+     *
+     * @param purchaseId The ID returned on submission
+     * @return The status, or empty if the ID is unknown or its status is no longer kept
+     */
+    public Optional<PurchaseStatusResponse> getStatus(String purchaseId) {
+        PurchaseJob job = purchaseId == null ? null : jobs.getIfPresent(purchaseId);
+        return Optional.ofNullable(job).map(PurchaseJob::toResponse);
+    }
+
+    /**
+     * Get the pipeline counters
+     *
+     * @return The limits, the purchases queued and processing now, outcome counts and latencies
+     */
+    public PurchasePipelineStatsResponse stats() {
+        long started = completed.sum() + failed.sum() + processing.get();
+        long finished = completed.sum() + failed.sum();
+        return new PurchasePipelineStatsResponse(capacity, concurrency, queued.get(), processing.get(),
+                submitted.sum(), rejected.sum(), completed.sum(), failed.sum(),
+                averageMicros(queueWaitNanos.sum(), started), TimeUnit.NANOSECONDS.toMicros(maxQueueWaitNanos.get()),
+                averageMicros(processingNanos.sum(), finished),
+                TimeUnit.NANOSECONDS.toMicros(maxProcessingNanos.get()));
+    }
+
+    private void run(PurchaseJob job, Supplier<PurchaseResponse> purchase) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued.decrementAndGet();
+            finish(job, null, "Purchase pipeline shut down before the purchase ran");
+            admissions.release();
+            return;
+        }
+        long start = System.nanoTime();
+        long waited = start - job.submittedNanos;
+        queueWaitNanos.add(waited);
+        maxQueueWaitNanos.accumulate(waited);
+        queued.decrementAndGet();
+        processing.incrementAndGet();
+        job.status = PurchaseStatusResponse.Status.PROCESSING;
+        jobs.put(job.id, job);
+        try {
+            finish(job, purchase.get(), null);
+        } catch (RuntimeException | Error e) {
+            finish(job, null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            if (e instanceof Error error) {
+                // Failed first, so the job does not stay PROCESSING until its status expires
+                throw error;
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            processingNanos.add(elapsed);
+            maxProcessingNanos.accumulate(elapsed);
+            processing.decrementAndGet();
+            slots.release();
+            admissions.release();
+        }
+    }
+
+    private void finish(PurchaseJob job, PurchaseResponse result, String message) {
+        job.result = result;
+        job.message = message;
+        job.completedAt = clock.instant();
+        // Written last so a reader that sees the final status also sees the outcome
+        job.status = result != null ? PurchaseStatusResponse.Status.COMPLETED : PurchaseStatusResponse.Status.FAILED;
+        (result != null ? completed : failed).increment();
+        jobs.put(job.id, job);
+    }
+
+    private static long averageMicros(long totalNanos, long count) {
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos / count);
+    }
+
+    /**
+     * Stop accepting purchases when the application context closes, and give the accepted ones time to finish
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class PurchaseJob {
+        private final String id;
+        private final Instant submittedAt;
+        private final long submittedNanos;
+        private volatile PurchaseStatusResponse.Status status = PurchaseStatusResponse.Status.QUEUED;
+        private PurchaseResponse result;
+        private String message;
+        private Instant completedAt;
+
+        private PurchaseJob(String id, Instant submittedAt, long submittedNanos) {
+            this.id = id;
+            this.submittedAt = submittedAt;
+            this.submittedNanos = submittedNanos;
+        }
+
+        private PurchaseStatusResponse toResponse() {
+            PurchaseStatusResponse.Status current = status;
+            boolean done = current == PurchaseStatusResponse.Status.COMPLETED
+                    || current == PurchaseStatusResponse.Status.FAILED;
+            return new PurchaseStatusResponse(id, current, submittedAt, done ? completedAt : null,
+                    done ? result : null, done ? message : null);
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.bookstore.service.search;
+
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.service.BookChangeListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over book titles
+ * Titles are split into lower-case, accent-free tokens, and every token is indexed under its edge n-grams
+ * (prefixes of 1 to {@value #MAX_PREFIX_LENGTH} characters), so a query matches titles containing a word starting
+ * with each query word. Posting lists are sorted arrays of book IDs; documents only keep the title tokens and the
+ * type, so a search returns book IDs and the caller loads the books of the page it shows. The index is kept current
+ * through {@link BookChangeListener}.
+ */
+public class TitleSearchIndex implements BookChangeListener {
+
+    static final int MAX_PREFIX_LENGTH = 12;
+
+    /**
+     * Deepest hit a page may reach; a later page would keep that many hits in memory to rank them
+     */
+    public static final int MAX_RESULT_WINDOW = 10_000;
+
+    /**
+     * Books matching every posting list that one search scores at most by default; past that the total is an estimate
+     */
+    public static final int DEFAULT_MAX_CANDIDATES = 50_000;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Best hits first: higher score, then shorter title, then lower ID
+     */
+    private static final Comparator<Hit> RANKING = Comparator.comparingInt(Hit::score).reversed()
+            .thenComparingInt(Hit::tokenCount)
+            .thenComparingLong(Hit::id);
+
+    private final int maxCandidates;
+
+    /**
+     * Guards all the state below; searches share it, writes are short and take it exclusively
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, IndexedTitle> documents = new HashMap<>();
+
+    private final Map<String, Posting> postings = new HashMap<>();
+
+    private final Set<Long> deletedWhileLoading = new HashSet<>();
+
+    private boolean loading;
+
+    /**
+     * @param maxCandidates Books matching every posting list that one search scores at most
+     */
+    public TitleSearchIndex(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    @Override
+    public void bookSaved(Book book) {
+        index(book, true);
+    }
+
+    @Override
+    public void bookDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                deletedWhileLoading.add(id);
+            }
+            IndexedTitle previous = documents.remove(id);
+            if (previous != null) {
+                removePostings(id, previous.tokens());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fill the index from the catalog
+     * Books written through {@link #bookSaved(Book)} while the load is running take precedence over the rows it reads
+     *
+     * @param source Pushes every book of the catalog to the given consumer
+     */
+    public void load(Consumer<Consumer<Book>> source) {
+        setLoading(true);
+        try {
+            source.accept(book -> index(book, false));
+        } finally {
+            setLoading(false);
+        }
+    }
+
+    /**
+     * Number of indexed books
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search titles containing a word starting with every word of the query
+     * Exact word matches rank above prefix matches, titles starting with the first query word get a bonus,
+     * and shorter titles rank first among equal scores. A search scores a bounded number of candidate books, in ID
+     * order; when a query matches more, the results are ranked among those only, so better matches with higher IDs
+     * may be missing, which the result reports, and the total is estimated.
+     *
+     * @param query The search words
+     * @param type  Only return books of this type, or null for all types
+     * @param page  The 0-based page of the ranked results
+     * @param size  The page size
+     * @return The IDs of the books on the requested page, best first, the number of matches, and whether every
+     * match was ranked
+     * @throws IllegalArgumentException if the page is negative, the size is less than 1, or the page ends beyond
+     *                                  the first {@value #MAX_RESULT_WINDOW} hits
+     */
+    public SearchResult search(String query, BookType type, int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        if (((long) page + 1) * size > MAX_RESULT_WINDOW) {
+            throw new IllegalArgumentException("Search results are limited to the first " + MAX_RESULT_WINDOW + " hits");
+        }
+        String[] queryTokens = new LinkedHashSet<>(Arrays.asList(tokenize(query))).toArray(String[]::new);
+        if (queryTokens.length == 0) {
+            return SearchResult.EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            Posting[] lists = new Posting[queryTokens.length];
+            for (int i = 0; i < queryTokens.length; i++) {
+                String token = queryTokens[i];
+                lists[i] = postings.get(token.length() > MAX_PREFIX_LENGTH ? token.substring(0, MAX_PREFIX_LENGTH) : token);
+                if (lists[i] == null) {
+                    return SearchResult.EMPTY;
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(Posting::size));
+            return rank(lists, queryTokens, type, page, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private SearchResult rank(Posting[] lists, String[] queryTokens, BookType type, int page, int size) {
+        // Intersect the sorted posting lists, walking the smallest one and moving a cursor through each other list
+        Posting smallest = lists[0];
+        int[] cursors = new int[lists.length];
+        int keep = (page + 1) * size;
+        PriorityQueue<Hit> top = new PriorityQueue<>(RANKING.reversed());
+        long matches = 0;
+        int candidates = 0;
+        int walked = 0;
+        boolean exhausted = false;
+        while (walked < smallest.size() && candidates < maxCandidates) {
+            long id = smallest.ids[walked++];
+            int contained = containedInAll(id, lists, cursors);
+            if (contained < 0) {
+                // Some other list has no ID left at or above this one, so no later ID can be in all of them
+                exhausted = true;
+                break;
+            }
+            if (contained == 0) {
+                continue;
+            }
+            candidates++;
+            IndexedTitle document = documents.get(id);
+            if (document == null || (type != null && document.type() != type)) {
+                continue;
+            }
+            int score = score(document.tokens(), queryTokens);
+            if (score < 0) {
+                continue;
+            }
+            matches++;
+            top.offer(new Hit(score, document.tokens().length, id));
+            if (top.size() > keep) {
+                top.poll();
+            }
+        }
+
+        // Stopping at the limit leaves the later candidates unscored: they may hold better hits, and are only counted
+        boolean complete = exhausted || walked == smallest.size();
+        long total = complete ? matches : Math.round((double) matches * smallest.size() / walked);
+
+        List<Hit> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        List<Long> ids = new ArrayList<>(size);
+        for (int i = page * size; i < ranked.size(); i++) {
+            ids.add(ranked.get(i).id());
+        }
+        return new SearchResult(ids, total, complete, complete);
+    }
+
+    /**
+     * Check whether every list after the first holds the ID, moving each list's cursor past smaller IDs
+     *
+     * @return 1 if all lists hold it, 0 if one does not, -1 if one has no ID left at or above it
+     */
+    private static int containedInAll(long id, Posting[] lists, int[] cursors) {
+        for (int i = 1; i < lists.length; i++) {
+            Posting list = lists[i];
+            int at = Arrays.binarySearch(list.ids, cursors[i], list.size(), id);
+            if (at >= 0) {
+                cursors[i] = at + 1;
+                continue;
+            }
+            cursors[i] = -at - 1;
+            return cursors[i] == list.size() ? -1 : 0;
+        }
+        return 1;
+    }
+
+    private void index(Book book, boolean replace) {
+        String[] tokens = tokenize(book.getTitle());
+        Long id = book.getId();
+        lock.writeLock().lock();
+        try {
+            if (!replace && deletedWhileLoading.contains(id)) {
+                return;
+            }
+            IndexedTitle previous = documents.get(id);
+            if (previous != null && !replace) {
+                return;
+            }
+            if (previous != null) {
+                removePostings(id, previous.tokens());
+            }
+            for (String term : terms(tokens)) {
+                postings.computeIfAbsent(term, key -> new Posting()).add(id);
+            }
+            documents.put(id, new IndexedTitle(tokens, book.getType()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removePostings(long id, String[] tokens) {
+        for (String term : terms(tokens)) {
+            Posting posting = postings.get(term);
+            if (posting != null && posting.remove(id) && posting.size() == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private void setLoading(boolean loading) {
+        lock.writeLock().lock();
+        try {
+            this.loading = loading;
+            deletedWhileLoading.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Score a title against the query: 2 per query word matching a title word exactly, 1 per prefix match,
+     * 1 more if the title starts with the first query word, or -1 if a query word matches nothing
+     */
+    static int score(String[] titleTokens, String[] queryTokens) {
+        int score = 0;
+        for (String queryToken : queryTokens) {
+            int best = -1;
+            for (String titleToken : titleTokens) {
+                if (titleToken.equals(queryToken)) {
+                    best = 2;
+                    break;
+                }
+                if (titleToken.startsWith(queryToken)) {
+                    best = 1;
+                }
+            }
+            if (best < 0) {
+                return -1;
+            }
+            score += best;
+        }
+        if (titleTokens.length > 0 && titleTokens[0].startsWith(queryTokens[0])) {
+            score++;
+        }
+        return score;
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        String normalized = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens.toArray(String[]::new);
+    }
+
+    static Set<String> terms(String[] tokens) {
+        Set<String> terms = new HashSet<>();
+        for (String token : tokens) {
+            int longest = Math.min(token.length(), MAX_PREFIX_LENGTH);
+            for (int length = 1; length <= longest; length++) {
+                terms.add(token.substring(0, length));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * One page of search results
+     *
+     * @param ids             The IDs of the books on the page, best first
+     * @param total           The number of matching books, estimated when the search stopped early
+     * @param totalExact      Whether the total is an exact count
+     * @param rankingComplete Whether every matching book was ranked; when false the page holds the best of the
+     *                        candidates scored, and better matches may be missing from it
+     */
+    public record SearchResult(List<Long> ids, long total, boolean totalExact, boolean rankingComplete) {
+
+        static final SearchResult EMPTY = new SearchResult(List.of(), 0, true, true);
+    }
+
+    /**
+     * Sorted set of book IDs in a growable primitive array
+     * New books get increasing IDs, so adding them appends; only re-indexed older books shift the array.
+     */
+    private static final class Posting {
+
+        private long[] ids = new long[4];
+
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int at = Arrays.binarySearch(ids, 0, size, id);
+                if (at >= 0) {
+                    return;
+                }
+                insert(-at - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        boolean remove(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            if (size > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, ids.length / 2);
+            }
+            return true;
+        }
+
+        private void insert(int at, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+    }
+
+    private record IndexedTitle(String[] tokens, BookType type) {
+    }
+
+    private record Hit(int score, int tokenCount, long id) {
+    }
+}
@@ -9,17 +9,33 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import com.bookstore.dto.BookImportReport;
+import com.bookstore.dto.BookSearchResponse;
+import com.bookstore.dto.PageResponse;
+import com.bookstore.dto.StockLevelResponse;
+import com.bookstore.dto.StockUpdateRequest;
 import com.bookstore.model.Book;
 import com.bookstore.model.BookType;
+import com.bookstore.service.BookImportService;
 import com.bookstore.service.BookService;
+import com.bookstore.service.search.TitleSearchIndex;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,6 +45,12 @@ public class BookControllerTest {
     @Mock
     private BookService bookService;
 
+    @Mock
+    private BookImportService bookImportService;
+
+    @Mock
+    private TitleSearchIndex titleSearchIndex;
+
     @InjectMocks
     private BookController bookController;
 
@@ -40,21 +62,41 @@ public class BookControllerTest {
     }
 
     @Test
-    void getAllBooks_ShouldReturnAllBooks() {
+    void getBooks_ShouldReturnRequestedPage() {
         // Arrange
-        List<Book> expectedBooks = Arrays.asList(
+        PageResponse<Book> expectedPage = new PageResponse<>(Arrays.asList(
                 testBook,
                 new Book(2L, "Another Book", new BigDecimal("19.99"), BookType.OLD_EDITION)
-        );
-        when(bookService.getAllBooks()).thenReturn(expectedBooks);
+        ), "2");
+        when(bookService.getBooksPage(null, 100)).thenReturn(expectedPage);
+
+        // Act
+        PageResponse<Book> actualPage = bookController.getBooks(null, 100);
+
+        // Assert
+        assertEquals(expectedPage, actualPage);
+        verify(bookService).getBooksPage(null, 100);
+    }
+
+    @Test
+    void getBooks_WithCursorAndOversizedLimit_ShouldCapPageSize() {
+        // Arrange
+        PageResponse<Book> expectedPage = new PageResponse<>(List.of(), null);
+        when(bookService.getBooksPage(42L, 1000)).thenReturn(expectedPage);
 
         // Act
-        List<Book> actualBooks = bookController.getAllBooks();
+        PageResponse<Book> actualPage = bookController.getBooks("42", 1_000_000);
 
         // Assert
-        assertEquals(expectedBooks.size(), actualBooks.size());
-        assertEquals(expectedBooks, actualBooks);
-        verify(bookService).getAllBooks();
+        assertEquals(expectedPage, actualPage);
+        verify(bookService).getBooksPage(42L, 1000);
+    }
+
+    @Test
+    void getBooks_WithInvalidCursor_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> bookController.getBooks("abc", 10));
+        verify(bookService, never()).getBooksPage(any(), anyInt());
     }
 
     @Test
@@ -156,4 +198,68 @@ public class BookControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         verify(bookService).deleteBook(99L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void importBooksCsv_ShouldDelegateToImportService() throws IOException {
+        // Arrange
+        BookImportReport report = new BookImportReport();
+        report.setImported(1);
+        when(bookImportService.importCsv(any(Reader.class))).thenReturn(report);
+
+        // Act
+        BookImportReport result = bookController.importBooksCsv(
+                new ByteArrayInputStream("Title,9.99,REGULAR".getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertEquals(report, result);
+        verify(bookImportService).importCsv(any(Reader.class));
+    }
+
+    @Test
+    void searchBooks_ShouldQueryIndexWithCappedPageSizeAndLoadPageBooks() {
+        // Arrange
+        when(titleSearchIndex.search("test", BookType.REGULAR, 0, 1000))
+                .thenReturn(new TitleSearchIndex.SearchResult(List.of(1L, 2L), 2, true, true));
+        // Book 2 was deleted after the search ran
+        when(bookService.findBooksByIds(List.of(1L, 2L))).thenReturn(Map.of(1L, testBook));
+
+        // Act
+        BookSearchResponse result = bookController.searchBooks("test", BookType.REGULAR, 0, 5000);
+
+        // Assert
+        assertEquals(new BookSearchResponse(List.of(testBook), 2, true, true, 0, 1000), result);
+    }
+
+    @Test
+    void searchBooks_WithNegativePage_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> bookController.searchBooks("test", null, -1, 20));
+    }
+
+    @Test
+    void getStock_WithManagedBook_ShouldReturnStockLevel() {
+        // Arrange
+        StockLevelResponse level = new StockLevelResponse(1L, true, 10L, 2L, 8L);
+        when(bookService.getStockLevel(1L)).thenReturn(Optional.of(level));
+
+        // Act
+        ResponseEntity<StockLevelResponse> response = bookController.getStock(1L);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(level, response.getBody());
+    }
+
+    @Test
+    void setStock_WithNonExistingId_ShouldReturnNotFound() {
+        // Arrange
+        when(bookService.setStock(99L, 10)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<StockLevelResponse> response = bookController.setStock(99L, new StockUpdateRequest(10));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+}
@@ -0,0 +1,100 @@
+package com.bookstore.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.bookstore.dto.BulkPurchaseResponse;
+import com.bookstore.service.purchase.BulkPurchases;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkPurchaseControllerTest {
+
+    @Mock
+    private BulkPurchases bulkPurchases;
+
+    private BulkPurchaseController bulkPurchaseController;
+
+    @BeforeEach
+    void setUp() {
+        bulkPurchaseController = new BulkPurchaseController(bulkPurchases);
+    }
+
+    @Test
+    void purchaseNdjson_ShouldAnswerCreatedWithSummary() throws Exception {
+        // Arrange
+        BulkPurchaseResponse summary = new BulkPurchaseResponse("order-1", 7L, 2, 2, 0, 5, 0,
+                new BigDecimal("50.00"), 5, Instant.EPOCH, 3);
+        when(bulkPurchases.purchaseNdjson(eq(7L), any(Reader.class))).thenReturn(summary);
+
+        // Act
+        ResponseEntity<BulkPurchaseResponse> response = bulkPurchaseController.purchaseNdjson(7L,
+                new ByteArrayInputStream("{\"bookId\": 1, \"quantity\": 5}".getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(URI.create("/api/purchases/bulk/order-1"), response.getHeaders().getLocation());
+        assertEquals(summary, response.getBody());
+    }
+
+    @Test
+    void getLines_ShouldStreamTheResultFile() throws Exception {
+        // Arrange
+        String lines = "{\"line\":1}\n{\"line\":2}\n";
+        when(bulkPurchases.openLines("order-1")).thenReturn(Optional.of(
+                new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8))));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = bulkPurchaseController.getLines("order-1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(lines, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void getSummary_WithUnknownOrder_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(bulkPurchases.getSummary("missing")).thenReturn(Optional.empty());
+        when(bulkPurchases.openLines("missing")).thenReturn(Optional.<InputStream>empty());
+
+        // Act & Assert
+        assertEquals(HttpStatus.NOT_FOUND, bulkPurchaseController.getSummary("missing").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, bulkPurchaseController.getLines("missing").getStatusCode());
+    }
+
+    @Test
+    void purchaseCsv_WhenDisabled_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        BulkPurchaseController disabledController = new BulkPurchaseController(null);
+
+        // Act
+        ResponseEntity<BulkPurchaseResponse> response = disabledController.purchaseCsv(7L,
+                new ByteArrayInputStream(new byte[0]));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+}
@@ -9,15 +9,24 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import com.bookstore.dto.PageResponse;
+import com.bookstore.dto.PurchaseHistoryEntry;
 import com.bookstore.model.Customer;
 import com.bookstore.service.CustomerService;
+import com.bookstore.service.PurchaseHistoryService;
 
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -27,6 +36,9 @@ public class CustomerControllerTest {
     @Mock
     private CustomerService customerService;
 
+    @Mock
+    private PurchaseHistoryService purchaseHistoryService;
+
     @InjectMocks
     private CustomerController customerController;
 
@@ -38,21 +50,41 @@ public class CustomerControllerTest {
     }
 
     @Test
-    void getAllCustomers_ShouldReturnAllCustomers() {
+    void getCustomers_ShouldReturnRequestedPage() {
         // Arrange
-        List<Customer> expectedCustomers = Arrays.asList(
+        PageResponse<Customer> expectedPage = new PageResponse<>(Arrays.asList(
                 testCustomer,
                 new Customer(2L, "Another Customer", 10)
-        );
-        when(customerService.getAllCustomers()).thenReturn(expectedCustomers);
+        ), "2");
+        when(customerService.getCustomersPage(null, 100)).thenReturn(expectedPage);
 
         // Act
-        List<Customer> actualCustomers = customerController.getAllCustomers();
+        PageResponse<Customer> actualPage = customerController.getCustomers(null, 100);
 
         // Assert
-        assertEquals(expectedCustomers.size(), actualCustomers.size());
-        assertEquals(expectedCustomers, actualCustomers);
-        verify(customerService).getAllCustomers();
+        assertEquals(expectedPage, actualPage);
+        verify(customerService).getCustomersPage(null, 100);
+    }
+
+    @Test
+    void getCustomers_WithCursorAndOversizedLimit_ShouldCapPageSize() {
+        // Arrange
+        PageResponse<Customer> expectedPage = new PageResponse<>(List.of(), null);
+        when(customerService.getCustomersPage(42L, 1000)).thenReturn(expectedPage);
+
+        // Act
+        PageResponse<Customer> actualPage = customerController.getCustomers("42", 1_000_000);
+
+        // Assert
+        assertEquals(expectedPage, actualPage);
+        verify(customerService).getCustomersPage(42L, 1000);
+    }
+
+    @Test
+    void getCustomers_WithInvalidCursor_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> customerController.getCustomers("abc", 10));
+        verify(customerService, never()).getCustomersPage(any(), anyInt());
     }
 
     @Test
@@ -132,7 +164,7 @@ public class CustomerControllerTest {
     @Test
     void getLoyaltyPoints_WithExistingId_ShouldReturnPoints() {
         // Arrange
-        when(customerService.getCustomerById(1L)).thenReturn(Optional.of(testCustomer));
+        when(customerService.getLoyaltyPoints(1L)).thenReturn(Optional.of(5));
 
         // Act
         ResponseEntity<Integer> response = customerController.getLoyaltyPoints(1L);
@@ -140,13 +172,14 @@ public class CustomerControllerTest {
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(5, response.getBody());
-        verify(customerService).getCustomerById(1L);
+        verify(customerService).getLoyaltyPoints(1L);
+        verify(customerService, never()).getCustomerById(1L);
     }
 
     @Test
     void getLoyaltyPoints_WithNonExistingId_ShouldReturnNotFound() {
         // Arrange
-        when(customerService.getCustomerById(99L)).thenReturn(Optional.empty());
+        when(customerService.getLoyaltyPoints(99L)).thenReturn(Optional.empty());
 
         // Act
         ResponseEntity<Integer> response = customerController.getLoyaltyPoints(99L);
@@ -154,6 +187,47 @@ public class CustomerControllerTest {
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         assertNull(response.getBody());
-        verify(customerService).getCustomerById(99L);
+        verify(customerService).getLoyaltyPoints(99L);
+    }
+
+    @Test
+    void getPurchases_WithExistingId_ShouldReturnRequestedPage() {
+        // Arrange
+        Instant createdAt = Instant.parse("2024-05-01T10:00:00Z");
+        PurchaseHistoryService.Cursor cursor = new PurchaseHistoryService.Cursor(createdAt, 7L);
+        PageResponse<PurchaseHistoryEntry> expectedPage = new PageResponse<>(List.of(
+                new PurchaseHistoryEntry(6L, createdAt, new BigDecimal("20.00"), 3, List.of())), null);
+        when(customerService.getCustomerById(1L)).thenReturn(Optional.of(testCustomer));
+        when(purchaseHistoryService.getPurchasesPage(1L, cursor, 1000)).thenReturn(expectedPage);
+
+        // Act
+        ResponseEntity<PageResponse<PurchaseHistoryEntry>> response =
+                customerController.getPurchases(1L, cursor.encode(), 1_000_000);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedPage, response.getBody());
+        verify(purchaseHistoryService).getPurchasesPage(1L, cursor, 1000);
+    }
+
+    @Test
+    void getPurchases_WithNonExistingId_ShouldReturnNotFound() {
+        // Arrange
+        when(customerService.getCustomerById(99L)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<PageResponse<PurchaseHistoryEntry>> response = customerController.getPurchases(99L, null, 100);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(purchaseHistoryService, never()).getPurchasesPage(any(), any(), anyInt());
+    }
+
+    @Test
+    void getPurchases_WithInvalidCursor_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> customerController.getPurchases(1L, "not-a-cursor", 10));
+        verify(purchaseHistoryService, never()).getPurchasesPage(any(), any(), anyInt());
     }
-}
\ No newline at end of file
+}
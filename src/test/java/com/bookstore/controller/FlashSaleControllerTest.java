@@ -0,0 +1,96 @@
+package com.bookstore.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.bookstore.dto.FlashSaleRequest;
+import com.bookstore.dto.FlashSaleResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.service.BookService;
+import com.bookstore.service.purchase.FlashSales;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FlashSaleControllerTest {
+
+    @Mock
+    private BookService bookService;
+
+    private FlashSales flashSales;
+
+    private FlashSaleController flashSaleController;
+
+    @BeforeEach
+    void setUp() {
+        flashSales = new FlashSales(Clock.systemUTC());
+        flashSaleController = new FlashSaleController(bookService, flashSales);
+    }
+
+    @Test
+    void startSale_WithExistingBook_ShouldStartSale() {
+        // Arrange
+        when(bookService.getBookById(1L)).thenReturn(Optional.of(
+                new Book(1L, "Launch Title", new BigDecimal("24.99"), BookType.NEW_RELEASE)));
+
+        // Act
+        ResponseEntity<FlashSaleResponse> response = flashSaleController.startSale(1L, new FlashSaleRequest(300));
+        ResponseEntity<List<FlashSaleResponse>> sales = flashSaleController.getSales();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(300, response.getBody().getRemaining());
+        assertEquals(1, sales.getBody().size());
+        assertEquals(1L, sales.getBody().get(0).getBookId());
+    }
+
+    @Test
+    void startSale_WithNonExistingBook_ShouldReturnNotFound() {
+        // Arrange
+        when(bookService.getBookById(99L)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<FlashSaleResponse> response = flashSaleController.startSale(99L, new FlashSaleRequest(300));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertEquals(Optional.empty(), flashSales.get(99L));
+    }
+
+    @Test
+    void endSale_WithoutSale_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<Void> response = flashSaleController.endSale(1L);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getSales_WithFlashSalesDisabled_ShouldReturnNotFound() {
+        // Arrange
+        FlashSaleController disabledController = new FlashSaleController(bookService, null);
+
+        // Act
+        ResponseEntity<List<FlashSaleResponse>> response = disabledController.getSales();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(bookService, never()).getBookById(any());
+    }
+}
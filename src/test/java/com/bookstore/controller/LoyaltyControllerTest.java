@@ -0,0 +1,103 @@
+package com.bookstore.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.bookstore.dto.LoyaltyReplayResponse;
+import com.bookstore.dto.PageResponse;
+import com.bookstore.model.LoyaltyEvent;
+import com.bookstore.model.LoyaltyEventType;
+import com.bookstore.service.CustomerService;
+import com.bookstore.service.ledger.LoyaltyLedger;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LoyaltyControllerTest {
+
+    @Mock
+    private CustomerService customerService;
+
+    @Mock
+    private LoyaltyLedger ledger;
+
+    private LoyaltyController loyaltyController;
+
+    @BeforeEach
+    void setUp() {
+        loyaltyController = new LoyaltyController(customerService, ledger);
+    }
+
+    @Test
+    void getEvents_WithKnownCustomer_ShouldReturnPageFromCursor() {
+        // Arrange
+        PageResponse<LoyaltyEvent> page = new PageResponse<>(
+                List.of(new LoyaltyEvent(41L, 1L, LoyaltyEventType.EARN, 2, 7, Instant.EPOCH)), "41");
+        when(customerService.getLoyaltyPoints(1L)).thenReturn(Optional.of(7));
+        when(ledger.getEvents(1L, 50L, 1)).thenReturn(page);
+
+        // Act
+        ResponseEntity<PageResponse<LoyaltyEvent>> response = loyaltyController.getEvents(1L, "50", 1);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(page, response.getBody());
+    }
+
+    @Test
+    void getEvents_WithUnknownCustomer_ShouldReturnNotFound() {
+        // Arrange
+        when(customerService.getLoyaltyPoints(99L)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<PageResponse<LoyaltyEvent>> response = loyaltyController.getEvents(99L, null, 100);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getEvents_WithInvalidCursor_ShouldThrowIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> loyaltyController.getEvents(1L, "next", 100));
+    }
+
+    @Test
+    void replay_WithLedgerEnabled_ShouldReturnReport() {
+        // Arrange
+        LoyaltyReplayResponse report = new LoyaltyReplayResponse(4, 10, 250, 1, 1, 1, 12);
+        when(ledger.replay(true)).thenReturn(report);
+
+        // Act
+        ResponseEntity<LoyaltyReplayResponse> response = loyaltyController.replay(true);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(report, response.getBody());
+        verify(ledger).replay(true);
+    }
+
+    @Test
+    void replay_WithLedgerDisabled_ShouldReturnNotFound() {
+        // Arrange
+        LoyaltyController disabledController = new LoyaltyController(customerService, null);
+
+        // Act
+        ResponseEntity<LoyaltyReplayResponse> response = disabledController.replay(false);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+}
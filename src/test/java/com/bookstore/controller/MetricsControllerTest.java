@@ -0,0 +1,284 @@
+package com.bookstore.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.bookstore.dto.CacheStatsResponse;
+import com.bookstore.dto.GroupCommitStatsResponse;
+import com.bookstore.dto.IdempotencyStatsResponse;
+import com.bookstore.dto.InventoryStatsResponse;
+import com.bookstore.dto.LedgerStatsResponse;
+import com.bookstore.dto.LockStatsResponse;
+import com.bookstore.dto.LoyaltyLedgerStatsResponse;
+import com.bookstore.dto.PurchasePipelineStatsResponse;
+import com.bookstore.service.cache.BookCache;
+import com.bookstore.service.cache.CustomerCache;
+import com.bookstore.service.inventory.BookInventory;
+import com.bookstore.service.ledger.LedgerDurability;
+import com.bookstore.service.ledger.LoyaltyLedger;
+import com.bookstore.service.ledger.PurchaseLedger;
+import com.bookstore.service.lock.CustomerLocks;
+import com.bookstore.service.purchase.GroupCommitExecutor;
+import com.bookstore.service.purchase.IdempotencyStore;
+import com.bookstore.service.purchase.PurchasePipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetricsControllerTest {
+
+    private BookCache bookCache;
+
+    private CustomerLocks customerLocks;
+
+    private PurchasePipeline purchasePipeline;
+
+    private IdempotencyStore idempotencyStore;
+
+    private PurchaseLedger purchaseLedger;
+
+    private GroupCommitExecutor groupCommitExecutor;
+
+    private BookInventory bookInventory;
+
+    private LoyaltyLedger loyaltyLedger;
+
+    private CustomerCache customerCache;
+
+    /**
+     * Build the controller from the components the test has set; the others stay disabled
+     */
+    private MetricsController metricsController() {
+        return new MetricsController(bookCache, customerLocks, purchasePipeline, idempotencyStore, purchaseLedger,
+                groupCommitExecutor, bookInventory, loyaltyLedger, customerCache);
+    }
+
+    @Test
+    void getBookCacheStats_WithCacheEnabled_ShouldReturnStats() {
+        // Arrange
+        BookCache cache = mock(BookCache.class);
+        CacheStatsResponse stats = new CacheStatsResponse(3, 10, 2, 0, 10 / 12.0);
+        when(cache.stats()).thenReturn(stats);
+        bookCache = cache;
+
+        // Act
+        ResponseEntity<CacheStatsResponse> response = metricsController().getBookCacheStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void getBookCacheStats_WithCacheDisabled_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<CacheStatsResponse> response = metricsController().getBookCacheStats();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getCustomerCacheStats_WithCacheEnabled_ShouldReturnStats() {
+        // Arrange
+        CustomerCache cache = mock(CustomerCache.class);
+        CacheStatsResponse stats = new CacheStatsResponse(2, 30, 2, 0, 30 / 32.0);
+        when(cache.stats()).thenReturn(stats);
+        customerCache = cache;
+
+        // Act
+        ResponseEntity<CacheStatsResponse> response = metricsController().getCustomerCacheStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void getCustomerCacheStats_WithCacheDisabled_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<CacheStatsResponse> response = metricsController().getCustomerCacheStats();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getPurchaseLockStats_WithLocksEnabled_ShouldReturnStats() {
+        // Arrange
+        CustomerLocks locks = new CustomerLocks(16);
+        locks.withLock(1L, () -> null);
+        customerLocks = locks;
+
+        // Act
+        ResponseEntity<LockStatsResponse> response = metricsController().getPurchaseLockStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(16, response.getBody().getStripes());
+        assertEquals(1, response.getBody().getAcquisitionCount());
+    }
+
+    @Test
+    void getPurchaseLockStats_WithLocksDisabled_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<LockStatsResponse> response = metricsController().getPurchaseLockStats();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getPurchasePipelineStats_WithPipelineEnabled_ShouldReturnStats() {
+        // Arrange
+        PurchasePipeline pipeline = mock(PurchasePipeline.class);
+        PurchasePipelineStatsResponse stats = new PurchasePipelineStatsResponse(100, 4, 7, 4, 50, 2, 38, 1,
+                1200, 5000, 800, 3000);
+        when(pipeline.stats()).thenReturn(stats);
+        purchasePipeline = pipeline;
+
+        // Act
+        ResponseEntity<PurchasePipelineStatsResponse> response = metricsController().getPurchasePipelineStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void getPurchasePipelineStats_WithPipelineDisabled_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<PurchasePipelineStatsResponse> response = metricsController().getPurchasePipelineStats();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getIdempotencyStats_WithStoreEnabled_ShouldReturnStats() {
+        // Arrange
+        IdempotencyStore store = mock(IdempotencyStore.class);
+        IdempotencyStatsResponse stats = new IdempotencyStatsResponse(12, 12, 3, 1, 0);
+        when(store.stats()).thenReturn(stats);
+        idempotencyStore = store;
+
+        // Act
+        ResponseEntity<IdempotencyStatsResponse> response = metricsController().getIdempotencyStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void getIdempotencyStats_WithStoreDisabled_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<IdempotencyStatsResponse> response = metricsController().getIdempotencyStats();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getLedgerStats_WithLedgerEnabled_ShouldReturnStats() {
+        // Arrange
+        PurchaseLedger ledger = mock(PurchaseLedger.class);
+        LedgerStatsResponse stats = new LedgerStatsResponse(LedgerDurability.BATCHED, 3, 120, 10, 0, 12.0, 40, 900);
+        when(ledger.stats()).thenReturn(stats);
+        purchaseLedger = ledger;
+
+        // Act
+        ResponseEntity<LedgerStatsResponse> response = metricsController().getLedgerStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void getLedgerStats_WithLedgerDisabled_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<LedgerStatsResponse> response = metricsController().getLedgerStats();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getGroupCommitStats_WithGroupCommitEnabled_ShouldReturnStats() {
+        // Arrange
+        GroupCommitExecutor executor = mock(GroupCommitExecutor.class);
+        GroupCommitStatsResponse stats = new GroupCommitStatsResponse(2, 10, 180, 1, 1, 18.0, 40, 700, 1500);
+        when(executor.stats()).thenReturn(stats);
+        groupCommitExecutor = executor;
+
+        // Act
+        ResponseEntity<GroupCommitStatsResponse> response = metricsController().getGroupCommitStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void getGroupCommitStats_WithGroupCommitDisabled_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<GroupCommitStatsResponse> response = metricsController().getGroupCommitStats();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getInventoryStats_WithInventoryEnabled_ShouldReturnStats() {
+        // Arrange
+        BookInventory inventory = mock(BookInventory.class);
+        InventoryStatsResponse stats = new InventoryStatsResponse(3, 2, 40, 5, 60, 4, 30);
+        when(inventory.stats()).thenReturn(stats);
+        bookInventory = inventory;
+
+        // Act
+        ResponseEntity<InventoryStatsResponse> response = metricsController().getInventoryStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void getInventoryStats_WithInventoryDisabled_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<InventoryStatsResponse> response = metricsController().getInventoryStats();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getLoyaltyLedgerStats_WithLedgerEnabled_ShouldReturnStats() {
+        // Arrange
+        LoyaltyLedger ledger = mock(LoyaltyLedger.class);
+        LoyaltyLedgerStatsResponse stats = new LoyaltyLedgerStatsResponse(5, 0, 120, 120, 9, 0, 120 / 9.0, 40, 350,
+                30, 2, 1);
+        when(ledger.stats()).thenReturn(stats);
+        loyaltyLedger = ledger;
+
+        // Act
+        ResponseEntity<LoyaltyLedgerStatsResponse> response = metricsController().getLoyaltyLedgerStats();
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+    }
+
+    @Test
+    void getLoyaltyLedgerStats_WithLedgerDisabled_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<LoyaltyLedgerStatsResponse> response = metricsController().getLoyaltyLedgerStats();
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+}
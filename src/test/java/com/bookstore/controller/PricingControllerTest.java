@@ -9,18 +9,29 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import com.bookstore.dto.BatchPricingRequest;
+import com.bookstore.dto.BatchPricingResponse;
+import com.bookstore.dto.CartQuote;
 import com.bookstore.dto.PricingRequest;
 import com.bookstore.dto.PricingResponse;
+import com.bookstore.dto.PricingRule;
+import com.bookstore.dto.PricingRulesRequest;
+import com.bookstore.dto.PricingRulesResponse;
 import com.bookstore.model.Book;
 import com.bookstore.model.BookType;
 import com.bookstore.model.Customer;
 import com.bookstore.service.BookService;
 import com.bookstore.service.CustomerService;
+import com.bookstore.service.pricing.BatchPricingService;
+import com.bookstore.service.pricing.PricingRulesService;
 import com.bookstore.service.pricing.PricingService;
+import com.bookstore.service.pricing.QuoteTokenService;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -28,7 +39,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -45,6 +56,15 @@ public class PricingControllerTest {
     @Mock
     private PricingService pricingService;
 
+    @Mock
+    private BatchPricingService batchPricingService;
+
+    @Mock
+    private PricingRulesService pricingRulesService;
+
+    @Mock
+    private QuoteTokenService quoteTokenService;
+
     @InjectMocks
     private PricingController pricingController;
 
@@ -74,8 +94,7 @@ public class PricingControllerTest {
     void calculatePrice_WithValidRequest_ShouldReturnPricingResponse() {
         // Arrange
         when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
-        when(bookService.getBookById(1L)).thenReturn(Optional.of(book1));
-        when(bookService.getBookById(2L)).thenReturn(Optional.of(book2));
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(book1, book2));
         when(pricingService.calculatePrice(anyList(), anyInt(), anyList())).thenReturn(new BigDecimal("45.98"));
 
         // Act
@@ -87,11 +106,30 @@ public class PricingControllerTest {
         assertEquals(2, response.getBody().getBooks().size());
         assertEquals(0, response.getBody().getFreeBooks().size());
         verify(customerService).getCustomerById(1L);
-        verify(bookService).getBookById(1L);
-        verify(bookService).getBookById(2L);
+        verify(bookService).getBooksByIds(Arrays.asList(1L, 2L));
         verify(pricingService).calculatePrice(anyList(), anyInt(), anyList());
     }
 
+    @Test
+    void calculatePrice_WithQuoteTokenRequested_ShouldReturnToken() {
+        // Arrange
+        pricingRequest.setIssueQuoteToken(true);
+        Instant expiresAt = Instant.parse("2026-01-01T10:05:00Z");
+        when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(book1, book2));
+        when(pricingService.getRulesVersion()).thenReturn(3L);
+        when(pricingService.calculatePrice(anyList(), anyInt(), anyList())).thenReturn(new BigDecimal("45.98"));
+        when(quoteTokenService.issue(any(Customer.class), anyList(), any(), eq(3L)))
+                .thenReturn(Optional.of(new QuoteTokenService.IssuedToken("token", expiresAt)));
+
+        // Act
+        ResponseEntity<PricingResponse> response = pricingController.calculatePrice(pricingRequest);
+
+        // Assert
+        assertEquals("token", response.getBody().getQuoteToken());
+        assertEquals(expiresAt, response.getBody().getQuoteExpiresAt());
+    }
+
     @Test
     void calculatePrice_WithNonExistingCustomer_ShouldThrowException() {
         // Arrange
@@ -103,7 +141,7 @@ public class PricingControllerTest {
         });
 
         verify(customerService).getCustomerById(1L);
-        verify(bookService, never()).getBookById(anyLong());
+        verify(bookService, never()).getBooksByIds(anyList());
         verify(pricingService, never()).calculatePrice(anyList(), anyInt(), anyList());
     }
 
@@ -111,8 +149,7 @@ public class PricingControllerTest {
     void calculatePrice_WithNonExistingBook_ShouldThrowException() {
         // Arrange
         when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
-        when(bookService.getBookById(1L)).thenReturn(Optional.of(book1));
-        when(bookService.getBookById(2L)).thenReturn(Optional.empty());
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenThrow(new IllegalArgumentException("Books not found: [2]"));
 
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> {
@@ -120,8 +157,43 @@ public class PricingControllerTest {
         });
 
         verify(customerService).getCustomerById(1L);
-        verify(bookService).getBookById(1L);
-        verify(bookService).getBookById(2L);
+        verify(bookService).getBooksByIds(Arrays.asList(1L, 2L));
         verify(pricingService, never()).calculatePrice(anyList(), anyInt(), anyList());
     }
-}
\ No newline at end of file
+
+    @Test
+    void calculateBatch_ShouldReturnQuotesFromBatchService() {
+        // Arrange
+        BatchPricingRequest batchRequest = new BatchPricingRequest();
+        batchRequest.setCarts(List.of(pricingRequest));
+        CartQuote quote = new CartQuote();
+        quote.setStatus(CartQuote.Status.OK);
+        quote.setTotalPrice(new BigDecimal("45.98"));
+        when(batchPricingService.priceCarts(List.of(pricingRequest))).thenReturn(List.of(quote));
+
+        // Act
+        ResponseEntity<BatchPricingResponse> response = pricingController.calculateBatch(batchRequest);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(quote), response.getBody().getResults());
+        verify(batchPricingService).priceCarts(List.of(pricingRequest));
+    }
+
+    @Test
+    void updateRules_ShouldReturnRulesInForce() {
+        // Arrange
+        PricingRule rule = new PricingRule(BookType.REGULAR, null, new BigDecimal("0.85"), null);
+        PricingRulesRequest rulesRequest = new PricingRulesRequest();
+        rulesRequest.setRules(List.of(rule));
+        PricingRulesResponse rules = new PricingRulesResponse(2, List.of(rule));
+        when(pricingRulesService.updateRules(List.of(rule))).thenReturn(rules);
+
+        // Act
+        ResponseEntity<PricingRulesResponse> response = pricingController.updateRules(rulesRequest);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(rules, response.getBody());
+    }
+}
@@ -11,24 +11,51 @@ import org.springframework.http.ResponseEntity;
 
 import com.bookstore.dto.PurchaseRequest;
 import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.dto.PurchaseStatusResponse;
+import com.bookstore.exception.IdempotencyConflictException;
+import com.bookstore.exception.OutOfStockException;
 import com.bookstore.model.Book;
 import com.bookstore.model.BookType;
 import com.bookstore.model.Customer;
 import com.bookstore.service.BookService;
 import com.bookstore.service.CustomerService;
 import com.bookstore.service.PurchaseService;
+import com.bookstore.service.lock.CustomerLocks;
+import com.bookstore.service.pricing.PriceQuote;
+import com.bookstore.service.pricing.QuoteTokenService;
+import com.bookstore.service.purchase.FlashSales;
+import com.bookstore.service.purchase.GroupCommitExecutor;
+import com.bookstore.service.purchase.IdempotencyRecords;
+import com.bookstore.service.purchase.IdempotencyStore;
+import com.bookstore.service.purchase.IdempotentPurchase;
+import com.bookstore.service.purchase.PurchasePipeline;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,6 +71,9 @@ public class PurchaseControllerTest {
     @Mock
     private PurchaseService purchaseService;
 
+    @Mock
+    private QuoteTokenService quoteTokenService;
+
     @InjectMocks
     private PurchaseController purchaseController;
 
@@ -74,22 +104,175 @@ public class PurchaseControllerTest {
     void purchaseBooks_WithValidRequest_ShouldReturnPurchaseResponse() {
         // Arrange
         when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
-        when(bookService.getBookById(1L)).thenReturn(Optional.of(book1));
-        when(bookService.getBookById(2L)).thenReturn(Optional.of(book2));
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(book1, book2));
         when(purchaseService.purchase(any(Customer.class), anyList())).thenReturn(purchaseResponse);
 
         // Act
-        ResponseEntity<PurchaseResponse> response = purchaseController.purchaseBooks(purchaseRequest);
+        ResponseEntity<PurchaseResponse> response = purchaseController.purchaseBooks(purchaseRequest, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(purchaseResponse, response.getBody());
         verify(customerService).getCustomerById(1L);
-        verify(bookService).getBookById(1L);
-        verify(bookService).getBookById(2L);
+        verify(bookService).getBooksByIds(Arrays.asList(1L, 2L));
+        verify(purchaseService).purchase(any(Customer.class), anyList());
+    }
+
+    @Test
+    void purchaseBooks_WithCustomerLocks_ShouldPurchaseUnderCustomerLock() {
+        // Arrange
+        CustomerLocks customerLocks = new CustomerLocks(16);
+        PurchaseController lockingController = new PurchaseController(bookService, customerService, purchaseService,
+                null, customerLocks, null, null, null, null);
+        when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(book1, book2));
+        when(purchaseService.purchase(any(Customer.class), anyList())).thenReturn(purchaseResponse);
+
+        // Act
+        ResponseEntity<PurchaseResponse> response = lockingController.purchaseBooks(purchaseRequest, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(purchaseResponse, response.getBody());
+        assertEquals(1, customerLocks.stats().getAcquisitionCount());
+    }
+
+    @Test
+    void purchaseBooks_WithGroupCommit_ShouldPurchaseThroughExecutor() {
+        // Arrange
+        GroupCommitExecutor groupCommitExecutor = mock(GroupCommitExecutor.class);
+        PurchaseController groupController = new PurchaseController(bookService, customerService, purchaseService,
+                null, null, null, null, groupCommitExecutor, null);
+        when(groupCommitExecutor.execute(any())).thenAnswer(invocation ->
+                invocation.<Supplier<PurchaseResponse>>getArgument(0).get());
+        when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(book1, book2));
+        when(purchaseService.purchase(any(Customer.class), anyList())).thenReturn(purchaseResponse);
+
+        // Act
+        ResponseEntity<PurchaseResponse> response = groupController.purchaseBooks(purchaseRequest, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(purchaseResponse, response.getBody());
+        verify(groupCommitExecutor).execute(any());
         verify(purchaseService).purchase(any(Customer.class), anyList());
     }
 
+    @Test
+    void purchaseBooks_WithRepeatedIdempotencyKey_ShouldReplayFirstResponse() {
+        // Arrange
+        PurchaseController idempotentController = new PurchaseController(bookService, customerService,
+                purchaseService, null, null, null,
+                new IdempotencyStore(100, Duration.ofMinutes(10), Duration.ofSeconds(5), null), null, null);
+        when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(book1, book2));
+        when(purchaseService.purchase(any(Customer.class), anyList())).thenReturn(purchaseResponse);
+
+        // Act
+        ResponseEntity<PurchaseResponse> first = idempotentController.purchaseBooks(purchaseRequest, "retry-1");
+        ResponseEntity<PurchaseResponse> retry = idempotentController.purchaseBooks(purchaseRequest, "retry-1");
+
+        // Assert
+        assertEquals(purchaseResponse, first.getBody());
+        assertEquals("false", first.getHeaders().getFirst(PurchaseController.IDEMPOTENT_REPLAYED_HEADER));
+        assertEquals(purchaseResponse, retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(PurchaseController.IDEMPOTENT_REPLAYED_HEADER));
+        verify(purchaseService, times(1)).purchase(any(Customer.class), anyList());
+    }
+
+    @Test
+    void purchaseBooks_WithRetryWhileFirstRunsUnderCustomerLock_ShouldAnswerConflict() throws Exception {
+        // Arrange
+        CustomerLocks customerLocks = new CustomerLocks(16);
+        PurchaseController idempotentController = new PurchaseController(bookService, customerService,
+                purchaseService, null, customerLocks, null,
+                new IdempotencyStore(100, Duration.ofMinutes(10), Duration.ofMillis(100), null), null, null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(book1, book2));
+        when(purchaseService.purchase(any(Customer.class), anyList())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return purchaseResponse;
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<ResponseEntity<PurchaseResponse>> first =
+                    executor.submit(() -> idempotentController.purchaseBooks(purchaseRequest, "retry-1"));
+            started.await();
+
+            // Act & Assert
+            // The retry waits for the first request through the store, not behind the customer lock it holds
+            assertThrows(IdempotencyConflictException.class,
+                    () -> idempotentController.purchaseBooks(purchaseRequest, "retry-1"));
+            release.countDown();
+            assertEquals(purchaseResponse, first.get(5, TimeUnit.SECONDS).getBody());
+            assertEquals(1, customerLocks.stats().getAcquisitionCount());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void purchaseBooks_WithIdempotencyRecords_ShouldHoldCustomerLockUntilRecordCommits() throws Exception {
+        // Arrange
+        CustomerLocks customerLocks = new CustomerLocks(16);
+        IdempotencyRecords records = mock(IdempotencyRecords.class);
+        PurchaseController recordingController = new PurchaseController(bookService, customerService,
+                purchaseService, null, customerLocks, null,
+                new IdempotencyStore(100, Duration.ofMinutes(10), Duration.ofSeconds(5), records), null, null);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Boolean> lockedDuringRecord = new ArrayList<>();
+        when(records.executeAndRecord(eq("retry-1"), anyString(), any())).thenAnswer(invocation -> {
+            // The record's transaction commits when this returns; another purchase of the customer must wait for it
+            Future<Boolean> other = executor.submit(() -> customerLocks.withLock(1L, () -> true));
+            try {
+                other.get(100, TimeUnit.MILLISECONDS);
+                lockedDuringRecord.add(false);
+            } catch (TimeoutException e) {
+                lockedDuringRecord.add(true);
+            }
+            return new IdempotentPurchase(invocation.getArgument(1), purchaseResponse, false);
+        });
+
+        try {
+            // Act
+            ResponseEntity<PurchaseResponse> response = recordingController.purchaseBooks(purchaseRequest, "retry-1");
+
+            // Assert
+            assertEquals(purchaseResponse, response.getBody());
+            assertEquals(List.of(true), lockedDuringRecord);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void purchaseBooks_WhenAnotherInstanceRecordedKeyFirst_ShouldGiveFlashSaleUnitBack() {
+        // Arrange
+        FlashSales flashSales = new FlashSales(Clock.systemUTC());
+        flashSales.start(2L, 1);
+        IdempotencyRecords records = mock(IdempotencyRecords.class);
+        PurchaseController recordingController = new PurchaseController(bookService, customerService,
+                purchaseService, null, null, null,
+                new IdempotencyStore(100, Duration.ofMinutes(10), Duration.ofSeconds(5), records), null, flashSales);
+        // The record's transaction lost the race on the key and rolled this purchase back
+        when(records.executeAndRecord(eq("retry-1"), anyString(), any())).thenAnswer(invocation ->
+                new IdempotentPurchase(invocation.getArgument(1), purchaseResponse, true));
+
+        // Act
+        ResponseEntity<PurchaseResponse> response = recordingController.purchaseBooks(purchaseRequest, "retry-1");
+
+        // Assert
+        assertEquals("true", response.getHeaders().getFirst(PurchaseController.IDEMPOTENT_REPLAYED_HEADER));
+        assertEquals(1, flashSales.get(2L).orElseThrow().getRemaining());
+        assertEquals(1, flashSales.get(2L).orElseThrow().getReturned());
+    }
+
     @Test
     void purchaseBooks_WithNonExistingCustomer_ShouldThrowException() {
         // Arrange
@@ -97,11 +280,11 @@ public class PurchaseControllerTest {
 
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> {
-            purchaseController.purchaseBooks(purchaseRequest);
+            purchaseController.purchaseBooks(purchaseRequest, null);
         });
 
         verify(customerService).getCustomerById(1L);
-        verify(bookService, never()).getBookById(anyLong());
+        verify(bookService, never()).getBooksByIds(anyList());
         verify(purchaseService, never()).purchase(any(Customer.class), anyList());
     }
 
@@ -109,17 +292,127 @@ public class PurchaseControllerTest {
     void purchaseBooks_WithNonExistingBook_ShouldThrowException() {
         // Arrange
         when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
-        when(bookService.getBookById(1L)).thenReturn(Optional.of(book1));
-        when(bookService.getBookById(2L)).thenReturn(Optional.empty());
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenThrow(new IllegalArgumentException("Books not found: [2]"));
 
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> {
-            purchaseController.purchaseBooks(purchaseRequest);
+            purchaseController.purchaseBooks(purchaseRequest, null);
         });
 
         verify(customerService).getCustomerById(1L);
-        verify(bookService).getBookById(1L);
-        verify(bookService).getBookById(2L);
+        verify(bookService).getBooksByIds(Arrays.asList(1L, 2L));
+        verify(purchaseService, never()).purchase(any(Customer.class), anyList());
+    }
+
+    @Test
+    void purchaseBooks_WithValidQuoteToken_ShouldPurchaseAtQuotedPrice() {
+        // Arrange
+        purchaseRequest.setQuoteToken("token");
+        List<Book> books = Arrays.asList(book1, book2);
+        PriceQuote quote = new PriceQuote(new BigDecimal("45.98"), List.of());
+        when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenReturn(books);
+        when(quoteTokenService.redeem("token", customer, books)).thenReturn(Optional.of(quote));
+        when(purchaseService.purchase(customer, books, quote)).thenReturn(purchaseResponse);
+
+        // Act
+        ResponseEntity<PurchaseResponse> response = purchaseController.purchaseBooks(purchaseRequest, null);
+
+        // Assert
+        assertEquals(purchaseResponse, response.getBody());
+        verify(purchaseService, never()).purchase(any(Customer.class), anyList());
+    }
+
+    @Test
+    void purchaseBooks_WithStaleQuoteToken_ShouldPriceCartAgain() {
+        // Arrange
+        purchaseRequest.setQuoteToken("token");
+        List<Book> books = Arrays.asList(book1, book2);
+        when(customerService.getCustomerById(1L)).thenReturn(Optional.of(customer));
+        when(bookService.getBooksByIds(Arrays.asList(1L, 2L))).thenReturn(books);
+        when(quoteTokenService.redeem("token", customer, books)).thenReturn(Optional.empty());
+        when(purchaseService.purchase(customer, books)).thenReturn(purchaseResponse);
+
+        // Act
+        ResponseEntity<PurchaseResponse> response = purchaseController.purchaseBooks(purchaseRequest, null);
+
+        // Assert
+        assertEquals(purchaseResponse, response.getBody());
+        verify(purchaseService).purchase(customer, books);
+    }
+
+    @Test
+    void submitPurchase_WithPipeline_ShouldAcceptAndPointToStatus() {
+        // Arrange
+        PurchasePipeline purchasePipeline = mock(PurchasePipeline.class);
+        PurchaseController asyncController = new PurchaseController(bookService, customerService, purchaseService,
+                null, null, purchasePipeline, null, null, null);
+        PurchaseStatusResponse accepted = new PurchaseStatusResponse("p-1", PurchaseStatusResponse.Status.QUEUED,
+                Instant.parse("2025-01-01T10:00:00Z"), null, null, null);
+        when(purchasePipeline.submit(any())).thenReturn(accepted);
+
+        // Act
+        ResponseEntity<PurchaseStatusResponse> response = asyncController.submitPurchase(purchaseRequest);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(accepted, response.getBody());
+        assertEquals(URI.create("/api/purchases/async/p-1"), response.getHeaders().getLocation());
         verify(purchaseService, never()).purchase(any(Customer.class), anyList());
     }
-}
\ No newline at end of file
+
+    @Test
+    void submitPurchase_WithoutPipeline_ShouldReturnNotFound() {
+        // Act
+        ResponseEntity<PurchaseStatusResponse> response = purchaseController.submitPurchase(purchaseRequest);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void getPurchaseStatus_WithUnknownId_ShouldReturnNotFound() {
+        // Arrange
+        PurchasePipeline purchasePipeline = mock(PurchasePipeline.class);
+        PurchaseController asyncController = new PurchaseController(bookService, customerService, purchaseService,
+                null, null, purchasePipeline, null, null, null);
+        when(purchasePipeline.getStatus("unknown")).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<PurchaseStatusResponse> response = asyncController.getPurchaseStatus("unknown");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void purchaseBooks_WithSoldOutFlashSale_ShouldRefuseBeforeLoadingAnything() {
+        // Arrange
+        FlashSales flashSales = new FlashSales(Clock.systemUTC());
+        flashSales.start(2L, 1);
+        flashSales.admit(List.of(2L));
+        PurchaseController saleController = new PurchaseController(bookService, customerService, purchaseService,
+                null, null, null, null, null, flashSales);
+
+        // Act & Assert
+        assertThrows(OutOfStockException.class, () -> saleController.purchaseBooks(purchaseRequest, null));
+        verify(customerService, never()).getCustomerById(any());
+        verify(bookService, never()).getBooksByIds(anyList());
+        assertEquals(1, flashSales.get(2L).orElseThrow().getRejected());
+    }
+
+    @Test
+    void purchaseBooks_WhenAdmittedPurchaseFails_ShouldGiveFlashSaleUnitBack() {
+        // Arrange
+        FlashSales flashSales = new FlashSales(Clock.systemUTC());
+        flashSales.start(2L, 1);
+        PurchaseController saleController = new PurchaseController(bookService, customerService, purchaseService,
+                null, null, null, null, null, flashSales);
+        when(customerService.getCustomerById(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> saleController.purchaseBooks(purchaseRequest, null));
+        assertEquals(1, flashSales.get(2L).orElseThrow().getRemaining());
+        assertEquals(1, flashSales.get(2L).orElseThrow().getReturned());
+    }
+}
@@ -1,6 +1,7 @@
 package com.bookstore.exception;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -33,4 +34,48 @@ public class GlobalExceptionHandlerTest {
         assertEquals(errorMessage, errorResponse.getMessage());
         assertNotNull(errorResponse.getTimestamp());
     }
-}
\ No newline at end of file
+
+    @Test
+    void handlePurchaseQueueFullException_ShouldReturnTooManyRequests() {
+        // Arrange
+        PurchaseQueueFullException exception = new PurchaseQueueFullException(1000);
+
+        // Act
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> responseEntity =
+            exceptionHandler.handlePurchaseQueueFullException(exception);
+
+        // Assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, responseEntity.getStatusCode());
+        assertEquals("1", responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), responseEntity.getBody().getStatus());
+        assertEquals(exception.getMessage(), responseEntity.getBody().getMessage());
+    }
+
+    @Test
+    void handleIdempotencyConflictException_ShouldReturnConflict() {
+        // Arrange
+        IdempotencyConflictException exception = new IdempotencyConflictException("Still in progress");
+
+        // Act
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> responseEntity =
+            exceptionHandler.handleIdempotencyConflictException(exception);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, responseEntity.getStatusCode());
+        assertEquals("Still in progress", responseEntity.getBody().getMessage());
+    }
+
+    @Test
+    void handleOutOfStockException_ShouldReturnConflict() {
+        // Arrange
+        OutOfStockException exception = new OutOfStockException(7L, 2);
+
+        // Act
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> responseEntity =
+            exceptionHandler.handleOutOfStockException(exception);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, responseEntity.getStatusCode());
+        assertEquals(exception.getMessage(), responseEntity.getBody().getMessage());
+    }
+}
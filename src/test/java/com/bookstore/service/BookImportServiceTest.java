@@ -0,0 +1,160 @@
+package com.bookstore.service;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.dto.BookImportReport;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BookImportServiceTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private Session session;
+
+    private BookImportService bookImportService;
+
+    private final List<Book> persisted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        BookstoreProperties properties = new BookstoreProperties();
+        properties.getBookImport().setBatchSize(2);
+        properties.getBookImport().setMaxReportedErrors(2);
+        bookImportService = new BookImportService(entityManager, transactionTemplate, new ObjectMapper(), properties, List.of());
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+    }
+
+    @Test
+    void importCsv_ShouldWriteValidRowsInBatches() throws IOException {
+        // Arrange
+        doAnswer(invocation -> persisted.add(invocation.getArgument(0))).when(entityManager).persist(any(Book.class));
+        String feed = """
+                title,basePrice,type
+                First,10.00,REGULAR
+                "Second, with comma",5.5,OLD_EDITION
+
+                Third,39.99,NEW_RELEASE
+                """;
+
+        // Act
+        BookImportReport report = bookImportService.importCsv(new StringReader(feed));
+
+        // Assert
+        assertEquals(3, report.getRowsRead());
+        assertEquals(3, report.getImported());
+        assertEquals(0, report.getRejected());
+        assertEquals(3, persisted.size());
+        assertEquals("Second, with comma", persisted.get(1).getTitle());
+        assertEquals(new BigDecimal("5.5"), persisted.get(1).getBasePrice());
+        assertEquals(BookType.NEW_RELEASE, persisted.get(2).getType());
+        // One transaction for the full batch of two rows and one for the remainder
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(session, times(2)).setJdbcBatchSize(2);
+    }
+
+    @Test
+    void importCsv_ShouldReportInvalidRowsByLine() throws IOException {
+        // Arrange
+        String feed = """
+                Valid,1.00,REGULAR
+                Bad type,1.00,COMIC
+                Bad price,abc,REGULAR
+                Negative,-1,REGULAR
+                Missing column,1.00
+                """;
+
+        // Act
+        BookImportReport report = bookImportService.importCsv(new StringReader(feed));
+
+        // Assert
+        assertEquals(5, report.getRowsRead());
+        assertEquals(1, report.getImported());
+        assertEquals(4, report.getRejected());
+        assertEquals(2, report.getErrors().size());
+        assertTrue(report.isErrorsTruncated());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("type must be one of"));
+        assertEquals(3, report.getErrors().get(1).getLine());
+    }
+
+    @Test
+    void importNdjson_ShouldParseEachLine() throws IOException {
+        // Arrange
+        doAnswer(invocation -> persisted.add(invocation.getArgument(0))).when(entityManager).persist(any(Book.class));
+        String feed = """
+                {"title":"First","basePrice":12.35,"type":"REGULAR"}
+                {"title":"Broken",
+                {"title":"No price","type":"REGULAR"}
+                """;
+
+        // Act
+        BookImportReport report = bookImportService.importNdjson(new StringReader(feed));
+
+        // Assert
+        assertEquals(3, report.getRowsRead());
+        assertEquals(1, report.getImported());
+        assertEquals(new BigDecimal("12.35"), persisted.get(0).getBasePrice());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Malformed JSON"));
+        assertEquals("basePrice is required", report.getErrors().get(1).getMessage());
+    }
+
+    @Test
+    void importCsv_WithDatabaseFailure_ShouldIsolateRejectedRow() throws IOException {
+        // Arrange
+        doAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            if (book.getTitle().equals("Duplicate")) {
+                throw new DataIntegrityViolationException("duplicate key");
+            }
+            persisted.add(book);
+            return null;
+        }).when(entityManager).persist(any(Book.class));
+
+        // Act
+        BookImportReport report = bookImportService.importCsv(new StringReader("Good,1,REGULAR\nDuplicate,1,REGULAR\n"));
+
+        // Assert
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertEquals("Rejected by the database: duplicate key", report.getErrors().get(0).getMessage());
+        assertFalse(report.isErrorsTruncated());
+    }
+}
@@ -5,23 +5,36 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
+import com.bookstore.dto.PageResponse;
+import com.bookstore.dto.StockLevelResponse;
 import com.bookstore.model.Book;
 import com.bookstore.model.BookType;
 import com.bookstore.repository.BookRepository;
+import com.bookstore.service.cache.BookCache;
+import com.bookstore.service.inventory.BookInventory;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,6 +44,12 @@ public class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private BookChangeListener changeListener;
+
+    @Spy
+    private List<BookChangeListener> changeListeners = new ArrayList<>();
+
     @InjectMocks
     private BookService bookService;
 
@@ -38,6 +57,7 @@ public class BookServiceTest {
 
     @BeforeEach
     void setUp() {
+        changeListeners.add(changeListener);
         testBook = new Book(1L, "Test Book", new BigDecimal("29.99"), BookType.REGULAR);
     }
 
@@ -59,6 +79,58 @@ public class BookServiceTest {
         verify(bookRepository).findAll();
     }
 
+    @Test
+    void getBooksPage_WithMoreRows_ShouldReturnNextCursor() {
+        // Arrange
+        Book otherBook = new Book(2L, "Another Book", new BigDecimal("19.99"), BookType.OLD_EDITION);
+        Book lastBook = new Book(3L, "Last Book", new BigDecimal("9.99"), BookType.REGULAR);
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(3)))
+                .thenReturn(List.of(testBook, otherBook, lastBook));
+
+        // Act
+        PageResponse<Book> page = bookService.getBooksPage(null, 2);
+
+        // Assert
+        assertEquals(List.of(testBook, otherBook), page.getItems());
+        assertEquals("2", page.getNextCursor());
+    }
+
+    @Test
+    void getBooksPage_OnLastPage_ShouldReturnNoCursor() {
+        // Arrange
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3))).thenReturn(List.of(testBook));
+
+        // Act
+        PageResponse<Book> page = bookService.getBooksPage(0L, 2);
+
+        // Assert
+        assertEquals(List.of(testBook), page.getItems());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void forEachBook_ShouldWalkTableInKeysetChunks() {
+        // Arrange
+        List<Book> firstChunk = new ArrayList<>();
+        for (long id = 1; id <= BookService.STREAM_CHUNK_SIZE; id++) {
+            firstChunk.add(new Book(id, "Book " + id, BigDecimal.TEN, BookType.REGULAR));
+        }
+        Book tail = new Book(BookService.STREAM_CHUNK_SIZE + 1L, "Tail", BigDecimal.ONE, BookType.REGULAR);
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(BookService.STREAM_CHUNK_SIZE)))
+                .thenReturn(firstChunk);
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc((long) BookService.STREAM_CHUNK_SIZE, Limit.of(BookService.STREAM_CHUNK_SIZE)))
+                .thenReturn(List.of(tail));
+        List<Book> visited = new ArrayList<>();
+
+        // Act
+        bookService.forEachBook(visited::add);
+
+        // Assert
+        assertEquals(BookService.STREAM_CHUNK_SIZE + 1, visited.size());
+        assertEquals(tail, visited.getLast());
+        verify(bookRepository, never()).findAll();
+    }
+
     @Test
     void getBookById_WithExistingId_ShouldReturnBook() {
         // Arrange
@@ -86,6 +158,44 @@ public class BookServiceTest {
         verify(bookRepository).findById(99L);
     }
 
+    @Test
+    void getBooksByIds_ShouldKeepRequestOrderAndDuplicates() {
+        // Arrange
+        Book otherBook = new Book(2L, "Another Book", new BigDecimal("19.99"), BookType.OLD_EDITION);
+        when(bookRepository.findAllById(new LinkedHashSet<>(List.of(2L, 1L)))).thenReturn(List.of(testBook, otherBook));
+
+        // Act
+        List<Book> result = bookService.getBooksByIds(List.of(2L, 1L, 2L));
+
+        // Assert
+        assertEquals(List.of(otherBook, testBook, otherBook), result);
+        verify(bookRepository).findAllById(any());
+        verify(bookRepository, never()).findById(any());
+    }
+
+    @Test
+    void getBooksByIds_WithMissingIds_ShouldReportAllOfThem() {
+        // Arrange
+        when(bookRepository.findAllById(any())).thenReturn(List.of(testBook));
+
+        // Act
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> bookService.getBooksByIds(List.of(1L, 98L, 99L, 98L)));
+
+        // Assert
+        assertEquals("Books not found: [98, 99]", exception.getMessage());
+    }
+
+    @Test
+    void getBooksByIds_WithEmptyList_ShouldNotQueryRepository() {
+        // Act
+        List<Book> result = bookService.getBooksByIds(List.of());
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(bookRepository, never()).findAllById(any());
+    }
+
     @Test
     void addBook_ShouldSaveAndReturnBook() {
         // Arrange
@@ -99,6 +209,7 @@ public class BookServiceTest {
         // Assert
         assertEquals(savedBook, result);
         verify(bookRepository).save(newBook);
+        verify(changeListener).bookSaved(savedBook);
     }
 
     @Test
@@ -151,6 +262,7 @@ public class BookServiceTest {
         assertTrue(result);
         verify(bookRepository).findById(1L);
         verify(bookRepository).delete(testBook);
+        verify(changeListener).bookDeleted(1L);
     }
 
     @Test
@@ -165,5 +277,120 @@ public class BookServiceTest {
         assertFalse(result);
         verify(bookRepository).findById(99L);
         verify(bookRepository, never()).delete(any(Book.class));
+        verify(changeListener, never()).bookDeleted(any());
+    }
+
+    @Test
+    void getBookById_WithCache_ShouldQueryRepositoryOnce() {
+        // Arrange
+        BookService cachedService = new BookService(bookRepository, new BookCache(100, Duration.ofMinutes(1)), null, List.of());
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+
+        // Act
+        cachedService.getBookById(1L);
+        Optional<Book> result = cachedService.getBookById(1L);
+
+        // Assert
+        assertEquals(Optional.of(testBook), result);
+        verify(bookRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getBooksByIds_WithCache_ShouldOnlyFetchUncachedIds() {
+        // Arrange
+        BookService cachedService = new BookService(bookRepository, new BookCache(100, Duration.ofMinutes(1)), null, List.of());
+        Book otherBook = new Book(2L, "Another Book", new BigDecimal("19.99"), BookType.OLD_EDITION);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+        when(bookRepository.findAllById(List.of(2L))).thenReturn(List.of(otherBook));
+        cachedService.getBookById(1L);
+
+        // Act
+        List<Book> result = cachedService.getBooksByIds(List.of(1L, 2L));
+
+        // Assert
+        assertEquals(List.of(testBook, otherBook), result);
+        verify(bookRepository).findAllById(List.of(2L));
+    }
+
+    @Test
+    void updateBook_WithCache_ShouldNeverServeStalePrice() {
+        // Arrange
+        BookService cachedService = new BookService(bookRepository, new BookCache(100, Duration.ofMinutes(1)), null, List.of());
+        Book cachedCopy = new Book(1L, "Test Book", new BigDecimal("29.99"), BookType.REGULAR);
+        Book savedBook = new Book(1L, "Test Book", new BigDecimal("9.99"), BookType.REGULAR);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(cachedCopy), Optional.of(testBook));
+        when(bookRepository.save(any(Book.class))).thenReturn(savedBook);
+        cachedService.getBookById(1L);
+
+        // Act
+        cachedService.updateBook(1L, savedBook);
+        Optional<Book> result = cachedService.getBookById(1L);
+
+        // Assert
+        assertEquals(new BigDecimal("9.99"), result.get().getBasePrice());
+    }
+
+    @Test
+    void addBook_WithCache_ShouldServeStoredPriceRatherThanRequestedOne() {
+        // Arrange
+        BookService cachedService = new BookService(bookRepository, new BookCache(100, Duration.ofMinutes(1)), null, List.of());
+        Book requested = new Book(null, "Test Book", new BigDecimal("10.005"), BookType.REGULAR);
+        // The entity handed back by save keeps the scale sent, the column stores two decimals
+        when(bookRepository.save(requested)).thenReturn(new Book(1L, "Test Book", new BigDecimal("10.005"), BookType.REGULAR));
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(new Book(1L, "Test Book", new BigDecimal("10.00"), BookType.REGULAR)));
+
+        // Act
+        cachedService.addBook(requested);
+        Optional<Book> result = cachedService.getBookById(1L);
+
+        // Assert
+        assertEquals(new BigDecimal("10.00"), result.get().getBasePrice());
+        verify(bookRepository).findById(1L);
+    }
+
+    @Test
+    void deleteBook_WithCache_ShouldEvictBook() {
+        // Arrange
+        BookService cachedService = new BookService(bookRepository, new BookCache(100, Duration.ofMinutes(1)), null, List.of());
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook), Optional.of(testBook), Optional.empty());
+        cachedService.getBookById(1L);
+
+        // Act
+        boolean deleted = cachedService.deleteBook(1L);
+        Optional<Book> result = cachedService.getBookById(1L);
+
+        // Assert
+        assertTrue(deleted);
+        assertFalse(result.isPresent());
+    }
+
+    @Test
+    void getStockLevel_WithoutInventory_ShouldReturnEmpty() {
+        // Act
+        Optional<StockLevelResponse> result = bookService.getStockLevel(1L);
+
+        // Assert
+        assertFalse(result.isPresent());
+        verify(bookRepository, never()).findById(any());
+    }
+
+    @Test
+    void setStock_WithInventory_ShouldSetStockOfExistingBooksOnly() {
+        // Arrange
+        BookInventory inventory = mock(BookInventory.class);
+        BookService stockedService = new BookService(bookRepository, null, inventory, List.of());
+        StockLevelResponse level = new StockLevelResponse(1L, true, 5L, 0L, 5L);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+        when(bookRepository.findById(99L)).thenReturn(Optional.empty());
+        when(inventory.setStock(1L, 5)).thenReturn(level);
+
+        // Act
+        Optional<StockLevelResponse> existing = stockedService.setStock(1L, 5);
+        Optional<StockLevelResponse> missing = stockedService.setStock(99L, 5);
+
+        // Assert
+        assertEquals(Optional.of(level), existing);
+        assertFalse(missing.isPresent());
+        verify(inventory, never()).setStock(99L, 5);
     }
-}
\ No newline at end of file
+}
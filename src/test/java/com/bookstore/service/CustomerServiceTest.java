@@ -6,19 +6,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
+import com.bookstore.dto.PageResponse;
 import com.bookstore.model.Customer;
 import com.bookstore.repository.CustomerRepository;
+import com.bookstore.service.cache.CustomerCache;
+import com.bookstore.service.ledger.LoyaltyLedger;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -56,6 +67,33 @@ public class CustomerServiceTest {
         verify(customerRepository).findAll();
     }
 
+    @Test
+    void getCustomersPage_WithMoreRows_ShouldReturnNextCursor() {
+        // Arrange
+        Customer otherCustomer = new Customer(2L, "Another Customer", 10);
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, Limit.of(2)))
+                .thenReturn(List.of(testCustomer, otherCustomer));
+
+        // Act
+        PageResponse<Customer> page = customerService.getCustomersPage(null, 1);
+
+        // Assert
+        assertEquals(List.of(testCustomer), page.getItems());
+        assertEquals("1", page.getNextCursor());
+    }
+
+    @Test
+    void getCustomersByIds_ShouldReturnFoundCustomersById() {
+        // Arrange
+        when(customerRepository.findAllById(List.of(1L, 99L))).thenReturn(List.of(testCustomer));
+
+        // Act
+        Map<Long, Customer> result = customerService.getCustomersByIds(List.of(1L, 99L));
+
+        // Assert
+        assertEquals(Map.of(1L, testCustomer), result);
+    }
+
     @Test
     void getCustomerById_WithExistingId_ShouldReturnCustomer() {
         // Arrange
@@ -193,4 +231,109 @@ public class CustomerServiceTest {
         verify(customerRepository).findById(99L);
         verify(customerRepository, never()).save(any(Customer.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCustomerById_WithLoyaltyLedger_ShouldReturnCopyWithLedgerBalance() {
+        // Arrange
+        LoyaltyLedger loyaltyLedger = mock(LoyaltyLedger.class);
+        CustomerService ledgerService = new CustomerService(customerRepository, loyaltyLedger, null);
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
+        when(loyaltyLedger.getBalance(1L, 5)).thenReturn(9);
+
+        // Act
+        Optional<Customer> result = ledgerService.getCustomerById(1L);
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertEquals(9, result.get().getLoyaltyPoints());
+        assertNotSame(testCustomer, result.get());
+        assertEquals(5, testCustomer.getLoyaltyPoints());
+    }
+
+    @Test
+    void addLoyaltyPoints_WithLoyaltyLedger_ShouldAppendWithoutUpdatingRow() {
+        // Arrange
+        LoyaltyLedger loyaltyLedger = mock(LoyaltyLedger.class);
+        CustomerService ledgerService = new CustomerService(customerRepository, loyaltyLedger, null);
+        when(loyaltyLedger.earn(1L, 3)).thenReturn(Optional.of(8));
+
+        // Act
+        Optional<Integer> result = ledgerService.addLoyaltyPoints(1L, 3);
+
+        // Assert
+        assertEquals(Optional.of(8), result);
+        verify(customerRepository, never()).addLoyaltyPoints(anyLong(), anyInt());
+    }
+
+    @Test
+    void updateCustomer_WithLoyaltyLedger_ShouldRenameAndAdjustBalance() {
+        // Arrange
+        LoyaltyLedger loyaltyLedger = mock(LoyaltyLedger.class);
+        CustomerService ledgerService = new CustomerService(customerRepository, loyaltyLedger, null);
+        when(customerRepository.updateName(1L, "Renamed Customer")).thenReturn(1);
+        when(loyaltyLedger.adjust(1L, 12)).thenReturn(Optional.of(12));
+
+        // Act
+        Optional<Customer> result = ledgerService.updateCustomer(1L, new Customer(null, "Renamed Customer", 12));
+
+        // Assert
+        assertEquals(Optional.of(new Customer(1L, "Renamed Customer", 12)), result);
+        verify(customerRepository, never()).save(any(Customer.class));
+    }
+
+    @Test
+    void getCustomerById_WithCustomerCache_ShouldReadRepositoryOnce() {
+        // Arrange
+        CustomerService cachedService = new CustomerService(customerRepository, null,
+                new CustomerCache(100, Duration.ofMinutes(1)));
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
+
+        // Act
+        cachedService.getCustomerById(1L);
+        Optional<Customer> result = cachedService.getCustomerById(1L);
+
+        // Assert
+        assertEquals(Optional.of(testCustomer), result);
+        assertNotSame(testCustomer, result.get());
+        verify(customerRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void updateCustomer_WithCustomerCache_ShouldWriteThrough() {
+        // Arrange
+        CustomerService cachedService = new CustomerService(customerRepository, null,
+                new CustomerCache(100, Duration.ofMinutes(1)));
+        Customer updatedDetails = new Customer(null, "Renamed Customer", 7);
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
+        when(customerRepository.save(any(Customer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        cachedService.updateCustomer(1L, updatedDetails);
+        Optional<Customer> result = cachedService.getCustomerById(1L);
+
+        // Assert
+        assertEquals(Optional.of(new Customer(1L, "Renamed Customer", 7)), result);
+        verify(customerRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void addLoyaltyPoints_WithCustomerCache_ShouldDropCachedBalance() {
+        // Arrange
+        CustomerService cachedService = new CustomerService(customerRepository, null,
+                new CustomerCache(100, Duration.ofMinutes(1)));
+        when(customerRepository.findById(1L))
+                .thenReturn(Optional.of(testCustomer))
+                .thenReturn(Optional.of(new Customer(1L, "Test Customer", 8)));
+        when(customerRepository.addLoyaltyPoints(1L, 3)).thenReturn(1);
+        when(customerRepository.findLoyaltyPointsById(1L)).thenReturn(Optional.of(8));
+        cachedService.getCustomerById(1L);
+
+        // Act
+        cachedService.addLoyaltyPoints(1L, 3);
+        Optional<Customer> result = cachedService.getCustomerById(1L);
+
+        // Assert
+        assertEquals(8, result.orElseThrow().getLoyaltyPoints());
+        verify(customerRepository, times(2)).findById(1L);
+    }
+}
@@ -0,0 +1,156 @@
+package com.bookstore.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.bookstore.dto.PageResponse;
+import com.bookstore.dto.PurchaseHistoryEntry;
+import com.bookstore.dto.PurchaseHistoryLine;
+import com.bookstore.model.BookType;
+import com.bookstore.model.PurchaseOrder;
+import com.bookstore.model.PurchaseOrderLine;
+import com.bookstore.repository.PurchaseOrderLineRepository;
+import com.bookstore.repository.PurchaseOrderRepository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pages through purchase histories stored in the real database
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class PurchaseHistoryServiceTest {
+
+    /**
+     * Customers unique to each test, so orders written by other tests do not count
+     */
+    private static final AtomicLong NEXT_CUSTOMER_ID = new AtomicLong(2_000_000);
+
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00.123456Z");
+
+    @Autowired
+    private PurchaseHistoryService purchaseHistoryService;
+
+    @Autowired
+    private PurchaseOrderRepository purchaseOrderRepository;
+
+    @Autowired
+    private PurchaseOrderLineRepository purchaseOrderLineRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void getPurchasesPage_ThroughAllPages_ShouldReturnEveryOrderOnceNewestFirst() {
+        // Arrange
+        Long customerId = NEXT_CUSTOMER_ID.incrementAndGet();
+        List<PurchaseOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            // Pairs of orders share a creation time, so the ID has to break the tie across page boundaries
+            orders.add(order(customerId, NOW.plusSeconds(i / 2), 1));
+        }
+        order(NEXT_CUSTOMER_ID.incrementAndGet(), NOW, 1);
+        List<Long> expected = orders.stream()
+                .sorted(Comparator.comparing(PurchaseOrder::getCreatedAt).thenComparing(PurchaseOrder::getId).reversed())
+                .map(PurchaseOrder::getId)
+                .toList();
+
+        // Act
+        List<Long> seen = new ArrayList<>();
+        PurchaseHistoryService.Cursor cursor = null;
+        int pages = 0;
+        do {
+            PageResponse<PurchaseHistoryEntry> page = purchaseHistoryService.getPurchasesPage(customerId, cursor, 2);
+            page.getItems().forEach(entry -> seen.add(entry.getOrderId()));
+            cursor = PurchaseHistoryService.Cursor.parse(page.getNextCursor());
+            pages++;
+        } while (cursor != null);
+
+        // Assert
+        assertEquals(expected, seen);
+        assertEquals(4, pages);
+    }
+
+    @Test
+    void getPurchasesPage_ShouldReturnCompactLinesInCartOrder() {
+        // Arrange
+        Long customerId = NEXT_CUSTOMER_ID.incrementAndGet();
+        PurchaseOrder order = order(customerId, NOW, 3);
+
+        // Act
+        PageResponse<PurchaseHistoryEntry> page = purchaseHistoryService.getPurchasesPage(customerId, null, 10);
+
+        // Assert
+        assertNull(page.getNextCursor());
+        PurchaseHistoryEntry entry = page.getItems().getFirst();
+        assertEquals(order.getId(), entry.getOrderId());
+        assertEquals(3, entry.getBooks().size());
+        assertEquals(List.of("Book 0", "Book 1", "Book 2"),
+                entry.getBooks().stream().map(PurchaseHistoryLine::getTitle).toList());
+        assertTrue(entry.getBooks().get(2).isFree());
+    }
+
+    @Test
+    void getPurchasesPage_WithoutOrders_ShouldReturnEmptyLastPage() {
+        // Act
+        PageResponse<PurchaseHistoryEntry> page =
+                purchaseHistoryService.getPurchasesPage(NEXT_CUSTOMER_ID.incrementAndGet(), null, 10);
+
+        // Assert
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void cursor_ShouldSurviveEncodingAndRejectGarbage() {
+        // Arrange
+        PurchaseHistoryService.Cursor cursor = new PurchaseHistoryService.Cursor(NOW, 42L);
+
+        // Act
+        PurchaseHistoryService.Cursor parsed = PurchaseHistoryService.Cursor.parse(cursor.encode());
+
+        // Assert
+        assertEquals(cursor, parsed);
+        assertNull(PurchaseHistoryService.Cursor.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> PurchaseHistoryService.Cursor.parse("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> PurchaseHistoryService.Cursor.parse("42"));
+    }
+
+    @Test
+    void nextPageQuery_ShouldSeekTheCustomerIndexAndReadItInOrder() {
+        // Act
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN PLAN FOR SELECT * FROM purchase_order o WHERE o.customer_id = ?"
+                        + " AND o.created_at <= ? AND (o.created_at < ? OR o.id < ?)"
+                        + " ORDER BY o.customer_id DESC, o.created_at DESC, o.id DESC LIMIT 11", String.class));
+
+        // Assert
+        assertTrue(plan.contains("index=IDX_PURCHASE_ORDER_CUSTOMER_CREATED"), plan);
+        assertTrue(plan.contains("end condition"), plan);
+        // Without this the database sorts every order of the customer to return the first few
+        assertTrue(plan.contains("uses index"), plan);
+        assertFalse(plan.contains("FULL SCAN"), plan);
+    }
+
+    private PurchaseOrder order(Long customerId, Instant createdAt, int books) {
+        PurchaseOrder order = purchaseOrderRepository.save(
+                new PurchaseOrder(null, customerId, new BigDecimal("10.00"), 1, books, createdAt));
+        for (int i = 0; i < books; i++) {
+            purchaseOrderLineRepository.save(new PurchaseOrderLine(null, order.getId(), i, (long) i, "Book " + i,
+                    BookType.REGULAR, new BigDecimal("10.00"), 1, i == 2));
+        }
+        return order;
+    }
+}
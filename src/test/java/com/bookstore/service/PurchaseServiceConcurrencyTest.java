@@ -0,0 +1,151 @@
+package com.bookstore.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+import com.bookstore.repository.CustomerRepository;
+import com.bookstore.service.cache.CustomerCache;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers the loyalty balance of the same customers from many threads against the real database
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class PurchaseServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void purchase_FromManyThreads_ShouldNotLoseEarnedPoints() throws Exception {
+        // Arrange
+        int purchasesPerThread = 100;
+        Customer saved = customerRepository.save(new Customer(null, "Busy Customer", 0));
+        // New releases are never free, so every purchase earns its points
+        List<Book> cart = List.of(new Book(1L, "New Release", new BigDecimal("39.99"), BookType.NEW_RELEASE));
+        List<Callable<PurchaseResponse>> purchases = new ArrayList<>();
+        for (int i = 0; i < THREADS * purchasesPerThread; i++) {
+            purchases.add(() -> purchaseService.purchase(customerService.getCustomerById(saved.getId()).orElseThrow(), cart));
+        }
+
+        // Act
+        runConcurrently(purchases);
+
+        // Assert
+        assertEquals(THREADS * purchasesPerThread, customerService.getLoyaltyPoints(saved.getId()).orElseThrow());
+    }
+
+    @Test
+    void purchase_FromManyThreads_ShouldRedeemPointsOnce() throws Exception {
+        // Arrange
+        int customers = 20;
+        List<Book> cart = List.of(new Book(2L, "Regular", new BigDecimal("29.99"), BookType.REGULAR));
+        List<Long> customerIds = new ArrayList<>();
+        List<Callable<PurchaseResponse>> purchases = new ArrayList<>();
+        for (int c = 0; c < customers; c++) {
+            Long customerId = customerRepository.save(new Customer(null, "Customer " + c, 10)).getId();
+            customerIds.add(customerId);
+            // Ten purchases read the same balance of 10; after the redemption at most 9 points can be earned back
+            for (int i = 0; i < 10; i++) {
+                purchases.add(() -> purchaseService.purchase(customerService.getCustomerById(customerId).orElseThrow(), cart));
+            }
+        }
+
+        // Act
+        List<PurchaseResponse> responses = runConcurrently(purchases);
+
+        // Assert
+        long freeBooks = responses.stream().mapToLong(response -> response.getFreeBooks().size()).sum();
+        assertEquals(customers, freeBooks);
+        for (Long customerId : customerIds) {
+            int points = customerService.getLoyaltyPoints(customerId).orElseThrow();
+            assertTrue(points >= 0 && points <= 9, "Balance after one redemption: " + points);
+        }
+    }
+
+    @Test
+    void addLoyaltyPoints_WithCustomerCacheAndNoLedger_ShouldNotServeStaleBalance() throws Exception {
+        // Arrange
+        int changesPerThread = 50;
+        // Balances are updated in place, so every purchase changes the cached row in the database
+        CustomerService cachedService = new CustomerService(customerRepository, null,
+                new CustomerCache(100, Duration.ofMinutes(1)));
+        Long customerId = customerRepository.save(new Customer(null, "Cached Customer", 0)).getId();
+        List<Callable<PurchaseResponse>> changes = new ArrayList<>();
+        for (int i = 0; i < THREADS * changesPerThread; i++) {
+            changes.add(() -> {
+                // Lookups race with the changes, as pricing requests do with purchases
+                cachedService.getCustomerById(customerId);
+                transactionTemplate.executeWithoutResult(status -> cachedService.addLoyaltyPoints(customerId, 1));
+                cachedService.getCustomerById(customerId);
+                return null;
+            });
+        }
+
+        // Act
+        runConcurrently(changes);
+
+        // Assert
+        assertEquals(THREADS * changesPerThread, cachedService.getCustomerById(customerId).orElseThrow().getLoyaltyPoints());
+    }
+
+    private List<PurchaseResponse> runConcurrently(List<Callable<PurchaseResponse>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PurchaseResponse>> futures = new ArrayList<>();
+        for (Callable<PurchaseResponse> task : tasks) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        List<PurchaseResponse> responses = new ArrayList<>();
+        for (Future<PurchaseResponse> future : futures) {
+            responses.add(future.get());
+        }
+        return responses;
+    }
+}
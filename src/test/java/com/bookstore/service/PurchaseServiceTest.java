@@ -8,9 +8,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.exception.OutOfStockException;
 import com.bookstore.model.Book;
 import com.bookstore.model.BookType;
 import com.bookstore.model.Customer;
+import com.bookstore.service.inventory.BookInventory;
+import com.bookstore.service.ledger.PurchaseLedger;
+import com.bookstore.service.pricing.PriceQuote;
 import com.bookstore.service.pricing.PricingService;
 
 import java.math.BigDecimal;
@@ -19,8 +23,10 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
@@ -36,6 +42,12 @@ public class PurchaseServiceTest {
     @Mock
     private CustomerService customerService;
 
+    @Mock
+    private PurchaseLedger purchaseLedger;
+
+    @Mock
+    private BookInventory bookInventory;
+
     @InjectMocks
     private PurchaseService purchaseService;
 
@@ -53,49 +65,129 @@ public class PurchaseServiceTest {
     }
 
     @Test
-    void purchase_WithNoFreeBooks_ShouldCalculatePriceAndReturnResponse() {
+    void purchase_WithNoFreeBooks_ShouldAddPointsAtomicallyAndReturnResponse() {
         // Arrange
         BigDecimal totalPrice = new BigDecimal("45.98");
 
         when(pricingService.calculatePrice(eq(books), eq(5), any())).thenReturn(totalPrice);
+        when(customerService.addLoyaltyPoints(1L, 2)).thenReturn(Optional.of(7));
 
         // Act
         PurchaseResponse response = purchaseService.purchase(customer, books);
 
         // Assert
         assertEquals(totalPrice, response.getTotalPrice());
-        assertEquals(5, response.getLoyaltyPointsEarned());
+        assertEquals(7, response.getLoyaltyPointsEarned());
+        assertEquals(7, customer.getLoyaltyPoints());
         assertEquals(books, response.getBooks());
         assertTrue(response.getFreeBooks().isEmpty());
 
         verify(pricingService).calculatePrice(eq(books), eq(5), any());
         verify(customerService, never()).updateCustomer(anyLong(), any());
+        verify(purchaseLedger).record(1L, response);
     }
 
     @Test
-    void purchase_WithFreeBook_ShouldResetLoyaltyPointsAndReturnResponse() {
+    void purchase_WithFreeBook_ShouldRedeemPointsAndReturnResponse() {
         // Arrange
         BigDecimal totalPrice = new BigDecimal("29.99");
+        customer.setLoyaltyPoints(10);
 
-        when(pricingService.calculatePrice(eq(books), eq(5), any())).thenAnswer(invocation -> {
+        when(pricingService.calculatePrice(eq(books), eq(10), any())).thenAnswer(invocation -> {
             List<Book> freeBooksOut = invocation.getArgument(2);
             freeBooksOut.add(book2);
             return totalPrice;
         });
-
-        when(customerService.updateCustomer(eq(1L), any())).thenReturn(Optional.of(new Customer(1L, "Test Customer", 0)));
+        when(customerService.redeemLoyaltyPoints(1L, LoyaltyService.POINTS_FOR_FREE_BOOK, 1)).thenReturn(true);
 
         // Act
         PurchaseResponse response = purchaseService.purchase(customer, books);
 
         // Assert
         assertEquals(totalPrice, response.getTotalPrice());
-        assertEquals(0, response.getLoyaltyPointsEarned());
+        assertEquals(1, response.getLoyaltyPointsEarned());
         assertEquals(books, response.getBooks());
         assertEquals(1, response.getFreeBooks().size());
         assertEquals(book2, response.getFreeBooks().get(0));
 
-        verify(pricingService).calculatePrice(eq(books), eq(5), any());
-        verify(customerService).updateCustomer(eq(1L), any());
+        verify(customerService, never()).addLoyaltyPoints(anyLong(), anyInt());
+    }
+
+    @Test
+    void purchase_WhenPointsWereRedeemedConcurrently_ShouldPriceAgainWithoutFreeBook() {
+        // Arrange
+        customer.setLoyaltyPoints(10);
+        when(pricingService.calculatePrice(eq(books), eq(10), any())).thenAnswer(invocation -> {
+            List<Book> freeBooksOut = invocation.getArgument(2);
+            freeBooksOut.add(book2);
+            return new BigDecimal("29.99");
+        });
+        when(customerService.redeemLoyaltyPoints(1L, LoyaltyService.POINTS_FOR_FREE_BOOK, 1)).thenReturn(false);
+        when(customerService.getLoyaltyPoints(1L)).thenReturn(Optional.of(1));
+        when(pricingService.calculatePrice(eq(books), eq(1), any())).thenReturn(new BigDecimal("45.98"));
+        when(customerService.addLoyaltyPoints(1L, 2)).thenReturn(Optional.of(3));
+
+        // Act
+        PurchaseResponse response = purchaseService.purchase(customer, books);
+
+        // Assert
+        assertEquals(new BigDecimal("45.98"), response.getTotalPrice());
+        assertEquals(3, response.getLoyaltyPointsEarned());
+        assertTrue(response.getFreeBooks().isEmpty());
+    }
+
+    @Test
+    void purchase_WithQuote_ShouldNotPriceAgain() {
+        // Arrange
+        PriceQuote quote = new PriceQuote(new BigDecimal("45.98"), List.of());
+        when(customerService.addLoyaltyPoints(1L, 2)).thenReturn(Optional.of(7));
+
+        // Act
+        PurchaseResponse response = purchaseService.purchase(customer, books, quote);
+
+        // Assert
+        assertEquals(new BigDecimal("45.98"), response.getTotalPrice());
+        assertEquals(7, response.getLoyaltyPointsEarned());
+        verify(pricingService, never()).calculatePrice(any(), anyInt(), any());
+    }
+
+    @Test
+    void purchase_WithDeletedCustomer_ShouldThrowException() {
+        // Arrange
+        when(pricingService.calculatePrice(eq(books), eq(5), any())).thenReturn(new BigDecimal("45.98"));
+        when(customerService.addLoyaltyPoints(1L, 2)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> purchaseService.purchase(customer, books));
+    }
+
+    @Test
+    void purchase_WhenOutOfStock_ShouldFailBeforeChangingLoyaltyPoints() {
+        // Arrange
+        when(bookInventory.reserveForTransaction(books)).thenThrow(new OutOfStockException(1L, 1));
+
+        // Act & Assert
+        assertThrows(OutOfStockException.class, () -> purchaseService.purchase(customer, books));
+        verify(pricingService, never()).calculatePrice(any(), anyInt(), any());
+        verify(customerService, never()).addLoyaltyPoints(anyLong(), anyInt());
+        verify(purchaseLedger, never()).record(anyLong(), any());
+    }
+
+    @Test
+    void purchase_WithQuoteAndRedeemedPoints_ShouldReserveStockOnce() {
+        // Arrange
+        customer.setLoyaltyPoints(10);
+        PriceQuote quote = new PriceQuote(new BigDecimal("29.99"), List.of(book2));
+        when(customerService.redeemLoyaltyPoints(1L, LoyaltyService.POINTS_FOR_FREE_BOOK, 1)).thenReturn(false);
+        when(customerService.getLoyaltyPoints(1L)).thenReturn(Optional.of(1));
+        when(pricingService.calculatePrice(eq(books), eq(1), any())).thenReturn(new BigDecimal("45.98"));
+        when(customerService.addLoyaltyPoints(1L, 2)).thenReturn(Optional.of(3));
+
+        // Act
+        PurchaseResponse response = purchaseService.purchase(customer, books, quote);
+
+        // Assert
+        assertEquals(new BigDecimal("45.98"), response.getTotalPrice());
+        verify(bookInventory).reserveForTransaction(books);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package com.bookstore.service.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.dto.CacheStatsResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookCacheTest {
+
+    private BookCache bookCache;
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        bookCache = new BookCache(100, Duration.ofMinutes(1));
+        book = new Book(1L, "Cached Book", new BigDecimal("29.99"), BookType.REGULAR);
+    }
+
+    @Test
+    void get_ShouldLoadOnceAndCountHitsAndMisses() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        bookCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(book);
+        });
+        Optional<Book> second = bookCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(book);
+        });
+
+        // Assert
+        assertEquals(Optional.of(book), second);
+        assertEquals(1, loads.get());
+        CacheStatsResponse stats = bookCache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void get_WithMissingBook_ShouldNotCacheAbsence() {
+        // Act
+        Optional<Book> result = bookCache.get(99L, id -> Optional.empty());
+
+        // Assert
+        assertFalse(result.isPresent());
+        assertEquals(0, bookCache.stats().getSize());
+    }
+
+    @Test
+    void getAll_ShouldLoadOnlyMissingIdsInOneCall() {
+        // Arrange
+        Book other = new Book(2L, "Other Book", new BigDecimal("9.99"), BookType.OLD_EDITION);
+        bookCache.put(book);
+        AtomicInteger loaderCalls = new AtomicInteger();
+
+        // Act
+        Map<Long, Book> result = bookCache.getAll(List.of(1L, 2L), missing -> {
+            loaderCalls.incrementAndGet();
+            assertEquals(List.of(2L), missing);
+            return List.of(other);
+        });
+
+        // Assert
+        assertEquals(Map.of(1L, book, 2L, other), result);
+        assertEquals(1, loaderCalls.get());
+        assertEquals(2, bookCache.stats().getSize());
+    }
+
+    @Test
+    void getAll_WithWriteDuringLoad_ShouldNotStoreLoadedRow() {
+        // Arrange
+        Book updated = new Book(1L, "Cached Book", new BigDecimal("19.99"), BookType.REGULAR);
+
+        // Act
+        bookCache.getAll(List.of(1L), missing -> {
+            // An update commits and is invalidated while the bulk read is in flight
+            bookCache.invalidate(1L);
+            return List.of(book);
+        });
+        Optional<Book> result = bookCache.get(1L, id -> Optional.of(updated));
+
+        // Assert
+        assertEquals(Optional.of(updated), result);
+    }
+
+    @Test
+    void put_ShouldReplaceCachedCopy() {
+        // Arrange
+        bookCache.put(book);
+        Book updated = new Book(1L, "Cached Book", new BigDecimal("19.99"), BookType.REGULAR);
+
+        // Act
+        bookCache.put(updated);
+
+        // Assert
+        assertEquals(Optional.of(updated), bookCache.get(1L, id -> Optional.of(book)));
+    }
+
+    @Test
+    void invalidate_ShouldForceReload() {
+        // Arrange
+        bookCache.put(book);
+
+        // Act
+        bookCache.invalidate(1L);
+        AtomicInteger loads = new AtomicInteger();
+        bookCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(book);
+        });
+
+        // Assert
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void maximumSize_ShouldEvictAndCountEvictions() {
+        // Arrange
+        BookCache smallCache = new BookCache(1, Duration.ofMinutes(1));
+
+        // Act
+        for (long id = 1; id <= 50; id++) {
+            smallCache.put(new Book(id, "Book " + id, BigDecimal.ONE, BookType.REGULAR));
+        }
+        smallCache.cleanUp();
+
+        // Assert
+        assertTrue(smallCache.stats().getEvictionCount() > 0);
+        assertEquals(1, smallCache.stats().getSize());
+    }
+}
@@ -0,0 +1,178 @@
+package com.bookstore.service.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.bookstore.dto.CacheStatsResponse;
+import com.bookstore.model.Customer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CustomerCacheTest {
+
+    private CustomerCache customerCache;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customerCache = new CustomerCache(100, Duration.ofMinutes(1));
+        customer = new Customer(1L, "Cached Customer", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void get_ShouldLoadOnceAndHandOutCopies() {
+        // Arrange
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        Customer first = customerCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(customer);
+        }).orElseThrow();
+        // A purchase updates the balance of the customer it was given
+        first.setLoyaltyPoints(9);
+        Customer second = customerCache.get(1L, id -> Optional.empty()).orElseThrow();
+
+        // Assert
+        assertEquals(customer, second);
+        assertNotSame(first, second);
+        assertEquals(1, loads.get());
+        CacheStatsResponse stats = customerCache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+    }
+
+    @Test
+    void get_WithWriteDuringLoad_ShouldNotStoreLoadedRow() {
+        // Arrange
+        Customer updated = new Customer(1L, "Cached Customer", 5);
+
+        // Act
+        Optional<Customer> loaded = customerCache.get(1L, id -> {
+            // A purchase commits and invalidates while the row is being read
+            customerCache.invalidate(1L);
+            return Optional.of(customer);
+        });
+        Optional<Customer> result = customerCache.get(1L, id -> Optional.of(updated));
+
+        // Assert
+        assertEquals(Optional.of(customer), loaded);
+        assertEquals(Optional.of(updated), result);
+    }
+
+    @Test
+    void getAll_ShouldLoadOnlyMissingIdsInOneCall() {
+        // Arrange
+        Customer other = new Customer(2L, "Other Customer", 0);
+        customerCache.put(customer, customerCache.startWrite(1L));
+        AtomicInteger loaderCalls = new AtomicInteger();
+
+        // Act
+        Map<Long, Customer> result = customerCache.getAll(List.of(1L, 2L), missing -> {
+            loaderCalls.incrementAndGet();
+            assertEquals(List.of(2L), missing);
+            return List.of(other);
+        });
+
+        // Assert
+        assertEquals(Map.of(1L, customer, 2L, other), result);
+        assertEquals(1, loaderCalls.get());
+        assertEquals(2, customerCache.stats().getSize());
+    }
+
+    @Test
+    void put_ShouldReplaceCachedCopy() {
+        // Arrange
+        customerCache.put(customer, customerCache.startWrite(1L));
+        Customer updated = new Customer(1L, "Renamed Customer", 4);
+
+        // Act
+        customerCache.put(updated, customerCache.startWrite(1L));
+
+        // Assert
+        assertEquals(Optional.of(updated), customerCache.get(1L, id -> Optional.of(customer)));
+    }
+
+    @Test
+    void put_WithWriteSinceToken_ShouldDropEntryInstead() {
+        // Arrange
+        customerCache.put(customer, customerCache.startWrite(1L));
+        long epoch = customerCache.startWrite(1L);
+        // A purchase changes the balance in the database while the update is saving its row
+        customerCache.invalidate(1L);
+        Customer reloaded = new Customer(1L, "Cached Customer", 5);
+
+        // Act
+        customerCache.put(new Customer(1L, "Cached Customer", 3), epoch);
+
+        // Assert
+        assertEquals(Optional.of(reloaded), customerCache.get(1L, id -> Optional.of(reloaded)));
+    }
+
+    @Test
+    void put_InTransaction_ShouldStoreOnlyAfterCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        long epoch = customerCache.startWrite(1L);
+
+        // Act
+        customerCache.put(customer, epoch);
+        long sizeBeforeCommit = customerCache.stats().getSize();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        // Assert
+        assertEquals(0, sizeBeforeCommit);
+        assertEquals(Optional.of(customer), customerCache.get(1L, id -> Optional.empty()));
+    }
+
+    @Test
+    void invalidate_InTransaction_ShouldDropAgainWhenItCompletes() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        customerCache.invalidate(1L);
+        // Another thread loads the row before the change commits
+        customerCache.get(1L, id -> Optional.of(customer));
+
+        // Act
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // Assert
+        assertEquals(0, customerCache.stats().getSize());
+    }
+
+    @Test
+    void maximumSize_ShouldEvictAndCountEvictions() {
+        // Arrange
+        CustomerCache smallCache = new CustomerCache(1, Duration.ofMinutes(1));
+
+        // Act
+        for (long id = 1; id <= 50; id++) {
+            smallCache.put(new Customer(id, "Customer " + id, 0), smallCache.startWrite(id));
+        }
+        smallCache.cleanUp();
+
+        // Assert
+        assertTrue(smallCache.stats().getEvictionCount() > 0);
+        assertEquals(1, smallCache.stats().getSize());
+    }
+}
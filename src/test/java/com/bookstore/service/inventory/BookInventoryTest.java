@@ -0,0 +1,233 @@
+package com.bookstore.service.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.dto.StockLevelResponse;
+import com.bookstore.exception.OutOfStockException;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.BookStockRepository;
+import com.bookstore.repository.CustomerRepository;
+import com.bookstore.service.CustomerService;
+import com.bookstore.service.PurchaseService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the inventory against the real database, with the stock rows it loads and writes
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class BookInventoryTest {
+
+    @Autowired
+    private BookInventory bookInventory;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookStockRepository bookStockRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void reserve_WithOneBookShort_ShouldHoldNothing() {
+        // Arrange
+        Book plenty = stockedBook("Plenty", 10);
+        Book scarce = stockedBook("Scarce", 1);
+
+        // Act & Assert
+        assertThrows(OutOfStockException.class, () -> bookInventory.reserve(List.of(plenty, scarce, scarce)));
+        assertEquals(10, bookInventory.getStockLevel(plenty.getId()).getAvailable());
+        assertEquals(1, bookInventory.getStockLevel(scarce.getId()).getAvailable());
+    }
+
+    @Test
+    void commitAndRelease_ShouldSellOrPutBackTheUnits() {
+        // Arrange
+        Book book = stockedBook("Settled", 5);
+        StockReservation sold = bookInventory.reserve(List.of(book, book));
+        StockReservation abandoned = bookInventory.reserve(List.of(book));
+
+        // Act
+        StockLevelResponse held = bookInventory.getStockLevel(book.getId());
+        bookInventory.commit(sold);
+        bookInventory.release(abandoned);
+        bookInventory.release(sold);
+
+        // Assert
+        assertEquals(new StockLevelResponse(book.getId(), true, 5L, 3L, 2L), held);
+        assertEquals(new StockLevelResponse(book.getId(), true, 3L, 0L, 3L), bookInventory.getStockLevel(book.getId()));
+        assertEquals(3, bookStockRepository.findById(book.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void reserveForTransaction_WhenTransactionRollsBack_ShouldPutUnitsBack() {
+        // Arrange
+        Book book = stockedBook("Rolled Back", 2);
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            bookInventory.reserveForTransaction(List.of(book, book));
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals(new StockLevelResponse(book.getId(), true, 2L, 0L, 2L), bookInventory.getStockLevel(book.getId()));
+        assertEquals(2, bookStockRepository.findById(book.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void reserveForTransaction_ShouldWriteSaleInThatTransaction() {
+        // Arrange
+        Book book = stockedBook("Durable", 4);
+
+        // Act
+        long rowBeforeCommit = transactionTemplate.execute(status -> {
+            bookInventory.reserveForTransaction(List.of(book, book, book));
+            return bookStockRepository.findById(book.getId()).orElseThrow().getQuantity();
+        });
+        // What a restart after a crash would load
+        BookInventory reloaded = new BookInventory(bookStockRepository, transactionTemplate);
+
+        // Assert
+        assertEquals(4, rowBeforeCommit);
+        assertEquals(1, bookStockRepository.findById(book.getId()).orElseThrow().getQuantity());
+        assertEquals(new StockLevelResponse(book.getId(), true, 1L, 0L, 1L), bookInventory.getStockLevel(book.getId()));
+        assertEquals(bookInventory.getStockLevel(book.getId()), reloaded.getStockLevel(book.getId()));
+    }
+
+    @Test
+    void setStock_BelowReservedUnits_ShouldKeepThemHeld() {
+        // Arrange
+        Book book = stockedBook("Recounted", 5);
+        StockReservation reservation = bookInventory.reserve(List.of(book, book, book));
+
+        // Act
+        bookInventory.setStock(book.getId(), 2);
+
+        // Assert
+        assertEquals(new StockLevelResponse(book.getId(), true, 2L, 3L, 0L), bookInventory.getStockLevel(book.getId()));
+        assertThrows(OutOfStockException.class, () -> bookInventory.reserve(List.of(book)));
+        bookInventory.release(reservation);
+        assertEquals(2, bookInventory.getStockLevel(book.getId()).getAvailable());
+        assertEquals(2, bookStockRepository.findById(book.getId()).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void getStockLevel_WithoutStock_ShouldNotBeManaged() {
+        // Arrange
+        Book book = bookRepository.save(new Book(null, "Print On Demand", new BigDecimal("9.99"), BookType.REGULAR));
+
+        // Act
+        StockReservation reservation = bookInventory.reserve(List.of(book, book));
+
+        // Assert
+        assertTrue(reservation.isEmpty());
+        assertFalse(bookInventory.getStockLevel(book.getId()).isManaged());
+    }
+
+    @Test
+    void purchase_FromManyThreads_ShouldNeverOversell() throws Exception {
+        // Arrange
+        int units = 25;
+        int threads = 16;
+        int attempts = 200;
+        Book book = stockedBook("Hot Title", units);
+        Book other = stockedBook("Companion", 1_000);
+        Customer customer = customerRepository.save(new Customer(null, "Crowd", 0));
+        List<Callable<Object>> purchases = new ArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            // Every other cart also holds a plentiful book, which must not stay held when the hot title is gone
+            List<Book> cart = i % 2 == 0 ? List.of(book) : List.of(other, book);
+            purchases.add(() -> purchaseService.purchase(
+                    customerService.getCustomerById(customer.getId()).orElseThrow(), cart));
+        }
+
+        // Act
+        List<Object> outcomes = runConcurrently(purchases, threads);
+
+        // Assert
+        long sold = outcomes.stream().filter(outcome -> !(outcome instanceof Throwable)).count();
+        outcomes.stream()
+                .filter(outcome -> outcome instanceof Throwable)
+                .forEach(failure -> assertInstanceOf(OutOfStockException.class, failure));
+        assertEquals(units, sold);
+        // New releases are never free: every unit sold earned a point, and nothing else did
+        assertEquals(units + countCarts(outcomes, 2), customerService.getLoyaltyPoints(customer.getId()).orElseThrow().longValue());
+        assertEquals(new StockLevelResponse(book.getId(), true, 0L, 0L, 0L), bookInventory.getStockLevel(book.getId()));
+        assertEquals(0, bookStockRepository.findById(book.getId()).orElseThrow().getQuantity());
+        StockLevelResponse companion = bookInventory.getStockLevel(other.getId());
+        assertEquals(0, companion.getReserved().longValue());
+        assertEquals(1_000 - countCarts(outcomes, 2), companion.getOnHand().longValue());
+    }
+
+    private Book stockedBook(String title, long units) {
+        Book book = bookRepository.save(new Book(null, title, new BigDecimal("19.99"), BookType.NEW_RELEASE));
+        bookInventory.setStock(book.getId(), units);
+        return book;
+    }
+
+    private static long countCarts(List<Object> outcomes, int size) {
+        return outcomes.stream()
+                .filter(outcome -> outcome instanceof PurchaseResponse response
+                        && response.getBooks().size() == size)
+                .count();
+    }
+
+    private static List<Object> runConcurrently(List<Callable<Object>> tasks, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (Callable<Object> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Object> outcomes = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                try {
+                    outcomes.add(future.get());
+                } catch (ExecutionException e) {
+                    outcomes.add(e.getCause());
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.bookstore.service.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.LoyaltyReplayResponse;
+import com.bookstore.model.Customer;
+import com.bookstore.model.LoyaltyEvent;
+import com.bookstore.model.LoyaltyEventType;
+import com.bookstore.repository.CustomerRepository;
+import com.bookstore.repository.LoyaltyEventRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Appends loyalty events to the real database and replays them
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class LoyaltyLedgerTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LoyaltyEventRepository loyaltyEventRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LoyaltyLedger ledger;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new LoyaltyLedger(customerRepository, loyaltyEventRepository, entityManagerFactory, dataSource, 500,
+                10_000, Duration.ofMillis(2), Duration.ofSeconds(5), 4, 100, Clock.systemUTC());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.close();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void earnAndRedeem_ShouldAppendEventsAndRefreshSnapshot() {
+        // Arrange
+        Long customerId = customerRepository.save(new Customer(null, "Ledger Customer", 3)).getId();
+
+        // Act
+        int earned = ledger.earn(customerId, 8).orElseThrow();
+        boolean redeemed = ledger.redeem(customerId, 10, 2);
+        boolean redeemedAgain = ledger.redeem(customerId, 10, 0);
+        ledger.close();
+
+        // Assert
+        assertEquals(11, earned);
+        assertTrue(redeemed);
+        assertFalse(redeemedAgain);
+        List<LoyaltyEvent> events = loyaltyEventRepository.findByCustomerIdOrderByIdAsc(customerId);
+        assertEquals(List.of(LoyaltyEventType.OPENING, LoyaltyEventType.EARN, LoyaltyEventType.REDEEM),
+                events.stream().map(LoyaltyEvent::getType).toList());
+        assertEquals(List.of(3, 8, -9), events.stream().map(LoyaltyEvent::getDelta).toList());
+        assertEquals(List.of(3, 11, 2), events.stream().map(LoyaltyEvent::getBalance).toList());
+        assertEquals(2, customerRepository.findLoyaltyPointsById(customerId).orElseThrow());
+        assertEquals(2, ledger.getBalance(customerId).orElseThrow());
+    }
+
+    @Test
+    void earn_WithUnknownCustomer_ShouldReturnEmpty() {
+        // Act & Assert
+        assertTrue(ledger.earn(Long.MAX_VALUE, 1).isEmpty());
+        assertFalse(ledger.redeem(Long.MAX_VALUE, 10, 0));
+        assertEquals(0, ledger.stats().getAccounts());
+    }
+
+    @Test
+    void earn_InRolledBackTransaction_ShouldHoldBalanceUntilRollbackAndLogNothing() throws Exception {
+        // Arrange
+        Long customerId = customerRepository.save(new Customer(null, "Unlucky Customer", 4)).getId();
+        executor = Executors.newSingleThreadExecutor();
+        List<Future<Integer>> concurrent = new ArrayList<>();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            ledger.earn(customerId, 5);
+            concurrent.add(executor.submit(() -> ledger.earn(customerId, 1).orElseThrow()));
+            sleep(100);
+            // The balance stays with this transaction until it completes
+            assertFalse(concurrent.getFirst().isDone());
+            status.setRollbackOnly();
+        });
+        int afterConcurrentEarn = concurrent.getFirst().get(5, TimeUnit.SECONDS);
+        ledger.close();
+
+        // Assert
+        assertEquals(5, afterConcurrentEarn);
+        List<LoyaltyEvent> events = loyaltyEventRepository.findByCustomerIdOrderByIdAsc(customerId);
+        assertEquals(List.of(LoyaltyEventType.OPENING, LoyaltyEventType.EARN),
+                events.stream().map(LoyaltyEvent::getType).toList());
+        assertEquals(5, events.stream().mapToInt(LoyaltyEvent::getDelta).sum());
+        assertEquals(5, customerRepository.findLoyaltyPointsById(customerId).orElseThrow());
+        assertEquals(1, ledger.stats().getReversals());
+    }
+
+    @Test
+    void earn_InTransaction_ShouldQueueEventOnCommitAndReturnOnceWritten() {
+        // Arrange
+        Long customerId = customerRepository.save(new Customer(null, "Committed Customer", 0)).getId();
+        ledger.open(customerId, 0);
+        long appendedBefore = ledger.stats().getAppendedEvents();
+        List<Long> appendedInTransaction = new ArrayList<>();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            ledger.earn(customerId, 2);
+            appendedInTransaction.add(ledger.stats().getAppendedEvents());
+        });
+
+        // Assert
+        // Nothing is logged before the commit, and the event is written when the commit returns
+        assertEquals(appendedBefore, appendedInTransaction.getFirst());
+        List<LoyaltyEvent> events = loyaltyEventRepository.findByCustomerIdOrderByIdAsc(customerId);
+        assertEquals(List.of(LoyaltyEventType.OPENING, LoyaltyEventType.EARN),
+                events.stream().map(LoyaltyEvent::getType).toList());
+        assertEquals(2, customerRepository.findLoyaltyPointsById(customerId).orElseThrow());
+    }
+
+    @Test
+    void earn_FromManyThreads_ShouldBatchEventsAndReplayWithoutDrift() throws Exception {
+        // Arrange
+        int threads = 8;
+        int earnsPerThread = 250;
+        Long customerId = customerRepository.save(new Customer(null, "Busy Customer", 0)).getId();
+        executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                for (int j = 0; j < earnsPerThread; j++) {
+                    ledger.earn(customerId, 1);
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        LoyaltyReplayResponse replay = ledger.replay(false);
+
+        // Assert
+        assertEquals(threads * earnsPerThread, ledger.getBalance(customerId).orElseThrow());
+        assertEquals(threads * earnsPerThread, customerRepository.findLoyaltyPointsById(customerId).orElseThrow());
+        assertEquals(threads * earnsPerThread + 1, loyaltyEventRepository.findByCustomerIdOrderByIdAsc(customerId).size());
+        assertTrue(ledger.stats().getWrittenBatches() < threads * earnsPerThread);
+        // The log is shared with other tests, some of which leave drifted events behind on purpose
+        assertEquals(0, replay.getDriftedBalances());
+        assertTrue(replay.getEvents() >= threads * earnsPerThread + 1);
+    }
+
+    @Test
+    void replay_WithEventMissingFromBalance_ShouldReportAndRepairIt() {
+        // Arrange
+        Long customerId = customerRepository.save(new Customer(null, "Drifted Customer", 2)).getId();
+        ledger.earn(customerId, 3);
+        awaitWrittenEvents(2);
+        // A change that reached the log but not the balance, as left by a bug
+        loyaltyEventRepository.save(new LoyaltyEvent(null, customerId, LoyaltyEventType.EARN, 4, 5, Instant.now()));
+
+        // Act
+        LoyaltyReplayResponse reported = ledger.replay(false);
+        LoyaltyReplayResponse repaired = ledger.replay(true);
+        LoyaltyReplayResponse afterRepair = ledger.replay(false);
+        ledger.close();
+
+        // Assert
+        assertEquals(1, reported.getDriftedBalances());
+        assertEquals(1, reported.getDriftedEvents());
+        assertEquals(0, reported.getRepairedBalances());
+        assertEquals(1, repaired.getRepairedBalances());
+        assertEquals(0, afterRepair.getDriftedBalances());
+        assertEquals(9, ledger.getBalance(customerId).orElseThrow());
+        assertEquals(9, customerRepository.findLoyaltyPointsById(customerId).orElseThrow());
+        LoyaltyEvent last = loyaltyEventRepository.findFirstByCustomerIdOrderByIdDesc(customerId).orElseThrow();
+        assertEquals(LoyaltyEventType.ADJUST, last.getType());
+        assertEquals(0, last.getDelta());
+    }
+
+    @Test
+    void earn_WithSnapshotChangedOutsideLedger_ShouldAlignLogFirst() {
+        // Arrange
+        Long customerId = customerRepository.save(new Customer(null, "Returning Customer", 1)).getId();
+        ledger.earn(customerId, 1);
+        ledger.close();
+        customerRepository.addLoyaltyPoints(customerId, 6);
+        ledger = new LoyaltyLedger(customerRepository, loyaltyEventRepository, entityManagerFactory, dataSource, 500,
+                10_000, Duration.ofMillis(2), Duration.ofSeconds(5), 4, 100, Clock.systemUTC());
+
+        // Act
+        int balance = ledger.earn(customerId, 1).orElseThrow();
+        ledger.close();
+
+        // Assert
+        assertEquals(9, balance);
+        List<LoyaltyEvent> events = loyaltyEventRepository.findByCustomerIdOrderByIdAsc(customerId);
+        assertEquals(List.of(LoyaltyEventType.OPENING, LoyaltyEventType.EARN, LoyaltyEventType.ADJUST,
+                LoyaltyEventType.EARN), events.stream().map(LoyaltyEvent::getType).toList());
+        assertEquals(9, events.stream().mapToInt(LoyaltyEvent::getDelta).sum());
+    }
+
+    private void awaitWrittenEvents(long events) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ledger.stats().getWrittenEvents() < events && System.nanoTime() < deadline) {
+            sleep(1);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
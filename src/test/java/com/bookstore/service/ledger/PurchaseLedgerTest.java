@@ -0,0 +1,224 @@
+package com.bookstore.service.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.LedgerStatsResponse;
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.PurchaseOrder;
+import com.bookstore.model.PurchaseOrderLine;
+import com.bookstore.repository.PurchaseOrderLineRepository;
+import com.bookstore.repository.PurchaseOrderRepository;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writes ledger entries to the real database under each durability
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class PurchaseLedgerTest {
+
+    /**
+     * Customers unique to each test, so entries written by other tests do not count
+     */
+    private static final AtomicLong NEXT_CUSTOMER_ID = new AtomicLong(1_000_000);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PurchaseOrderRepository purchaseOrderRepository;
+
+    @Autowired
+    private PurchaseOrderLineRepository purchaseOrderLineRepository;
+
+    private PurchaseLedger ledger;
+
+    @AfterEach
+    void tearDown() {
+        if (ledger != null) {
+            ledger.close();
+        }
+    }
+
+    @Test
+    void record_WithSyncDurability_ShouldWriteOrderAndLinesInCallersTransaction() {
+        // Arrange
+        ledger = ledger(LedgerDurability.SYNC, Duration.ZERO);
+        Long customerId = NEXT_CUSTOMER_ID.incrementAndGet();
+        Book regular = new Book(1L, "Regular", new BigDecimal("29.99"), BookType.REGULAR);
+        Book oldEdition = new Book(2L, "Old Edition", new BigDecimal("19.99"), BookType.OLD_EDITION);
+        PurchaseResponse response = response(List.of(regular, oldEdition, oldEdition), List.of(oldEdition));
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> ledger.record(customerId, response));
+
+        // Assert
+        List<PurchaseOrder> orders = purchaseOrderRepository.findByCustomerIdOrderByIdAsc(customerId);
+        assertEquals(1, orders.size());
+        assertEquals(3, orders.get(0).getBookCount());
+        assertEquals(0, new BigDecimal("45.98").compareTo(orders.get(0).getTotalPrice()));
+        List<PurchaseOrderLine> lines = purchaseOrderLineRepository.findByOrderIdOrderByLineNumberAsc(orders.get(0).getId());
+        assertEquals(3, lines.size());
+        assertFalse(lines.get(0).isFree());
+        assertTrue(lines.get(1).isFree());
+        assertFalse(lines.get(2).isFree());
+        assertEquals(BookType.OLD_EDITION, lines.get(1).getType());
+    }
+
+    @Test
+    void record_WithSyncDurabilityAndRolledBackPurchase_ShouldWriteNothing() {
+        // Arrange
+        ledger = ledger(LedgerDurability.SYNC, Duration.ZERO);
+        Long customerId = NEXT_CUSTOMER_ID.incrementAndGet();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            ledger.record(customerId, response(List.of(book(1L)), List.of()));
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertTrue(purchaseOrderRepository.findByCustomerIdOrderByIdAsc(customerId).isEmpty());
+    }
+
+    @Test
+    void record_WithBatchedDurability_ShouldHaveWrittenEntryWhenCommitReturns() {
+        // Arrange
+        ledger = ledger(LedgerDurability.BATCHED, Duration.ofMillis(2));
+        Long customerId = NEXT_CUSTOMER_ID.incrementAndGet();
+
+        // Act
+        CompletableFuture<Void> written = transactionTemplate.execute(status ->
+                ledger.record(customerId, response(List.of(book(1L)), List.of())));
+
+        // Assert
+        assertTrue(written.isDone());
+        assertEquals(1, purchaseOrderRepository.findByCustomerIdOrderByIdAsc(customerId).size());
+    }
+
+    @Test
+    void record_WithBatchedDurabilityAndManyPurchasesInOneTransaction_ShouldWriteThemTogether() {
+        // Arrange
+        ledger = ledger(LedgerDurability.BATCHED, Duration.ofMillis(2));
+        Long customerId = NEXT_CUSTOMER_ID.incrementAndGet();
+
+        // Act
+        List<CompletableFuture<Void>> written = transactionTemplate.execute(status -> {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(ledger.record(customerId, response(List.of(book(1L)), List.of())));
+            }
+            return futures;
+        });
+
+        // Assert
+        assertTrue(written.stream().allMatch(CompletableFuture::isDone));
+        assertEquals(50, purchaseOrderRepository.findByCustomerIdOrderByIdAsc(customerId).size());
+        assertEquals(1, ledger.stats().getWrittenBatches());
+    }
+
+    @Test
+    void record_WithBatchedDurabilityAndRolledBackPurchase_ShouldQueueNothing() {
+        // Arrange
+        ledger = ledger(LedgerDurability.BATCHED, Duration.ofMillis(2));
+        Long customerId = NEXT_CUSTOMER_ID.incrementAndGet();
+
+        // Act
+        CompletableFuture<Void> written = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return ledger.record(customerId, response(List.of(book(1L)), List.of()));
+        });
+
+        // Assert
+        assertFalse(written.isDone());
+        assertEquals(0, ledger.stats().getQueued());
+        assertTrue(purchaseOrderRepository.findByCustomerIdOrderByIdAsc(customerId).isEmpty());
+    }
+
+    @Test
+    void record_WithAsyncDurability_ShouldGroupEntriesIntoBatches() throws Exception {
+        // Arrange
+        ledger = ledger(LedgerDurability.ASYNC, Duration.ofMillis(50));
+        Long customerId = NEXT_CUSTOMER_ID.incrementAndGet();
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 200; i++) {
+            written.add(ledger.record(customerId, response(List.of(book(1L), book(2L)), List.of())));
+        }
+        CompletableFuture.allOf(written.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(200, purchaseOrderRepository.findByCustomerIdOrderByIdAsc(customerId).size());
+        LedgerStatsResponse stats = ledger.stats();
+        assertEquals(200, stats.getWrittenOrders());
+        assertTrue(stats.getWrittenBatches() < 200);
+        assertTrue(stats.getMaxBatchSize() > 1);
+        assertEquals(0, stats.getFailedOrders());
+    }
+
+    @Test
+    void close_ShouldWriteQueuedEntries() {
+        // Arrange
+        ledger = ledger(LedgerDurability.ASYNC, Duration.ofMillis(50));
+        Long customerId = NEXT_CUSTOMER_ID.incrementAndGet();
+        for (int i = 0; i < 20; i++) {
+            ledger.record(customerId, response(List.of(book(1L)), List.of()));
+        }
+
+        // Act
+        ledger.close();
+
+        // Assert
+        assertEquals(20, purchaseOrderRepository.findByCustomerIdOrderByIdAsc(customerId).size());
+    }
+
+    private PurchaseLedger ledger(LedgerDurability durability, Duration maxBatchDelay) {
+        return new PurchaseLedger(entityManager, transactionTemplate, entityManagerFactory, dataSource, durability,
+                500, 1000, maxBatchDelay, Clock.systemUTC());
+    }
+
+    private static Book book(Long id) {
+        return new Book(id, "Book " + id, new BigDecimal("10.00"), BookType.REGULAR);
+    }
+
+    private static PurchaseResponse response(List<Book> books, List<Book> freeBooks) {
+        PurchaseResponse response = new PurchaseResponse();
+        response.setTotalPrice(new BigDecimal("45.98"));
+        response.setLoyaltyPointsEarned(books.size() - freeBooks.size());
+        response.setBooks(books);
+        response.setFreeBooks(freeBooks);
+        return response;
+    }
+}
@@ -0,0 +1,150 @@
+package com.bookstore.service.lock;
+
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.dto.LockStatsResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CustomerLocksTest {
+
+    @Test
+    void constructor_ShouldRoundStripesUpToPowerOfTwo() {
+        // Act & Assert
+        assertEquals(1, new CustomerLocks(1).stripeCount());
+        assertEquals(4, new CustomerLocks(3).stripeCount());
+        assertEquals(1024, new CustomerLocks(1000).stripeCount());
+        assertEquals(1024, new CustomerLocks(1024).stripeCount());
+        assertThrows(IllegalArgumentException.class, () -> new CustomerLocks(0));
+    }
+
+    @Test
+    void stripe_WithSequentialIds_ShouldUseEveryStripe() {
+        // Arrange
+        CustomerLocks locks = new CustomerLocks(64);
+        boolean[] used = new boolean[64];
+
+        // Act
+        for (long id = 1; id <= 1024; id++) {
+            used[locks.stripe(id)] = true;
+        }
+
+        // Assert
+        for (boolean stripeUsed : used) {
+            assertTrue(stripeUsed);
+        }
+    }
+
+    @Test
+    void withLock_ForSameCustomer_ShouldRunOneAtATime() throws Exception {
+        // Arrange
+        CustomerLocks locks = new CustomerLocks(8);
+        int[] balance = new int[1];
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    // Not atomic on its own; only the lock keeps increments from being lost
+                    locks.withLock(42L, () -> balance[0]++);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(80_000, balance[0]);
+        LockStatsResponse stats = locks.stats();
+        assertEquals(80_000, stats.getAcquisitionCount());
+        assertEquals(0, stats.getWaitingThreads());
+    }
+
+    @Test
+    void withLock_ForCustomersOnDifferentStripes_ShouldRunInParallel() throws Exception {
+        // Arrange
+        CustomerLocks locks = new CustomerLocks(64);
+        long other = 2;
+        while (locks.stripe(other) == locks.stripe(1L)) {
+            other++;
+        }
+        long otherCustomer = other;
+        CountDownLatch bothInside = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        Future<Boolean> first = executor.submit(() -> locks.withLock(1L, () -> awaitOther(bothInside)));
+        Future<Boolean> second = executor.submit(() -> locks.withLock(otherCustomer, () -> awaitOther(bothInside)));
+
+        // Assert
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertNotEquals(locks.stripe(1L), locks.stripe(otherCustomer));
+        assertEquals(0, locks.stats().getContendedCount());
+        executor.shutdown();
+    }
+
+    @Test
+    void withLock_WhenHeld_ShouldCountContention() throws Exception {
+        // Arrange
+        CustomerLocks locks = new CustomerLocks(1);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> locks.withLock(1L, () -> {
+            holding.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        holder.start();
+        holding.await();
+
+        // Act
+        Thread waiter = new Thread(() -> locks.withLock(2L, () -> null));
+        waiter.start();
+        while (locks.stats().getWaitingThreads() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        waiter.join();
+        holder.join();
+
+        // Assert
+        LockStatsResponse stats = locks.stats();
+        assertEquals(2, stats.getAcquisitionCount());
+        assertEquals(1, stats.getContendedCount());
+        assertEquals(0.5, stats.getContentionRate());
+    }
+
+    private static boolean awaitOther(CountDownLatch bothInside) {
+        bothInside.countDown();
+        try {
+            return bothInside.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
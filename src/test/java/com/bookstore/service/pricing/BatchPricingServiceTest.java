@@ -0,0 +1,169 @@
+package com.bookstore.service.pricing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.dto.CartQuote;
+import com.bookstore.dto.PricingRequest;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+import com.bookstore.service.BookService;
+import com.bookstore.service.CustomerService;
+import com.bookstore.service.LoyaltyService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchPricingServiceTest {
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private CustomerService customerService;
+
+    private PricingService pricingService;
+
+    private BatchPricingService batchPricingService;
+
+    private Book regularBook;
+    private Book oldEditionBook;
+    private Customer customer;
+    private Customer loyalCustomer;
+
+    @BeforeEach
+    void setUp() {
+        pricingService = new PricingService(
+                new PricingStrategyFactory(
+                        List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy()),
+                        new BookstoreProperties()),
+                new LoyaltyService(), new BookstoreProperties(), null);
+        BookstoreProperties properties = new BookstoreProperties();
+        properties.getBatchPricing().setParallelism(4);
+        properties.getBatchPricing().setCartsPerTask(2);
+        properties.getBatchPricing().setMaxCarts(500);
+        batchPricingService = new BatchPricingService(bookService, customerService, pricingService, properties);
+
+        regularBook = new Book(1L, "Regular Book", new BigDecimal("29.99"), BookType.REGULAR);
+        oldEditionBook = new Book(2L, "Old Edition", new BigDecimal("19.99"), BookType.OLD_EDITION);
+        customer = new Customer(1L, "Test Customer", 5);
+        loyalCustomer = new Customer(2L, "Loyal Customer", 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchPricingService.close();
+    }
+
+    @Test
+    void priceCarts_ShouldLoadEachBookAndCustomerOnceAndKeepRequestOrder() {
+        // Arrange
+        List<PricingRequest> carts = List.of(
+                cart(1L, 1L, 2L),
+                cart(2L, 1L, 2L, 2L),
+                cart(99L, 1L),
+                cart(1L, 1L, 42L, 43L),
+                cart(null, 1L));
+        when(bookService.findBooksByIds(Set.of(1L, 2L, 42L, 43L))).thenReturn(Map.of(1L, regularBook, 2L, oldEditionBook));
+        when(customerService.getCustomersByIds(Set.of(1L, 2L, 99L))).thenReturn(Map.of(1L, customer, 2L, loyalCustomer));
+
+        // Act
+        List<CartQuote> quotes = batchPricingService.priceCarts(carts);
+
+        // Assert
+        assertEquals(5, quotes.size());
+        for (int i = 0; i < quotes.size(); i++) {
+            assertEquals(i, quotes.get(i).getIndex());
+        }
+
+        assertEquals(CartQuote.Status.OK, quotes.get(0).getStatus());
+        assertEquals(new BigDecimal("45.98"), quotes.get(0).getTotalPrice());
+        assertEquals(List.of(regularBook, oldEditionBook), quotes.get(0).getBooks());
+        assertNull(quotes.get(0).getMessage());
+
+        assertEquals(CartQuote.Status.OK, quotes.get(1).getStatus());
+        assertEquals(List.of(oldEditionBook), quotes.get(1).getFreeBooks());
+        assertEquals(new BigDecimal("45.98"), quotes.get(1).getTotalPrice());
+
+        assertEquals(CartQuote.Status.CUSTOMER_NOT_FOUND, quotes.get(2).getStatus());
+        assertEquals(CartQuote.Status.BOOKS_NOT_FOUND, quotes.get(3).getStatus());
+        assertEquals("Books not found: [42, 43]", quotes.get(3).getMessage());
+        assertNull(quotes.get(3).getTotalPrice());
+        assertEquals(CartQuote.Status.INVALID_REQUEST, quotes.get(4).getStatus());
+    }
+
+    @Test
+    void priceCarts_WithManyCarts_ShouldPriceEveryCartLikeASingleRequest() {
+        // Arrange
+        List<PricingRequest> carts = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Long[] bookIds = new Long[i % 7];
+            Arrays.fill(bookIds, i % 2 == 0 ? 1L : 2L);
+            carts.add(cart(i % 3 == 0 ? 2L : 1L, bookIds));
+        }
+        when(bookService.findBooksByIds(anyCollection())).thenReturn(Map.of(1L, regularBook, 2L, oldEditionBook));
+        when(customerService.getCustomersByIds(anyCollection())).thenReturn(Map.of(1L, customer, 2L, loyalCustomer));
+
+        // Act
+        List<CartQuote> quotes = batchPricingService.priceCarts(carts);
+
+        // Assert
+        assertEquals(carts.size(), quotes.size());
+        for (int i = 0; i < carts.size(); i++) {
+            CartQuote quote = quotes.get(i);
+            int loyaltyPoints = i % 3 == 0 ? 10 : 5;
+            List<Book> books = new ArrayList<>(Collections.nCopies(i % 7, i % 2 == 0 ? regularBook : oldEditionBook));
+            List<Book> freeBooks = new ArrayList<>();
+            BigDecimal expected = pricingService.calculatePrice(books, loyaltyPoints, freeBooks);
+
+            assertEquals(i, quote.getIndex());
+            assertEquals(CartQuote.Status.OK, quote.getStatus());
+            assertEquals(expected, quote.getTotalPrice(), "cart " + i);
+            assertEquals(freeBooks, quote.getFreeBooks(), "cart " + i);
+        }
+    }
+
+    @Test
+    void priceCarts_WithTooManyCarts_ShouldThrowException() {
+        // Arrange
+        List<PricingRequest> carts = Collections.nCopies(501, cart(1L, 1L));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> batchPricingService.priceCarts(carts));
+        verify(bookService, never()).findBooksByIds(anyCollection());
+    }
+
+    @Test
+    void priceCarts_WithNoCarts_ShouldReturnEmptyList() {
+        // Act & Assert
+        assertEquals(List.of(), batchPricingService.priceCarts(null));
+        assertEquals(List.of(), batchPricingService.priceCarts(List.of()));
+    }
+
+    private static PricingRequest cart(Long customerId, Long... bookIds) {
+        PricingRequest request = new PricingRequest();
+        request.setCustomerId(customerId);
+        request.setBookIds(Arrays.asList(bookIds));
+        return request;
+    }
+}
@@ -0,0 +1,132 @@
+package com.bookstore.service.pricing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BookPriceTableTest {
+
+    private PricingStrategyFactory pricingStrategyFactory;
+    private BookPriceTable priceTable;
+
+    private Book regularBook;
+    private Book oldEditionBook;
+
+    @BeforeEach
+    void setUp() {
+        pricingStrategyFactory = new PricingStrategyFactory(
+                List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy()),
+                new BookstoreProperties());
+        priceTable = new BookPriceTable(pricingStrategyFactory);
+        regularBook = new Book(1L, "Regular Book", new BigDecimal("29.99"), BookType.REGULAR);
+        oldEditionBook = new Book(2L, "Old Edition", new BigDecimal("19.99"), BookType.OLD_EDITION);
+    }
+
+    @Test
+    void bookSaved_ShouldPrecomputeStandaloneAndBundlePrices() {
+        // Act
+        priceTable.bookSaved(regularBook);
+        priceTable.bookSaved(oldEditionBook);
+
+        // Assert
+        assertEquals(2999L, priceTable.priceCents(regularBook, false, 1));
+        assertEquals(2699L, priceTable.priceCents(regularBook, true, 1));
+        assertEquals(1599L, priceTable.priceCents(oldEditionBook, false, 1));
+        assertEquals(1519L, priceTable.priceCents(oldEditionBook, true, 1));
+    }
+
+    @Test
+    void priceCents_WithChangedPriceOrType_ShouldMiss() {
+        // Arrange
+        priceTable.bookSaved(regularBook);
+
+        // Act & Assert
+        assertEquals(BookPriceTable.MISSING,
+                priceTable.priceCents(new Book(1L, "Regular Book", new BigDecimal("39.99"), BookType.REGULAR), false, 1));
+        assertEquals(BookPriceTable.MISSING,
+                priceTable.priceCents(new Book(1L, "Regular Book", new BigDecimal("29.99"), BookType.OLD_EDITION), false, 1));
+        assertEquals(2999L,
+                priceTable.priceCents(new Book(1L, "Renamed", new BigDecimal("29.990"), BookType.REGULAR), false, 1));
+    }
+
+    @Test
+    void bookSaved_WithMoreThanTwoDecimals_ShouldNotStoreVector() {
+        // Arrange
+        Book book = new Book(3L, "Odd Price", new BigDecimal("9.999"), BookType.REGULAR);
+
+        // Act
+        priceTable.bookSaved(book);
+
+        // Assert
+        assertEquals(0, priceTable.size());
+        assertEquals(BookPriceTable.MISSING, priceTable.priceCents(book, false, 1));
+    }
+
+    @Test
+    void bookDeleted_ShouldRemoveVector() {
+        // Arrange
+        priceTable.bookSaved(regularBook);
+
+        // Act
+        priceTable.bookDeleted(1L);
+
+        // Assert
+        assertEquals(BookPriceTable.MISSING, priceTable.priceCents(regularBook, false, 1));
+    }
+
+    @Test
+    void load_ShouldKeepWritesAndDeletesMadeDuringTheLoad() {
+        // Arrange
+        Book updatedBook = new Book(1L, "Regular Book", new BigDecimal("9.99"), BookType.REGULAR);
+
+        // Act
+        priceTable.load(consumer -> {
+            priceTable.bookSaved(updatedBook);
+            priceTable.bookDeleted(2L);
+            consumer.accept(regularBook);
+            consumer.accept(oldEditionBook);
+        });
+
+        // Assert
+        assertEquals(1, priceTable.size());
+        assertEquals(999L, priceTable.priceCents(updatedBook, false, 1));
+        assertEquals(BookPriceTable.MISSING, priceTable.priceCents(oldEditionBook, false, 1));
+    }
+
+    @Test
+    void rebuild_ShouldRecomputeEveryVectorWithNewRules() {
+        // Arrange
+        List<Book> books = new ArrayList<>();
+        for (long id = 1; id <= 10_000; id++) {
+            Book book = new Book(id, "Book " + id, BigDecimal.valueOf(id, 2), id % 2 == 0 ? BookType.REGULAR : BookType.OLD_EDITION);
+            books.add(book);
+            priceTable.bookSaved(book);
+        }
+        PricingStrategy regular = new ConfiguredPricingStrategy(BookType.REGULAR, BigDecimal.ONE, new BigDecimal("0.85"));
+        PricingStrategy oldEdition = new ConfiguredPricingStrategy(BookType.OLD_EDITION, new BigDecimal("0.7"), new BigDecimal("0.9"));
+        pricingStrategyFactory.replaceRules(List.of(regular, oldEdition, new NewReleasePricingStrategy()), Map.of());
+
+        // Act
+        priceTable.rebuild();
+
+        // Assert
+        assertEquals(10_000, priceTable.size());
+        for (Book book : books) {
+            PricingStrategy strategy = book.getType() == BookType.REGULAR ? regular : oldEdition;
+            long cents = book.getId();
+            assertEquals(strategy.calculatePriceCents(cents, false), priceTable.priceCents(book, false, 2));
+            assertEquals(strategy.calculatePriceCents(cents, true), priceTable.priceCents(book, true, 2));
+            assertEquals(BookPriceTable.MISSING, priceTable.priceCents(book, false, 1));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.bookstore.service.pricing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.service.LoyaltyService;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares both pricing engines over randomized carts against a reference implementation that orders the cart
+ * with two stable sorts, which is how the rules were originally written
+ */
+public class FixedPointPricingDifferentialTest {
+
+    private static final int CARTS = 20_000;
+
+    private final LoyaltyService loyaltyService = new LoyaltyService();
+
+    private PricingService decimalPricingService;
+    private PricingService fixedPointPricingService;
+    private BookPriceTable priceTable;
+    private PricingService priceTablePricingService;
+
+    @BeforeEach
+    void setUp() {
+        PricingStrategyFactory factory = new PricingStrategyFactory(
+                List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy()),
+                new BookstoreProperties());
+        decimalPricingService = new PricingService(factory, loyaltyService, properties(PricingEngine.DECIMAL), null);
+        fixedPointPricingService = new PricingService(factory, loyaltyService, properties(PricingEngine.FIXED_POINT), null);
+        priceTable = new BookPriceTable(factory);
+        priceTablePricingService = new PricingService(factory, loyaltyService, properties(PricingEngine.FIXED_POINT),
+                priceTable);
+    }
+
+    @Test
+    void calculatePrice_WithRandomCarts_ShouldMatchDecimalEngine() {
+        Random random = new Random(20240601L);
+        for (int cart = 0; cart < CARTS; cart++) {
+            List<Book> books = randomCart(random);
+            int loyaltyPoints = random.nextInt(16);
+            // Book IDs repeat across carts with other prices, so the table also holds vectors that must not match
+            for (Book book : books) {
+                if (random.nextBoolean()) {
+                    priceTable.bookSaved(book);
+                }
+            }
+            List<Book> referenceFreeBooks = new ArrayList<>();
+            List<Book> decimalFreeBooks = new ArrayList<>();
+            List<Book> fixedPointFreeBooks = new ArrayList<>();
+            List<Book> priceTableFreeBooks = new ArrayList<>();
+
+            // Act
+            BigDecimal referenceTotal = referencePrice(books, loyaltyPoints, referenceFreeBooks);
+            BigDecimal decimalTotal = decimalPricingService.calculatePrice(books, loyaltyPoints, decimalFreeBooks);
+            BigDecimal fixedPointTotal = fixedPointPricingService.calculatePrice(books, loyaltyPoints, fixedPointFreeBooks);
+            BigDecimal priceTableTotal = priceTablePricingService.calculatePrice(books, loyaltyPoints, priceTableFreeBooks);
+
+            // Assert
+            String message = "points=" + loyaltyPoints + " cart=" + books;
+            assertEquals(referenceTotal, decimalTotal, message);
+            assertEquals(referenceTotal, fixedPointTotal, message);
+            assertSame(referenceFreeBooks, decimalFreeBooks, message);
+            assertSame(referenceFreeBooks, fixedPointFreeBooks, message);
+            assertEquals(referenceTotal, priceTableTotal, message);
+            assertSame(referenceFreeBooks, priceTableFreeBooks, message);
+        }
+    }
+
+    @Test
+    void calculatePrice_WithMoreThanTwoDecimals_ShouldFallBackToDecimalEngine() {
+        // Arrange
+        List<Book> books = List.of(
+                new Book(1L, "Regular", new BigDecimal("10.005"), BookType.REGULAR),
+                new Book(2L, "Old", new BigDecimal("3.333"), BookType.OLD_EDITION),
+                new Book(3L, "New", new BigDecimal("7.5"), BookType.NEW_RELEASE));
+
+        // Act
+        BigDecimal decimalTotal = decimalPricingService.calculatePrice(books, 0, new ArrayList<>());
+        BigDecimal fixedPointTotal = fixedPointPricingService.calculatePrice(books, 0, new ArrayList<>());
+
+        // Assert
+        assertEquals(decimalTotal, fixedPointTotal);
+    }
+
+    @Test
+    void fitsCents_ShouldAcceptOnlyAmountsThatConvertToCents() {
+        // Act & Assert
+        assertTrue(Cents.fitsCents(new BigDecimal("10.05")));
+        assertTrue(Cents.fitsCents(new BigDecimal("10.000")));
+        assertTrue(Cents.fitsCents(new BigDecimal("1E+3")));
+        assertFalse(Cents.fitsCents(new BigDecimal("10.005")));
+        assertFalse(Cents.fitsCents(new BigDecimal("1E+17")));
+    }
+
+    private BigDecimal referencePrice(List<Book> books, int loyaltyPoints, List<Book> freeBooksOut) {
+        List<Book> ordered = books.stream()
+                .sorted((a, b) -> (loyaltyService.isEligibleForFreeRedemption(a) ? 1 : 0) - (loyaltyService.isEligibleForFreeRedemption(b) ? 1 : 0))
+                .sorted(Comparator.comparing(Book::getBasePrice))
+                .toList();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Book book : ordered) {
+            if (freeBooksOut.isEmpty() && loyaltyService.hasEnoughPointsForFreeBook(loyaltyPoints)
+                    && loyaltyService.isEligibleForFreeRedemption(book)) {
+                freeBooksOut.add(book);
+            } else {
+                boolean bundle = freeBooksOut.isEmpty() ? books.size() >= 3 : books.size() >= 4;
+                total = total.add(decimalPricingService.calculateBookPrice(book, bundle));
+            }
+        }
+        return total.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static void assertSame(List<Book> expected, List<Book> actual, String message) {
+        assertEquals(expected.size(), actual.size(), message);
+        for (int i = 0; i < expected.size(); i++) {
+            // Equal books may differ only by ID, so compare instances
+            Assertions.assertSame(expected.get(i), actual.get(i), message);
+        }
+    }
+
+    private static List<Book> randomCart(Random random) {
+        int size = random.nextInt(10) < 9 ? random.nextInt(9) : 9 + random.nextInt(40);
+        BookType[] types = BookType.values();
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && random.nextInt(8) == 0) {
+                // The same book bought twice
+                books.add(books.get(random.nextInt(i)));
+                continue;
+            }
+            books.add(new Book((long) i, "Book " + i, randomPrice(random), types[random.nextInt(types.length)]));
+        }
+        return books;
+    }
+
+    private static BigDecimal randomPrice(Random random) {
+        // A small pool of prices makes ties, which exercise the ordering rules
+        return switch (random.nextInt(4)) {
+            case 0 -> new BigDecimal(new String[] {"9.99", "10", "10.0", "19.99", "0.05"}[random.nextInt(5)]);
+            case 1 -> BigDecimal.valueOf(random.nextInt(100), 0);
+            case 2 -> BigDecimal.valueOf(random.nextInt(10_000), 1);
+            default -> BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+        };
+    }
+
+    private static BookstoreProperties properties(PricingEngine engine) {
+        BookstoreProperties properties = new BookstoreProperties();
+        properties.getPricing().setEngine(engine);
+        return properties;
+    }
+}
@@ -39,6 +39,23 @@ public class NewReleasePricingStrategyTest {
         assertEquals(newReleaseBook.getBasePrice(), price);
     }
 
+    @Test
+    void calculatePrice_WithThreeDecimalBasePrice_ShouldReturnItUnrounded() {
+        // Arrange
+        Book book = new Book(2L, "New Release", new BigDecimal("39.995"), BookType.NEW_RELEASE);
+
+        // Act & Assert
+        assertEquals(new BigDecimal("39.995"), strategy.calculatePrice(book, false));
+        assertEquals(new BigDecimal("39.995"), strategy.calculatePrice(book, true));
+    }
+
+    @Test
+    void calculatePriceCents_ShouldReturnFullPriceWithAndWithoutBundle() {
+        // Act & Assert
+        assertEquals(3999L, strategy.calculatePriceCents(3999L, false));
+        assertEquals(3999L, strategy.calculatePriceCents(3999L, true));
+    }
+
     @Test
     void getType_ShouldReturnNewRelease() {
         // Act
@@ -0,0 +1,120 @@
+package com.bookstore.service.pricing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.dto.PricingRule;
+import com.bookstore.dto.PricingRulesResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.service.LoyaltyService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PricingRulesServiceTest {
+
+    private PricingStrategyFactory pricingStrategyFactory;
+    private BookPriceTable priceTable;
+    private PricingRulesService pricingRulesService;
+    private PricingService pricingService;
+
+    private List<Book> cart;
+
+    @BeforeEach
+    void setUp() {
+        pricingStrategyFactory = new PricingStrategyFactory(
+                List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy()),
+                new BookstoreProperties());
+        priceTable = new BookPriceTable(pricingStrategyFactory);
+        pricingRulesService = new PricingRulesService(pricingStrategyFactory, priceTable);
+        pricingService = new PricingService(pricingStrategyFactory, new LoyaltyService(), new BookstoreProperties(),
+                priceTable);
+
+        cart = List.of(
+                new Book(1L, "Regular 1", new BigDecimal("20.00"), BookType.REGULAR),
+                new Book(2L, "Regular 2", new BigDecimal("10.00"), BookType.REGULAR),
+                new Book(3L, "Old Edition", new BigDecimal("10.00"), BookType.OLD_EDITION));
+        cart.forEach(priceTable::bookSaved);
+    }
+
+    @Test
+    void updateRules_ShouldRepriceWithNewRulesAndKeepOthers() {
+        // Arrange
+        BigDecimal before = pricingService.calculatePrice(cart, 0, new ArrayList<>());
+
+        // Act
+        PricingRulesResponse rules = pricingRulesService.updateRules(
+                List.of(new PricingRule(BookType.REGULAR, null, new BigDecimal("0.5"), null)));
+        BigDecimal after = pricingService.calculatePrice(cart, 0, new ArrayList<>());
+
+        // Assert
+        // 20.00 * 0.9 + 10.00 * 0.9 + 10.00 * 0.8 * 0.95
+        assertEquals(new BigDecimal("34.60"), before);
+        // 20.00 * 0.5 + 10.00 * 0.5 + 10.00 * 0.8 * 0.95
+        assertEquals(new BigDecimal("22.60"), after);
+        assertEquals(2, rules.getVersion());
+        PricingRule regular = rules.getRules().get(BookType.REGULAR.ordinal());
+        assertEquals(0, BigDecimal.ONE.compareTo(regular.getFactor()));
+        assertEquals(new BigDecimal("0.5"), regular.getBundleFactor());
+    }
+
+    @Test
+    void updateRules_WithHigherBundleThreshold_ShouldDropBundleDiscount() {
+        // Act
+        pricingRulesService.updateRules(List.of(new PricingRule(BookType.REGULAR, null, null, 4)));
+        BigDecimal total = pricingService.calculatePrice(cart, 0, new ArrayList<>());
+
+        // Assert
+        // 20.00 + 10.00 + 10.00 * 0.8 * 0.95
+        assertEquals(new BigDecimal("37.60"), total);
+    }
+
+    @Test
+    void updateRules_WithInvalidRule_ShouldKeepCurrentRules() {
+        // Arrange
+        PricingRules current = pricingStrategyFactory.getRules();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> pricingRulesService.updateRules(
+                List.of(new PricingRule(BookType.REGULAR, new BigDecimal("-1"), null, null))));
+        assertThrows(IllegalArgumentException.class, () -> pricingRulesService.updateRules(
+                List.of(new PricingRule(BookType.REGULAR, null, null, 0))));
+        assertThrows(IllegalArgumentException.class, () -> pricingRulesService.updateRules(
+                List.of(new PricingRule(null, BigDecimal.ONE, null, null))));
+        assertThrows(IllegalArgumentException.class, () -> pricingRulesService.updateRules(List.of(
+                new PricingRule(BookType.REGULAR, BigDecimal.ONE, null, null),
+                new PricingRule(BookType.REGULAR, null, null, 3))));
+        assertSame(current, pricingStrategyFactory.getRules());
+    }
+
+    @Test
+    void factory_WithConfiguredRules_ShouldStartWithThemAsFirstVersion() {
+        // Arrange
+        BookstoreProperties properties = new BookstoreProperties();
+        BookstoreProperties.PricingRuleSettings settings = new BookstoreProperties.PricingRuleSettings();
+        settings.setFactor(new BigDecimal("0.5"));
+        properties.getPricing().getRules().put(BookType.OLD_EDITION, settings);
+
+        // Act
+        PricingStrategyFactory configuredFactory = new PricingStrategyFactory(
+                List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy()),
+                properties);
+        PricingRulesService configured = new PricingRulesService(configuredFactory, null);
+
+        // Assert
+        PricingRulesResponse rules = configured.getRules();
+        PricingRule oldEdition = rules.getRules().get(BookType.OLD_EDITION.ordinal());
+        assertEquals(1, rules.getVersion());
+        assertEquals(new BigDecimal("0.5"), oldEdition.getFactor());
+        assertEquals(new BigDecimal("0.95"), oldEdition.getBundleFactor());
+        assertEquals(new BigDecimal("10.00"), configuredFactory.getStrategy(BookType.OLD_EDITION)
+                .calculatePrice(new Book(4L, "Old", new BigDecimal("20.00"), BookType.OLD_EDITION), false));
+    }
+}
@@ -3,6 +3,7 @@ package com.bookstore.service.pricing;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.bookstore.config.BookstoreProperties;
 import com.bookstore.model.Book;
 import com.bookstore.model.BookType;
 import com.bookstore.service.LoyaltyService;
@@ -14,6 +15,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PricingServiceTest {
@@ -30,8 +32,9 @@ public class PricingServiceTest {
     void setUp() {
         pricingService = new PricingService(
                 new PricingStrategyFactory(
-                        List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy())),
-                new LoyaltyService());
+                        List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy()),
+                        new BookstoreProperties()),
+                new LoyaltyService(), new BookstoreProperties(), null);
         newReleaseBook = new Book(1L, "New Release", new BigDecimal("39.99"), BookType.NEW_RELEASE);
         regularBook = new Book(2L, "Regular Book", new BigDecimal("29.99"), BookType.REGULAR);
         oldEditionBook = new Book(3L, "Old Edition", new BigDecimal("19.99"), BookType.OLD_EDITION);
@@ -64,6 +67,18 @@ public class PricingServiceTest {
         assertEquals(new BigDecimal("15.19"), oldEditionPrice); // Additional 5% discount
     }
 
+    @Test
+    void calculatePrice_WithBookWithoutType_ShouldThrowIllegalArgumentException() {
+        // Arrange
+        Book untypedBook = new Book(4L, "Untyped Book", new BigDecimal("9.99"), null);
+        List<Book> books = Arrays.asList(newReleaseBook, untypedBook);
+
+        // Act & Assert
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> pricingService.calculatePrice(books, 0, new ArrayList<>()));
+        assertEquals("Unknown book type: null", e.getMessage());
+    }
+
     @Test
     void calculatePrice_WithNoFreeBooks_ShouldCalculateTotalPrice() {
         // Arrange
@@ -3,11 +3,14 @@ package com.bookstore.service.pricing;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.bookstore.config.BookstoreProperties;
 import com.bookstore.model.BookType;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
@@ -38,7 +41,7 @@ public class PricingStrategyFactoryTest {
                 regularPricingStrategy,
                 oldEditionPricingStrategy
         );
-        factory = new PricingStrategyFactory(strategies);
+        factory = new PricingStrategyFactory(strategies, new BookstoreProperties());
     }
 
     @Test
@@ -73,4 +76,35 @@ public class PricingStrategyFactoryTest {
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> factory.getStrategy(null));
     }
-}
\ No newline at end of file
+
+    @Test
+    void replaceRules_ShouldServeNewStrategiesUnderNextVersion() {
+        // Arrange
+        PricingStrategy discountedRegular = mock(PricingStrategy.class);
+        when(discountedRegular.getType()).thenReturn(BookType.REGULAR);
+
+        // Act
+        PricingRules rules = factory.replaceRules(
+                List.of(newReleasePricingStrategy, discountedRegular, oldEditionPricingStrategy),
+                Map.of(BookType.REGULAR, 5));
+
+        // Assert
+        assertEquals(2, rules.getVersion());
+        assertSame(rules, factory.getRules());
+        assertSame(discountedRegular, factory.getStrategy(BookType.REGULAR));
+        assertEquals(5, rules.getBundleThreshold(BookType.REGULAR));
+        assertEquals(PricingRules.DEFAULT_BUNDLE_THRESHOLD, rules.getBundleThreshold(BookType.OLD_EDITION));
+    }
+
+    @Test
+    void replaceRules_WithInvalidThreshold_ShouldKeepCurrentRules() {
+        // Arrange
+        PricingRules current = factory.getRules();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> factory.replaceRules(
+                List.of(newReleasePricingStrategy, regularPricingStrategy, oldEditionPricingStrategy),
+                Map.of(BookType.REGULAR, 0)));
+        assertSame(current, factory.getRules());
+    }
+}
@@ -0,0 +1,150 @@
+package com.bookstore.service.pricing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuoteTokenServiceTest {
+
+    private static final String SECRET = "test-secret-of-at-least-32-bytes";
+    private static final Instant NOW = Instant.parse("2026-01-01T10:00:00Z");
+
+    private PricingStrategyFactory pricingStrategyFactory;
+    private QuoteTokenService quoteTokenService;
+
+    private Customer customer;
+    private Book regularBook;
+    private Book oldEditionBook;
+    private List<Book> cart;
+    private PriceQuote quote;
+
+    @BeforeEach
+    void setUp() {
+        pricingStrategyFactory = new PricingStrategyFactory(
+                List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy()),
+                new BookstoreProperties());
+        quoteTokenService = service(SECRET, NOW);
+
+        customer = new Customer(1L, "Customer", 12);
+        regularBook = new Book(1L, "Regular", new BigDecimal("29.99"), BookType.REGULAR);
+        oldEditionBook = new Book(2L, "Old Edition", new BigDecimal("19.99"), BookType.OLD_EDITION);
+        cart = List.of(regularBook, oldEditionBook);
+        quote = new PriceQuote(new BigDecimal("29.99"), List.of(oldEditionBook));
+    }
+
+    @Test
+    void redeem_WithUnchangedInputs_ShouldReturnQuote() {
+        // Arrange
+        QuoteTokenService.IssuedToken token = issue();
+
+        // Act
+        Optional<PriceQuote> redeemed = quoteTokenService.redeem(token.token(), customer,
+                List.of(new Book(1L, "Renamed", new BigDecimal("29.990"), BookType.REGULAR), oldEditionBook));
+
+        // Assert
+        assertEquals(NOW.plus(Duration.ofMinutes(5)), token.expiresAt());
+        assertTrue(redeemed.isPresent());
+        assertEquals(new BigDecimal("29.99"), redeemed.get().totalPrice());
+        assertEquals(List.of(oldEditionBook), redeemed.get().freeBooks());
+    }
+
+    @Test
+    void redeem_WithTamperedOrForeignToken_ShouldReturnEmpty() {
+        // Arrange
+        String token = issue().token();
+        char last = token.charAt(token.length() - 1);
+        String tampered = token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A');
+        String foreign = service("other-secret-of-at-least-32-bytes", NOW)
+                .issue(customer, cart, quote, pricingStrategyFactory.getRules().getVersion()).orElseThrow().token();
+
+        // Act & Assert
+        assertFalse(quoteTokenService.redeem(tampered, customer, cart).isPresent());
+        assertFalse(quoteTokenService.redeem(foreign, customer, cart).isPresent());
+        assertFalse(quoteTokenService.redeem("not-a-token", customer, cart).isPresent());
+        assertFalse(quoteTokenService.redeem("AAAA.AAAA", customer, cart).isPresent());
+    }
+
+    @Test
+    void redeem_AfterExpiry_ShouldReturnEmpty() {
+        // Arrange
+        String token = issue().token();
+        QuoteTokenService later = service(SECRET, NOW.plus(Duration.ofMinutes(5)));
+
+        // Act & Assert
+        assertFalse(later.redeem(token, customer, cart).isPresent());
+    }
+
+    @Test
+    void redeem_WithChangedInputs_ShouldReturnEmpty() {
+        // Arrange
+        String token = issue().token();
+
+        // Act & Assert
+        assertFalse(quoteTokenService.redeem(token, new Customer(2L, "Other", 12), cart).isPresent());
+        assertFalse(quoteTokenService.redeem(token, new Customer(1L, "Customer", 2), cart).isPresent());
+        assertFalse(quoteTokenService.redeem(token, customer, List.of(oldEditionBook, regularBook)).isPresent());
+        assertFalse(quoteTokenService.redeem(token, customer, List.of(regularBook, oldEditionBook, regularBook)).isPresent());
+        assertFalse(quoteTokenService.redeem(token, customer,
+                List.of(new Book(1L, "Regular", new BigDecimal("24.99"), BookType.REGULAR), oldEditionBook)).isPresent());
+        assertFalse(quoteTokenService.redeem(token, customer,
+                List.of(new Book(1L, "Regular", new BigDecimal("29.99"), BookType.NEW_RELEASE), oldEditionBook)).isPresent());
+    }
+
+    @Test
+    void redeem_AfterRulesChanged_ShouldReturnEmpty() {
+        // Arrange
+        String token = issue().token();
+        pricingStrategyFactory.replaceRules(
+                List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy()),
+                Map.of(BookType.REGULAR, 2));
+
+        // Act & Assert
+        assertFalse(quoteTokenService.redeem(token, customer, cart).isPresent());
+    }
+
+    @Test
+    void constructor_WithoutLongEnoughSecret_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> service(null, NOW));
+        assertThrows(IllegalArgumentException.class, () -> service("", NOW));
+        assertThrows(IllegalArgumentException.class, () -> service("short-secret", NOW));
+    }
+
+    @Test
+    void redeem_OnAnotherInstanceWithSameSecret_ShouldReturnQuote() {
+        // Arrange
+        String token = issue().token();
+
+        // Act
+        Optional<PriceQuote> redeemed = service(SECRET, NOW).redeem(token, customer, cart);
+
+        // Assert
+        assertTrue(redeemed.isPresent());
+    }
+
+    private QuoteTokenService.IssuedToken issue() {
+        return quoteTokenService.issue(customer, cart, quote, pricingStrategyFactory.getRules().getVersion()).orElseThrow();
+    }
+
+    private QuoteTokenService service(String secret, Instant now) {
+        return new QuoteTokenService(secret, Duration.ofMinutes(5), pricingStrategyFactory, Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
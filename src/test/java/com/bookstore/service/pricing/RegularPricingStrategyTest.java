@@ -44,6 +44,20 @@ public class RegularPricingStrategyTest {
         assertEquals(expected, price);
     }
 
+    @Test
+    void calculatePriceCents_ShouldMatchDecimalPriceForEveryCentAmount() {
+        for (long cents = -10_000; cents <= 100_000; cents++) {
+            Book book = new Book(1L, "Regular Book", BigDecimal.valueOf(cents, 2), BookType.REGULAR);
+            for (boolean bundle : new boolean[] {false, true}) {
+                // Act
+                long price = strategy.calculatePriceCents(cents, bundle);
+
+                // Assert
+                assertEquals(strategy.calculatePrice(book, bundle), BigDecimal.valueOf(price, 2), book.getBasePrice() + " bundle=" + bundle);
+            }
+        }
+    }
+
     @Test
     void getType_ShouldReturnRegular() {
         // Act
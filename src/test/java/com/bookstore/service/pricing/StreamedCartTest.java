@@ -0,0 +1,111 @@
+package com.bookstore.service.pricing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.config.BookstoreProperties;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.service.LoyaltyService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compares carts priced line by line with the same carts priced whole, one book per unit
+ */
+public class StreamedCartTest {
+
+    private static final int CARTS = 5_000;
+
+    private PricingService pricingService;
+
+    @BeforeEach
+    void setUp() {
+        pricingService = new PricingService(
+                new PricingStrategyFactory(
+                        List.of(new OldEditionPricingStrategy(), new NewReleasePricingStrategy(), new RegularPricingStrategy()),
+                        new BookstoreProperties()),
+                new LoyaltyService(), new BookstoreProperties(), null);
+    }
+
+    @Test
+    void linePrice_WithFreeBookInLargeLine_ShouldChargeTheOtherUnits() {
+        // Arrange
+        Book regular = new Book(1L, "Regular", new BigDecimal("20.00"), BookType.REGULAR);
+        Book newRelease = new Book(2L, "New", new BigDecimal("30.00"), BookType.NEW_RELEASE);
+        StreamedCart cart = pricingService.openStreamedCart();
+        long regularLine = cart.add(regular, 3);
+        long newReleaseLine = cart.add(newRelease, 1);
+
+        // Act
+        long freeLine = cart.freeLine(10);
+        BigDecimal regularPrice = cart.linePrice(regularLine, regular, 3, freeLine);
+        BigDecimal newReleasePrice = cart.linePrice(newReleaseLine, newRelease, 1, freeLine);
+
+        // Assert
+        assertEquals(regularLine, freeLine);
+        // Four units with one free: three count towards the bundle, which applies to the two paid regular units
+        assertEquals(new BigDecimal("36.00"), regularPrice);
+        assertEquals(new BigDecimal("30.00"), newReleasePrice);
+        assertEquals(-1, cart.freeLine(9));
+    }
+
+    @Test
+    void add_WithoutUnits_ShouldBeRejected() {
+        // Arrange
+        StreamedCart cart = pricingService.openStreamedCart();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> cart.add(new Book(1L, "Regular", BigDecimal.TEN, BookType.REGULAR), 0));
+    }
+
+    @Test
+    void linePrice_WithRandomCarts_ShouldMatchCalculatePrice() {
+        Random random = new Random(20250301L);
+        BookType[] types = BookType.values();
+        for (int i = 0; i < CARTS; i++) {
+            // Arrange
+            int lineCount = 1 + random.nextInt(8);
+            List<Book> lineBooks = new ArrayList<>();
+            List<Integer> quantities = new ArrayList<>();
+            List<Book> units = new ArrayList<>();
+            for (int line = 0; line < lineCount; line++) {
+                Book book = new Book((long) line, "Book " + line,
+                        new BigDecimal(new String[] {"9.99", "10", "10.0", "19.99", "0.05"}[random.nextInt(5)]),
+                        types[random.nextInt(types.length)]);
+                int quantity = 1 + random.nextInt(3);
+                lineBooks.add(book);
+                quantities.add(quantity);
+                for (int unit = 0; unit < quantity; unit++) {
+                    units.add(book);
+                }
+            }
+            int loyaltyPoints = random.nextInt(16);
+            StreamedCart cart = pricingService.openStreamedCart();
+            for (int line = 0; line < lineCount; line++) {
+                cart.add(lineBooks.get(line), quantities.get(line));
+            }
+
+            // Act
+            long freeLine = cart.freeLine(loyaltyPoints);
+            BigDecimal total = BigDecimal.ZERO.setScale(2);
+            for (int line = 0; line < lineCount; line++) {
+                total = total.add(cart.linePrice(line, lineBooks.get(line), quantities.get(line), freeLine));
+            }
+
+            // Assert
+            List<Book> freeBooks = new ArrayList<>();
+            String message = "points=" + loyaltyPoints + " units=" + units;
+            assertEquals(pricingService.calculatePrice(units, loyaltyPoints, freeBooks), total, message);
+            assertEquals(freeBooks.isEmpty() ? null : freeBooks.get(0),
+                    freeLine < 0 ? null : lineBooks.get((int) freeLine), message);
+        }
+    }
+}
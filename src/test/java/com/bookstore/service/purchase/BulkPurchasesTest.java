@@ -0,0 +1,286 @@
+package com.bookstore.service.purchase;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.BulkPurchaseLine;
+import com.bookstore.dto.BulkPurchaseResponse;
+import com.bookstore.dto.FlashSaleResponse;
+import com.bookstore.dto.StockLevelResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+import com.bookstore.model.PurchaseOrder;
+import com.bookstore.model.PurchaseOrderLine;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.CustomerRepository;
+import com.bookstore.repository.PurchaseOrderLineRepository;
+import com.bookstore.repository.PurchaseOrderRepository;
+import com.bookstore.service.BookService;
+import com.bookstore.service.CustomerService;
+import com.bookstore.service.inventory.BookInventory;
+import com.bookstore.service.ledger.PurchaseLedger;
+import com.bookstore.service.pricing.PricingService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs bulk purchases against the real database, stock and loyalty balances
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class BulkPurchasesTest {
+
+    @Autowired
+    private BulkPurchases bulkPurchases;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookInventory bookInventory;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private PricingService pricingService;
+
+    @Autowired
+    private FlashSales flashSales;
+
+    @Autowired
+    private PurchaseLedger purchaseLedger;
+
+    @Autowired
+    private PurchaseOrderRepository purchaseOrderRepository;
+
+    @Autowired
+    private PurchaseOrderLineRepository purchaseOrderLineRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void purchaseNdjson_WithBadLines_ShouldRejectOnlyThoseLines() throws IOException {
+        // Arrange
+        Book regular = bookRepository.save(new Book(null, "Atlas", new BigDecimal("30.00"), BookType.REGULAR));
+        Book scarce = bookRepository.save(new Book(null, "Scarce", new BigDecimal("12.50"), BookType.NEW_RELEASE));
+        bookInventory.setStock(scarce.getId(), 5);
+        Customer customer = customerRepository.save(new Customer(null, "City Library", 0));
+        String order = String.join("\n",
+                "{\"bookId\": " + regular.getId() + ", \"quantity\": 4}",
+                "{\"bookId\": " + scarce.getId() + ", \"quantity\": 3}",
+                "",
+                "{\"bookId\": " + scarce.getId() + ", \"quantity\": 3}",
+                "{\"bookId\": 999999}",
+                "not json",
+                "{\"bookId\": " + regular.getId() + ", \"quantity\": 0}");
+
+        // Act
+        BulkPurchaseResponse summary = bulkPurchases.purchaseNdjson(customer.getId(), new StringReader(order));
+        List<BulkPurchaseLine> lines = readLines(summary.getOrderId());
+
+        // Assert
+        assertEquals(6, summary.getLinesRead());
+        assertEquals(2, summary.getLinesPurchased());
+        assertEquals(4, summary.getLinesRejected());
+        assertEquals(7, summary.getUnits());
+        // Bundle of 7 units: 4 x 27.00 for the regular book, 3 x 12.50 for the new release
+        assertEquals(new BigDecimal("145.50"), summary.getTotalPrice());
+        assertEquals(7, summary.getLoyaltyPoints());
+        assertEquals(7, customerService.getLoyaltyPoints(customer.getId()).orElseThrow());
+        assertEquals(new StockLevelResponse(scarce.getId(), true, 2L, 0L, 2L), bookInventory.getStockLevel(scarce.getId()));
+
+        assertEquals(6, lines.size());
+        assertEquals(List.of(1L, 2L, 4L, 5L, 6L, 7L), lines.stream().map(BulkPurchaseLine::getLine).toList());
+        assertEquals(new BulkPurchaseLine(1, regular.getId(), 4, BulkPurchaseLine.Status.PURCHASED,
+                new BigDecimal("27.00"), 0, new BigDecimal("108.00"), null), lines.get(0));
+        assertEquals(BulkPurchaseLine.Status.REJECTED, lines.get(2).getStatus());
+        assertTrue(lines.get(2).getMessage().startsWith("Out of stock"));
+        assertTrue(lines.get(3).getMessage().startsWith("Book not found"));
+        assertNull(lines.get(4).getBookId());
+        assertTrue(lines.get(4).getMessage().startsWith("Malformed JSON"));
+        assertTrue(lines.get(5).getMessage().startsWith("quantity must be between"));
+        assertEquals(summary, bulkPurchases.getSummary(summary.getOrderId()).orElseThrow());
+    }
+
+    @Test
+    void purchaseNdjson_WithBookWithoutType_ShouldRejectOnlyThatLine() throws IOException {
+        // Arrange
+        Book regular = bookRepository.save(new Book(null, "Compass", new BigDecimal("20.00"), BookType.REGULAR));
+        Book untyped = bookRepository.save(new Book(null, "Untyped", new BigDecimal("10.00"), null));
+        Customer customer = customerRepository.save(new Customer(null, "Branch Library", 0));
+        String order = String.join("\n",
+                "{\"bookId\": " + regular.getId() + ", \"quantity\": 1}",
+                "{\"bookId\": " + untyped.getId() + ", \"quantity\": 1}");
+
+        // Act
+        BulkPurchaseResponse summary = bulkPurchases.purchaseNdjson(customer.getId(), new StringReader(order));
+        List<BulkPurchaseLine> lines = readLines(summary.getOrderId());
+
+        // Assert
+        assertEquals(1, summary.getLinesPurchased());
+        assertEquals(1, summary.getLinesRejected());
+        assertEquals(new BigDecimal("20.00"), summary.getTotalPrice());
+        assertEquals(BulkPurchaseLine.Status.REJECTED, lines.get(1).getStatus());
+        assertEquals("Unknown book type: null", lines.get(1).getMessage());
+    }
+
+    @Test
+    void purchaseCsv_WithEnoughPoints_ShouldPriceLikeOneCart() throws IOException {
+        // Arrange
+        List<Book> catalog = List.of(
+                bookRepository.save(new Book(null, "Primer", new BigDecimal("9.99"), BookType.REGULAR)),
+                bookRepository.save(new Book(null, "Classic", new BigDecimal("14.00"), BookType.OLD_EDITION)),
+                bookRepository.save(new Book(null, "Launch", new BigDecimal("24.99"), BookType.NEW_RELEASE)));
+        Customer customer = customerRepository.save(new Customer(null, "School", 12));
+        StringBuilder order = new StringBuilder(BulkPurchases.CSV_HEADER).append('\n');
+        List<Book> units = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Book book = catalog.get(i % catalog.size());
+            int quantity = 1 + i % 2;
+            order.append(book.getId()).append(quantity == 1 ? "" : "," + quantity).append('\n');
+            for (int unit = 0; unit < quantity; unit++) {
+                units.add(book);
+            }
+        }
+        List<Book> freeBooks = new ArrayList<>();
+        BigDecimal expectedTotal = pricingService.calculatePrice(units, 12, freeBooks);
+
+        // Act
+        BulkPurchaseResponse summary = bulkPurchases.purchaseCsv(customer.getId(), new StringReader(order.toString()));
+        List<BulkPurchaseLine> lines = readLines(summary.getOrderId());
+
+        // Assert
+        assertEquals(20_000, summary.getLinesPurchased());
+        assertEquals(units.size(), summary.getUnits());
+        assertEquals(expectedTotal, summary.getTotalPrice());
+        assertEquals(1, summary.getFreeBooks());
+        assertEquals(units.size() - 1, customerService.getLoyaltyPoints(customer.getId()).orElseThrow());
+        assertEquals(20_000, lines.size());
+        assertEquals(1, lines.stream().mapToInt(BulkPurchaseLine::getFreeUnits).sum());
+        assertEquals(freeBooks.get(0).getId(), lines.get(0).getBookId());
+        assertEquals(1, lines.get(0).getFreeUnits());
+        assertEquals(expectedTotal, lines.stream().map(BulkPurchaseLine::getLineTotal).reduce(BigDecimal::add).orElseThrow());
+    }
+
+    @Test
+    void purchaseNdjson_WithTooManyLines_ShouldPutStockBack() {
+        // Arrange
+        BulkPurchases limited = new BulkPurchases(bookService, customerService, pricingService, bookInventory,
+                flashSales, purchaseLedger, transactionTemplate, objectMapper, 1, 2, Duration.ofMinutes(1), 10,
+                Clock.systemUTC());
+        Book book = bookRepository.save(new Book(null, "Limited", new BigDecimal("5.00"), BookType.REGULAR));
+        bookInventory.setStock(book.getId(), 10);
+        flashSales.start(book.getId(), 8);
+        Customer customer = customerRepository.save(new Customer(null, "Overflow", 0));
+        String line = "{\"bookId\": " + book.getId() + ", \"quantity\": 2}\n";
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> limited.purchaseNdjson(customer.getId(), new StringReader(line.repeat(3))));
+        assertEquals(new StockLevelResponse(book.getId(), true, 10L, 0L, 10L), bookInventory.getStockLevel(book.getId()));
+        assertEquals(8, flashSales.get(book.getId()).orElseThrow().getRemaining());
+        assertEquals(0, customerService.getLoyaltyPoints(customer.getId()).orElseThrow());
+        limited.close();
+        flashSales.end(book.getId());
+    }
+
+    @Test
+    void purchaseCsv_WithFlashSaleBook_ShouldAdmitLinesUntilTheSaleSellsOut() throws IOException {
+        // Arrange
+        Book sale = bookRepository.save(new Book(null, "Doorbuster", new BigDecimal("8.00"), BookType.REGULAR));
+        flashSales.start(sale.getId(), 5);
+        Customer customer = customerRepository.save(new Customer(null, "Reseller", 0));
+        String order = sale.getId() + ",3\n" + sale.getId() + ",3\n" + sale.getId() + ",2\n";
+
+        // Act
+        BulkPurchaseResponse summary = bulkPurchases.purchaseCsv(customer.getId(), new StringReader(order));
+        List<BulkPurchaseLine> lines = readLines(summary.getOrderId());
+
+        // Assert
+        assertEquals(2, summary.getLinesPurchased());
+        assertEquals(5, summary.getUnits());
+        assertEquals(BulkPurchaseLine.Status.REJECTED, lines.get(1).getStatus());
+        assertTrue(lines.get(1).getMessage().startsWith("Flash sale sold out"));
+        FlashSaleResponse flashSale = flashSales.get(sale.getId()).orElseThrow();
+        assertEquals(0, flashSale.getRemaining());
+        assertEquals(1, flashSale.getRejected());
+        flashSales.end(sale.getId());
+    }
+
+    @Test
+    void purchaseNdjson_ShouldRecordOneLedgerLinePerPurchasedLine() throws IOException {
+        // Arrange
+        Book regular = bookRepository.save(new Book(null, "Ledger", new BigDecimal("10.00"), BookType.REGULAR));
+        Book classic = bookRepository.save(new Book(null, "Almanac", new BigDecimal("6.00"), BookType.OLD_EDITION));
+        Customer customer = customerRepository.save(new Customer(null, "Archive", 10));
+        String order = String.join("\n",
+                "{\"bookId\": " + regular.getId() + ", \"quantity\": 4}",
+                "{\"bookId\": 999999}",
+                "{\"bookId\": " + classic.getId() + ", \"quantity\": 2}");
+
+        // Act
+        BulkPurchaseResponse summary = bulkPurchases.purchaseNdjson(customer.getId(), new StringReader(order));
+
+        // Assert
+        List<PurchaseOrder> orders = purchaseOrderRepository.findByCustomerIdOrderByIdAsc(customer.getId());
+        assertEquals(1, orders.size());
+        assertEquals(summary.getTotalPrice(), orders.get(0).getTotalPrice());
+        assertEquals(summary.getLoyaltyPoints(), orders.get(0).getLoyaltyPoints());
+        assertEquals(6, orders.get(0).getBookCount());
+        List<PurchaseOrderLine> ledgerLines =
+                purchaseOrderLineRepository.findByOrderIdOrderByLineNumberAsc(orders.get(0).getId());
+        assertEquals(List.of(regular.getId(), classic.getId()),
+                ledgerLines.stream().map(PurchaseOrderLine::getBookId).toList());
+        assertEquals(List.of(4, 2), ledgerLines.stream().map(PurchaseOrderLine::getQuantity).toList());
+        assertEquals("Almanac", ledgerLines.get(1).getTitle());
+        // The old edition is the cheapest book eligible to be free
+        assertEquals(List.of(false, true), ledgerLines.stream().map(PurchaseOrderLine::isFree).toList());
+    }
+
+    @Test
+    void purchaseCsv_WithUnknownCustomer_ShouldBeRejected() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> bulkPurchases.purchaseCsv(-1L, new StringReader("1,1")));
+    }
+
+    private List<BulkPurchaseLine> readLines(String orderId) throws IOException {
+        List<BulkPurchaseLine> lines = new ArrayList<>();
+        try (InputStream in = bulkPurchases.openLines(orderId).orElseThrow();
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(objectMapper.readValue(line, BulkPurchaseLine.class));
+            }
+        }
+        return lines;
+    }
+}
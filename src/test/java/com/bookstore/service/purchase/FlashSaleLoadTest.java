@@ -0,0 +1,124 @@
+package com.bookstore.service.purchase;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.bookstore.controller.PurchaseController;
+import com.bookstore.dto.FlashSaleResponse;
+import com.bookstore.dto.PurchaseRequest;
+import com.bookstore.exception.OutOfStockException;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+import com.bookstore.repository.BookRepository;
+import com.bookstore.repository.BookStockRepository;
+import com.bookstore.repository.CustomerRepository;
+import com.bookstore.service.CustomerService;
+import com.bookstore.service.inventory.BookInventory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Floods the purchase endpoint with requests for one flash sale book, through every layer down to the database
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class FlashSaleLoadTest {
+
+    private static final int UNITS = 40;
+    private static final int THREADS = 32;
+    private static final int REQUESTS = 4_000;
+    private static final int CUSTOMERS = 100;
+
+    @Autowired
+    private PurchaseController purchaseController;
+
+    @Autowired
+    private FlashSales flashSales;
+
+    @Autowired
+    private BookInventory bookInventory;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookStockRepository bookStockRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Test
+    void purchaseBooks_DuringFlashSale_ShouldSellEveryUnitOnceAndRefuseTheRestUpFront() throws Exception {
+        // Arrange
+        Book book = bookRepository.save(new Book(null, "Launch Day", new BigDecimal("24.99"), BookType.NEW_RELEASE));
+        bookInventory.setStock(book.getId(), UNITS);
+        flashSales.start(book.getId(), UNITS);
+        List<Long> customerIds = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customerIds.add(customerRepository.save(new Customer(null, "Fan " + i, 0)).getId());
+        }
+        long reservationsBefore = bookInventory.stats().getReservations();
+        long rejectedReservationsBefore = bookInventory.stats().getRejectedReservations();
+        AtomicInteger sold = new AtomicInteger();
+        List<Throwable> failures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < REQUESTS; i++) {
+            PurchaseRequest request = new PurchaseRequest();
+            request.setCustomerId(customerIds.get(i % CUSTOMERS));
+            request.setBookIds(List.of(book.getId()));
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    purchaseController.purchaseBooks(request, null);
+                    sold.incrementAndGet();
+                } catch (RuntimeException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        failures.forEach(failure -> assertInstanceOf(OutOfStockException.class, failure));
+        assertEquals(UNITS, sold.get());
+        FlashSaleResponse sale = flashSales.get(book.getId()).orElseThrow();
+        assertEquals(0, sale.getRemaining());
+        assertEquals(UNITS, sale.getAdmitted());
+        assertEquals(REQUESTS - UNITS, sale.getRejected());
+        // Only the admitted purchases reached the stock, and none of them found it short
+        assertEquals(UNITS, bookInventory.stats().getReservations() - reservationsBefore);
+        assertEquals(rejectedReservationsBefore, bookInventory.stats().getRejectedReservations());
+        assertEquals(0, bookStockRepository.findById(book.getId()).orElseThrow().getQuantity());
+        int points = 0;
+        for (Long customerId : customerIds) {
+            points += customerService.getLoyaltyPoints(customerId).orElseThrow();
+        }
+        assertEquals(UNITS, points);
+        flashSales.end(book.getId());
+    }
+}
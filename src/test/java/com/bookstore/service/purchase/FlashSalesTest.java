@@ -0,0 +1,134 @@
+package com.bookstore.service.purchase;
+
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.dto.FlashSaleResponse;
+import com.bookstore.exception.OutOfStockException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlashSalesTest {
+
+    private final FlashSales flashSales = new FlashSales(Clock.fixed(Instant.parse("2025-03-01T09:00:00Z"), ZoneOffset.UTC));
+
+    @Test
+    void admit_UntilPoolIsEmpty_ShouldRejectTheRest() {
+        // Arrange
+        flashSales.start(7L, 2);
+
+        // Act
+        flashSales.admit(List.of(7L));
+        flashSales.admit(List.of(7L, 1L));
+        assertThrows(OutOfStockException.class, () -> flashSales.admit(List.of(7L)));
+
+        // Assert
+        FlashSaleResponse sale = flashSales.get(7L).orElseThrow();
+        assertEquals(0, sale.getRemaining());
+        assertTrue(sale.isSoldOut());
+        assertNotNull(sale.getSoldOutAt());
+        assertEquals(2, sale.getAdmitted());
+        assertEquals(1, sale.getRejected());
+    }
+
+    @Test
+    void admit_WithOneSaleShort_ShouldTakeNothing() {
+        // Arrange
+        flashSales.start(1L, 10);
+        flashSales.start(2L, 1);
+
+        // Act & Assert
+        assertThrows(OutOfStockException.class, () -> flashSales.admit(List.of(1L, 2L, 2L)));
+        assertEquals(10, flashSales.get(1L).orElseThrow().getRemaining());
+        assertEquals(1, flashSales.get(2L).orElseThrow().getRemaining());
+    }
+
+    @Test
+    void cancel_ShouldGiveTokensBackOnce() {
+        // Arrange
+        flashSales.start(7L, 1);
+        FlashSales.Admission admission = flashSales.admit(List.of(7L));
+
+        // Act
+        admission.cancel();
+        admission.cancel();
+
+        // Assert
+        FlashSaleResponse sale = flashSales.get(7L).orElseThrow();
+        assertEquals(1, sale.getRemaining());
+        assertFalse(sale.isSoldOut());
+        assertEquals(1, sale.getReturned());
+    }
+
+    @Test
+    void admit_WithoutSale_ShouldAdmitEverything() {
+        // Act
+        FlashSales.Admission admission = flashSales.admit(List.of(1L, 1L, 2L));
+
+        // Assert
+        assertEquals(FlashSales.Admission.NONE, admission);
+        assertTrue(flashSales.list().isEmpty());
+    }
+
+    @Test
+    void admit_FromManyThreads_ShouldNeverAdmitMoreThanTheUnits() throws Exception {
+        // Arrange
+        int units = 500;
+        int threads = 32;
+        int requestsPerThread = 2_000;
+        flashSales.start(7L, units);
+        AtomicInteger kept = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < requestsPerThread; j++) {
+                    try {
+                        FlashSales.Admission admission = flashSales.admit(List.of(7L));
+                        // Some admitted purchases fail and give their unit back to a later request
+                        if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                            admission.cancel();
+                        } else {
+                            kept.incrementAndGet();
+                        }
+                    } catch (OutOfStockException e) {
+                        // Refused
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        FlashSaleResponse sale = flashSales.get(7L).orElseThrow();
+        // Every unit is either held by a purchase that went through or back in the pool, never both
+        assertEquals(units, kept.get() + sale.getRemaining());
+        assertEquals(kept.get(), sale.getAdmitted() - sale.getReturned());
+        assertTrue(sale.getRejected() > 0);
+        assertEquals((long) threads * requestsPerThread, sale.getAdmitted() + sale.getRejected());
+    }
+}
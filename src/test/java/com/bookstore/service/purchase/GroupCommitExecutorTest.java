@@ -0,0 +1,158 @@
+package com.bookstore.service.purchase;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.GroupCommitStatsResponse;
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+import com.bookstore.model.Customer;
+import com.bookstore.repository.CustomerRepository;
+import com.bookstore.service.CustomerService;
+import com.bookstore.service.PurchaseService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs grouped purchases against the real database
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class GroupCommitExecutorTest {
+
+    private static final int THREADS = 16;
+
+    /**
+     * New releases are never free, so every purchase earns one point
+     */
+    private static final List<Book> CART =
+            List.of(new Book(1L, "New Release", new BigDecimal("39.99"), BookType.NEW_RELEASE));
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PurchaseService purchaseService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private GroupCommitExecutor executor;
+
+    private ExecutorService callers;
+
+    @AfterEach
+    void tearDown() {
+        if (callers != null) {
+            callers.shutdownNow();
+        }
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    void execute_FromManyThreads_ShouldCommitPurchasesInGroups() throws Exception {
+        // Arrange
+        executor = new GroupCommitExecutor(entityManager, transactionTemplate, 64, Duration.ofMillis(20), 1000, 1);
+        callers = Executors.newFixedThreadPool(THREADS);
+        List<Long> customerIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            customerIds.add(customerRepository.save(new Customer(null, "Grouped Customer " + i, 0)).getId());
+        }
+        int purchasesPerCustomer = 20;
+
+        // Act
+        List<Future<?>> results = new ArrayList<>();
+        for (Long customerId : customerIds) {
+            results.add(callers.submit(() -> {
+                for (int i = 0; i < purchasesPerCustomer; i++) {
+                    executor.execute(() -> purchase(customerId));
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        // Assert
+        for (Long customerId : customerIds) {
+            assertEquals(purchasesPerCustomer, customerService.getLoyaltyPoints(customerId).orElseThrow());
+        }
+        GroupCommitStatsResponse stats = executor.stats();
+        assertEquals(THREADS * purchasesPerCustomer, stats.getCommittedPurchases());
+        assertEquals(0, stats.getFailedPurchases());
+        assertTrue(stats.getBatches() < THREADS * purchasesPerCustomer);
+        assertTrue(stats.getMaxBatchSize() > 1);
+    }
+
+    @Test
+    void execute_WithFailingPurchaseInGroup_ShouldFailOnlyThatPurchase() throws Exception {
+        // Arrange
+        executor = new GroupCommitExecutor(entityManager, transactionTemplate, 64, Duration.ofMillis(500), 1000, 1);
+        callers = Executors.newFixedThreadPool(2);
+        Long customerId = customerRepository.save(new Customer(null, "Unlucky Neighbour", 0)).getId();
+
+        // Act
+        Future<PurchaseResponse> good = callers.submit(() -> executor.execute(() -> purchase(customerId)));
+        Future<PurchaseResponse> bad = callers.submit(() -> executor.execute(() -> purchase(Long.MAX_VALUE)));
+
+        // Assert
+        assertEquals(1, good.get(10, TimeUnit.SECONDS).getLoyaltyPointsEarned());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> bad.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        // The rolled-back group did not leave its points behind; only the purchase's own transaction did
+        assertEquals(1, customerService.getLoyaltyPoints(customerId).orElseThrow());
+        GroupCommitStatsResponse stats = executor.stats();
+        assertEquals(1, stats.getRolledBackBatches());
+        assertEquals(1, stats.getCommittedPurchases());
+        assertEquals(1, stats.getFailedPurchases());
+    }
+
+    @Test
+    void execute_InsideTransaction_ShouldRunInCallersTransaction() {
+        // Arrange
+        executor = new GroupCommitExecutor(entityManager, transactionTemplate, 64, Duration.ofMillis(20), 1000, 1);
+        Long customerId = customerRepository.save(new Customer(null, "Transactional Caller", 0)).getId();
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            executor.execute(() -> purchase(customerId));
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals(0, customerService.getLoyaltyPoints(customerId).orElseThrow());
+        assertEquals(0, executor.stats().getBatches());
+    }
+
+    private PurchaseResponse purchase(Long customerId) {
+        Customer customer = customerService.getCustomerById(customerId)
+                .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
+        return purchaseService.purchase(customer, CART);
+    }
+}
@@ -0,0 +1,161 @@
+package com.bookstore.service.purchase;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.model.Customer;
+import com.bookstore.repository.CustomerRepository;
+import com.bookstore.service.CustomerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import jakarta.persistence.EntityManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the idempotency table against the real database, as several instances sharing it would
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class IdempotencyRecordsTest {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofHours(1);
+
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private IdempotencyRecords records;
+
+    private String key;
+
+    @BeforeEach
+    void setUp() {
+        records = records(NOW);
+        key = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void executeAndRecord_WithRecordedKey_ShouldReplayStoredResponse() {
+        // Arrange
+        Customer customer = customerRepository.save(new Customer(null, "Retrying Customer", 0));
+        IdempotentPurchase first = records.executeAndRecord(key, "fingerprint", earnPoint(customer));
+
+        // Act
+        IdempotentPurchase retry = records(NOW.plusSeconds(60)).executeAndRecord(key, "fingerprint", earnPoint(customer));
+
+        // Assert
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals("fingerprint", retry.fingerprint());
+        assertEquals(0, new BigDecimal("10.00").compareTo(retry.response().getTotalPrice()));
+        assertEquals(1, customerService.getLoyaltyPoints(customer.getId()).orElseThrow());
+    }
+
+    @Test
+    void executeAndRecord_FromTwoInstancesAtOnce_ShouldCommitOnePurchase() throws Exception {
+        // Arrange
+        Customer customer = customerRepository.save(new Customer(null, "Retrying Customer", 0));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<IdempotentPurchase> first = executor.submit(() -> {
+            start.await();
+            return records(NOW).executeAndRecord(key, "fingerprint", earnPoint(customer));
+        });
+        Future<IdempotentPurchase> second = executor.submit(() -> {
+            start.await();
+            return records(NOW).executeAndRecord(key, "fingerprint", earnPoint(customer));
+        });
+
+        // Act
+        start.countDown();
+
+        // Assert
+        assertNotEquals(first.get().replayed(), second.get().replayed());
+        assertEquals(1, customerService.getLoyaltyPoints(customer.getId()).orElseThrow());
+        executor.shutdown();
+    }
+
+    @Test
+    void executeAndRecord_WithExpiredRecord_ShouldRunPurchaseAgain() {
+        // Arrange
+        Customer customer = customerRepository.save(new Customer(null, "Returning Customer", 0));
+        records.executeAndRecord(key, "fingerprint", earnPoint(customer));
+        IdempotencyRecords later = records(NOW.plus(TIME_TO_LIVE).plusSeconds(1));
+
+        // Act
+        boolean foundAfterExpiry = later.find(key).isPresent();
+        IdempotentPurchase again = later.executeAndRecord(key, "fingerprint", earnPoint(customer));
+
+        // Assert
+        assertFalse(foundAfterExpiry);
+        assertFalse(again.replayed());
+        assertEquals(2, customerService.getLoyaltyPoints(customer.getId()).orElseThrow());
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteOnlyExpiredRecords() {
+        // Arrange
+        records.executeAndRecord(key, "fingerprint", this::response);
+        String freshKey = UUID.randomUUID().toString();
+        records(NOW.plus(TIME_TO_LIVE)).executeAndRecord(freshKey, "fingerprint", this::response);
+        IdempotencyRecords later = records(NOW.plus(TIME_TO_LIVE).plusSeconds(1));
+
+        // Act
+        later.purgeExpired();
+
+        // Assert
+        assertTrue(later.find(freshKey).isPresent());
+        assertTrue(records.find(key).isEmpty());
+    }
+
+    private IdempotencyRecords records(Instant now) {
+        return new IdempotencyRecords(entityManager, transactionTemplate, objectMapper, TIME_TO_LIVE,
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private Supplier<PurchaseResponse> earnPoint(Customer customer) {
+        return () -> {
+            customerService.addLoyaltyPoints(customer.getId(), 1);
+            return response();
+        };
+    }
+
+    private PurchaseResponse response() {
+        PurchaseResponse response = new PurchaseResponse();
+        response.setTotalPrice(new BigDecimal("10.00"));
+        response.setLoyaltyPointsEarned(1);
+        return response;
+    }
+}
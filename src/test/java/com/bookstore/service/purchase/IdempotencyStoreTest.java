@@ -0,0 +1,180 @@
+package com.bookstore.service.purchase;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.dto.PurchaseRequest;
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.exception.IdempotencyConflictException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IdempotencyStoreTest {
+
+    private IdempotencyStore store;
+
+    private PurchaseRequest request;
+
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        store = new IdempotencyStore(1000, Duration.ofMinutes(10), Duration.ofSeconds(5), null);
+        request = request(1L, List.of(1L, 2L));
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void execute_WithRepeatedKey_ShouldReplayFirstResponse() {
+        // Act
+        IdempotentPurchase first = store.execute("key-1", request, this::purchase);
+        IdempotentPurchase retry = store.execute("key-1", request(1L, List.of(1L, 2L)), this::purchase);
+
+        // Assert
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertSame(first.response(), retry.response());
+        assertEquals(1, executions.get());
+        assertEquals(1, store.stats().getExecutedCount());
+        assertEquals(1, store.stats().getReplayedCount());
+    }
+
+    @Test
+    void execute_WithDifferentKeys_ShouldRunEachPurchase() {
+        // Act
+        store.execute("key-1", request, this::purchase);
+        store.execute("key-2", request, this::purchase);
+
+        // Assert
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void execute_WithKeyReusedForDifferentPurchase_ShouldThrowException() {
+        // Arrange
+        store.execute("key-1", request, this::purchase);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> store.execute("key-1", request(1L, List.of(2L, 1L)), this::purchase));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.execute("key-1", request(2L, List.of(1L, 2L)), this::purchase));
+        assertEquals(1, executions.get());
+        assertEquals(2, store.stats().getMismatchCount());
+    }
+
+    @Test
+    void execute_WithFailedFirstAttempt_ShouldRunRetry() {
+        // Arrange
+        assertThrows(IllegalArgumentException.class, () -> store.execute("key-1", request, () -> {
+            throw new IllegalArgumentException("Customer not found");
+        }));
+
+        // Act
+        IdempotentPurchase retry = store.execute("key-1", request, this::purchase);
+
+        // Assert
+        assertFalse(retry.replayed());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_WithConcurrentDuplicates_ShouldRunPurchaseOnce() throws Exception {
+        // Arrange
+        int duplicates = 8;
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(duplicates);
+        Future<IdempotentPurchase> original = executor.submit(() -> store.execute("key-1", request, () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return purchase();
+        }));
+        started.await();
+
+        // Act
+        List<Future<IdempotentPurchase>> retries = new ArrayList<>();
+        for (int i = 1; i < duplicates; i++) {
+            retries.add(executor.submit(() -> store.execute("key-1", request, this::purchase)));
+        }
+        while (store.stats().getJoinedCount() < duplicates - 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        // Assert
+        PurchaseResponse response = original.get().response();
+        for (Future<IdempotentPurchase> retry : retries) {
+            assertTrue(retry.get().replayed());
+            assertSame(response, retry.get().response());
+        }
+        assertEquals(1, executions.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void execute_WhenOriginalOutlastsWaitTimeout_ShouldThrowConflict() throws Exception {
+        // Arrange
+        store = new IdempotencyStore(1000, Duration.ofMinutes(10), Duration.ofMillis(10), null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread original = new Thread(() -> store.execute("key-1", request, () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return purchase();
+        }));
+        original.start();
+        started.await();
+
+        // Act & Assert
+        assertThrows(IdempotencyConflictException.class, () -> store.execute("key-1", request, this::purchase));
+        release.countDown();
+        original.join();
+    }
+
+    @Test
+    void execute_WithBlankOrOversizedKey_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> store.execute(" ", request, this::purchase));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.execute("k".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1), request, this::purchase));
+        assertEquals(0, executions.get());
+    }
+
+    private PurchaseResponse purchase() {
+        executions.incrementAndGet();
+        PurchaseResponse response = new PurchaseResponse();
+        response.setTotalPrice(new BigDecimal("45.98"));
+        response.setLoyaltyPointsEarned(2);
+        return response;
+    }
+
+    private static PurchaseRequest request(Long customerId, List<Long> bookIds) {
+        PurchaseRequest request = new PurchaseRequest();
+        request.setCustomerId(customerId);
+        request.setBookIds(bookIds);
+        return request;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.bookstore.service.purchase;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.dto.PurchasePipelineStatsResponse;
+import com.bookstore.dto.PurchaseResponse;
+import com.bookstore.dto.PurchaseStatusResponse;
+import com.bookstore.exception.PurchaseQueueFullException;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PurchasePipelineTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private PurchasePipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void submit_ShouldCompletePurchaseInBackground() {
+        // Arrange
+        pipeline = pipeline(10, 2);
+        PurchaseResponse response = new PurchaseResponse();
+        response.setTotalPrice(new BigDecimal("45.98"));
+
+        // Act
+        PurchaseStatusResponse accepted = pipeline.submit(() -> response);
+        PurchaseStatusResponse finished = awaitFinished(accepted.getPurchaseId());
+
+        // Assert
+        assertEquals(NOW, accepted.getSubmittedAt());
+        assertEquals(PurchaseStatusResponse.Status.COMPLETED, finished.getStatus());
+        assertEquals(response, finished.getResult());
+        assertEquals(NOW, finished.getCompletedAt());
+        assertNull(finished.getMessage());
+    }
+
+    @Test
+    void submit_WithFailingPurchase_ShouldRecordFailure() {
+        // Arrange
+        pipeline = pipeline(10, 2);
+
+        // Act
+        PurchaseStatusResponse accepted = pipeline.submit(() -> {
+            throw new IllegalArgumentException("Customer not found");
+        });
+        PurchaseStatusResponse finished = awaitFinished(accepted.getPurchaseId());
+
+        // Assert
+        assertEquals(PurchaseStatusResponse.Status.FAILED, finished.getStatus());
+        assertEquals("Customer not found", finished.getMessage());
+        assertNull(finished.getResult());
+        assertEquals(1, pipeline.stats().getFailedCount());
+    }
+
+    @Test
+    void submit_WithPurchaseThrowingError_ShouldRecordFailure() {
+        // Arrange
+        pipeline = pipeline(10, 2);
+
+        // Act
+        PurchaseStatusResponse accepted = pipeline.submit(() -> {
+            throw new StackOverflowError();
+        });
+        PurchaseStatusResponse finished = awaitFinished(accepted.getPurchaseId());
+
+        // Assert
+        assertEquals(PurchaseStatusResponse.Status.FAILED, finished.getStatus());
+        assertEquals("StackOverflowError", finished.getMessage());
+        assertEquals(1, pipeline.stats().getFailedCount());
+    }
+
+    @Test
+    void submit_WhenFull_ShouldRejectUntilPurchasesFinish() {
+        // Arrange
+        pipeline = pipeline(2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<PurchaseResponse> blocked = () -> {
+            awaitQuietly(release);
+            return new PurchaseResponse();
+        };
+        PurchaseStatusResponse first = pipeline.submit(blocked);
+        PurchaseStatusResponse second = pipeline.submit(blocked);
+
+        // Act & Assert
+        assertThrows(PurchaseQueueFullException.class, () -> pipeline.submit(PurchaseResponse::new));
+        assertEquals(1, pipeline.stats().getRejectedCount());
+
+        release.countDown();
+        awaitFinished(first.getPurchaseId());
+        awaitFinished(second.getPurchaseId());
+        awaitFinished(pipeline.submit(PurchaseResponse::new).getPurchaseId());
+    }
+
+    @Test
+    void submit_ShouldRunAtMostConcurrencyPurchasesAtOnce() {
+        // Arrange
+        pipeline = pipeline(50, 3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        String[] ids = new String[30];
+
+        // Act
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pipeline.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleepQuietly(2);
+                running.decrementAndGet();
+                return new PurchaseResponse();
+            }).getPurchaseId();
+        }
+        for (String id : ids) {
+            awaitFinished(id);
+        }
+
+        // Assert
+        assertTrue(maxRunning.get() <= 3);
+        PurchasePipelineStatsResponse stats = pipeline.stats();
+        assertEquals(30, stats.getSubmittedCount());
+        assertEquals(30, stats.getCompletedCount());
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(0, stats.getProcessing());
+        assertEquals(3, stats.getConcurrency());
+    }
+
+    @Test
+    void getStatus_WithUnknownId_ShouldReturnEmpty() {
+        // Arrange
+        pipeline = pipeline(10, 2);
+
+        // Act & Assert
+        assertTrue(pipeline.getStatus("unknown").isEmpty());
+        assertTrue(pipeline.getStatus(null).isEmpty());
+    }
+
+    @Test
+    void constructor_WithInvalidLimits_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> pipeline(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> pipeline(1, 0));
+    }
+
+    private static PurchasePipeline pipeline(int capacity, int concurrency) {
+        return new PurchasePipeline(capacity, concurrency, Duration.ofMinutes(1), Duration.ofSeconds(5),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private PurchaseStatusResponse awaitFinished(String purchaseId) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            PurchaseStatusResponse status = pipeline.getStatus(purchaseId).orElseThrow();
+            if (status.getStatus() == PurchaseStatusResponse.Status.COMPLETED
+                    || status.getStatus() == PurchaseStatusResponse.Status.FAILED) {
+                return status;
+            }
+            sleepQuietly(1);
+        }
+        throw new AssertionError("Purchase " + purchaseId + " did not finish");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.bookstore.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.bookstore.model.Book;
+import com.bookstore.model.BookType;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TitleSearchIndexTest {
+
+    private TitleSearchIndex index;
+
+    private Book hobbit;
+    private Book hobbitAnnotated;
+    private Book lordOfTheRings;
+    private Book cafe;
+
+    @BeforeEach
+    void setUp() {
+        index = new TitleSearchIndex(TitleSearchIndex.DEFAULT_MAX_CANDIDATES);
+        hobbit = new Book(1L, "The Hobbit", new BigDecimal("10.00"), BookType.REGULAR);
+        hobbitAnnotated = new Book(2L, "The Annotated Hobbit: Revised and Expanded", new BigDecimal("30.00"), BookType.NEW_RELEASE);
+        lordOfTheRings = new Book(3L, "The Lord of the Rings", new BigDecimal("25.00"), BookType.OLD_EDITION);
+        cafe = new Book(4L, "Café Society", new BigDecimal("12.00"), BookType.REGULAR);
+        index.load(sink -> List.of(hobbit, hobbitAnnotated, lordOfTheRings, cafe).forEach(sink));
+    }
+
+    @Test
+    void tokenize_ShouldLowerCaseAndStripAccentsAndPunctuation() {
+        assertArrayEquals(new String[]{"cafe", "society", "2nd", "ed"}, TitleSearchIndex.tokenize("Café Society (2nd Ed.)"));
+    }
+
+    @Test
+    void search_ShouldMatchWordPrefixesAndRankExactAndShorterTitlesFirst() {
+        // Act
+        TitleSearchIndex.SearchResult exact = index.search("hobbit", null, 0, 10);
+        TitleSearchIndex.SearchResult prefix = index.search("hob", null, 0, 10);
+
+        // Assert
+        assertEquals(List.of(1L, 2L), exact.ids());
+        assertEquals(2, exact.total());
+        assertEquals(List.of(1L, 2L), prefix.ids());
+    }
+
+    @Test
+    void search_ShouldRequireEveryQueryWord() {
+        // Act
+        TitleSearchIndex.SearchResult result = index.search("the rings", null, 0, 10);
+
+        // Assert
+        assertEquals(List.of(3L), result.ids());
+    }
+
+    @Test
+    void search_ShouldIgnoreAccentsInQuery() {
+        assertEquals(List.of(4L), index.search("CAFÉ", null, 0, 10).ids());
+    }
+
+    @Test
+    void search_ShouldFilterByType() {
+        // Act
+        TitleSearchIndex.SearchResult result = index.search("the", BookType.OLD_EDITION, 0, 10);
+
+        // Assert
+        assertEquals(List.of(3L), result.ids());
+        assertEquals(1, result.total());
+    }
+
+    @Test
+    void search_ShouldPageThroughRankedResults() {
+        // Act
+        TitleSearchIndex.SearchResult firstPage = index.search("the", null, 0, 2);
+        TitleSearchIndex.SearchResult secondPage = index.search("the", null, 1, 2);
+
+        // Assert
+        assertEquals(3, firstPage.total());
+        assertEquals(List.of(1L, 3L), firstPage.ids());
+        assertEquals(List.of(2L), secondPage.ids());
+    }
+
+    @Test
+    void search_WithLongQueryWord_ShouldVerifyBeyondIndexedPrefix() {
+        // Arrange
+        index.bookSaved(new Book(5L, "Internationalization", BigDecimal.ONE, BookType.REGULAR));
+        index.bookSaved(new Book(6L, "Internationalism", BigDecimal.ONE, BookType.REGULAR));
+
+        // Act
+        TitleSearchIndex.SearchResult result = index.search("internationalization", null, 0, 10);
+
+        // Assert
+        assertEquals(1, result.total());
+        assertEquals(List.of(5L), result.ids());
+    }
+
+    @Test
+    void search_WithSingleLetter_ShouldMatchWordsStartingWithIt() {
+        // Act
+        TitleSearchIndex.SearchResult result = index.search("r", null, 0, 10);
+
+        // Assert
+        assertEquals(List.of(3L, 2L), result.ids());
+        assertTrue(result.totalExact());
+        assertTrue(result.rankingComplete());
+    }
+
+    @Test
+    void search_BeyondResultWindow_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> index.search("the", null, 10, 1000));
+        assertThrows(IllegalArgumentException.class, () -> index.search("the", null, Integer.MAX_VALUE, 1000));
+        assertThrows(IllegalArgumentException.class, () -> index.search("the", null, 0, 0));
+    }
+
+    @Test
+    void search_WithMoreCandidatesThanLimit_ShouldRankThoseAndReportPartialResults() {
+        // Arrange
+        TitleSearchIndex cappedIndex = new TitleSearchIndex(2);
+        cappedIndex.load(sink -> List.of(hobbit, hobbitAnnotated, lordOfTheRings, cafe).forEach(sink));
+
+        // Act
+        TitleSearchIndex.SearchResult result = cappedIndex.search("the", null, 0, 10);
+
+        // Assert
+        assertEquals(List.of(1L, 2L), result.ids());
+        assertEquals(3, result.total());
+        assertFalse(result.totalExact());
+        assertFalse(result.rankingComplete());
+    }
+
+    @Test
+    void bookSaved_ShouldReindexChangedTitle() {
+        // Act
+        index.bookSaved(new Book(1L, "There and Back Again", new BigDecimal("10.00"), BookType.REGULAR));
+
+        // Assert
+        assertEquals(List.of(2L), index.search("hobbit", null, 0, 10).ids());
+        assertEquals(1, index.search("again", null, 0, 10).total());
+    }
+
+    @Test
+    void bookDeleted_ShouldRemoveBookFromResults() {
+        // Act
+        index.bookDeleted(3L);
+
+        // Assert
+        assertTrue(index.search("rings", null, 0, 10).ids().isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void load_ShouldNotOverwriteWritesMadeDuringLoad() {
+        // Arrange
+        TitleSearchIndex loadingIndex = new TitleSearchIndex(TitleSearchIndex.DEFAULT_MAX_CANDIDATES);
+        Book renamed = new Book(1L, "Renamed", BigDecimal.ONE, BookType.REGULAR);
+
+        // Act
+        loadingIndex.load(sink -> {
+            loadingIndex.bookSaved(renamed);
+            loadingIndex.bookDeleted(3L);
+            List.of(hobbit, lordOfTheRings).forEach(sink);
+        });
+
+        // Assert
+        assertEquals(List.of(1L), loadingIndex.search("renamed", null, 0, 10).ids());
+        assertTrue(loadingIndex.search("hobbit", null, 0, 10).ids().isEmpty());
+        assertTrue(loadingIndex.search("rings", null, 0, 10).ids().isEmpty());
+    }
+}